@@ -78,23 +78,9 @@ public class Helper {
             new Runnable() {
               @Override
               public void run() {
-
-                final Semaphore semaphore = new Semaphore(1);
-                try {
-                  semaphore.acquire();
-
-                  transport.sendXmlMessage(user, new GetVFileContentsXmlMessage(vFile) {
-                    @Override
-                    public void processResponse(Element responseElement) {
-                      super.processResponse(responseElement);
-                      semaphore.release();
-                    }
-                  });
-
-                  semaphore.tryAcquire(getWaitTimeout(), TimeUnit.MILLISECONDS);
-
-                } catch (InterruptedException ignored) {
-                  // noop
+                if (!requestVFileContent(transport, user, vFile, true)) {
+                  // the delta doesn't apply to the cached revision
+                  requestVFileContent(transport, user, vFile, false);
                 }
               }
             });
@@ -115,6 +101,32 @@ public class Helper {
     }
   }
 
+  /**
+   * @return false if the response was a rejected delta and the whole contents should be requested
+   */
+  private static boolean requestVFileContent(Transport transport, User user, VFile vFile, boolean allowDelta) {
+    final Semaphore semaphore = new Semaphore(1);
+    GetVFileContentsXmlMessage message = new GetVFileContentsXmlMessage(vFile, allowDelta) {
+      @Override
+      public void processResponse(Element responseElement) {
+        super.processResponse(responseElement);
+        semaphore.release();
+      }
+    };
+
+    try {
+      semaphore.acquire();
+
+      transport.sendXmlMessage(user, message);
+
+      semaphore.tryAcquire(getWaitTimeout(), TimeUnit.MILLISECONDS);
+
+    } catch (InterruptedException ignored) {
+      return true;
+    }
+    return !message.isDeltaRejected();
+  }
+
   private static int getWaitTimeout() {
     return Pico.isUnitTest() ? 2000 : 120 * 1000;
   }
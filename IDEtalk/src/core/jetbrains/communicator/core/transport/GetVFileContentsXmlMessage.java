@@ -16,18 +16,38 @@
 
 package jetbrains.communicator.core.transport;
 
+import com.intellij.openapi.vfs.CharsetToolkit;
 import jetbrains.communicator.core.vfs.VFile;
+import jetbrains.communicator.core.vfs.VFileContentsCache;
+import jetbrains.communicator.core.vfs.VFileDelta;
 import org.jdom.Element;
+import org.jdom.Namespace;
 
 /**
+ * Requests contents of a remote file. The request carries a {@link VFileDelta} signature of the previously received
+ * revision; peers which understand it answer with a delta, older peers ignore it and send the whole contents.
+ * If the delta doesn't apply, {@link #isDeltaRejected()} is set and the whole contents should be requested
+ * by a message created without delta.
+ *
  * @author Kir
  */
 public class GetVFileContentsXmlMessage implements XmlMessage {
   public static final String TAG = "fillContents";
   private final VFile myFile;
+  private final boolean myAllowDelta;
+  private byte[] myBase;
+  private volatile boolean myDeltaRejected;
 
   public GetVFileContentsXmlMessage(VFile file) {
+    this(file, true);
+  }
+
+  /**
+   * @param allowDelta false to omit the signature, so that the whole contents are sent back
+   */
+  public GetVFileContentsXmlMessage(VFile file, boolean allowDelta) {
     myFile = file;
+    myAllowDelta = allowDelta;
   }
 
   public String getTagName() {
@@ -44,12 +64,40 @@ public class GetVFileContentsXmlMessage implements XmlMessage {
 
   public void fillRequest(Element element) {
     myFile.saveTo(element);
+    if (myAllowDelta) {
+      myBase = VFileContentsCache.getInstance().get(myFile);
+      element.addContent(VFileDelta.createSignature(myBase, element.getNamespace()));
+    }
+  }
+
+  /**
+   * @return true if the response was a delta which doesn't apply to the cached revision, so the file got no contents
+   */
+  public boolean isDeltaRejected() {
+    return myDeltaRejected;
   }
 
   public void processResponse(Element responseElement) {
+    Element delta = responseElement.getChild(VFileDelta.DELTA_ELEMENT, Namespace.getNamespace(Transport.NAMESPACE));
+    if (delta != null) {
+      byte[] contents = VFileDelta.applyDelta(delta, myBase);
+      if (contents != null) {
+        VFileContentsCache.getInstance().put(myFile, contents);
+        myFile.setContents(new String(contents, CharsetToolkit.UTF8_CHARSET));
+      }
+      else {
+        VFileContentsCache.getInstance().remove(myFile);
+        myDeltaRejected = true;
+      }
+      return;
+    }
+
     VFile from = VFile.createFrom(responseElement);
     if (from != null) {
       myFile.setContents(from.getContents());
+      if (from.getContents() != null) {
+        VFileContentsCache.getInstance().put(myFile, from.getContents().getBytes(CharsetToolkit.UTF8_CHARSET));
+      }
     }
   }
 }
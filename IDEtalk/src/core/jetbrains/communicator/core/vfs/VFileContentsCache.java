@@ -0,0 +1,79 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.communicator.core.vfs;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last received revisions of remote files, used as the base for {@link VFileDelta}.
+ * Least recently used entries are dropped when the total size exceeds the limit.
+ */
+public class VFileContentsCache {
+  private static final VFileContentsCache ourInstance = new VFileContentsCache(8 * 1024 * 1024);
+
+  private final Map<String, byte[]> myContents = new LinkedHashMap<>(16, 0.75f, true);
+  private final long myMaxSize;
+  private long mySize;
+
+  VFileContentsCache(long maxSize) {
+    myMaxSize = maxSize;
+  }
+
+  public static VFileContentsCache getInstance() {
+    return ourInstance;
+  }
+
+  @Nullable
+  public synchronized byte[] get(VFile file) {
+    return myContents.get(getKey(file));
+  }
+
+  public synchronized void put(VFile file, byte[] contents) {
+    if (contents.length > myMaxSize) return;
+
+    byte[] old = myContents.put(getKey(file), contents);
+    if (old != null) {
+      mySize -= old.length;
+    }
+    mySize += contents.length;
+
+    for (Iterator<byte[]> it = myContents.values().iterator(); mySize > myMaxSize && it.hasNext(); ) {
+      mySize -= it.next().length;
+      it.remove();
+    }
+  }
+
+  public synchronized void remove(VFile file) {
+    byte[] old = myContents.remove(getKey(file));
+    if (old != null) {
+      mySize -= old.length;
+    }
+  }
+
+  public synchronized void clear() {
+    myContents.clear();
+    mySize = 0;
+  }
+
+  private static String getKey(VFile file) {
+    return file.getProjectName() + '\n' + file.getFullPath();
+  }
+}
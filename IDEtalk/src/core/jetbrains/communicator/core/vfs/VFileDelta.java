@@ -0,0 +1,265 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jetbrains.communicator.core.vfs;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * rsync-like transfer of file contents.
+ * The requesting side sends a signature of the revision it has cached: a weak rolling checksum and a strong hash
+ * per block. The answering side sends back references to the blocks which are found in the current contents
+ * and deflated chunks of everything else.
+ */
+public class VFileDelta {
+  @NonNls public static final String SIGNATURE_ELEMENT = "signature";
+  @NonNls public static final String DELTA_ELEMENT = "delta";
+  @NonNls private static final String COPY_ELEMENT = "copy";
+  @NonNls private static final String DATA_ELEMENT = "data";
+  @NonNls private static final String HASH_ATTR = "hash";
+  @NonNls private static final String BLOCK_SIZE_ATTR = "blockSize";
+  @NonNls private static final String UNCHANGED_ATTR = "unchanged";
+  @NonNls private static final String BLOCK_ATTR = "block";
+  @NonNls private static final String COUNT_ATTR = "count";
+
+  static final int BLOCK_SIZE = 2048;
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private VFileDelta() {
+  }
+
+  /**
+   * @param base previously received contents, null if nothing is cached
+   */
+  public static Element createSignature(@Nullable byte[] base, Namespace namespace) {
+    Element signature = new Element(SIGNATURE_ELEMENT, namespace);
+    if (base == null) return signature;
+
+    signature.setAttribute(HASH_ATTR, sha1(base, 0, base.length));
+    signature.setAttribute(BLOCK_SIZE_ATTR, String.valueOf(BLOCK_SIZE));
+    StringBuilder text = new StringBuilder();
+    for (int offset = 0; offset + BLOCK_SIZE <= base.length; offset += BLOCK_SIZE) {
+      if (text.length() > 0) text.append(' ');
+      text.append(Integer.toHexString(weakHash(base, offset, BLOCK_SIZE))).append(':').append(strongHash(base, offset, BLOCK_SIZE));
+    }
+    signature.setText(text.toString());
+    return signature;
+  }
+
+  public static Element createDelta(byte[] contents, Element signature) {
+    Element delta = new Element(DELTA_ELEMENT, signature.getNamespace());
+    String hash = sha1(contents, 0, contents.length);
+    delta.setAttribute(HASH_ATTR, hash);
+    if (hash.equals(signature.getAttributeValue(HASH_ATTR))) {
+      delta.setAttribute(UNCHANGED_ATTR, "true");
+      return delta;
+    }
+
+    int blockSize = BLOCK_SIZE;
+    Map<Integer, List<Integer>> weak2Blocks = new HashMap<>();
+    List<String> strongHashes = new ArrayList<>();
+    String blocks = signature.getTextTrim();
+    if (signature.getAttributeValue(BLOCK_SIZE_ATTR) != null && blocks.length() > 0) {
+      blockSize = Integer.parseInt(signature.getAttributeValue(BLOCK_SIZE_ATTR));
+      for (String block : blocks.split(" ")) {
+        int colon = block.indexOf(':');
+        int weak = (int)Long.parseLong(block.substring(0, colon), 16);
+        List<Integer> sameWeak = weak2Blocks.get(weak);
+        if (sameWeak == null) {
+          sameWeak = new ArrayList<>(1);
+          weak2Blocks.put(weak, sameWeak);
+        }
+        sameWeak.add(strongHashes.size());
+        strongHashes.add(block.substring(colon + 1));
+      }
+    }
+
+    int literalStart = 0;
+    int pos = 0;
+    if (!weak2Blocks.isEmpty() && contents.length >= blockSize) {
+      int weak = weakHash(contents, 0, blockSize);
+      while (pos + blockSize <= contents.length) {
+        int matched = findBlock(weak2Blocks.get(weak), strongHashes, contents, pos, blockSize);
+        if (matched >= 0) {
+          addLiteral(delta, contents, literalStart, pos);
+          addCopy(delta, matched);
+          pos += blockSize;
+          literalStart = pos;
+          if (pos + blockSize <= contents.length) {
+            weak = weakHash(contents, pos, blockSize);
+          }
+        }
+        else {
+          if (pos + blockSize < contents.length) {
+            weak = roll(weak, contents[pos], contents[pos + blockSize], blockSize);
+          }
+          pos++;
+        }
+      }
+    }
+    addLiteral(delta, contents, literalStart, contents.length);
+    return delta;
+  }
+
+  /**
+   * @return restored contents or null if the delta does not apply to the base
+   */
+  @Nullable
+  public static byte[] applyDelta(Element delta, @Nullable byte[] base) {
+    String hash = delta.getAttributeValue(HASH_ATTR);
+    if ("true".equals(delta.getAttributeValue(UNCHANGED_ATTR))) {
+      return base != null && sha1(base, 0, base.length).equals(hash) ? base : null;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Inflater inflater = new Inflater();
+    try {
+      for (Object o : delta.getChildren()) {
+        Element element = (Element)o;
+        if (COPY_ELEMENT.equals(element.getName())) {
+          int block = Integer.parseInt(element.getAttributeValue(BLOCK_ATTR));
+          int count = Integer.parseInt(element.getAttributeValue(COUNT_ATTR));
+          if (base == null || (block + count) * BLOCK_SIZE > base.length) return null;
+          out.write(base, block * BLOCK_SIZE, count * BLOCK_SIZE);
+        }
+        else if (DATA_ELEMENT.equals(element.getName())) {
+          inflater.reset();
+          inflater.setInput(Base64.getDecoder().decode(element.getTextTrim()));
+          byte[] buffer = new byte[CHUNK_SIZE];
+          while (!inflater.finished()) {
+            int length = inflater.inflate(buffer);
+            if (length == 0 && inflater.needsInput()) return null;
+            out.write(buffer, 0, length);
+          }
+        }
+      }
+    }
+    catch (DataFormatException | IllegalArgumentException e) {
+      return null;
+    }
+    finally {
+      inflater.end();
+    }
+
+    byte[] result = out.toByteArray();
+    return sha1(result, 0, result.length).equals(hash) ? result : null;
+  }
+
+  private static int findBlock(@Nullable List<Integer> candidates, List<String> strongHashes, byte[] contents, int offset, int blockSize) {
+    if (candidates == null) return -1;
+    String strong = strongHash(contents, offset, blockSize);
+    for (int block : candidates) {
+      if (strongHashes.get(block).equals(strong)) return block;
+    }
+    return -1;
+  }
+
+  private static void addCopy(Element delta, int block) {
+    List children = delta.getChildren();
+    if (!children.isEmpty()) {
+      Element last = (Element)children.get(children.size() - 1);
+      if (COPY_ELEMENT.equals(last.getName())) {
+        int lastBlock = Integer.parseInt(last.getAttributeValue(BLOCK_ATTR));
+        int count = Integer.parseInt(last.getAttributeValue(COUNT_ATTR));
+        if (lastBlock + count == block) {
+          last.setAttribute(COUNT_ATTR, String.valueOf(count + 1));
+          return;
+        }
+      }
+    }
+
+    Element copy = new Element(COPY_ELEMENT, delta.getNamespace());
+    copy.setAttribute(BLOCK_ATTR, String.valueOf(block));
+    copy.setAttribute(COUNT_ATTR, "1");
+    delta.addContent(copy);
+  }
+
+  private static void addLiteral(Element delta, byte[] contents, int from, int to) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      byte[] buffer = new byte[CHUNK_SIZE];
+      for (int start = from; start < to; start += CHUNK_SIZE) {
+        deflater.reset();
+        deflater.setInput(contents, start, Math.min(CHUNK_SIZE, to - start));
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        while (!deflater.finished()) {
+          compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+
+        Element data = new Element(DATA_ELEMENT, delta.getNamespace());
+        data.setText(Base64.getEncoder().encodeToString(compressed.toByteArray()));
+        delta.addContent(data);
+      }
+    }
+    finally {
+      deflater.end();
+    }
+  }
+
+  static int weakHash(byte[] data, int offset, int length) {
+    int a = 0;
+    int b = 0;
+    for (int i = 0; i < length; i++) {
+      int value = data[offset + i] & 0xff;
+      a += value;
+      b += (length - i) * value;
+    }
+    return (b & 0xffff) << 16 | (a & 0xffff);
+  }
+
+  static int roll(int weak, byte out, byte in, int length) {
+    int a = weak & 0xffff;
+    int b = weak >>> 16;
+    a = (a - (out & 0xff) + (in & 0xff)) & 0xffff;
+    b = (b - length * (out & 0xff) + a) & 0xffff;
+    return b << 16 | a;
+  }
+
+  private static String strongHash(byte[] data, int offset, int length) {
+    return digest("MD5", data, offset, length);
+  }
+
+  private static String sha1(byte[] data, int offset, int length) {
+    return digest("SHA-1", data, offset, length);
+  }
+
+  private static String digest(@NonNls String algorithm, byte[] data, int offset, int length) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance(algorithm);
+      digest.update(data, offset, length);
+      StringBuilder result = new StringBuilder();
+      for (byte b : digest.digest()) {
+        result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return result.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
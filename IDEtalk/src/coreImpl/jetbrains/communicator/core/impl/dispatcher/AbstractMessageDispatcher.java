@@ -25,11 +25,13 @@ import jetbrains.communicator.core.dispatcher.MessageDispatcher;
 import jetbrains.communicator.core.impl.users.UserImpl;
 import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.users.UserEvent;
+import jetbrains.communicator.ide.IDEFacade;
 import jetbrains.communicator.util.XMLUtil;
 import org.apache.log4j.Logger;
 import org.picocontainer.Disposable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -40,15 +42,29 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
   private XStream myXStream;
 
   private final File myDataDir;
+  private final IDEFacade myIdeFacade;
   private final MyEventListener myEventListener;
 
+  // number of journal records after which the queue snapshot is rewritten and the journal is reset
+  private static final int COMPACTION_THRESHOLD = 500;
+
+  // guards in-memory state only, persistence happens outside of it
   private final Object myUser2MessagesLock = new Object();
   private final Map<User,List<Message>> myUser2Messages = new HashMap<>();
+  private List<MessagesJournal.Operation> myUncommitted = new ArrayList<>();
+  private long mySequence;
+
+  // guards journal and snapshot files
+  private final Object myJournalLock = new Object();
+  private MessagesJournal myJournal;
+  private boolean myCompactionScheduled;
+
   private final EventBroadcaster myEventBroadcaster;
   private boolean myDispatching;
 
-  protected AbstractMessageDispatcher(EventBroadcaster eventBroadcaster, File dataDir) {
-    myDataDir = dataDir;
+  protected AbstractMessageDispatcher(EventBroadcaster eventBroadcaster, IDEFacade ideFacade) {
+    myDataDir = ideFacade.getCacheDir();
+    myIdeFacade = ideFacade;
     myEventListener = new MyEventListener(eventBroadcaster);
     myEventBroadcaster = eventBroadcaster;
     load();
@@ -56,6 +72,12 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
 
   public void dispose() {
     myEventListener.dispose();
+    save();
+    synchronized (myJournalLock) {
+      if (myJournal != null) {
+        myJournal.close();
+      }
+    }
     //noinspection HardCodedStringLiteral
     LOG.debug("Disposed.");
   }
@@ -74,13 +96,16 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
       synchronized(myUser2MessagesLock) {
         List<Message> userMessages = getMessages(user);
         if (result) {
-          userMessages.remove(message);
-          if (userMessages.size() == 0) {
+          int index = userMessages.indexOf(message);
+          if (index >= 0) {
+            apply(MessagesJournal.Operation.REMOVE, user, null, index);
+          }
+          else if (userMessages.isEmpty()) {
             myUser2Messages.remove(user);
           }
         }
         else if (!userMessages.contains(message) ){
-          userMessages.add(message);
+          apply(MessagesJournal.Operation.ADD, user, message, -1);
         }
       }
 
@@ -144,24 +169,53 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
           //noinspection HardCodedStringLiteral
           LOG.debug("Added pending message " + message + "\nfor user " + user);
         }
-        userMessages.add(message);
-        save();
+        apply(MessagesJournal.Operation.ADD, user, message, -1);
       }
     }
+    save();
   }
 
   protected void removePendingMessage(User user, int messageIndex) {
     synchronized(myUser2MessagesLock) {
-      List<Message> userMessages = getMessages(user);
-      userMessages.remove(messageIndex);
-      save();
+      apply(MessagesJournal.Operation.REMOVE, user, null, messageIndex);
     }
+    save();
   }
 
   protected void clearAll() {
     synchronized (myUser2MessagesLock) {
-      myUser2Messages.clear();
-      save();
+      apply(MessagesJournal.Operation.CLEAR, null, null, -1);
+    }
+    save();
+  }
+
+  /**
+   * Changes in-memory state and queues the change for the journal, must be called under myUser2MessagesLock.
+   */
+  private void apply(byte kind, User user, Message message, int index) {
+    MessagesJournal.Operation operation = new MessagesJournal.Operation(++mySequence, kind, user, message, index);
+    replay(operation);
+    myUncommitted.add(operation);
+  }
+
+  private void replay(MessagesJournal.Operation operation) {
+    switch (operation.myKind) {
+      case MessagesJournal.Operation.ADD:
+        getMessages(operation.myUser).add(operation.myMessage);
+        break;
+      case MessagesJournal.Operation.REMOVE:
+        List<Message> userMessages = getMessages(operation.myUser);
+        userMessages.remove(operation.myIndex);
+        if (userMessages.isEmpty()) {
+          myUser2Messages.remove(operation.myUser);
+        }
+        break;
+      case MessagesJournal.Operation.REMOVE_USER:
+        myUser2Messages.remove(operation.myUser);
+        break;
+      case MessagesJournal.Operation.CLEAR:
+        myUser2Messages.clear();
+        break;
     }
   }
 
@@ -177,10 +231,23 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
   }
 
   protected final void load() {
-    synchronized (myUser2MessagesLock) {
-      Object pendingEventsStorable = XMLUtil.fromXml(getXStream(), getFileName(), false);
-      if (pendingEventsStorable instanceof MessagesStorable) {
-        loadFromStorableMessages((MessagesStorable) pendingEventsStorable);
+    synchronized (myJournalLock) {
+      if (myJournal != null) {
+        myJournal.close();
+      }
+      myJournal = new MessagesJournal(new File(getFileName() + MessagesJournal.SUFFIX), getXStream());
+
+      synchronized (myUser2MessagesLock) {
+        myUncommitted.clear();
+        mySequence = 0;
+        Object pendingEventsStorable = XMLUtil.fromXml(getXStream(), getFileName(), false);
+        if (pendingEventsStorable instanceof MessagesStorable) {
+          loadFromStorableMessages((MessagesStorable) pendingEventsStorable);
+          mySequence = ((MessagesStorable)pendingEventsStorable).getJournalSequence();
+        }
+
+        // crash recovery: everything journaled after the snapshot
+        mySequence = myJournal.replay(mySequence, operation -> replay(operation));
       }
     }
   }
@@ -196,24 +263,70 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
 
   private void removeUser(User user) {
     synchronized (myUser2MessagesLock) {
-      myUser2Messages.remove(user);
-      save();
+      apply(MessagesJournal.Operation.REMOVE_USER, user, null, -1);
     }
+    save();
   }
 
+  /**
+   * Commits queue changes made since the previous call to the journal as one group.
+   * The commit is synchronous, so a queued message is on disk when the change returns;
+   * only changes of concurrent callers end up in the same group.
+   */
   @SuppressWarnings({"HardCodedStringLiteral"})
   protected void save() {
     if (myDataDir == null || !myDataDir.exists()) return;
 
     LOG.debug("Save start");
-    synchronized(myUser2MessagesLock) {
-      XMLUtil.toXml(getXStream(), getFileName(), createStorableMessages());
+    synchronized (myJournalLock) {
+      List<MessagesJournal.Operation> operations;
+      synchronized (myUser2MessagesLock) {
+        if (myUncommitted.isEmpty()) return;
+        operations = myUncommitted;
+        myUncommitted = new ArrayList<>();
+      }
+
+      try {
+        myJournal.append(operations);
+      }
+      catch (IOException e) {
+        LOG.error("Unable to journal pending messages: " + e.getMessage(), e);
+        compact();
+      }
+
+      if (myJournal.getRecordCount() > COMPACTION_THRESHOLD && !myCompactionScheduled) {
+        myCompactionScheduled = true;
+        myIdeFacade.runOnPooledThread(() -> {
+          synchronized (myJournalLock) {
+            myCompactionScheduled = false;
+            compact();
+          }
+        });
+      }
     }
     LOG.debug("Save finish");
   }
 
+  /**
+   * Rewrites the queue snapshot and resets the journal, must be called under myJournalLock.
+   */
+  private void compact() {
+    MessagesStorable storable;
+    synchronized (myUser2MessagesLock) {
+      storable = createStorableMessages();
+    }
+
+    // every operation with a sequence up to the snapshot one is in the snapshot, so the journal can be dropped
+    XMLUtil.toXml(getXStream(), getFileName(), storable);
+    myJournal.reset();
+  }
+
   protected MessagesStorable createStorableMessages() {
-    return new MessagesStorable(myUser2Messages);
+    Map<User, List<Message>> copy = new HashMap<>(myUser2Messages.size());
+    for (Map.Entry<User, List<Message>> entry : myUser2Messages.entrySet()) {
+      copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+    }
+    return new MessagesStorable(copy, mySequence);
   }
 
   @SuppressWarnings({"HardCodedStringLiteral"})
@@ -222,6 +335,7 @@ public abstract class AbstractMessageDispatcher implements MessageDispatcher, Di
       myXStream = XMLUtil.createXStream();
       myXStream.alias("user", UserImpl.class);
       myXStream.alias("pendingEvents", MessagesStorable.class);
+      myXStream.alias("pendingEventsOperation", MessagesJournal.Operation.class);
     }
 
     return myXStream;
@@ -44,7 +44,7 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
   private boolean myShouldDeliverNow;
 
   public AsyncMessageDispatcherImpl(EventBroadcaster broadcaster, IDEFacade ideFacade) {
-    super(broadcaster, ideFacade.getCacheDir());
+    super(broadcaster, ideFacade);
 
     myIdeFacade = ideFacade;
     myEventListener = new MyEventListener(broadcaster);
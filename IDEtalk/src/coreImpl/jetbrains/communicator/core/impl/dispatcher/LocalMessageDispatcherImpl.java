@@ -46,7 +46,7 @@ public class LocalMessageDispatcherImpl extends AbstractMessageDispatcher implem
   private final MessageHistory myHistory;
 
   public LocalMessageDispatcherImpl(EventBroadcaster eventBroadcaster, IDEFacade facade, UserModel userModel) {
-    super(eventBroadcaster, facade.getCacheDir());
+    super(eventBroadcaster, facade);
 
     myFacade = facade;
     myUserModel = userModel;
@@ -21,20 +21,21 @@ import jetbrains.communicator.core.impl.users.UserImpl;
 import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.users.UserModel;
 import jetbrains.communicator.ide.IDEFacade;
-import jetbrains.communicator.util.TimeUtil;
 import jetbrains.communicator.util.XMLUtil;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Future;
 
 /**
+ * Message history on top of {@link MessageLog}. History stored by older versions
+ * as one XML file per day is moved to the log once, on the first start.
+ *
  * @author Kir
  */
 class MessageHistory {
@@ -45,11 +46,12 @@ class MessageHistory {
   @NonNls
   private static final String HISTORY = "history";
 
-  private final DayHistory myHistory = new DayHistory();
   @NonNls
   private final XStream myXStream;
   private final UserModel myUserModel;
   private final IDEFacade myFacade;
+  private final UserConverter myUserConverter;
+  private final MessageLog myLog;
 
   private Future<?> myPendingSave;
 
@@ -59,13 +61,15 @@ class MessageHistory {
   MessageHistory(IDEFacade facade, UserModel userModel) {
     myFacade = facade;
     myUserModel = userModel;
+    myUserConverter = new UserConverter(myUserModel);
 
     getHistoryDir().mkdir();
 
     myXStream = XMLUtil.createXStream();
     setupXStream();
 
-    loadHistorySince(new Date());
+    myLog = new MessageLog(getHistoryDir(), myXStream);
+    migrateDayHistoryFiles();
   }
 
   public synchronized void dispose() {
@@ -74,7 +78,8 @@ class MessageHistory {
       myPendingSave = null;
     }
 
-    myHistory.clear();
+    myLog.flush();
+    myLog.close();
   }
 
   private void setupXStream() {
@@ -82,16 +87,16 @@ class MessageHistory {
     myXStream.alias("dayHistory", DayHistory.class);
     myXStream.aliasField("historyEntries", DayHistory.class, "myData");
 
-    myXStream.registerConverter(new UserConverter(myUserModel));
+    myXStream.registerConverter(myUserConverter);
   }
 
   public synchronized void addMessage(User user, LocalMessage message) {
-    myHistory.addMessage(user, message);
+    myLog.add(myUserConverter.toString(user), message);
     triggerSave();
   }
 
   public synchronized void clear() {
-    myHistory.clear();
+    myLog.clear();
 
     deleteAllHistoryFiles();
   }
@@ -111,58 +116,34 @@ class MessageHistory {
   }
 
   public synchronized LocalMessage[] getHistory(User user, @Nullable Date since) {
-    loadHistorySince(since);
-
-    List<LocalMessage> list = filterHistoryByDate(user, since);
+    List<LocalMessage> list = myLog.read(myUserConverter.toString(user), since);
     return list.toArray(new LocalMessage[list.size()]);
   }
 
-  private List<LocalMessage> filterHistoryByDate(User user, Date since) {
-    List<LocalMessage> list = myHistory.readMessages(user);
-    if (since != null) {
-      List<LocalMessage> result = new ArrayList<>(list.size());
-      for (LocalMessage message : list) {
-        if (message.getWhen().after(since)) {
-          result.add(message);
-        }
-      }
-      list = result;
-    }
-    return list;
-  }
-
-  private void loadHistorySince(@Nullable Date since) {
-    if (since != null) {
-      since = TimeUtil.getDay(since);
-    }
-
-    if (!myHistory.hasHistorySince(since)) {
-      if (since == null) {
-        doLoadHistorySince(new Date(0));
-        myHistory.setHasFullHistory();
-      }
-      else {
-        doLoadHistorySince(since);
-      }
-    }
-  }
-
-  private void doLoadHistorySince(Date since) {
-    File historyDir = getHistoryDir();
-
-    String[] historyFiles = historyDir.list((dir, name) -> name.endsWith(".xml"));
+  private void migrateDayHistoryFiles() {
+    String[] historyFiles = getHistoryDir().list((dir, name) -> name.endsWith(".xml"));
+    if (historyFiles == null || historyFiles.length == 0) return;
 
+    LOG.info("Moving " + historyFiles.length + " day history files to the message log");
     Arrays.sort(historyFiles);
-    for (int i = historyFiles.length - 1; i >= 0; i--) {
-      String historyFile = historyFiles[i];
+    for (String historyFile : historyFiles) {
       try {
-        Date date = DATE_FORMAT.parse(historyFile);
-        if (!date.before(since) && !myHistory.hasHistorySince(date)) {
-          DayHistory dayHistory = (DayHistory)XMLUtil.fromXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), false);
-          if (dayHistory != null) {
-            dayHistory.copyTo(myHistory);
+        DATE_FORMAT.parse(historyFile);
+        DayHistory dayHistory = (DayHistory)XMLUtil.fromXml(myXStream, getHistoryDir(), historyFile, false);
+        if (dayHistory == null) {
+          // files which could not be read are kept, so nothing is lost if they become readable later
+          continue;
+        }
+
+        for (User user : dayHistory.keySet()) {
+          for (LocalMessage message : dayHistory.readMessages(user)) {
+            myLog.add(myUserConverter.toString(user), message);
           }
         }
+        // each file is deleted right after its messages are saved, so a crash moves at most one file twice
+        myLog.flush();
+        if (myLog.hasUnsaved()) return;
+        new File(getHistoryDir(), historyFile).delete();
       }
       catch (ParseException e) {
         // ignore file of wrong format
@@ -171,8 +152,6 @@ class MessageHistory {
         // ignore file of wrong format
       }
     }
-
-    myHistory.resort();
   }
 
   private void triggerSave() {
@@ -193,52 +172,11 @@ class MessageHistory {
 
   private synchronized void saveHistory() {
     LOG.debug("Start history save");
-    Map<Date, DayHistory> map = getHistory();
-    for (Date date : map.keySet()) {
-      DayHistory dayHistory = map.get(date);
-      try {
-        XMLUtil.toXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), dayHistory);
-      } catch (RuntimeException e) {
-        LOG.error("Unable to save dayHistory for " + date + ": " + dayHistory, e);
-      }
-    }
-
+    myLog.flush();
     LOG.debug("Done history save");
   }
 
-  private synchronized Map<Date, DayHistory> getHistory() {
-    Map<Date, DayHistory> result = new HashMap<>();
-
-    for (User user : myHistory.keySet()) {
-      List<LocalMessage> messages = myHistory.get(user);
-      for (LocalMessage message : messages) {
-        DayHistory dayHistory = getDayHistoryFor(message, result);
-
-        dayHistory.addMessage(user, message);
-      }
-    }
-
-    return result;
-  }
-
-  private DayHistory getDayHistoryFor(LocalMessage message, Map<Date, DayHistory> result) {
-    Date day = TimeUtil.getDay(message.getWhen());
-    DayHistory dayHistory = result.get(day);
-    if (dayHistory == null) {
-      dayHistory = new DayHistory();
-      result.put(day, dayHistory);
-    }
-    return dayHistory;
-  }
-
-  @NonNls
-  private String getFileNameForDate(Date date) {
-    //noinspection HardCodedStringLiteral
-    return HISTORY + '/' + DATE_FORMAT.format(date) + ".xml";
-  }
-
-  public boolean isEmpty() {
-    File historyDir = getHistoryDir();
-    return !(historyDir.isDirectory() && historyDir.list().length > 0);
+  public synchronized boolean isEmpty() {
+    return myLog.isEmpty();
   }
 }
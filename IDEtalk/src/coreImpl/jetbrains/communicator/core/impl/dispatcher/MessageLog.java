@@ -0,0 +1,445 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.communicator.core.impl.dispatcher;
+
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.thoughtworks.xstream.XStream;
+import jetbrains.communicator.core.dispatcher.LocalMessage;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Append-only message history split into segment files.
+ * Every record is <code>[int payload length][long when][UTF user key][XStream XML payload]</code>.
+ * Each segment has an index file with an entry <code>[long when][UTF user key][long payload offset][int payload length]</code>
+ * per record, so the per-user index ordered by date is built on startup without reading the segments;
+ * only records missing from the index (e.g. after a crash) are scanned and added to it.
+ * Payloads are read and deserialized when a query actually needs them and are not kept in memory.
+ */
+class MessageLog {
+  @NonNls
+  private static final Logger LOG = Logger.getLogger(MessageLog.class);
+
+  @NonNls
+  static final String SEGMENT_SUFFIX = ".log";
+  @NonNls
+  static final String INDEX_SUFFIX = ".idx";
+  private static final long SEGMENT_SIZE = 4 * 1024 * 1024;
+
+  private final File myDir;
+  private final XStream myXStream;
+
+  private final Map<String, List<Record>> myIndex = new HashMap<>();
+  private final List<Record> myUnsaved = new ArrayList<>();
+  private final Map<Integer, RandomAccessFile> myReaders = new HashMap<>();
+
+  private int myLastSegment;
+  private long myLastSegmentLength;
+
+  MessageLog(File dir, XStream xStream) {
+    myDir = dir;
+    myXStream = xStream;
+    loadIndex();
+  }
+
+  public boolean isEmpty() {
+    return myIndex.isEmpty();
+  }
+
+  public void add(String userKey, LocalMessage message) {
+    Record record = new Record(message.getWhen().getTime(), -1, -1, -1);
+    record.myUserKey = userKey;
+    record.myMessage = message;
+    addToIndex(userKey, record);
+    myUnsaved.add(record);
+  }
+
+  public boolean hasUnsaved() {
+    return !myUnsaved.isEmpty();
+  }
+
+  /**
+   * @return messages of the user sent after <code>since</code> (all if null), ordered by date
+   */
+  public List<LocalMessage> read(String userKey, @Nullable Date since) {
+    List<Record> records = myIndex.get(userKey);
+    if (records == null) return Collections.emptyList();
+
+    int from = since == null ? 0 : firstAfter(records, since.getTime());
+    List<LocalMessage> result = new ArrayList<>(records.size() - from);
+    for (int i = from; i < records.size(); i++) {
+      LocalMessage message = load(records.get(i));
+      if (message != null) {
+        result.add(message);
+      }
+    }
+    return result;
+  }
+
+  public void flush() {
+    if (myUnsaved.isEmpty()) return;
+
+    DataOutputStream out = null;
+    DataOutputStream indexOut = null;
+    int saved = 0;
+    try {
+      for (Record record : myUnsaved) {
+        byte[] payload = myXStream.toXML(record.myMessage).getBytes(CharsetToolkit.UTF8_CHARSET);
+        if (out == null || myLastSegmentLength >= SEGMENT_SIZE) {
+          if (out != null) {
+            // segment before its index: an index entry never points past the end of the segment
+            out.close();
+            indexOut.close();
+          }
+          File segmentFile = getSegmentFile(myLastSegment);
+          if (segmentFile.length() >= SEGMENT_SIZE) {
+            segmentFile = getSegmentFile(++myLastSegment);
+          }
+          myLastSegmentLength = segmentFile.length();
+          out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segmentFile, true)));
+          indexOut = openIndex(myLastSegment);
+        }
+
+        int start = out.size();
+        out.writeInt(payload.length);
+        out.writeLong(record.myWhen);
+        out.writeUTF(record.myUserKey);
+        record.mySegment = myLastSegment;
+        record.myOffset = myLastSegmentLength + out.size() - start;
+        record.myLength = payload.length;
+        out.write(payload);
+        myLastSegmentLength += out.size() - start;
+        writeIndexEntry(indexOut, record.myWhen, record.myUserKey, record.myOffset, record.myLength);
+        record.myUserKey = null;
+        record.myMessage = null;
+        saved++;
+      }
+    }
+    catch (IOException e) {
+      LOG.error("Unable to save history: " + e.getMessage(), e);
+    }
+    finally {
+      myUnsaved.subList(0, saved).clear();
+      close(out);
+      close(indexOut);
+    }
+  }
+
+  private static void close(@Nullable Closeable closeable) {
+    if (closeable == null) return;
+    try {
+      closeable.close();
+    }
+    catch (IOException e) {
+      LOG.error(e.getMessage(), e);
+    }
+  }
+
+  private DataOutputStream openIndex(int segment) throws FileNotFoundException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile(segment), true)));
+  }
+
+  private static void writeIndexEntry(DataOutputStream out, long when, String userKey, long offset, int length) throws IOException {
+    out.writeLong(when);
+    out.writeUTF(userKey);
+    out.writeLong(offset);
+    out.writeInt(length);
+  }
+
+  public void clear() {
+    close();
+    myIndex.clear();
+    myUnsaved.clear();
+    myLastSegment = 0;
+    myLastSegmentLength = 0;
+  }
+
+  public void close() {
+    for (RandomAccessFile file : myReaders.values()) {
+      try {
+        file.close();
+      }
+      catch (IOException e) {
+        LOG.info(e.getMessage(), e);
+      }
+    }
+    myReaders.clear();
+  }
+
+  @Nullable
+  private LocalMessage load(Record record) {
+    if (record.myMessage != null) return record.myMessage;
+    try {
+      RandomAccessFile file = getReader(record.mySegment);
+      byte[] payload = new byte[record.myLength];
+      file.seek(record.myOffset);
+      file.readFully(payload);
+      return (LocalMessage)myXStream.fromXML(new String(payload, CharsetToolkit.UTF8_CHARSET));
+    }
+    catch (Exception e) {
+      LOG.info("Unable to read history record: " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private RandomAccessFile getReader(int segment) throws FileNotFoundException {
+    RandomAccessFile file = myReaders.get(segment);
+    if (file == null) {
+      file = new RandomAccessFile(getSegmentFile(segment), "r");
+      myReaders.put(segment, file);
+    }
+    return file;
+  }
+
+  private void loadIndex() {
+    String[] names = myDir.list((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+    if (names == null) return;
+
+    List<Integer> segments = new ArrayList<>(names.length);
+    for (String name : names) {
+      try {
+        segments.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+      }
+      catch (NumberFormatException e) {
+        // ignore file of wrong format
+      }
+    }
+    Collections.sort(segments);
+
+    for (int segment : segments) {
+      myLastSegment = segment;
+      myLastSegmentLength = scanSegment(segment);
+    }
+  }
+
+  /**
+   * @return length of the valid part of the segment, a record truncated by a crash is ignored and overwritten
+   */
+  private long scanSegment(int segment) {
+    File file = getSegmentFile(segment);
+    long length = file.length();
+    long offset = readIndex(segment, length);
+
+    List<Record> scanned = new ArrayList<>();
+    List<String> scannedUserKeys = new ArrayList<>();
+    if (offset < length) {
+      try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+           DataInputStream in = new DataInputStream(counter)) {
+        skipFully(in, offset);
+        counter.resetCount();
+        while (offset < length) {
+          int payloadLength = in.readInt();
+          long when = in.readLong();
+          String userKey = in.readUTF();
+          long payloadOffset = offset + counter.getCount();
+          if (payloadLength < 0 || payloadOffset + payloadLength > length) break;
+
+          skipFully(in, payloadLength);
+          counter.resetCount();
+          scanned.add(new Record(when, segment, payloadOffset, payloadLength));
+          scannedUserKeys.add(userKey);
+          offset = payloadOffset + payloadLength;
+        }
+      }
+      catch (EOFException e) {
+        // truncated record header
+      }
+      catch (IOException e) {
+        LOG.error("Unable to read history segment " + file + ": " + e.getMessage(), e);
+        return offset;
+      }
+    }
+
+    if (offset < length) {
+      truncate(file, offset);
+    }
+    for (int i = 0; i < scanned.size(); i++) {
+      addToIndex(scannedUserKeys.get(i), scanned.get(i));
+    }
+    if (!scanned.isEmpty()) {
+      DataOutputStream indexOut = null;
+      try {
+        indexOut = openIndex(segment);
+        for (int i = 0; i < scanned.size(); i++) {
+          Record record = scanned.get(i);
+          writeIndexEntry(indexOut, record.myWhen, scannedUserKeys.get(i), record.myOffset, record.myLength);
+        }
+      }
+      catch (IOException e) {
+        LOG.error("Unable to update history index " + getIndexFile(segment) + ": " + e.getMessage(), e);
+      }
+      finally {
+        close(indexOut);
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * Adds records of the segment's index file to the index, an entry truncated by a crash or pointing past the end
+   * of the segment ends the valid part of the index file, which is cut there.
+   *
+   * @return end of the last indexed record in the segment
+   */
+  private long readIndex(int segment, long segmentLength) {
+    File file = getIndexFile(segment);
+    if (!file.exists()) return 0;
+
+    long end = 0;
+    long validLength = 0;
+    try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+         DataInputStream in = new DataInputStream(counter)) {
+      long length = file.length();
+      while (validLength < length) {
+        long when = in.readLong();
+        String userKey = in.readUTF();
+        long offset = in.readLong();
+        int payloadLength = in.readInt();
+        if (offset < end || payloadLength < 0 || offset + payloadLength > segmentLength) break;
+
+        addToIndex(userKey, new Record(when, segment, offset, payloadLength));
+        end = offset + payloadLength;
+        validLength = counter.getCount();
+      }
+    }
+    catch (EOFException e) {
+      // truncated entry
+    }
+    catch (IOException e) {
+      LOG.error("Unable to read history index " + file + ": " + e.getMessage(), e);
+    }
+
+    if (validLength < file.length()) {
+      truncate(file, validLength);
+    }
+    return end;
+  }
+
+  private static void skipFully(DataInputStream in, long count) throws IOException {
+    while (count > 0) {
+      int skipped = in.skipBytes((int)Math.min(count, Integer.MAX_VALUE));
+      if (skipped <= 0) throw new EOFException();
+      count -= skipped;
+    }
+  }
+
+  private static void truncate(File file, long length) {
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      out.setLength(length);
+    }
+    catch (IOException e) {
+      LOG.error(e.getMessage(), e);
+    }
+  }
+
+  private void addToIndex(String userKey, Record record) {
+    List<Record> records = myIndex.get(userKey);
+    if (records == null) {
+      records = new ArrayList<>();
+      myIndex.put(userKey, records);
+    }
+
+    if (records.isEmpty() || records.get(records.size() - 1).myWhen <= record.myWhen) {
+      records.add(record);
+    }
+    else {
+      records.add(firstAfter(records, record.myWhen), record);
+    }
+  }
+
+  private static int firstAfter(List<Record> records, long when) {
+    int low = 0;
+    int high = records.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (records.get(mid).myWhen <= when) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private File getSegmentFile(int segment) {
+    return new File(myDir, segment + SEGMENT_SUFFIX);
+  }
+
+  private File getIndexFile(int segment) {
+    return new File(myDir, segment + INDEX_SUFFIX);
+  }
+
+  private static class Record {
+    private final long myWhen;
+    private int mySegment;
+    // position of the payload in the segment
+    private long myOffset;
+    private int myLength;
+
+    // until saved
+    private String myUserKey;
+    private LocalMessage myMessage;
+
+    Record(long when, int segment, long offset, int length) {
+      myWhen = when;
+      mySegment = segment;
+      myOffset = offset;
+      myLength = length;
+    }
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    private long myCount;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    long getCount() {
+      return myCount;
+    }
+
+    void resetCount() {
+      myCount = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = super.read();
+      if (result != -1) myCount++;
+      return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int result = super.read(b, off, len);
+      if (result > 0) myCount += result;
+      return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long result = super.skip(n);
+      myCount += result;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.communicator.core.impl.dispatcher;
+
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.thoughtworks.xstream.XStream;
+import jetbrains.communicator.core.dispatcher.Message;
+import jetbrains.communicator.core.users.User;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NonNls;
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * Write-ahead journal of pending message queue changes, kept next to the XML snapshot of the queue.
+ * Every record is <code>[int length][long sequence][XStream XML of the operation]</code>;
+ * a record truncated by a crash is dropped on replay.
+ */
+class MessagesJournal {
+  private static final Logger LOG = Logger.getLogger(MessagesJournal.class);
+
+  @NonNls
+  static final String SUFFIX = ".journal";
+
+  private final File myFile;
+  private final XStream myXStream;
+
+  private DataOutputStream myOut;
+  private int myRecordCount;
+
+  MessagesJournal(File file, XStream xStream) {
+    myFile = file;
+    myXStream = xStream;
+  }
+
+  public int getRecordCount() {
+    return myRecordCount;
+  }
+
+  /**
+   * @return sequence of the last replayed record, or <code>since</code> if there were none
+   */
+  public long replay(long since, Replayer replayer) {
+    long last = since;
+    myRecordCount = 0;
+    if (!myFile.exists()) return last;
+
+    long validLength = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(myFile)))) {
+      while (true) {
+        int length = in.readInt();
+        long sequence = in.readLong();
+        byte[] data = new byte[length];
+        in.readFully(data);
+        validLength += 4 + 8 + length;
+        myRecordCount++;
+
+        if (sequence > since) {
+          Operation operation = (Operation)myXStream.fromXML(new String(data, CharsetToolkit.UTF8_CHARSET));
+          replayer.replay(operation);
+          last = sequence;
+        }
+      }
+    }
+    catch (EOFException ignored) {
+      // end of journal or a record truncated by a crash
+    }
+    catch (Exception e) {
+      LOG.info("Unable to replay " + myFile + ": " + e.getMessage(), e);
+    }
+
+    if (validLength < myFile.length()) {
+      truncate(validLength);
+    }
+    return last;
+  }
+
+  /**
+   * Appends a burst of operations and flushes them at once.
+   */
+  public void append(List<Operation> operations) throws IOException {
+    if (myOut == null) {
+      myOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myFile, true)));
+    }
+
+    for (Operation operation : operations) {
+      byte[] data = myXStream.toXML(operation).getBytes(CharsetToolkit.UTF8_CHARSET);
+      myOut.writeInt(data.length);
+      myOut.writeLong(operation.mySequence);
+      myOut.write(data);
+      myRecordCount++;
+    }
+    myOut.flush();
+  }
+
+  /**
+   * Called once a snapshot containing every journaled operation has been written.
+   */
+  public void reset() {
+    close();
+    truncate(0);
+    myRecordCount = 0;
+  }
+
+  public void close() {
+    if (myOut != null) {
+      try {
+        myOut.close();
+      }
+      catch (IOException e) {
+        LOG.info(e.getMessage(), e);
+      }
+      myOut = null;
+    }
+  }
+
+  private void truncate(long length) {
+    try (RandomAccessFile file = new RandomAccessFile(myFile, "rw")) {
+      file.setLength(length);
+    }
+    catch (IOException e) {
+      LOG.info("Unable to truncate " + myFile + ": " + e.getMessage(), e);
+    }
+  }
+
+  interface Replayer {
+    void replay(Operation operation);
+  }
+
+  static class Operation {
+    static final byte ADD = 0;
+    static final byte REMOVE = 1;
+    static final byte REMOVE_USER = 2;
+    static final byte CLEAR = 3;
+
+    final transient long mySequence;
+    final byte myKind;
+    final User myUser;
+    final Message myMessage;
+    final int myIndex;
+
+    Operation(long sequence, byte kind, User user, Message message, int index) {
+      mySequence = sequence;
+      myKind = kind;
+      myUser = user;
+      myMessage = message;
+      myIndex = index;
+    }
+  }
+}
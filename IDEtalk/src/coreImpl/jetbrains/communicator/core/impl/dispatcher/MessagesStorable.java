@@ -26,11 +26,22 @@ import java.util.Map;
  */
 public class MessagesStorable {
   private final Map<User, List<Message>> myUser2Messages;
+  // sequence of the last journaled operation included into this snapshot
+  private long myJournalSequence;
 
   public MessagesStorable(Map<User,List<Message>> user2Messages) {
     myUser2Messages = user2Messages;
   }
 
+  public MessagesStorable(Map<User,List<Message>> user2Messages, long journalSequence) {
+    myUser2Messages = user2Messages;
+    myJournalSequence = journalSequence;
+  }
+
+  public long getJournalSequence() {
+    return myJournalSequence;
+  }
+
   public Map<User,List<Message>> getUser2Messages() {
     return myUser2Messages;
   }
@@ -15,11 +15,15 @@
  */
 package jetbrains.communicator.core.impl.transport;
 
+import com.intellij.openapi.vfs.CharsetToolkit;
 import jetbrains.communicator.core.transport.GetVFileContentsXmlMessage;
+import jetbrains.communicator.core.transport.Transport;
 import jetbrains.communicator.core.users.UserModel;
 import jetbrains.communicator.core.vfs.VFile;
+import jetbrains.communicator.core.vfs.VFileDelta;
 import jetbrains.communicator.ide.IDEFacade;
 import org.jdom.Element;
+import org.jdom.Namespace;
 
 /**
  * @author Kir
@@ -37,6 +41,17 @@ public class GetVFileContentsProvider extends FileAccessProvider {
   protected void doProcess(Element request, Element response) {
     VFile from = VFile.createFrom(request);
     myIdeFacade.fillFileContents(from);
+
+    Element signature = request.getChild(VFileDelta.SIGNATURE_ELEMENT, Namespace.getNamespace(Transport.NAMESPACE));
+    String contents = from.getContents();
+    if (signature == null || contents == null) {
+      // an older peer, which expects the contents as element text
+      from.saveTo(response);
+      return;
+    }
+
+    from.setContents(null);
     from.saveTo(response);
+    response.addContent(VFileDelta.createDelta(contents.getBytes(CharsetToolkit.UTF8_CHARSET), signature));
   }
 }
@@ -21,30 +21,46 @@ import jetbrains.communicator.core.EventVisitor;
 import jetbrains.communicator.core.IDEtalkAdapter;
 import jetbrains.communicator.core.IDEtalkEvent;
 import jetbrains.communicator.core.users.GroupEvent;
+import jetbrains.communicator.core.users.User;
 import jetbrains.communicator.core.users.UserEvent;
 import jetbrains.communicator.ide.IDEFacade;
 import jetbrains.communicator.util.XMLUtil;
+import org.jetbrains.annotations.TestOnly;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.Future;
 
 /**
+ * Changes are saved in a background thread {@link #SAVE_TIMEOUT} ms after the first of them,
+ * so a burst of changes (e.g. roster synchronization) is written once.
+ *
  * @author Kir
  */
 public class PersistentUserModelImpl extends UserModelImpl {
 
   public static final String FILE_NAME = "userModel.xml";
+  public static final long SAVE_TIMEOUT = 300;
 
   private final transient File myDataDir;
+  private final transient IDEFacade myIdeFacade;
   private final transient XStream myXStream;
   private final transient IDEtalkAdapter mySaver;
+  private final transient Object mySaveLock = new Object();
+  private transient volatile Future<?> myPendingSave;
+  private transient volatile boolean myDirty;
+  private transient volatile boolean myDisposed;
   private transient boolean mySaved;
+  private transient int mySaveCount;
 
   public PersistentUserModelImpl(EventBroadcaster broadcaster, IDEFacade ideFacade) {
     super(broadcaster);
     myDataDir = ideFacade.getConfigDir();
+    myIdeFacade = ideFacade;
     myXStream = XMLUtil.createXStream();
     myXStream.alias("user", UserImpl.class);
-    myXStream.alias("users", getClass());
+    myXStream.alias("users", Storable.class);
 
     readAll();
 
@@ -53,12 +69,12 @@ public class PersistentUserModelImpl extends UserModelImpl {
         event.accept(new EventVisitor(){
           @Override public void visitUserAdded(UserEvent.Added event) {
             super.visitUserAdded(event);
-            saveAll();
+            triggerSave();
           }
 
           @Override public void visitUserRemoved(UserEvent.Removed event) {
             super.visitUserRemoved(event);
-            saveAll();
+            triggerSave();
           }
 
           @Override public void visitUserUpdated(UserEvent.Updated event) {
@@ -68,13 +84,13 @@ public class PersistentUserModelImpl extends UserModelImpl {
                 BaseUserImpl.DISPLAY_NAME.equals(event.getPropertyName()) ||
                 BaseUserImpl.GROUP.equals(event.getPropertyName())
                 ) {
-              saveAll();
+              triggerSave();
             }
           }
 
           @Override public void visitGroupEvent(GroupEvent event) {
             super.visitGroupEvent(event);
-            saveAll();
+            triggerSave();
           }
         });
       }
@@ -83,28 +99,66 @@ public class PersistentUserModelImpl extends UserModelImpl {
   }
 
   public void dispose() {
-    synchronized(myUsersGroupsLock) {
-      myUsers.clear();
-      myGroups.clear();
+    myDisposed = true;
+    Future<?> pendingSave = myPendingSave;
+    if (pendingSave != null) {
+      pendingSave.cancel(true);
+    }
+    synchronized (mySaveLock) {
+      setContent(new HashSet<>(), new HashSet<>());
+      new File(getUsersFileName()).delete();
     }
-    new File(getUsersFileName()).delete();
     myBroadcaster.removeListener(mySaver);
     super.dispose();
   }
 
+  private synchronized void triggerSave() {
+    mySaved = true;
+    myDirty = true;
+    if (myPendingSave == null && !myDisposed) {
+      myPendingSave = myIdeFacade.runOnPooledThread(() -> {
+        try {
+          Thread.sleep(SAVE_TIMEOUT);
+        }
+        catch (InterruptedException e) {
+          // Ignore here.
+        }
+        finally {
+          synchronized (this) {
+            myPendingSave = null;
+          }
+          if (!myDisposed) {
+            saveAll();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Blocks until the pending changes are written, writes them in the calling thread unless a save is already running.
+   */
+  public void flush() {
+    if (!myDisposed) {
+      saveAll();
+    }
+  }
+
   void saveAll() {
-    synchronized (myUsersGroupsLock) {
-      XMLUtil.toXml(myXStream, getUsersFileName(), this);
+    synchronized (mySaveLock) {
+      if (!myDirty) return;
+      myDirty = false;
+      // users and groups are taken from a single immutable snapshot
+      XMLUtil.toXml(myXStream, getUsersFileName(), new Storable(getUsersSnapshot(), getGroupsSnapshot()));
+      mySaveCount++;
     }
-    mySaved = true;
   }
 
   private void readAll() {
     Object persistentModel = XMLUtil.fromXml(myXStream, getUsersFileName(), false);
-    if (persistentModel instanceof PersistentUserModelImpl) {
-      PersistentUserModelImpl model = (PersistentUserModelImpl) persistentModel;
-      myGroups.addAll(model.myGroups);
-      myUsers.addAll(model.myUsers);
+    if (persistentModel instanceof Storable) {
+      Storable model = (Storable) persistentModel;
+      setContent(model.myUsers, model.myGroups);
     }
   }
 
@@ -112,9 +166,30 @@ public class PersistentUserModelImpl extends UserModelImpl {
     return new File(myDataDir, FILE_NAME).getAbsolutePath();
   }
 
+  /**
+   * @return true if a change to be saved happened since the previous call
+   */
   public boolean testSaved() {
     boolean result = mySaved;
     mySaved = false;
     return result;
   }
+
+  @TestOnly
+  int getSaveCount() {
+    return mySaveCount;
+  }
+
+  /**
+   * Persistent form, field names are kept from the time the model itself was serialized.
+   */
+  private static class Storable {
+    private final Collection<User> myUsers;
+    private final Collection<String> myGroups;
+
+    Storable(Collection<User> users, Collection<String> groups) {
+      myUsers = new HashSet<>(users);
+      myGroups = new HashSet<>(groups);
+    }
+  }
 }
@@ -24,21 +24,22 @@ import org.jetbrains.annotations.NotNull;
 import org.picocontainer.Disposable;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Users and groups are kept in an immutable snapshot which is replaced on every change,
+ * so readers never block. The sorted user list and per-group indexes are built lazily for a snapshot;
+ * user events which may affect them (group, display name, presence) reset these caches.
+ *
  * @author Kir Maximov
  */
 public class UserModelImpl implements UserModel, Disposable {
-  protected final Collection<User> myUsers = new HashSet<>();
-  protected final Collection<String> myGroups = new HashSet<>();
-
   protected final transient EventBroadcaster myBroadcaster;
   private final transient MyListener myEventListener;
 
+  // guards snapshot replacement, readers just take the current snapshot
   protected final transient Object myUsersGroupsLock = new Object();
 
-  private final transient AtomicReference<User[]> myCachedUsers = new AtomicReference<>();
+  private transient volatile Snapshot mySnapshot = new Snapshot(Collections.emptySet(), Collections.emptySet());
 
   public UserModelImpl(EventBroadcaster eventBroadcaster) {
     myBroadcaster = eventBroadcaster;
@@ -59,10 +60,8 @@ public class UserModelImpl implements UserModel, Disposable {
 
   @Override
   public void addUser(final User user) {
-    synchronized (myUsersGroupsLock) {
-      if (myUsers.contains(user)) {
-        return;
-      }
+    if (mySnapshot.myUsers.contains(user)) {
+      return;
     }
     if (user.isSelf() && !Pico.isUnitTest()) {
       return;
@@ -70,89 +69,61 @@ public class UserModelImpl implements UserModel, Disposable {
 
     myBroadcaster.doChange(new UserEvent.Added(user), () -> {
       synchronized (myUsersGroupsLock) {
-        myUsers.add(user);
-        myGroups.add(user.getGroup());
+        Snapshot snapshot = mySnapshot;
+        Set<User> users = new HashSet<>(snapshot.myUsers);
+        users.add(user);
+        Set<String> groups = snapshot.myGroups;
+        if (!groups.contains(user.getGroup())) {
+          groups = new HashSet<>(groups);
+          groups.add(user.getGroup());
+        }
+        mySnapshot = new Snapshot(users, groups);
       }
     });
   }
 
   @Override
   public void removeUser(final User user) {
-    synchronized (myUsersGroupsLock) {
-      if (!myUsers.contains(user)) {
-        return;
-      }
+    if (!mySnapshot.myUsers.contains(user)) {
+      return;
     }
 
     myBroadcaster.doChange(new UserEvent.Removed(user), () -> {
       synchronized (myUsersGroupsLock) {
-        myUsers.remove(user);
+        Snapshot snapshot = mySnapshot;
+        Set<User> users = new HashSet<>(snapshot.myUsers);
+        users.remove(user);
+        mySnapshot = new Snapshot(users, snapshot.myGroups);
       }
     });
   }
 
   @Override
   public String[] getGroups() {
-    Set<String> result = new TreeSet<>();
-    synchronized (myUsersGroupsLock) {
-      result.addAll(myGroups);
-    }
-
-    String lastGroup = null;
-    for (User user : getAllUsers()) {
-      if (!user.getGroup().equals(lastGroup)) {
-        lastGroup = user.getGroup();
-        result.add(lastGroup);
-      }
-    }
-    return result.toArray(new String[result.size()]);
+    return mySnapshot.getGroups();
   }
 
   @Override
   public User[] getUsers(String groupName) {
-    List<User> result = new ArrayList<>();
-    for (User user : getAllUsers()) {
-      if (user.getGroup().equals(groupName)) {
-        result.add(user);
-      }
-    }
-    return result.toArray(new User[result.size()]);
+    User[] users = mySnapshot.getGroup2Users().get(groupName);
+    return users == null ? new User[0] : users.clone();
   }
 
   @NotNull
   @Override
   public User[] getAllUsers() {
-    User[] usersList = myCachedUsers.get();
-    if (usersList != null) {
-      return usersList;
-    }
-
-    usersList = getUsersList();
-    Arrays.sort(usersList, (u1, u2) -> {
-      if (u1.getGroup().equals(u2.getGroup())) {
-        return UIUtil.compareUsers(u1, u2);
-      }
-      return u1.getGroup().compareTo(u2.getGroup());
-    });
-
-    return myCachedUsers.compareAndSet(null, usersList) ? usersList : getAllUsers();
+    return mySnapshot.getSortedUsers();
   }
 
   @Override
   public boolean hasUser(User user) {
-    synchronized (myUsersGroupsLock) {
-      return myUsers.contains(user);
-    }
+    return mySnapshot.myUsers.contains(user);
   }
 
   @Override
   public String getGroup(User user) {
-    for (User user1 : getUsersList()) {
-      if (user1.equals(user)) {
-        return user1.getGroup();
-      }
-    }
-    return null;
+    User user1 = mySnapshot.getKey2User().get(userKey(user.getName(), user.getTransportCode()));
+    return user1 != null && user1.equals(user) ? user1.getGroup() : null;
   }
 
   @Override
@@ -164,7 +135,10 @@ public class UserModelImpl implements UserModel, Disposable {
 
       myBroadcaster.doChange(new GroupEvent.Added(trimmedName), () -> {
         synchronized (myUsersGroupsLock) {
-          myGroups.add(trimmedName);
+          Snapshot snapshot = mySnapshot;
+          Set<String> groups = new HashSet<>(snapshot.myGroups);
+          groups.add(trimmedName);
+          mySnapshot = new Snapshot(snapshot.myUsers, groups);
         }
       });
     }
@@ -179,15 +153,16 @@ public class UserModelImpl implements UserModel, Disposable {
       result = true;
     }
 
-    synchronized (myUsersGroupsLock) {
-      if (!myGroups.contains(groupName)) {
-        return result;
-      }
+    if (!mySnapshot.myGroups.contains(groupName)) {
+      return result;
     }
 
     myBroadcaster.doChange(new GroupEvent.Removed(groupName), () -> {
       synchronized (myUsersGroupsLock) {
-        myGroups.remove(groupName);
+        Snapshot snapshot = mySnapshot;
+        Set<String> groups = new HashSet<>(snapshot.myGroups);
+        groups.remove(groupName);
+        mySnapshot = new Snapshot(snapshot.myUsers, groups);
       }
     });
     return true;
@@ -200,12 +175,7 @@ public class UserModelImpl implements UserModel, Disposable {
 
   @Override
   public User findUser(String userName, String transportCode) {
-    for (User user : getUsersList()) {
-      if (user.getName().equals(userName) && user.getTransportCode().equals(transportCode)) {
-        return user;
-      }
-    }
-    return null;
+    return mySnapshot.getKey2User().get(userKey(userName, transportCode));
   }
 
   @Override
@@ -247,20 +217,122 @@ public class UserModelImpl implements UserModel, Disposable {
 
     myBroadcaster.doChange(new GroupEvent.Updated(oldGroup, newName), () -> {
       synchronized (myUsersGroupsLock) {
-        myGroups.remove(oldGroup);
         for (final User user : users) {
           user.setGroup(newName, null);
         }
-        myGroups.add(newName);
+        Snapshot snapshot = mySnapshot;
+        Set<String> groups = new HashSet<>(snapshot.myGroups);
+        groups.remove(oldGroup);
+        groups.add(newName);
+        mySnapshot = new Snapshot(snapshot.myUsers, groups);
       }
     });
 
     return newName;
   }
 
-  private User[] getUsersList() {
+  /**
+   * Replaces the whole content, used when the model is read from disk.
+   */
+  protected void setContent(Collection<User> users, Collection<String> groups) {
     synchronized (myUsersGroupsLock) {
-      return myUsers.toArray(new User[myUsers.size()]);
+      mySnapshot = new Snapshot(new HashSet<>(users), new HashSet<>(groups));
+    }
+  }
+
+  protected Collection<User> getUsersSnapshot() {
+    return mySnapshot.myUsers;
+  }
+
+  protected Collection<String> getGroupsSnapshot() {
+    return mySnapshot.myGroups;
+  }
+
+  private void resetCaches() {
+    synchronized (myUsersGroupsLock) {
+      Snapshot snapshot = mySnapshot;
+      mySnapshot = new Snapshot(snapshot.myUsers, snapshot.myGroups);
+    }
+  }
+
+  /**
+   * Users with the same name may come from different transports, so users are indexed by both.
+   */
+  private static String userKey(String userName, String transportCode) {
+    return transportCode + ':' + userName;
+  }
+
+  private static final class Snapshot {
+    private final Set<User> myUsers;
+    private final Set<String> myGroups;
+
+    private volatile User[] mySortedUsers;
+    private volatile String[] mySortedGroups;
+    private volatile Map<String, User[]> myGroup2Users;
+    private volatile Map<String, User> myKey2User;
+
+    Snapshot(Set<User> users, Set<String> groups) {
+      myUsers = Collections.unmodifiableSet(users);
+      myGroups = Collections.unmodifiableSet(groups);
+    }
+
+    User[] getSortedUsers() {
+      User[] result = mySortedUsers;
+      if (result == null) {
+        result = myUsers.toArray(new User[myUsers.size()]);
+        Arrays.sort(result, (u1, u2) -> {
+          if (u1.getGroup().equals(u2.getGroup())) {
+            return UIUtil.compareUsers(u1, u2);
+          }
+          return u1.getGroup().compareTo(u2.getGroup());
+        });
+        mySortedUsers = result;
+      }
+      return result;
+    }
+
+    Map<String, User[]> getGroup2Users() {
+      Map<String, User[]> result = myGroup2Users;
+      if (result == null) {
+        Map<String, List<User>> group2Users = new LinkedHashMap<>();
+        for (User user : getSortedUsers()) {
+          List<User> users = group2Users.get(user.getGroup());
+          if (users == null) {
+            users = new ArrayList<>();
+            group2Users.put(user.getGroup(), users);
+          }
+          users.add(user);
+        }
+        result = new HashMap<>(group2Users.size());
+        for (Map.Entry<String, List<User>> entry : group2Users.entrySet()) {
+          result.put(entry.getKey(), entry.getValue().toArray(new User[entry.getValue().size()]));
+        }
+        myGroup2Users = result;
+      }
+      return result;
+    }
+
+    Map<String, User> getKey2User() {
+      Map<String, User> result = myKey2User;
+      if (result == null) {
+        result = new HashMap<>(myUsers.size());
+        for (User user : myUsers) {
+          result.put(userKey(user.getName(), user.getTransportCode()), user);
+        }
+        myKey2User = result;
+      }
+      return result;
+    }
+
+    String[] getGroups() {
+      String[] result = mySortedGroups;
+      if (result == null) {
+        Set<String> groups = new TreeSet<>(myGroups);
+        groups.addAll(getGroup2Users().keySet());
+        result = groups.toArray(new String[groups.size()]);
+        mySortedGroups = result;
+      }
+      return result.clone();
     }
   }
 
@@ -276,7 +348,9 @@ public class UserModelImpl implements UserModel, Disposable {
         @Override
         public void visitUserEvent(UserEvent event) {
           super.visitUserEvent(event);
-          myCachedUsers.set(null);
+          if (!(event instanceof UserEvent.Added) && !(event instanceof UserEvent.Removed)) {
+            resetCaches();
+          }
         }
       });
     }
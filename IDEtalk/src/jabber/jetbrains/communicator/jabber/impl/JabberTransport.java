@@ -424,6 +424,20 @@ public class JabberTransport implements Transport, ConnectionListener, Disposabl
     }
   }
 
+  /**
+   * Updates only the users whose roster entries were added or changed instead of walking the whole roster.
+   */
+  private void updateJabberUsers(Collection addresses) {
+    LOG.debug("Roster entries changed - update user model: " + addresses);
+    Roster roster = getRoster();
+    for (Object address : addresses) {
+      RosterEntry rosterEntry = roster.getEntry(getSimpleId(address.toString()));
+      if (rosterEntry != null) {
+        addJabberUserToUserModelOrUpdateInfo(rosterEntry);
+      }
+    }
+  }
+
   private void removeUsers(Set<User> currentUsers) {
     for (User user : currentUsers) {
       myUserModel.removeUser(user);
@@ -532,17 +546,17 @@ public class JabberTransport implements Transport, ConnectionListener, Disposabl
   private class MyRosterListener implements RosterListener {
     @Override
     public void entriesAdded(Collection addresses) {
-      updateJabberUsers(false);
+      updateJabberUsers(addresses);
     }
 
     @Override
     public void entriesUpdated(Collection addresses) {
-      updateJabberUsers(false);
+      updateJabberUsers(addresses);
     }
 
     @Override
     public void entriesDeleted(Collection addresses) {
-      updateJabberUsers(false);
+      // deleted entries are kept in the user model, the same as on full roster synchronization without removal
     }
 
     @Override
@@ -110,6 +110,30 @@ public class NetworkUtil {
     }
   }
 
+  /**
+   * @return own address of the interface from the same network as the remote address, chosen by the longest common prefix
+   */
+  @Nullable
+  public static InetAddress getSelfAddressFor(InetAddress remoteAddress) {
+    byte[] remote = remoteAddress.getAddress();
+    InetAddress result = null;
+    int bestPrefix = -1;
+    for (InetAddress selfAddress : getSelfAddresses()) {
+      byte[] self = selfAddress.getAddress();
+      if (self.length != remote.length) continue;
+
+      int prefix = 0;
+      while (prefix < self.length * 8 && ((self[prefix / 8] ^ remote[prefix / 8]) & (0x80 >>> (prefix % 8))) == 0) {
+        prefix++;
+      }
+      if (prefix > bestPrefix) {
+        bestPrefix = prefix;
+        result = selfAddress;
+      }
+    }
+    return result;
+  }
+
   public static boolean isOwnAddress(@Nullable InetAddress address) {
     return address != null && (address.isLoopbackAddress() || getSelfAddresses().contains(address));
   }
@@ -349,7 +349,38 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
       notifyUsersAboutOnlineImmediately();
     }
 
+    boolean changedWhileOnline = myOwnPresence.isOnline() && userPresence.isOnline() && !myOwnPresence.equals(userPresence);
     myOwnPresence = userPresence;
+    if (changedWhileOnline) {
+      announceOwnPresence();
+    }
+  }
+
+  /**
+   * Sends own state to the online users directly instead of waiting for their next multicast scan.
+   */
+  private void announceOwnPresence() {
+    final List<OnlineUserInfo> targets = new ArrayList<>();
+    synchronized (myLock) {
+      for (User user : myOnlineUsers) {
+        OnlineUserInfo info = myUserToInfo.get(user);
+        if (info != null && info.getAddress() != null) {
+          targets.add(info);
+        }
+      }
+    }
+    if (targets.isEmpty()) return;
+
+    final UserPresence presence = myOwnPresence;
+    final List<String> projects = Arrays.asList(getIdeFacade().getProjects());
+    getIdeFacade().runOnPooledThread(() -> {
+      for (OnlineUserInfo target : targets) {
+        InetAddress selfAddress = NetworkUtil.getSelfAddressFor(target.getAddress());
+        if (selfAddress != null) {
+          AddOnlineUserP2PCommand.addSelfTo(target.getPort(), target.getAddress(), selfAddress, getPort(), projects, presence);
+        }
+      }
+    });
   }
 
   private boolean selfBecomeAvailable(UserPresence userPresence) {
@@ -466,7 +497,8 @@ public class P2PTransport implements Transport, UserMonitorClient, Disposable {
           UserPresence oldPresence = getNotNullOnlineInfo(user).getPresence();
           final OnlineUserInfo onlineUserInfo = myUserToInfoNew.get(user);
           if (onlineUserInfo == null) {
-            return;
+            // the user is still considered online though missed the last scan
+            continue;
           }
 
           UserPresence newPresence = onlineUserInfo.getPresence();
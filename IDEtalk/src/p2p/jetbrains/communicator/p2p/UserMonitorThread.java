@@ -16,6 +16,7 @@
 package jetbrains.communicator.p2p;
 
 import com.intellij.util.Time;
+import gnu.trove.THashMap;
 import gnu.trove.THashSet;
 import jetbrains.communicator.core.Pico;
 import jetbrains.communicator.core.users.User;
@@ -35,7 +36,12 @@ import java.util.*;
  * @author Kir Maximov
  *         <p/>
  *         This thread periodically scans the local network via multicast
- *         request and passes obtained users to UserMonitorClient
+ *         request and passes obtained users to UserMonitorClient.
+ *         <p/>
+ *         A user who did not answer a scan is reported offline only after {@link #MISSED_SCANS_BEFORE_OFFLINE} scans,
+ *         the next scan is done sooner to check such user. While nobody appears, disappears or changes,
+ *         the interval between scans grows up to {@code 1 << MAX_BACKOFF_SHIFT} times the configured one.
+ *         Users announcing themselves between scans are passed to the client immediately.
  */
 @SuppressWarnings({"HardCodedStringLiteral"})
 public class UserMonitorThread extends Thread {
@@ -44,18 +50,27 @@ public class UserMonitorThread extends Thread {
   static final long WAIT_USER_RESPONSES_TIMEOUT = 3000;
   static final String SCAN_TIMEOUT_PROPERTY = "ideTalk.scanTimeout";
   static final long TIMEOUT_BETWEEN_SCANS = 3 * Time.MINUTE;
+  static final int MISSED_SCANS_BEFORE_OFFLINE = 2;
+  static final int STABLE_SCANS_BEFORE_BACKOFF = 3;
+  static final int MAX_BACKOFF_SHIFT = 2;
 
   private final MulticastPingThread[] myMulticastThreads;
   private final UserMonitorClient myClient;
   private final long myWaitUserResponsesTimeout;
   private final long myScansTimeout;
 
-  private final Set<User> myAvailableUsers = Collections.synchronizedSet(new THashSet<User>());
+  // users answered during the current scan
+  private final Map<User, OnlineUserInfo> myAvailableUsers = Collections.synchronizedMap(new THashMap<User, OnlineUserInfo>());
+  // users known to be online, guarded by myLock
+  private final Map<User, Peer> myKnownUsers = new THashMap<>();
+  private int myStableScans;
+  private boolean myHasMissingUsers;
 
   private Thread myThread;
   private long myStartFindingAt;
 
   private final Object myLock = new Object();
+  private final Object myFlushLock = new Object();
 
   public UserMonitorThread(P2PTransport client, long waitUserResponsesTimeout) {
     this(createMulticastThreads(client), client, waitUserResponsesTimeout);
@@ -141,12 +156,12 @@ public class UserMonitorThread extends Thread {
           //noinspection BusyWait
           Thread.sleep(myWaitUserResponsesTimeout);
 
-          flushOnlineUsers();
+          finishScan();
         }
         finally {
           synchronized (myLock) {
             myStartFindingAt = 0;
-            LOG.debug("Done finding users. Timeout for " + myScansTimeout);
+            LOG.debug("Done finding users. Timeout for " + getNextScansTimeout());
           }
         }
       }
@@ -216,7 +231,7 @@ public class UserMonitorThread extends Thread {
     try {
       synchronized (myLock) {
         while (isRunning() && !isFinding()) {
-          myLock.wait(myScansTimeout);
+          myLock.wait(getNextScansTimeout());
           startFindingUsers();
         }
       }
@@ -233,7 +248,11 @@ public class UserMonitorThread extends Thread {
       }
       OnlineUserInfo onlineUserInfo = new OnlineUserInfo(InetAddress.getByName(remoteAddress), remotePort.intValue(), projects, presence);
       if (!onlineUserInfo.getAddress().isLoopbackAddress() || Pico.isUnitTest()) {
-        myAvailableUsers.add(myClient.createUser(remoteUsername, onlineUserInfo));
+        myAvailableUsers.put(myClient.createUser(remoteUsername, onlineUserInfo), onlineUserInfo);
+        if (!isFinding() && isRunning()) {
+          // the user announced own state between scans
+          flushOnlineUsers();
+        }
       }
     }
     catch (UnknownHostException ignored) {
@@ -248,14 +267,82 @@ public class UserMonitorThread extends Thread {
   }
 
   void flushOnlineUsers() {
-    Set<User> users;
+    flushOnlineUsers(false);
+  }
+
+  private void finishScan() {
+    flushOnlineUsers(true);
+  }
+
+  private void flushOnlineUsers(boolean scanFinished) {
+    synchronized (myFlushLock) {
+      Set<User> users = updateKnownUsers(scanFinished);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Setting online users: \n" + Arrays.toString(users.toArray()));
+      }
+      myClient.setOnlineUsers(users);
+    }
+  }
+
+  private Set<User> updateKnownUsers(boolean scanFinished) {
+    Map<User, OnlineUserInfo> answered;
     synchronized (myAvailableUsers) {
-      users = new THashSet<>(myAvailableUsers);
+      answered = new THashMap<>(myAvailableUsers);
+    }
+
+    synchronized (myLock) {
+      boolean changed = false;
+      boolean hasMissingUsers = false;
+      if (scanFinished) {
+        for (Iterator<Map.Entry<User, Peer>> it = myKnownUsers.entrySet().iterator(); it.hasNext();) {
+          Map.Entry<User, Peer> entry = it.next();
+          if (answered.containsKey(entry.getKey())) continue;
+
+          Peer peer = entry.getValue();
+          if (++peer.myMissedScans >= MISSED_SCANS_BEFORE_OFFLINE) {
+            it.remove();
+            changed = true;
+          }
+          else {
+            hasMissingUsers = true;
+          }
+        }
+      }
+
+      for (Map.Entry<User, OnlineUserInfo> entry : answered.entrySet()) {
+        Peer peer = myKnownUsers.get(entry.getKey());
+        if (peer == null) {
+          myKnownUsers.put(entry.getKey(), new Peer(entry.getValue()));
+          changed = true;
+        }
+        else {
+          changed |= !entry.getValue().equals(peer.myInfo);
+          peer.myInfo = entry.getValue();
+          peer.myMissedScans = 0;
+        }
+      }
+
+      if (changed) {
+        myStableScans = 0;
+      }
+      else if (scanFinished) {
+        myStableScans++;
+      }
+      if (scanFinished) {
+        myHasMissingUsers = hasMissingUsers;
+      }
+      return new THashSet<>(myKnownUsers.keySet());
     }
-    if (LOG.isDebugEnabled()) {
-      LOG.debug("Setting online users: \n" + Arrays.toString(users.toArray()));
+  }
+
+  long getNextScansTimeout() {
+    synchronized (myLock) {
+      if (myHasMissingUsers) {
+        return Math.max(myWaitUserResponsesTimeout, myScansTimeout / 4);
+      }
+      int shift = Math.min(MAX_BACKOFF_SHIFT, Math.max(0, myStableScans - STABLE_SCANS_BEFORE_BACKOFF + 1));
+      return myScansTimeout << shift;
     }
-    myClient.setOnlineUsers(users);
   }
 
   public long getWaitUserResponsesTimeout() {
@@ -301,6 +388,15 @@ public class UserMonitorThread extends Thread {
     progressIndicator.setText(StringUtil.getMsg("p2p.finder.progressText", String.valueOf(size), StringUtil.getText("user", size)));
   }
 
+  private static class Peer {
+    private OnlineUserInfo myInfo;
+    private int myMissedScans;
+
+    Peer(OnlineUserInfo info) {
+      myInfo = info;
+    }
+  }
+
   boolean _isAlive() {
     for (MulticastPingThread multicastThread : myMulticastThreads) {
       if (multicastThread.isRunning()) return true;
@@ -22,6 +22,11 @@ import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockUser;
 import jetbrains.communicator.p2p.commands.P2PNetworkMessage;
+import jetbrains.communicator.util.WaitFor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Date;
 
 /**
  * @author kir
@@ -45,7 +50,7 @@ public class AbstractMessageDispatcherTest extends BaseTestCase {
 
 
   private AbstractMessageDispatcher createDispatcher() {
-    return new AbstractMessageDispatcher(getBroadcaster(), myIdeFacade.getCacheDir()) {
+    return new AbstractMessageDispatcher(getBroadcaster(), myIdeFacade) {
 
       @Override
       protected String getEventsFileName() {
@@ -146,4 +151,53 @@ public class AbstractMessageDispatcherTest extends BaseTestCase {
     dispatcher.dispose();
   }
 
+  public void testJournalReplay() throws Exception {
+    MockMessage message1 = new MockMessage(new Date(), "1");
+    MockMessage message2 = new MockMessage(new Date(), "2");
+    MockMessage message3 = new MockMessage(new Date(), "3");
+    myDispatcher.addPendingMessage(myUser, message1);
+    myDispatcher.addPendingMessage(myUser, message2);
+    myDispatcher.addPendingMessage(myUser, message3);
+    myDispatcher.removePendingMessage(myUser, 1);
+
+    // simulate a crash in the middle of writing the next record
+    FileOutputStream out = new FileOutputStream(new File(myIdeFacade.getCacheDir(), "test.xml" + MessagesJournal.SUFFIX), true);
+    out.write(new byte[]{0, 0, 1});
+    out.close();
+
+    AbstractMessageDispatcher dispatcher = createDispatcher();
+    Message[] messages = dispatcher.getPendingMessages(myUser);
+    assertEquals("journal should be replayed", 2, messages.length);
+    assertEquals("1", ((MockMessage) messages[0]).getMessage());
+    assertEquals("3", ((MockMessage) messages[1]).getMessage());
+
+    dispatcher.removePendingMessage(myUser, 0);
+    dispatcher.dispose();
+
+    dispatcher = createDispatcher();
+    assertEquals("truncated record should be dropped and journal appended after it", 1, dispatcher.getPendingMessages(myUser).length);
+    dispatcher.dispose();
+  }
+
+  public void testCompaction() throws Exception {
+    for (int i = 0; i < 600; i++) {
+      myDispatcher.addPendingMessage(myUser, new MockMessage(new Date(), String.valueOf(i)));
+    }
+
+    final File journal = new File(myIdeFacade.getCacheDir(), "test.xml" + MessagesJournal.SUFFIX);
+    new WaitFor(5000) {
+      @Override
+      protected boolean condition() {
+        // each journaled addition takes more than 100 bytes, so the journal was compacted at least once
+        return journal.length() < 600 * 100;
+      }
+    };
+
+    AbstractMessageDispatcher dispatcher = createDispatcher();
+    Message[] messages = dispatcher.getPendingMessages(myUser);
+    assertEquals(600, messages.length);
+    assertEquals("599", ((MockMessage) messages[599]).getMessage());
+    dispatcher.dispose();
+  }
+
 }
\ No newline at end of file
@@ -15,6 +15,8 @@
  */
 package jetbrains.communicator.core.impl.dispatcher;
 
+import com.intellij.openapi.util.io.FileUtil;
+import com.thoughtworks.xstream.XStream;
 import jetbrains.communicator.core.dispatcher.LocalMessage;
 import jetbrains.communicator.core.dispatcher.Message;
 import jetbrains.communicator.core.impl.BaseTestCase;
@@ -27,10 +29,13 @@ import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockTransport;
 import jetbrains.communicator.util.WatchDog;
+import jetbrains.communicator.util.XMLUtil;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -242,7 +247,6 @@ public class LocalMessageDispatcherTest extends BaseTestCase {
     myDispatcher.sendNow(myUser, new MockMessage(yesterday()));
 
     Thread.sleep(SAVE_WAIT_TIMEOUT);
-    assertEquals(2, new File(myIdeFacade.getCacheDir(), "history").listFiles().length);
 
     LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
     LocalMessage[] messages = localMessageDispatcher.getHistory(myUser, a_moment_ago());
@@ -290,6 +294,99 @@ public class LocalMessageDispatcherTest extends BaseTestCase {
     }
   }
 
+  public void testHistoryPerformance_MultiYear() throws Exception {
+    Logger logger = Logger.getLogger("jetbrains.communicator");
+    Level oldLevel = logger.getLevel();
+    try {
+      logger.setLevel(Level.WARN);
+
+      User[] users = new User[10];
+      for (int i = 0; i < users.length; i++) {
+        users[i] = UserImpl.create("user" + i, MockTransport.NAME);
+      }
+
+      // three years, ten messages a day spread over the users
+      long start = System.currentTimeMillis() - 3 * 365 * 24 * 3600 * 1000L;
+      int days = 3 * 365;
+      for (int day = 0; day < days; day++) {
+        for (int i = 0; i < 10; i++) {
+          Date date = new Date(start + day * 24 * 3600 * 1000L + i * 60 * 1000L);
+          myDispatcher.sendNow(users[(day + i) % users.length], new MockMessage(date, "message " + day + ' ' + i));
+        }
+      }
+      Thread.sleep(SAVE_WAIT_TIMEOUT * 2);
+
+      WatchDog watchDog = new WatchDog("Load recent history");
+      LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
+      LocalMessage[] messages = localMessageDispatcher.getHistory(users[0], new Date(start + (days - 7) * 24 * 3600 * 1000L));
+      assertEquals(7, messages.length);
+
+      long diff = watchDog.diff();
+      watchDog.watchAndReset("done");
+      assertTrue("Too long getting recent history:" + diff, diff < 1000);
+
+      messages = localMessageDispatcher.getHistory(users[0], null);
+      assertEquals(days, messages.length);
+    } finally {
+      logger.setLevel(oldLevel);
+    }
+  }
+
+  public void testMigrateDayHistoryFiles() throws Exception {
+    myDispatcher.dispose();
+
+    XStream xStream = XMLUtil.createXStream();
+    xStream.alias("user", UserImpl.class);
+    xStream.alias("dayHistory", DayHistory.class);
+    xStream.aliasField("historyEntries", DayHistory.class, "myData");
+    xStream.registerConverter(new UserConverter(myUserModel));
+
+    DayHistory dayHistory = new DayHistory();
+    dayHistory.addMessage(myUser, new MockMessage(yesterday(), "old text"));
+    File historyDir = new File(myIdeFacade.getCacheDir(), "history");
+    XMLUtil.toXml(xStream, historyDir, new SimpleDateFormat("yyyy-MM-dd").format(yesterday()) + ".xml", dayHistory);
+    File corrupted = new File(historyDir, "2005-01-01.xml");
+    FileUtil.writeToFile(corrupted, "<dayHistory><historyEntries>");
+
+    myDispatcher = new LocalMessageDispatcherImpl(getBroadcaster(), myIdeFacade, myUserModel);
+    LocalMessage[] messages = myDispatcher.getHistory(myUser, null);
+    assertEquals(1, messages.length);
+    assertEquals("old text", ((MockMessage) messages[0]).getMessage());
+    assertEquals("Day history files should be moved to the log", 1, historyDir.list((dir, name) -> name.endsWith(".xml")).length);
+    assertTrue("Unreadable day history file should be kept", corrupted.exists());
+
+    assertEquals(1, createLocalMessageDispatcher().getHistory(myUser, null).length);
+  }
+
+  public void testHistoryIndexRecovery() throws Exception {
+    myDispatcher.sendNow(myUser, new MockMessage(yesterday(), "first"));
+    myDispatcher.sendNow(myUser, new MockMessage(new Date(), "second"));
+    Thread.sleep(SAVE_WAIT_TIMEOUT);
+
+    File index = new File(new File(myIdeFacade.getCacheDir(), "history"), "0" + MessageLog.INDEX_SUFFIX);
+    assertTrue(index.exists());
+    long indexLength = index.length();
+
+    // last entry cut by a crash
+    try (RandomAccessFile file = new RandomAccessFile(index, "rw")) {
+      file.setLength(indexLength - 3);
+    }
+    assertHistory(createLocalMessageDispatcher(), "first", "second");
+    assertEquals("Missing entry should be added to the index", indexLength, index.length());
+
+    assertTrue(index.delete());
+    assertHistory(createLocalMessageDispatcher(), "first", "second");
+    assertEquals("Index should be rebuilt", indexLength, index.length());
+  }
+
+  private void assertHistory(LocalMessageDispatcherImpl dispatcher, String... expected) {
+    LocalMessage[] messages = dispatcher.getHistory(myUser, null);
+    assertEquals(expected.length, messages.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], ((MockMessage) messages[i]).getMessage());
+    }
+  }
+
   public void testClearHistory_Persistence() throws Exception {
     myDispatcher.sendNow(myUser, new MockMessage(new Date()));
     Thread.sleep(SAVE_WAIT_TIMEOUT);
@@ -67,6 +67,7 @@ public class PersistentUserModelImplTest extends BaseTestCase {
 
   public void testPersistUser() {
     myUserModel.addUser(new MockUser("user", "group"));
+    myUserModel.flush();
 
     PersistentUserModelImpl modelInstance = createModelInstance();
     User[] users = modelInstance.getAllUsers();
@@ -87,6 +88,7 @@ public class PersistentUserModelImplTest extends BaseTestCase {
     checkSaved(true);
     getBroadcaster().fireEvent(new UserEvent.Updated(user, "presence", null, null));
     checkSaved(false);
+    myUserModel.flush();
 
     PersistentUserModelImpl modelInstance = createModelInstance();
     User[] users = modelInstance.getAllUsers();
@@ -102,6 +104,7 @@ public class PersistentUserModelImplTest extends BaseTestCase {
 
   public void testPersistGroup() {
     myUserModel.addGroup("a group");
+    myUserModel.flush();
 
     PersistentUserModelImpl modelInstance = createModelInstance();
     String[] groups = modelInstance.getGroups();
@@ -109,6 +112,18 @@ public class PersistentUserModelImplTest extends BaseTestCase {
     assertEquals("a group", groups[0]);
   }
 
+  public void testBurstOfChangesIsSavedOnce() {
+    for (int i = 0; i < 300; i++) {
+      myUserModel.addUser(new MockUser("user" + i, "group" + i % 10));
+    }
+    myUserModel.flush();
+    assertEquals("A burst of changes should be written at once", 1, myUserModel.getSaveCount());
+
+    PersistentUserModelImpl modelInstance = createModelInstance();
+    assertEquals(300, modelInstance.getAllUsers().length);
+    assertEquals(30, modelInstance.getUsers("group3").length);
+  }
+
   public void testConcurrentModifications() {
     Runnable createUserCommand = () -> {
       User user = myUserModel.createUser("bob" + System.nanoTime(), MockTransport.NAME);
@@ -168,6 +168,31 @@ public class UserModelImplTest extends BaseTestCase {
     assertEquals("bbb", group2[2].getName());
   }
 
+  public void testGroupMembers_AfterGroupChange() {
+    User user = myUserModel.getUsers("group1")[0];
+    user.setGroup("group2", myUserModel);
+
+    assertEquals(1, myUserModel.getUsers("group1").length);
+    assertEquals(4, myUserModel.getUsers("group2").length);
+    assertEquals("group2", myUserModel.getGroup(user));
+    assertSame(user, myUserModel.findUser(user.getName(), user.getTransportCode()));
+  }
+
+  public void testSameNameOnDifferentTransports() {
+    User fake = UserImpl.create("twin", MockTransport.NAME);
+    fake.setGroup("group1", null);
+    User other = UserImpl.create("twin", "Other");
+    other.setGroup("group2", null);
+    myUserModel.addUser(fake);
+    myUserModel.addUser(other);
+
+    assertSame(fake, myUserModel.findUser("twin", MockTransport.NAME));
+    assertSame(other, myUserModel.findUser("twin", "Other"));
+    assertNull(myUserModel.findUser("twin", "Unknown"));
+    assertEquals("group1", myUserModel.getGroup(fake));
+    assertEquals("group2", myUserModel.getGroup(other));
+  }
+
   public void testRenameGroup() {
     myUserModel.renameGroup("group1", "new group");
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.communicator.core.transport;
+
+import com.intellij.openapi.vfs.CharsetToolkit;
+import jetbrains.communicator.core.vfs.VFile;
+import jetbrains.communicator.core.vfs.VFileContentsCache;
+import jetbrains.communicator.core.vfs.VFileDelta;
+import junit.framework.TestCase;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+public class GetVFileContentsXmlMessageTest extends TestCase {
+  private static final Namespace NS = Namespace.getNamespace(Transport.NAMESPACE);
+
+  @Override
+  protected void tearDown() throws Exception {
+    VFileContentsCache.getInstance().clear();
+    super.tearDown();
+  }
+
+  public void testDeltaApplied() {
+    VFile file = VFile.create("some/path");
+    VFileContentsCache.getInstance().put(file, bytes("old contents"));
+
+    GetVFileContentsXmlMessage message = new GetVFileContentsXmlMessage(file);
+    message.processResponse(respond(message, "new contents"));
+
+    assertFalse(message.isDeltaRejected());
+    assertEquals("new contents", file.getContents());
+    assertEquals("new contents", new String(VFileContentsCache.getInstance().get(file), CharsetToolkit.UTF8_CHARSET));
+  }
+
+  public void testRejectedDeltaThenFullContents() {
+    VFile file = VFile.create("some/path");
+    VFileContentsCache.getInstance().put(file, bytes("old contents"));
+    // an 'unchanged' answer for a signature of another base
+    Element response = respond(new GetVFileContentsXmlMessage(file), "old contents");
+
+    VFileContentsCache.getInstance().put(file, bytes("other contents"));
+    GetVFileContentsXmlMessage message = new GetVFileContentsXmlMessage(file);
+    message.fillRequest(new Element("request", NS));
+    message.processResponse(response);
+
+    assertTrue(message.isDeltaRejected());
+    assertNull(file.getContents());
+    assertNull(VFileContentsCache.getInstance().get(file));
+
+    GetVFileContentsXmlMessage full = new GetVFileContentsXmlMessage(file, false);
+    Element request = new Element("request", NS);
+    full.fillRequest(request);
+    assertNull(request.getChild(VFileDelta.SIGNATURE_ELEMENT, NS));
+
+    full.processResponse(respond(request, "new contents"));
+    assertFalse(full.isDeltaRejected());
+    assertEquals("new contents", file.getContents());
+  }
+
+  private static Element respond(GetVFileContentsXmlMessage message, String contents) {
+    Element request = new Element("request", NS);
+    message.fillRequest(request);
+    return respond(request, contents);
+  }
+
+  /** The same as GetVFileContentsProvider does */
+  private static Element respond(Element request, String contents) {
+    VFile from = VFile.createFrom(request);
+    Element response = new Element("response", NS);
+    Element signature = request.getChild(VFileDelta.SIGNATURE_ELEMENT, NS);
+    if (signature == null) {
+      from.setContents(contents);
+      from.saveTo(response);
+      return response;
+    }
+
+    from.saveTo(response);
+    response.addContent(VFileDelta.createDelta(bytes(contents), signature));
+    return response;
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(CharsetToolkit.UTF8_CHARSET);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.communicator.core.vfs;
+
+import jetbrains.communicator.core.transport.Transport;
+import junit.framework.TestCase;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.output.XMLOutputter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class VFileDeltaTest extends TestCase {
+  private static final Namespace NS = Namespace.getNamespace(Transport.NAMESPACE);
+
+  public void testNoBase() {
+    byte[] contents = generate(new Random(1), 10000);
+    Element delta = VFileDelta.createDelta(contents, VFileDelta.createSignature(null, NS));
+    assertTrue(Arrays.equals(contents, VFileDelta.applyDelta(delta, null)));
+  }
+
+  public void testUnchanged() {
+    byte[] contents = generate(new Random(2), 10000);
+    Element delta = VFileDelta.createDelta(contents, VFileDelta.createSignature(contents, NS));
+    assertEquals("true", delta.getAttributeValue("unchanged"));
+    assertSame(contents, VFileDelta.applyDelta(delta, contents));
+    assertNull("Another base should be rejected", VFileDelta.applyDelta(delta, generate(new Random(3), 10000)));
+  }
+
+  public void testSmallEditSendsOnlyChangedBlocks() {
+    byte[] base = generate(new Random(4), 200 * 1024);
+    byte[] contents = new byte[base.length + 5];
+    int insertAt = 100 * 1024 + 17;
+    System.arraycopy(base, 0, contents, 0, insertAt);
+    System.arraycopy("HELLO".getBytes(), 0, contents, insertAt, 5);
+    System.arraycopy(base, insertAt, contents, insertAt + 5, base.length - insertAt);
+
+    Element delta = VFileDelta.createDelta(contents, VFileDelta.createSignature(base, NS));
+    assertTrue(Arrays.equals(contents, VFileDelta.applyDelta(delta, base)));
+
+    int deltaSize = new XMLOutputter().outputString(delta).length();
+    assertTrue("Delta is too big: " + deltaSize, deltaSize < 2 * VFileDelta.BLOCK_SIZE + 1024);
+  }
+
+  public void testWrongBase() {
+    byte[] base = generate(new Random(5), 50000);
+    byte[] contents = base.clone();
+    contents[30000]++;
+
+    Element delta = VFileDelta.createDelta(contents, VFileDelta.createSignature(base, NS));
+    assertNull(VFileDelta.applyDelta(delta, generate(new Random(6), 50000)));
+    assertNull(VFileDelta.applyDelta(delta, null));
+  }
+
+  public void testRollingHash() {
+    byte[] data = generate(new Random(7), 5000);
+    int weak = VFileDelta.weakHash(data, 0, VFileDelta.BLOCK_SIZE);
+    for (int i = 0; i + VFileDelta.BLOCK_SIZE < data.length; i++) {
+      weak = VFileDelta.roll(weak, data[i], data[i + VFileDelta.BLOCK_SIZE], VFileDelta.BLOCK_SIZE);
+      assertEquals(VFileDelta.weakHash(data, i + 1, VFileDelta.BLOCK_SIZE), weak);
+    }
+  }
+
+  private static byte[] generate(Random random, int length) {
+    byte[] result = new byte[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = (byte)('a' + random.nextInt(26));
+    }
+    return result;
+  }
+}
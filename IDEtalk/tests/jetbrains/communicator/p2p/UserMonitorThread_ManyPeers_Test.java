@@ -0,0 +1,191 @@
+/*
+ * Copyright 2000-2006 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.communicator.p2p;
+
+import jetbrains.communicator.core.impl.BaseTestCase;
+import jetbrains.communicator.core.impl.users.UserImpl;
+import jetbrains.communicator.core.users.PresenceMode;
+import jetbrains.communicator.core.users.User;
+import jetbrains.communicator.core.users.UserPresence;
+import jetbrains.communicator.ide.NullProgressIndicator;
+import jetbrains.communicator.util.WaitFor;
+
+import java.net.InetAddress;
+import java.util.*;
+
+/**
+ * Simulates a subnet with hundreds of IDEtalk peers answering multicast pings over the loopback interface.
+ */
+public class UserMonitorThread_ManyPeers_Test extends BaseTestCase {
+  private static final int PEERS = 300;
+  private static final int PORT = 12234;
+  private static final int WAIT_USER_RESPONSES_TIMEOUT = 100;
+  private static final int SECS_BETWEEN_SCANS = 3600;
+
+  private UserMonitorThread myUserMonitorThread;
+  private final Set<Integer> myAlivePeers = Collections.synchronizedSet(new HashSet<Integer>());
+  private final Map<Integer, PresenceMode> myPeerPresence = Collections.synchronizedMap(new HashMap<Integer, PresenceMode>());
+  private final List<Set<User>> myFlushes = Collections.synchronizedList(new ArrayList<Set<User>>());
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+
+    for (int i = 0; i < PEERS; i++) {
+      myAlivePeers.add(i);
+    }
+
+    UserMonitorClient client = new UserMonitorClient() {
+      @Override
+      public void setOnlineUsers(Collection<User> onlineUsers) {
+        myFlushes.add(new HashSet<>(onlineUsers));
+      }
+
+      @Override
+      public User createUser(String remoteUsername, OnlineUserInfo onlineUserInfo) {
+        return UserImpl.create(remoteUsername, P2PTransport.CODE);
+      }
+
+      @Override
+      public int getPort() {
+        return PORT;
+      }
+
+      @Override
+      public UserPresence getOwnPresence() {
+        return new UserPresence(true);
+      }
+    };
+
+    final boolean[] started = new boolean[1];
+    MulticastPingThread multicastThread = new MulticastPingThread(InetAddress.getByName("localhost"), null, client) {
+      @Override
+      public void run() {
+        myStarted = true;
+        try {
+          sleep(100000);
+        }
+        catch (InterruptedException ignored) {
+        }
+      }
+
+      @Override
+      public void sendMulticastPingRequest() {
+        started[0] = true;
+        Integer[] peers;
+        synchronized (myAlivePeers) {
+          peers = myAlivePeers.toArray(new Integer[myAlivePeers.size()]);
+        }
+        for (Integer peer : peers) {
+          answer(peer);
+        }
+      }
+    };
+
+    System.setProperty(UserMonitorThread.SCAN_TIMEOUT_PROPERTY, "" + SECS_BETWEEN_SCANS);
+    myUserMonitorThread = new UserMonitorThread(new MulticastPingThread[]{multicastThread}, client, WAIT_USER_RESPONSES_TIMEOUT);
+    System.setProperty(UserMonitorThread.SCAN_TIMEOUT_PROPERTY, "");
+    myUserMonitorThread.start();
+
+    new WaitFor(1000) {
+      @Override
+      protected boolean condition() {
+        return myUserMonitorThread.isRunning();
+      }
+    };
+    scan();
+    assertTrue("Sanity check", started[0]);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    myUserMonitorThread.shutdown();
+    myUserMonitorThread.join();
+    super.tearDown();
+  }
+
+  public void testAllPeersFound() {
+    assertEquals(PEERS, lastFlush().size());
+  }
+
+  public void testPeerIsOfflineOnlyAfterMissedScans() {
+    myAlivePeers.remove(5);
+
+    scan();
+    assertTrue("A single missed scan should not make peer offline", lastFlush().contains(peer(5)));
+    assertTrue("Missing peer should be checked sooner",
+               myUserMonitorThread.getNextScansTimeout() < SECS_BETWEEN_SCANS * 1000L);
+
+    scan();
+    assertFalse("Peer should be offline after " + UserMonitorThread.MISSED_SCANS_BEFORE_OFFLINE + " missed scans",
+                lastFlush().contains(peer(5)));
+    assertEquals(PEERS - 1, lastFlush().size());
+  }
+
+  public void testPeerAnsweringAgainIsNotLost() {
+    myAlivePeers.remove(7);
+    scan();
+    myAlivePeers.add(7);
+    scan();
+    scan();
+    assertTrue(lastFlush().contains(peer(7)));
+  }
+
+  public void testBackoffForStableNetwork() {
+    long initialTimeout = myUserMonitorThread.getNextScansTimeout();
+    assertEquals(SECS_BETWEEN_SCANS * 1000L, initialTimeout);
+
+    for (int i = 0; i < UserMonitorThread.STABLE_SCANS_BEFORE_BACKOFF + UserMonitorThread.MAX_BACKOFF_SHIFT + 2; i++) {
+      scan();
+    }
+    assertEquals("Interval between scans should grow up to the limit",
+                 initialTimeout << UserMonitorThread.MAX_BACKOFF_SHIFT, myUserMonitorThread.getNextScansTimeout());
+
+    myPeerPresence.put(3, PresenceMode.AWAY);
+    scan();
+    assertEquals("Presence change should reset the interval", initialTimeout, myUserMonitorThread.getNextScansTimeout());
+  }
+
+  public void testAnnouncementBetweenScans() {
+    int flushes = myFlushes.size();
+
+    myPeerPresence.put(PEERS, PresenceMode.AVAILABLE);
+    answer(PEERS);
+
+    assertEquals("Announcement should be passed without waiting for a scan", flushes + 1, myFlushes.size());
+    assertEquals(PEERS + 1, lastFlush().size());
+    assertTrue(lastFlush().contains(peer(PEERS)));
+  }
+
+  private void answer(int peer) {
+    PresenceMode mode = myPeerPresence.get(peer);
+    myUserMonitorThread.addOnlineUser("127.0.0.1", "peer" + peer, PORT + 1 + peer, Collections.singleton("project"),
+                                      new UserPresence(mode == null ? PresenceMode.AVAILABLE : mode));
+  }
+
+  private void scan() {
+    myUserMonitorThread.findNow(new NullProgressIndicator());
+  }
+
+  private Set<User> lastFlush() {
+    assertFalse("No users were passed to the client", myFlushes.isEmpty());
+    return myFlushes.get(myFlushes.size() - 1);
+  }
+
+  private static User peer(int i) {
+    return UserImpl.create("peer" + i, P2PTransport.CODE);
+  }
+}
@@ -4,6 +4,7 @@ import com.google.jstestdriver.*;
 import com.google.jstestdriver.hooks.TestListener;
 import com.google.jstestdriver.idea.rt.execution.TestPath;
 import com.google.jstestdriver.idea.rt.execution.TestPathFactory;
+import com.google.jstestdriver.idea.rt.execution.tree.ConfigNode;
 import com.google.jstestdriver.idea.rt.execution.tree.TreeManager;
 import com.google.jstestdriver.idea.rt.util.TestFileScope;
 import org.jetbrains.annotations.NotNull;
@@ -21,6 +22,7 @@ public class IdeaTestListener implements TestListener {
   private static final String PREFIX = "/test/";
 
   private final TreeManager myTreeManager;
+  private final ConfigNode myConfigNode;
   private final File myBasePath;
   private final Object MONITOR = new Object();
   private final boolean myDryRun;
@@ -29,11 +31,13 @@ public class IdeaTestListener implements TestListener {
   private final Set<FileLoadError> myDryRunErrors = new HashSet<>();
 
   public IdeaTestListener(@NotNull TreeManager treeManager,
+                          @NotNull ConfigNode configNode,
                           @NotNull File jstdConfigFile,
                           @NotNull File singleBasePath,
                           boolean dryRun,
                           @NotNull TestFileScope testFileScope) {
     myTreeManager = treeManager;
+    myConfigNode = configNode;
     myBasePath = singleBasePath;
     myDryRun = dryRun;
     myTestFileScope = testFileScope;
@@ -58,7 +62,7 @@ public class IdeaTestListener implements TestListener {
         reportError = myDryRunErrors.contains(error);
       }
       if (reportError) {
-        myTreeManager.onFileLoadError(browserInfo.toString(), jsFilePath, fileResult.getMessage());
+        myTreeManager.onFileLoadError(myConfigNode, browserInfo.toString(), jsFilePath, fileResult.getMessage());
       }
     }
   }
@@ -81,7 +85,7 @@ public class IdeaTestListener implements TestListener {
           testCase.getName(),
           testName
         );
-        myTreeManager.onTestRegistered(testPath);
+        myTreeManager.onTestRegistered(myConfigNode, testPath);
       }
     }
   }
@@ -90,7 +94,7 @@ public class IdeaTestListener implements TestListener {
   public void onTestComplete(TestResult testResult) {
     synchronized (MONITOR) {
       TestPath testPath = myTestPathFactory.createTestPath(testResult);
-      myTreeManager.onTestCompleted(testPath, testResult);
+      myTreeManager.onTestCompleted(myConfigNode, testPath, testResult);
     }
   }
 
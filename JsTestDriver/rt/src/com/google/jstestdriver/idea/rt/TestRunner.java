@@ -32,6 +32,7 @@ import com.google.jstestdriver.hooks.TestListener;
 import com.google.jstestdriver.idea.rt.coverage.CoverageReport;
 import com.google.jstestdriver.idea.rt.coverage.CoverageSerializationUtils;
 import com.google.jstestdriver.idea.rt.coverage.CoverageSession;
+import com.google.jstestdriver.idea.rt.execution.tree.ConfigNode;
 import com.google.jstestdriver.idea.rt.execution.tree.TreeManager;
 import com.google.jstestdriver.idea.rt.util.EscapeUtils;
 import com.google.jstestdriver.idea.rt.util.JstdConfigParsingUtils;
@@ -44,6 +45,10 @@ import org.joda.time.DateTime;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Main class of JsTestDriver test runner, that runs tests in a separate process and streams messages
@@ -54,6 +59,10 @@ import java.util.*;
 public class TestRunner {
 
   public static final String DEBUG_SESSION_STARTED = "debug session started";
+  /**
+   * Maximum number of configuration files run at the same time, the default is 4.
+   */
+  private static final String MAX_PARALLEL_CONFIGS_PROPERTY = "jstestdriver.max.parallel.configs";
 
   public enum ParameterKey {
     SERVER_URL,
@@ -68,6 +77,7 @@ public class TestRunner {
   private final JstdSettings mySettings;
   private final TreeManager myTreeManager;
   private final CoverageSession myCoverageSession;
+  private volatile boolean myHalted;
 
   public TestRunner(@NotNull JstdSettings settings, @NotNull TreeManager treeManager) {
     mySettings = settings;
@@ -80,56 +90,121 @@ public class TestRunner {
     }
   }
 
-  public void executeAll() {
-    for (File config : mySettings.getConfigFiles()) {
-      executeTests(config);
+  /**
+   * @return false if testing was halted because the server isn't available, the process should exit with an error
+   */
+  public boolean executeAll() {
+    List<File> configFiles = mySettings.getConfigFiles();
+    PrintStream nullSystemOut = new PrintStream(new NullOutputStream());
+    System.setOut(nullSystemOut);
+    try {
+      int parallelism = getParallelism(configFiles.size());
+      if (parallelism > 1) {
+        executeInParallel(configFiles, parallelism);
+      }
+      else {
+        for (File config : configFiles) {
+          executeTests(config);
+          if (myHalted) {
+            break;
+          }
+        }
+      }
+    }
+    finally {
+      nullSystemOut.close();
+      System.setOut(myTreeManager.getSystemOutStream());
+    }
+    if (myHalted) {
+      return false;
     }
     if (myCoverageSession != null) {
       myCoverageSession.finish();
     }
+    return true;
+  }
+
+  private int getParallelism(int configCount) {
+    if (configCount <= 1 || mySettings.isDebug()) {
+      return 1;
+    }
+    int maxParallelConfigs = Math.max(1, Integer.getInteger(MAX_PARALLEL_CONFIGS_PROPERTY, 4));
+    return Math.min(configCount, Math.min(maxParallelConfigs, Runtime.getRuntime().availableProcessors()));
+  }
+
+  private void executeInParallel(@NotNull List<File> configFiles, int parallelism) {
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      List<Future<?>> futures = Lists.newArrayListWithExpectedSize(configFiles.size());
+      for (final File config : configFiles) {
+        futures.add(executor.submit(() -> executeTests(config)));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          myTreeManager.printThrowable("Unexpected crash!", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      executor.shutdownNow();
+    }
   }
 
+  /**
+   * Runs tests of the configuration file on the current thread, which is a worker thread in parallel mode:
+   * errors are reported to the tree, halting is left to {@link #main(String[])}.
+   */
   private void executeTests(@NotNull File config) {
+    if (myHalted) {
+      return;
+    }
     Exception exception = null;
-    PrintStream nullSystemOut = new PrintStream(new NullOutputStream());
+    String haltErrorMessage = null;
+    ConfigNode configNode = myTreeManager.onJstdConfigRunningStarted(config);
     try {
-      System.setOut(nullSystemOut);
-      myTreeManager.onJstdConfigRunningStarted(config);
       String runScope = mySettings.getTestFileScope().toJstdStr();
-      runTests(config, new String[]{"--dryRunFor", runScope}, true);
-      myTreeManager.reportTotalTestCount();
-      runTests(config, new String[]{"--tests", runScope}, false);
+      runTests(config, configNode, new String[]{"--dryRunFor", runScope}, true);
+      myTreeManager.reportTotalTestCount(configNode);
+      runTests(config, configNode, new String[]{"--tests", runScope}, false);
     }
     catch (ConfigurationException ce) {
       exception = ce;
     }
     catch (RuntimeException re) {
-      String haltErrorMessage = getErrorMessageIfNoServerRunning(re, mySettings);
+      haltErrorMessage = getErrorMessageIfNoServerRunning(re, mySettings);
       if (haltErrorMessage == null) {
         haltErrorMessage = getErrorMessageIfNoCapturedBrowsersFound(re, mySettings);
       }
       if (haltErrorMessage != null) {
-        myTreeManager.onJstdConfigRunningFinished(haltErrorMessage, mySettings.getTestFileScope());
-        System.exit(1);
+        myHalted = true;
+      }
+      else {
+        exception = new Exception("Can't run tests.", re);
       }
-      exception = new Exception("Can't run tests.", re);
     }
     catch (Exception e) {
       exception = new Exception("Can't run tests.", e);
     }
     finally {
-      String errorMessage = null;
+      String errorMessage = haltErrorMessage;
       if (exception != null) {
         errorMessage = TreeManager.formatMessage(exception.getMessage(), exception.getCause());
       }
-      myTreeManager.onJstdConfigRunningFinished(errorMessage, mySettings.getTestFileScope());
-      nullSystemOut.close();
-      System.setOut(myTreeManager.getSystemOutStream());
+      myTreeManager.onJstdConfigRunningFinished(configNode, errorMessage, mySettings.getTestFileScope());
     }
   }
 
   @SuppressWarnings("deprecation")
-  private void runTests(@NotNull final File configFile, @NotNull String[] extraArgs, final boolean dryRun) throws ConfigurationException {
+  private void runTests(@NotNull final File configFile,
+                        @NotNull final ConfigNode configNode,
+                        @NotNull String[] extraArgs,
+                        final boolean dryRun) throws ConfigurationException {
     JsTestDriverBuilder builder = new JsTestDriverBuilder();
 
     final ParsedConfiguration parsedConfiguration;
@@ -141,7 +216,7 @@ public class TestRunner {
                                        "Details:", e);
     }
     final File singleBasePath = JstdConfigParsingUtils.getSingleBasePath(parsedConfiguration.getBasePaths(), configFile);
-    myTreeManager.setCurrentBasePath(singleBasePath.getAbsolutePath());
+    myTreeManager.setBasePath(configNode, singleBasePath.getAbsolutePath());
     JstdConfigParsingUtils.wipeCoveragePlugin(parsedConfiguration);
     builder.setDefaultConfiguration(parsedConfiguration);
     builder.withPluginInitializer(new PluginInitializer() {
@@ -154,6 +229,7 @@ public class TestRunner {
             testListeners.addBinding().to(TestResultHolder.class);
             testListeners.addBinding().toInstance(new IdeaTestListener(
               myTreeManager,
+              configNode,
               configFile,
               singleBasePath,
               dryRun,
@@ -281,13 +357,17 @@ public class TestRunner {
         }
       }
     }
+    boolean completed = true;
     try {
-      new TestRunner(settings, treeManager).executeAll();
+      completed = new TestRunner(settings, treeManager).executeAll();
     } catch (Exception ex) {
       treeManager.printThrowable("Unexpected crash!", ex);
     } finally {
       treeManager.onTestingFinished();
     }
+    if (!completed) {
+      System.exit(1);
+    }
   }
 
   @Nullable
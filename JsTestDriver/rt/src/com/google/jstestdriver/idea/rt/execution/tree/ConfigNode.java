@@ -11,6 +11,7 @@ import java.io.File;
 public class ConfigNode extends AbstractSuiteNode<BrowserNode> {
   private final File myConfigFile;
   private String myAbsoluteBasePath;
+  private int myRegisteredTestCount;
 
   public ConfigNode(@NotNull String name, @NotNull File configFile, @NotNull RootNode parent) {
     super(name, parent);
@@ -35,4 +36,15 @@ public class ConfigNode extends AbstractSuiteNode<BrowserNode> {
   public String getAbsoluteBasePath() {
     return myAbsoluteBasePath;
   }
+
+  void onTestRegistered() {
+    myRegisteredTestCount++;
+  }
+
+  /**
+   * @return number of tests ever added to this configuration, completed tests included
+   */
+  public int getRegisteredTestCount() {
+    return myRegisteredTestCount;
+  }
 }
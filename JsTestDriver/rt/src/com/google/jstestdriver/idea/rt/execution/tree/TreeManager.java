@@ -18,6 +18,11 @@ import java.util.Map;
 import java.util.Set;
 
 /**
+ * Keeps the test tree of all configuration files being run and prints it as service messages.
+ * Configuration files may run concurrently: each of them has its own {@link ConfigNode},
+ * tree changes and printing are serialized on this manager, and node ids are unique across the whole run,
+ * so messages of different configuration files can be interleaved safely.
+ *
  * @author Sergey Simonchik
  */
 public class TreeManager {
@@ -26,7 +31,6 @@ public class TreeManager {
   private final PrintStream myOutStream;
   private final PrintStream myErrStream;
   private final RootNode myRootNode;
-  private ConfigNode myCurrentJstdConfigNode;
   private int myNextNodeId = 1;
 
   @SuppressWarnings("UseOfSystemOutOrSystemErr")
@@ -37,14 +41,15 @@ public class TreeManager {
     myRootNode = new RootNode(this);
   }
 
-  public void onJstdConfigRunningStarted(@NotNull File jstdConfigFile) {
+  @NotNull
+  public synchronized ConfigNode onJstdConfigRunningStarted(@NotNull File jstdConfigFile) {
     String jstdConfigNodeDisplayName = buildJstdConfigDisplayName(jstdConfigFile);
-    myCurrentJstdConfigNode = new ConfigNode(jstdConfigNodeDisplayName, jstdConfigFile, myRootNode);
-    myRootNode.addChild(myCurrentJstdConfigNode);
+    ConfigNode configNode = new ConfigNode(jstdConfigNodeDisplayName, jstdConfigFile, myRootNode);
+    myRootNode.addChild(configNode);
+    return configNode;
   }
 
-  public void setCurrentBasePath(@NotNull String absoluteBasePath) {
-    ConfigNode configNode = getCurrentConfigNode();
+  public synchronized void setBasePath(@NotNull ConfigNode configNode, @NotNull String absoluteBasePath) {
     configNode.setBasePath(absoluteBasePath);
   }
 
@@ -66,12 +71,14 @@ public class TreeManager {
     return displayName;
   }
 
-  public void onTestRegistered(@NotNull TestPath message) {
-    getOrCreateTestNode(message);
+  public synchronized void onTestRegistered(@NotNull ConfigNode configNode, @NotNull TestPath message) {
+    getOrCreateTestNode(configNode, message);
   }
 
-  public void onTestCompleted(@NotNull TestPath testPath, @NotNull TestResult testResult) {
-    TestNode testNode = getOrCreateTestNode(testPath);
+  public synchronized void onTestCompleted(@NotNull ConfigNode configNode,
+                                           @NotNull TestPath testPath,
+                                           @NotNull TestResult testResult) {
+    TestNode testNode = getOrCreateTestNode(configNode, testPath);
     testNode.detachFromParent();
     String log = testResult.getLog();
     if (log != null && !log.isEmpty()) {
@@ -107,26 +114,17 @@ public class TreeManager {
     }
   }
 
-  public void reportTotalTestCount() {
-    ConfigNode configNode = myCurrentJstdConfigNode;
-    if (configNode != null) {
-      int testCount = 0;
-      for (BrowserNode browserNode : configNode.getChildren()) {
-        for (TestCaseNode testCaseNode : browserNode.getChildren()) {
-          testCount += testCaseNode.getChildren().size();
-        }
-      }
-      if (testCount > 0) {
-        TCMessage tcMessage = new TCMessage(TCCommand.TEST_COUNT);
-        tcMessage.addAttribute(TCAttribute.TEST_COUNT, String.valueOf(testCount));
-        printTCMessage(tcMessage);
-      }
+  public synchronized void reportTotalTestCount(@NotNull ConfigNode configNode) {
+    int testCount = configNode.getRegisteredTestCount();
+    if (testCount > 0) {
+      TCMessage tcMessage = new TCMessage(TCCommand.TEST_COUNT);
+      tcMessage.addAttribute(TCAttribute.TEST_COUNT, String.valueOf(testCount));
+      printTCMessage(tcMessage);
     }
   }
 
   @NotNull
-  private TestNode getOrCreateTestNode(@NotNull TestPath testPath) {
-    ConfigNode configNode = getCurrentConfigNode();
+  private TestNode getOrCreateTestNode(@NotNull ConfigNode configNode, @NotNull TestPath testPath) {
     BrowserNode browserNode = configNode.findChildByName(testPath.getBrowserDisplayName());
     if (browserNode == null) {
       browserNode = new BrowserNode(testPath.getBrowserDisplayName(), configNode);
@@ -143,26 +141,18 @@ public class TreeManager {
     if (testNode == null) {
       testNode = new TestNode(testPath.getTestName(), testCaseNode);
       testCaseNode.addChild(testNode);
+      configNode.onTestRegistered();
     }
 
     return testNode;
   }
 
-  @NotNull
-  private ConfigNode getCurrentConfigNode() {
-    ConfigNode configNode = myCurrentJstdConfigNode;
-    if (configNode == null) {
-      throw new RuntimeException("Current " + ConfigNode.class.getSimpleName() + " is null!");
-    }
-    return configNode;
-  }
-
-  public void printThrowable(@NotNull String message, @NotNull Throwable t) {
+  public synchronized void printThrowable(@NotNull String message, @NotNull Throwable t) {
     String fullMessage = formatMessage(message, t);
     myErrStream.println(fullMessage);
   }
 
-  public void printThrowable(@NotNull Throwable t) {
+  public synchronized void printThrowable(@NotNull Throwable t) {
     String message = formatStacktrace(t);
     myErrStream.println(message);
   }
@@ -172,8 +162,9 @@ public class TreeManager {
     return myOutStream;
   }
 
-  public void onJstdConfigRunningFinished(@Nullable String errorMessage, @NotNull TestFileScope testFileScope) {
-    ConfigNode configNode = getCurrentConfigNode();
+  public synchronized void onJstdConfigRunningFinished(@NotNull ConfigNode configNode,
+                                                       @Nullable String errorMessage,
+                                                       @NotNull TestFileScope testFileScope) {
     for (BrowserNode browserNode : configNode.getChildren()) {
       for (TestCaseNode testCaseNode : browserNode.getChildren()) {
         for (TestNode testNode : testCaseNode.getChildren()) {
@@ -221,18 +212,18 @@ public class TreeManager {
   public void onTestingFinished() {
   }
 
-  public int getNextNodeId() {
+  public synchronized int getNextNodeId() {
     return myNextNodeId++;
   }
 
-  public void printTCMessage(@NotNull TCMessage message) {
+  public synchronized void printTCMessage(@NotNull TCMessage message) {
     myOutStream.print(message.getText() + "\n");
   }
 
-  public void onFileLoadError(@NotNull String browserName,
-                              @Nullable String pathToJsFileWithError,
-                              @Nullable String errorMessage) {
-    ConfigNode configNode = getCurrentConfigNode();
+  public synchronized void onFileLoadError(@NotNull ConfigNode configNode,
+                                           @NotNull String browserName,
+                                           @Nullable String pathToJsFileWithError,
+                                           @Nullable String errorMessage) {
     BrowserNode browserNode = configNode.findChildByName(browserName);
     if (browserNode == null) {
       browserNode = new BrowserNode(browserName, configNode);
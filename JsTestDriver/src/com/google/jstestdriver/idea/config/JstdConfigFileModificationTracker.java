@@ -0,0 +1,65 @@
+package com.google.jstestdriver.idea.config;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.PathUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Changes when a JsTestDriver configuration file is saved, created, deleted, moved or renamed, or a directory
+ * that may contain one is moved or deleted: paths in the configuration files are resolved against their directories.
+ */
+public class JstdConfigFileModificationTracker extends SimpleModificationTracker {
+
+  public JstdConfigFileModificationTracker(@NotNull Project project) {
+    project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void before(@NotNull List<? extends VFileEvent> events) {
+      }
+
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (isConfigFileEvent(event)) {
+            incModificationCount();
+            return;
+          }
+        }
+      }
+    });
+  }
+
+  @NotNull
+  public static JstdConfigFileModificationTracker getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, JstdConfigFileModificationTracker.class);
+  }
+
+  private static boolean isConfigFileEvent(@NotNull VFileEvent event) {
+    VirtualFile file = event.getFile();
+    if (file != null && file.isDirectory()) {
+      return true;
+    }
+    if (isConfigFileName(PathUtil.getFileName(event.getPath()))) {
+      return true;
+    }
+    if (event instanceof VFilePropertyChangeEvent) {
+      VFilePropertyChangeEvent propertyChangeEvent = (VFilePropertyChangeEvent)event;
+      return VirtualFile.PROP_NAME.equals(propertyChangeEvent.getPropertyName()) &&
+             isConfigFileName(String.valueOf(propertyChangeEvent.getOldValue()));
+    }
+    return false;
+  }
+
+  private static boolean isConfigFileName(@NotNull String fileName) {
+    return FileTypeManager.getInstance().getFileTypeByFileName(fileName) == JstdConfigFileType.INSTANCE;
+  }
+}
@@ -0,0 +1,146 @@
+package com.google.jstestdriver.idea.config;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts file patterns from the text of a JsTestDriver configuration file without touching the file system.
+ * Only the subset of YAML used by configuration files is supported: top level keys with a scalar value,
+ * a block sequence or a flow sequence.
+ */
+class JstdConfigPathPatterns {
+
+  private static final String LOAD = "load";
+  private static final String TEST = "test";
+  private static final String SERVE = "serve";
+  private static final String EXCLUDE = "exclude";
+
+  private final List<String> myIncluded = new ArrayList<>();
+  private final List<String> myExcluded = new ArrayList<>();
+
+  private JstdConfigPathPatterns() {}
+
+  /**
+   * @return normalized absolute patterns of "load", "test" and "serve" sections
+   */
+  @NotNull
+  List<String> getIncluded() {
+    return myIncluded;
+  }
+
+  /**
+   * @return normalized absolute patterns of "exclude" section
+   */
+  @NotNull
+  List<String> getExcluded() {
+    return myExcluded;
+  }
+
+  @NotNull
+  static JstdConfigPathPatterns parse(@NotNull CharSequence text, @NotNull String configDirPath) {
+    List<String> included = new ArrayList<>();
+    List<String> excluded = new ArrayList<>();
+    List<String> basePaths = new ArrayList<>(1);
+    List<String> currentSection = null;
+    for (String line : StringUtil.splitByLines(text.toString())) {
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.equals("---")) {
+        continue;
+      }
+      if (trimmed.startsWith("-")) {
+        if (currentSection != null) {
+          String item = unquote(trimmed.substring(1));
+          if (item != null) {
+            currentSection.add(item);
+          }
+        }
+        continue;
+      }
+      if (Character.isWhitespace(line.charAt(0))) {
+        continue;
+      }
+      int colonInd = trimmed.indexOf(':');
+      if (colonInd < 0) {
+        currentSection = null;
+        continue;
+      }
+      String key = trimmed.substring(0, colonInd).trim();
+      if (LOAD.equals(key) || TEST.equals(key) || SERVE.equals(key)) {
+        currentSection = included;
+      }
+      else if (EXCLUDE.equals(key)) {
+        currentSection = excluded;
+      }
+      else if (BasePathInfo.BASE_PATH_KEY.equals(key)) {
+        currentSection = basePaths;
+      }
+      else {
+        currentSection = null;
+        continue;
+      }
+      String value = trimmed.substring(colonInd + 1).trim();
+      if (value.startsWith("[")) {
+        int endInd = value.lastIndexOf(']');
+        String items = value.substring(1, endInd > 0 ? endInd : value.length());
+        for (String item : StringUtil.split(items, ",")) {
+          ContainerUtil.addIfNotNull(currentSection, unquote(item));
+        }
+        currentSection = null;
+      }
+      else if (!value.isEmpty()) {
+        ContainerUtil.addIfNotNull(currentSection, unquote(value));
+        currentSection = null;
+      }
+    }
+    String basePath = configDirPath;
+    if (!basePaths.isEmpty()) {
+      basePath = resolve(configDirPath, basePaths.get(0));
+    }
+    JstdConfigPathPatterns patterns = new JstdConfigPathPatterns();
+    addResolved(patterns.myIncluded, basePath, included);
+    addResolved(patterns.myExcluded, basePath, excluded);
+    return patterns;
+  }
+
+  private static void addResolved(@NotNull List<String> result, @NotNull String basePath, @NotNull List<String> items) {
+    for (String item : items) {
+      if (!item.contains("://")) {
+        result.add(resolve(basePath, item));
+      }
+    }
+  }
+
+  @NotNull
+  private static String resolve(@NotNull String basePath, @NotNull String path) {
+    String systemIndependentPath = FileUtil.toSystemIndependentName(path);
+    String absolutePath = isAbsolute(systemIndependentPath) ? systemIndependentPath : basePath + "/" + systemIndependentPath;
+    String canonicalPath = FileUtil.toCanonicalPath(absolutePath, '/');
+    return StringUtil.trimEnd(canonicalPath != null ? canonicalPath : absolutePath, "/");
+  }
+
+  private static boolean isAbsolute(@NotNull String path) {
+    return path.startsWith("/") || path.length() >= 2 && path.charAt(1) == ':' && Character.isLetter(path.charAt(0));
+  }
+
+  @Nullable
+  private static String unquote(@NotNull String value) {
+    String result = value.trim();
+    if (result.length() >= 2) {
+      char first = result.charAt(0);
+      if ((first == '"' || first == '\'') && result.charAt(result.length() - 1) == first) {
+        return StringUtil.nullize(result.substring(1, result.length() - 1));
+      }
+    }
+    int commentInd = result.indexOf(" #");
+    if (commentInd >= 0) {
+      result = result.substring(0, commentInd).trim();
+    }
+    return StringUtil.nullize(result);
+  }
+}
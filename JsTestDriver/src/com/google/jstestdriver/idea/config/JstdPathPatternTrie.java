@@ -0,0 +1,174 @@
+package com.google.jstestdriver.idea.config;
+
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a path against many glob patterns of JsTestDriver configuration files.
+ * <p>
+ * Patterns are absolute system-independent paths where {@code *} and {@code ?} match within a path component
+ * and {@code **} matches any number of components. The literal leading components of each pattern form a trie,
+ * so only patterns whose literal prefix is a prefix of the path are tested.
+ * Immutable after filling, so it can be shared between threads.
+ */
+class JstdPathPatternTrie {
+
+  private final Node myRoot = new Node();
+
+  /**
+   * @param key value to be returned by {@link #findMatchingKeys(String)} if the pattern matches
+   */
+  void add(@NotNull String pattern, @NotNull String key) {
+    String[] components = pattern.split("/", -1);
+    Node node = myRoot;
+    int i = 0;
+    while (i < components.length && !isGlob(components[i])) {
+      if (i == components.length - 1) {
+        node.addExact(components[i], key);
+        return;
+      }
+      node = node.getOrCreateChild(components[i]);
+      i++;
+    }
+    StringBuilder rest = new StringBuilder();
+    for (int j = i; j < components.length; j++) {
+      if (j > i) {
+        rest.append('/');
+      }
+      rest.append(components[j]);
+    }
+    node.addGlob(compileGlob(rest.toString()), key);
+  }
+
+  /**
+   * @return keys of patterns matching the given absolute system-independent path
+   */
+  @NotNull
+  List<String> findMatchingKeys(@NotNull String path) {
+    List<String> result = new ArrayList<>(1);
+    Node node = myRoot;
+    int start = 0;
+    while (node != null) {
+      int end = path.indexOf('/', start);
+      String component = end < 0 ? path.substring(start) : path.substring(start, end);
+      String rest = path.substring(start);
+      node.collectGlobMatches(rest, result);
+      if (end < 0) {
+        node.collectExactMatches(component, result);
+        break;
+      }
+      node = node.getChild(component);
+      start = end + 1;
+    }
+    return result;
+  }
+
+  private static boolean isGlob(@NotNull String component) {
+    return component.indexOf('*') >= 0 || component.indexOf('?') >= 0;
+  }
+
+  @NotNull
+  static Pattern compileGlob(@NotNull String glob) {
+    StringBuilder regex = new StringBuilder(glob.length() + 16);
+    int i = 0;
+    while (i < glob.length()) {
+      char c = glob.charAt(i);
+      if (c == '*') {
+        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+            regex.append("(?:.*/)?");
+            i += 3;
+          }
+          else {
+            regex.append(".*");
+            i += 2;
+          }
+          continue;
+        }
+        regex.append("[^/]*");
+      }
+      else if (c == '?') {
+        regex.append("[^/]");
+      }
+      else if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+        regex.append('\\').append(c);
+      }
+      else {
+        regex.append(c);
+      }
+      i++;
+    }
+    return Pattern.compile(regex.toString());
+  }
+
+  private static class Node {
+    private Map<String, Node> myChildren;
+    private Map<String, List<String>> myExactKeys;
+    private List<Pattern> myGlobs;
+    private List<String> myGlobKeys;
+
+    @Nullable
+    Node getChild(@NotNull String component) {
+      return myChildren != null ? myChildren.get(component) : null;
+    }
+
+    @NotNull
+    Node getOrCreateChild(@NotNull String component) {
+      if (myChildren == null) {
+        myChildren = ContainerUtil.newHashMap();
+      }
+      Node child = myChildren.get(component);
+      if (child == null) {
+        child = new Node();
+        myChildren.put(component, child);
+      }
+      return child;
+    }
+
+    void addExact(@NotNull String component, @NotNull String key) {
+      if (myExactKeys == null) {
+        myExactKeys = ContainerUtil.newHashMap();
+      }
+      List<String> keys = myExactKeys.get(component);
+      if (keys == null) {
+        keys = new ArrayList<>(1);
+        myExactKeys.put(component, keys);
+      }
+      keys.add(key);
+    }
+
+    void addGlob(@NotNull Pattern glob, @NotNull String key) {
+      if (myGlobs == null) {
+        myGlobs = new ArrayList<>(1);
+        myGlobKeys = new ArrayList<>(1);
+      }
+      myGlobs.add(glob);
+      myGlobKeys.add(key);
+    }
+
+    void collectExactMatches(@NotNull String component, @NotNull List<String> result) {
+      if (myExactKeys != null) {
+        List<String> keys = myExactKeys.get(component);
+        if (keys != null) {
+          result.addAll(keys);
+        }
+      }
+    }
+
+    void collectGlobMatches(@NotNull String rest, @NotNull List<String> result) {
+      if (myGlobs != null) {
+        for (int i = 0; i < myGlobs.size(); i++) {
+          if (myGlobs.get(i).matcher(rest).matches()) {
+            result.add(myGlobKeys.get(i));
+          }
+        }
+      }
+    }
+  }
+}
@@ -1,17 +1,12 @@
 package com.google.jstestdriver.idea.config;
 
-import com.google.jstestdriver.FileInfo;
-import com.google.jstestdriver.FlagsImpl;
-import com.google.jstestdriver.PathResolver;
-import com.google.jstestdriver.config.ParsedConfiguration;
-import com.google.jstestdriver.config.ResolvedConfiguration;
-import com.google.jstestdriver.config.YamlParser;
-import com.google.jstestdriver.model.BasePaths;
-import com.google.jstestdriver.util.DisplayPathSanitizer;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.util.indexing.*;
 import com.intellij.util.io.DataExternalizer;
 import com.intellij.util.io.EnumeratorStringDescriptor;
@@ -19,8 +14,6 @@ import com.intellij.util.io.KeyDescriptor;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.*;
-import java.nio.charset.Charset;
 import java.util.*;
 
 /**
@@ -29,6 +22,7 @@ import java.util.*;
 public class JstdTestFilePathIndex extends FileBasedIndexExtension<String, Void> {
 
   private static final ID<String, Void> KEY = ID.create("jstd.jsFile.path");
+  private static final String EXCLUDED_PATTERN_PREFIX = "!";
 
   @NotNull
   @Override
@@ -43,27 +37,11 @@ public class JstdTestFilePathIndex extends FileBasedIndexExtension<String, Void>
       @Override
       @NotNull
       public Map<String, Void> map(@NotNull final FileContent inputData) {
-        VirtualFile file = inputData.getFile();
-        if (file.isValid()) {
-          VirtualFile dir = file.getParent();
-          if (dir.isValid()) {
-            BasePaths basePaths = new BasePaths(new File(dir.getPath()));
-            Reader reader = new InputStreamReader(new ByteArrayInputStream(inputData.getContent()), Charset.defaultCharset());
-            try {
-              return doIndexConfigFile(reader, basePaths);
-            }
-            catch (Exception ignored) {
-            }
-            finally {
-              try {
-                reader.close();
-              }
-              catch (IOException ignored) {
-              }
-            }
-          }
+        VirtualFile dir = inputData.getFile().getParent();
+        if (dir == null) {
+          return Collections.emptyMap();
         }
-        return Collections.emptyMap();
+        return doIndexConfigFile(inputData.getContentAsText(), dir.getPath());
       }
     };
   }
@@ -93,33 +71,23 @@ public class JstdTestFilePathIndex extends FileBasedIndexExtension<String, Void>
 
   @Override
   public int getVersion() {
-    return 1;
+    return 2;
   }
 
+  /**
+   * Keys are normalized absolute patterns: globs are not expanded, so indexing doesn't depend on the file system.
+   */
   @NotNull
-  private static Map<String, Void> doIndexConfigFile(@NotNull Reader configFileReader, @NotNull BasePaths initialBasePaths) {
-    YamlParser yamlParser = new YamlParser();
-    final Map<String, Void> map = new THashMap<>();
-    ParsedConfiguration parsedConfiguration = (ParsedConfiguration) yamlParser.parse(configFileReader, initialBasePaths);
-    PathResolver pathResolver = new PathResolver(
-      parsedConfiguration.getBasePaths(),
-      Collections.emptySet(),
-      new DisplayPathSanitizer()
-    );
-    FlagsImpl flags = new FlagsImpl();
-    flags.setServer("test:1");
-    ResolvedConfiguration resolvedConfiguration = (ResolvedConfiguration) parsedConfiguration.resolvePaths(pathResolver, flags);
-    doPutAll(map, resolvedConfiguration.getTests());
-    doPutAll(map, resolvedConfiguration.getFilesList());
-    return map;
-  }
-
-  private static void doPutAll(@NotNull Map<String, Void> map, @NotNull Collection<FileInfo> fileInfos) {
-    for (FileInfo fileInfo : fileInfos) {
-      File file = fileInfo.toFile();
-      String path = FileUtil.toSystemIndependentName(file.getAbsolutePath());
-      map.put(path, null);
+  static Map<String, Void> doIndexConfigFile(@NotNull CharSequence configText, @NotNull String configDirPath) {
+    JstdConfigPathPatterns patterns = JstdConfigPathPatterns.parse(configText, configDirPath);
+    Map<String, Void> map = new THashMap<>();
+    for (String pattern : patterns.getIncluded()) {
+      map.put(pattern, null);
+    }
+    for (String pattern : patterns.getExcluded()) {
+      map.put(EXCLUDED_PATTERN_PREFIX + pattern, null);
     }
+    return map;
   }
 
   @NotNull
@@ -130,17 +98,50 @@ public class JstdTestFilePathIndex extends FileBasedIndexExtension<String, Void>
 
   @NotNull
   public static List<VirtualFile> findConfigFilesInScope(@NotNull VirtualFile jsTestFile, @NotNull GlobalSearchScope scope) {
-    final List<VirtualFile> jstdConfigs = new ArrayList<>(1);
-    FileBasedIndex.getInstance().processValues(
-      KEY,
-      jsTestFile.getPath(),
-      null,
-      (file, value) -> {
-        jstdConfigs.add(file);
-        return true;
-      },
-      scope
-    );
-    return jstdConfigs;
+    List<String> keys = getPatternTrie(scope).findMatchingKeys(jsTestFile.getPath());
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Set<VirtualFile> jstdConfigs = new LinkedHashSet<>();
+    Set<VirtualFile> excludingConfigs = new HashSet<>();
+    for (String key : keys) {
+      Set<VirtualFile> result = key.startsWith(EXCLUDED_PATTERN_PREFIX) ? excludingConfigs : jstdConfigs;
+      FileBasedIndex.getInstance().processValues(
+        KEY,
+        key,
+        null,
+        (file, value) -> {
+          result.add(file);
+          return true;
+        },
+        scope
+      );
+    }
+    jstdConfigs.removeAll(excludingConfigs);
+    return new ArrayList<>(jstdConfigs);
+  }
+
+  @NotNull
+  private static JstdPathPatternTrie getPatternTrie(@NotNull GlobalSearchScope scope) {
+    Project project = scope.getProject();
+    if (project == null) {
+      return buildPatternTrie(scope);
+    }
+    // keys only change with the configuration files, unlike PSI of JavaScript files being edited
+    return CachedValuesManager.getManager(project).getCachedValue(project, () -> CachedValueProvider.Result.create(
+      buildPatternTrie(GlobalSearchScope.allScope(project)),
+      JstdConfigFileModificationTracker.getInstance(project),
+      ProjectRootManager.getInstance(project)
+    ));
+  }
+
+  @NotNull
+  static JstdPathPatternTrie buildPatternTrie(@NotNull GlobalSearchScope scope) {
+    JstdPathPatternTrie trie = new JstdPathPatternTrie();
+    FileBasedIndex.getInstance().processAllKeys(KEY, key -> {
+      trie.add(StringUtil.trimStart(key, EXCLUDED_PATTERN_PREFIX), key);
+      return true;
+    }, scope, null);
+    return trie;
   }
 }
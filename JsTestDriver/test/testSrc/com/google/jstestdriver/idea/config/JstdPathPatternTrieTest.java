@@ -0,0 +1,90 @@
+package com.google.jstestdriver.idea.config;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class JstdPathPatternTrieTest {
+
+  private static final int CONFIGS = 5000;
+  private static final int TEST_FILES = 20000;
+
+  @Test
+  public void testConfigPatterns() {
+    JstdConfigPathPatterns patterns = JstdConfigPathPatterns.parse(
+      "# comment\n" +
+      "server: http://localhost:9876\n" +
+      "basepath: ..\n" +
+      "load:\n" +
+      "  - lib/*.js\n" +
+      "  - \"src/main.js\"\n" +
+      "  - http://example.com/remote.js\n" +
+      "test: [test/**/*Test.js, 'test/../extra/a.js']\n" +
+      "exclude:\n" +
+      "  - test/ignored/*.js # flaky\n" +
+      "plugin:\n" +
+      "  - name: coverage\n" +
+      "    jar: plugins/coverage.jar\n",
+      "/project/conf"
+    );
+    Assert.assertEquals(Arrays.asList("/project/lib/*.js", "/project/src/main.js", "/project/test/**/*Test.js", "/project/extra/a.js"),
+                        patterns.getIncluded());
+    Assert.assertEquals(Collections.singletonList("/project/test/ignored/*.js"), patterns.getExcluded());
+  }
+
+  @Test
+  public void testMatching() {
+    JstdPathPatternTrie trie = new JstdPathPatternTrie();
+    trie.add("/project/lib/*.js", "lib");
+    trie.add("/project/test/**/*Test.js", "tests");
+    trie.add("/project/src/main.js", "main");
+    trie.add("/project/src/?.js", "single");
+    trie.add("/project/**", "all");
+
+    assertMatches(trie, "/project/lib/jquery.js", "all", "lib");
+    assertMatches(trie, "/project/lib/sub/jquery.js", "all");
+    assertMatches(trie, "/project/test/FooTest.js", "all", "tests");
+    assertMatches(trie, "/project/test/a/b/FooTest.js", "all", "tests");
+    assertMatches(trie, "/project/src/main.js", "all", "main");
+    assertMatches(trie, "/project/src/m.js", "all", "single");
+    assertMatches(trie, "/other/src/main.js");
+  }
+
+  @Test
+  public void testPerformance() {
+    List<String> configs = new ArrayList<>(CONFIGS);
+    for (int i = 0; i < CONFIGS; i++) {
+      configs.add("load:\n" +
+                  "  - lib/*.js\n" +
+                  "  - src/module" + i + "/**/*.js\n" +
+                  "test:\n" +
+                  "  - test/module" + i + "/*Test.js\n" +
+                  "  - test/module" + i + "/fixtures/fixture.js\n");
+    }
+    List<String> testFiles = new ArrayList<>(TEST_FILES);
+    for (int i = 0; i < TEST_FILES; i++) {
+      testFiles.add("/project/module" + (i % CONFIGS) + "/test/module" + (i % CONFIGS) + "/Case" + i + "Test.js");
+    }
+    PlatformTestUtil.startPerformanceTest("JsTestDriver config patterns", 3000, () -> {
+      JstdPathPatternTrie trie = new JstdPathPatternTrie();
+      for (int i = 0; i < CONFIGS; i++) {
+        Map<String, Void> keys = JstdTestFilePathIndex.doIndexConfigFile(configs.get(i), "/project/module" + i);
+        for (String key : keys.keySet()) {
+          trie.add(key, key);
+        }
+      }
+      for (String testFile : testFiles) {
+        Assert.assertEquals(1, trie.findMatchingKeys(testFile).size());
+      }
+    }).assertTiming();
+  }
+
+  private static void assertMatches(@NotNull JstdPathPatternTrie trie, @NotNull String path, String... expectedKeys) {
+    List<String> actual = trie.findMatchingKeys(path);
+    Collections.sort(actual);
+    Assert.assertEquals(Arrays.asList(expectedKeys), actual);
+  }
+}
@@ -0,0 +1,81 @@
+package com.google.jstestdriver.idea.rt;
+
+import com.google.jstestdriver.idea.rt.execution.tree.TreeManager;
+import com.google.jstestdriver.idea.rt.util.TestFileScope;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TestRunnerParallelTest extends TestCase {
+
+  private File myDir;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("jstd-parallel", null);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testNoServerHaltsParallelRunWithoutExit() throws IOException {
+    FileUtil.writeToFile(new File(myDir, "a.js"), "");
+    List<File> configFiles = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      File configFile = new File(myDir, "config" + i + ".jstd");
+      FileUtil.writeToFile(configFile, "load:\n  - a.js\n");
+      configFiles.add(configFile);
+    }
+    JstdSettings settings = new JstdSettings("http://localhost:" + findFreePort(), configFiles, null,
+                                             TestFileScope.allScope(), null, Collections.emptyList(), false);
+
+    PrintStream systemOut = System.out;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintStream outStream = new PrintStream(out, true);
+    System.setOut(outStream);
+    boolean completed;
+    try {
+      String parallelism = System.setProperty("jstestdriver.max.parallel.configs", "3");
+      try {
+        // System.exit() from a worker thread would kill the test JVM here
+        completed = new TestRunner(settings, new TreeManager(null)).executeAll();
+      }
+      finally {
+        if (parallelism != null) {
+          System.setProperty("jstestdriver.max.parallel.configs", parallelism);
+        }
+        else {
+          System.clearProperty("jstestdriver.max.parallel.configs");
+        }
+      }
+    }
+    finally {
+      System.setOut(systemOut);
+      outStream.close();
+    }
+    assertFalse(completed);
+    assertTrue(out.toString(), out.toString().contains("Could not connect to JsTestDriver server"));
+  }
+
+  private static int findFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -4,18 +4,20 @@ import com.intellij.ide.highlighter.JavaFileType;
 import com.intellij.openapi.module.Module;
 import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.PsiSearchHelper;
-import com.intellij.psi.search.UsageSearchContext;
-import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.cucumber.BDDFrameworkType;
 import org.jetbrains.plugins.cucumber.StepDefinitionCreator;
 import org.jetbrains.plugins.cucumber.java.steps.Java8StepDefinitionCreator;
 import org.jetbrains.plugins.cucumber.java.steps.JavaStepDefinition;
+import org.jetbrains.plugins.cucumber.java.steps.JavaStepDefinitionIndex;
 import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class CucumberJava8Extension extends AbstractCucumberJavaExtension {
@@ -33,33 +35,29 @@ public class CucumberJava8Extension extends AbstractCucumberJavaExtension {
 
   @Override
   public List<AbstractStepDefinition> loadStepsFor(@Nullable PsiFile featureFile, @NotNull Module module) {
+    return CachedValuesManager.getManager(module.getProject()).getCachedValue(module, () -> CachedValueProvider.Result
+      .create(doLoadStepsFor(module), PsiModificationTracker.MODIFICATION_COUNT));
+  }
+
+  @NotNull
+  private static List<AbstractStepDefinition> doLoadStepsFor(@NotNull Module module) {
     final List<AbstractStepDefinition> result = new ArrayList<>();
 
     final GlobalSearchScope dependenciesScope = module.getModuleWithDependenciesAndLibrariesScope(true);
     final GlobalSearchScope javaFiles = GlobalSearchScope.getScopeRestrictedByFileTypes(dependenciesScope, JavaFileType.INSTANCE);
 
-    String[] keywords = new String[] {"Given", "And", "Then", "But", "When"};
-    for (String method : keywords) {
-      PsiSearchHelper.SERVICE.getInstance(module.getProject()).processElementsWithWord((element, offsetInElement) -> {
-        final PsiElement parent = element.getParent();
-        if (parent != null) {
-          final PsiReference[] references = parent.getReferences();
-          for (PsiReference ref : references) {
-            PsiElement resolved = ref.resolve();
-            PsiClass psiClass = PsiTreeUtil.getParentOfType(resolved, PsiClass.class);
-            if (psiClass != null) {
-              final String fqn = psiClass.getQualifiedName();
-              if (fqn != null && fqn.startsWith("cucumber.api.java8")) {
-                final PsiMethodCallExpression methodCallExpression = PsiTreeUtil.getParentOfType(element, PsiMethodCallExpression.class);
-                result.add(new JavaStepDefinition(methodCallExpression));
-              }
-            }
+    JavaStepDefinitionIndex.processEntries(module.getProject(), JavaStepDefinitionIndex.JAVA8_KEY, javaFiles,
+                                           PsiMethodCallExpression.class, (methodCallExpression, indexedRegex) -> {
+        final PsiMethod method = methodCallExpression.resolveMethod();
+        final PsiClass psiClass = method != null ? method.getContainingClass() : null;
+        if (psiClass != null) {
+          final String fqn = psiClass.getQualifiedName();
+          if (fqn != null && fqn.startsWith("cucumber.api.java8")) {
+            result.add(new JavaStepDefinition(methodCallExpression, indexedRegex));
           }
         }
-
         return true;
-      }, javaFiles, method, UsageSearchContext.IN_CODE, true);
-    }
-    return result;
+      });
+    return Collections.unmodifiableList(result);
   }
 }
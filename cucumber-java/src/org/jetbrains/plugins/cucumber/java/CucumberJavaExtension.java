@@ -2,24 +2,27 @@ package org.jetbrains.plugins.cucumber.java;
 
 import com.intellij.ide.highlighter.JavaFileType;
 import com.intellij.openapi.module.Module;
-import com.intellij.psi.JavaPsiFacade;
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiMethod;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.ProjectScope;
 import com.intellij.psi.search.searches.AnnotatedElementsSearch;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.Query;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.cucumber.BDDFrameworkType;
 import org.jetbrains.plugins.cucumber.StepDefinitionCreator;
 import org.jetbrains.plugins.cucumber.java.steps.JavaStepDefinition;
 import org.jetbrains.plugins.cucumber.java.steps.JavaStepDefinitionCreator;
+import org.jetbrains.plugins.cucumber.java.steps.JavaStepDefinitionIndex;
 import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 public class CucumberJavaExtension extends AbstractCucumberJavaExtension {
   public static final String CUCUMBER_RUNTIME_JAVA_STEP_DEF_ANNOTATION = "cucumber.runtime.java.StepDefAnnotation";
@@ -38,24 +41,72 @@ public class CucumberJavaExtension extends AbstractCucumberJavaExtension {
 
   @Override
   public List<AbstractStepDefinition> loadStepsFor(@Nullable PsiFile featureFile, @NotNull Module module) {
-    final GlobalSearchScope dependenciesScope = module.getModuleWithDependenciesAndLibrariesScope(true);
+    return CachedValuesManager.getManager(module.getProject()).getCachedValue(module, () -> CachedValueProvider.Result
+      .create(doLoadStepsFor(module), PsiModificationTracker.MODIFICATION_COUNT));
+  }
 
-    PsiClass stepDefAnnotationClass = JavaPsiFacade.getInstance(module.getProject()).findClass(CUCUMBER_RUNTIME_JAVA_STEP_DEF_ANNOTATION,
-                                                                                               dependenciesScope);
-    if (stepDefAnnotationClass == null) {
+  @NotNull
+  private static List<AbstractStepDefinition> doLoadStepsFor(@NotNull Module module) {
+    final LibrarySteps librarySteps = getLibrarySteps(module);
+    if (librarySteps == null) {
       return Collections.emptyList();
     }
 
-    final List<AbstractStepDefinition> result = new ArrayList<>();
-    final Query<PsiClass> stepDefAnnotations = AnnotatedElementsSearch.searchPsiClasses(stepDefAnnotationClass, dependenciesScope);
-    for (PsiClass annotationClass : stepDefAnnotations) {
-      if (annotationClass.isAnnotationType()) {
-        final Query<PsiMethod> javaStepDefinitions = AnnotatedElementsSearch.searchPsiMethods(annotationClass, dependenciesScope);
-        for (PsiMethod stepDefMethod : javaStepDefinitions) {
-          result.add(new JavaStepDefinition(stepDefMethod));
+    final Project project = module.getProject();
+    final GlobalSearchScope dependenciesScope = module.getModuleWithDependenciesAndLibrariesScope(true);
+    final List<AbstractStepDefinition> result = new ArrayList<>(librarySteps.myDefinitions);
+    for (String annotationName : librarySteps.myAnnotationNamesByShortName.keySet()) {
+      final Set<String> qualifiedNames = librarySteps.myAnnotationNamesByShortName.get(annotationName);
+      JavaStepDefinitionIndex.processEntries(project, annotationName, dependenciesScope, PsiMethod.class, (method, indexedRegex) -> {
+        for (PsiAnnotation annotation : method.getModifierList().getAnnotations()) {
+          if (qualifiedNames.contains(annotation.getQualifiedName())) {
+            result.add(new JavaStepDefinition(method, indexedRegex));
+            break;
+          }
         }
-      }
+        return true;
+      });
     }
-    return result;
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Step annotation types and step definitions from compiled libraries of the module. Compiled classes are not indexed
+   * by {@link JavaStepDefinitionIndex}, so they are searched, but only when roots or Java structure change.
+   */
+  @Nullable
+  private static LibrarySteps getLibrarySteps(@NotNull Module module) {
+    final Project project = module.getProject();
+    return CachedValuesManager.getManager(project).getCachedValue(module, () -> {
+      final GlobalSearchScope dependenciesScope = module.getModuleWithDependenciesAndLibrariesScope(true);
+      final PsiClass stepDefAnnotationClass = JavaPsiFacade.getInstance(project).findClass(CUCUMBER_RUNTIME_JAVA_STEP_DEF_ANNOTATION,
+                                                                                          dependenciesScope);
+      LibrarySteps librarySteps = null;
+      if (stepDefAnnotationClass != null) {
+        librarySteps = new LibrarySteps();
+        final GlobalSearchScope compiledLibrariesScope = dependenciesScope.intersectWith(ProjectScope.getLibrariesScope(project));
+        final Query<PsiClass> stepDefAnnotations = AnnotatedElementsSearch.searchPsiClasses(stepDefAnnotationClass, dependenciesScope);
+        for (PsiClass annotationClass : stepDefAnnotations) {
+          final String qualifiedName = annotationClass.getQualifiedName();
+          final String shortName = annotationClass.getName();
+          if (annotationClass.isAnnotationType() && qualifiedName != null && shortName != null) {
+            ContainerUtil.getOrCreate(librarySteps.myAnnotationNamesByShortName, shortName, new HashSet<>()).add(qualifiedName);
+            final Query<PsiMethod> javaStepDefinitions = AnnotatedElementsSearch.searchPsiMethods(annotationClass, compiledLibrariesScope);
+            for (PsiMethod stepDefMethod : javaStepDefinitions) {
+              if (stepDefMethod instanceof PsiCompiledElement) {
+                librarySteps.myDefinitions.add(new JavaStepDefinition(stepDefMethod));
+              }
+            }
+          }
+        }
+      }
+      return CachedValueProvider.Result.create(librarySteps, ProjectRootManager.getInstance(project),
+                                               PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT);
+    });
+  }
+
+  private static class LibrarySteps {
+    private final Map<String, Set<String>> myAnnotationNamesByShortName = new HashMap<>();
+    private final List<AbstractStepDefinition> myDefinitions = new ArrayList<>();
   }
 }
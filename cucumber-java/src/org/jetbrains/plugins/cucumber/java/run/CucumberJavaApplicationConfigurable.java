@@ -43,6 +43,7 @@ public class CucumberJavaApplicationConfigurable extends SettingsEditor<Cucumber
   private LabeledComponent<RawCommandLineEditor> myGlue;
   private LabeledComponent<TextFieldWithBrowseButton> myFeatureOrFolder;
   private CommonJavaParametersPanel myCommonProgramParameters;
+  private LabeledComponent<JSpinner> myForkCount;
 
   private Module myModuleContext;
 
@@ -68,7 +69,8 @@ public class CucumberJavaApplicationConfigurable extends SettingsEditor<Cucumber
     };
     myFeatureOrFolder.getComponent().getButton().addActionListener(fileToRunActionListener);
 
-    myAnchor = UIUtil.mergeComponentsWithAnchor(myMainClass, myGlue, myFeatureOrFolder, myModule, myCommonProgramParameters);
+    myAnchor = UIUtil.mergeComponentsWithAnchor(myMainClass, myGlue, myFeatureOrFolder, myModule, myCommonProgramParameters,
+                                                  myForkCount);
 
     myGlue.getComponent().setDialogCaption(CucumberJavaBundle.message("run.configuration.form.glue.title"));
   }
@@ -91,6 +93,9 @@ public class CucumberJavaApplicationConfigurable extends SettingsEditor<Cucumber
         return Visibility.NOT_VISIBLE;
       }
     }));
+
+    myForkCount = new LabeledComponent<>();
+    myForkCount.setComponent(new JSpinner(new SpinnerNumberModel(1, 1, 64, 1)));
   }
 
   @Override
@@ -106,6 +111,7 @@ public class CucumberJavaApplicationConfigurable extends SettingsEditor<Cucumber
     myFeatureOrFolder.setAnchor(anchor);
     myModule.setAnchor(anchor);
     myCommonProgramParameters.setAnchor(anchor);
+    myForkCount.setAnchor(anchor);
   }
 
   @Override
@@ -116,6 +122,7 @@ public class CucumberJavaApplicationConfigurable extends SettingsEditor<Cucumber
     myMainClass.getComponent().setText(configuration.MAIN_CLASS_NAME);
     myGlue.getComponent().setText(configuration.getGlue());
     myFeatureOrFolder.getComponent().setText(configuration.getFilePath());
+    myForkCount.getComponent().setValue(configuration.getForkCount());
   }
 
   @Override
@@ -126,6 +133,7 @@ public class CucumberJavaApplicationConfigurable extends SettingsEditor<Cucumber
     configuration.MAIN_CLASS_NAME = myMainClass.getComponent().getText();
     configuration.setGlue(myGlue.getComponent().getText());
     configuration.setFilePath(myFeatureOrFolder.getComponent().getText());
+    configuration.setForkCount((Integer)myForkCount.getComponent().getValue());
     Module selectedModule = (Module)myModule.getComponent().getSelectedItem();
     configuration.setModule(selectedModule);
   }
@@ -0,0 +1,114 @@
+package org.jetbrains.plugins.cucumber.java.run;
+
+import com.intellij.openapi.components.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Remembers how long features ran, so forked runs can give every JVM a similar amount of work.
+ */
+@State(name = "CucumberJavaFeatureDurations", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public class CucumberJavaFeatureDurations implements PersistentStateComponent<CucumberJavaFeatureDurations.State> {
+  private State myState = new State();
+
+  public static CucumberJavaFeatureDurations getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, CucumberJavaFeatureDurations.class);
+  }
+
+  @Nullable
+  public synchronized Long getDuration(@NotNull String featurePath) {
+    return myState.durations.get(toKey(featurePath));
+  }
+
+  public synchronized void setDuration(@NotNull String featurePath, long duration) {
+    myState.durations.put(toKey(featurePath), duration);
+  }
+
+  /**
+   * Durations of features which no longer exist are dropped.
+   */
+  @NotNull
+  @Override
+  public synchronized State getState() {
+    myState.durations.keySet().removeIf(featurePath -> !new File(featurePath).isFile());
+    return myState;
+  }
+
+  /**
+   * @return the same key for all spellings of a feature path: separators, a leading slash of a URL path before
+   * a Windows drive letter and the case on case-insensitive file systems don't matter
+   */
+  @NotNull
+  static String toKey(@NotNull String featurePath) {
+    String path = FileUtil.toSystemIndependentName(featurePath);
+    if (path.length() > 2 && path.charAt(0) == '/' && Character.isLetter(path.charAt(1)) && path.charAt(2) == ':') {
+      path = path.substring(1);
+    }
+    return SystemInfo.isFileSystemCaseSensitive ? path : path.toLowerCase(Locale.US);
+  }
+
+  @Override
+  public synchronized void loadState(State state) {
+    myState = state;
+  }
+
+  /**
+   * Splits features into at most {@code forkCount} groups with similar total durations: features are taken from the longest
+   * and each is given to the group with the least work so far. Features which never ran are assumed to take the average
+   * of known durations; if no duration is known at all, file sizes are balanced instead.
+   */
+  @NotNull
+  public List<List<File>> partition(@NotNull List<File> features, int forkCount) {
+    final Map<File, Long> weights = new HashMap<>();
+    long knownTotal = 0;
+    int knownCount = 0;
+    for (File feature : features) {
+      Long duration = getDuration(feature.getPath());
+      if (duration != null) {
+        weights.put(feature, duration);
+        knownTotal += duration;
+        knownCount++;
+      }
+    }
+    for (File feature : features) {
+      if (!weights.containsKey(feature)) {
+        weights.put(feature, knownCount > 0 ? knownTotal / knownCount : feature.length());
+      }
+    }
+    return partition(features, weights, forkCount);
+  }
+
+  @NotNull
+  static List<List<File>> partition(@NotNull List<File> features, @NotNull Map<File, Long> weights, int forkCount) {
+    final int groupCount = Math.max(1, Math.min(forkCount, features.size()));
+    final List<File> sorted = new ArrayList<>(features);
+    Collections.sort(sorted, (f1, f2) -> Long.compare(weights.get(f2), weights.get(f1)));
+
+    final List<List<File>> groups = new ArrayList<>(groupCount);
+    final long[] loads = new long[groupCount];
+    for (int i = 0; i < groupCount; i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (File feature : sorted) {
+      int lightest = 0;
+      for (int i = 1; i < groupCount; i++) {
+        if (loads[i] < loads[lightest]) {
+          lightest = i;
+        }
+      }
+      groups.get(lightest).add(feature);
+      loads[lightest] += weights.get(feature);
+    }
+    return groups;
+  }
+
+  public static class State {
+    public Map<String, Long> durations = new HashMap<>();
+  }
+}
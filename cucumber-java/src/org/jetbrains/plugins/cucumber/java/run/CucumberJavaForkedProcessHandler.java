@@ -0,0 +1,185 @@
+package org.jetbrains.plugins.cucumber.java.run;
+
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs several Cucumber JVMs and presents them as one process to the test console.
+ * <p>
+ * The test tree is built from service messages of a single stream, so output of each JVM is held back while one of its
+ * features runs and is passed on as a whole when the feature's top-level suite finishes. Durations of these suites are
+ * reported to {@link CucumberJavaFeatureDurations}.
+ */
+public class CucumberJavaForkedProcessHandler extends ProcessHandler {
+  private static final String SUITE_STARTED = "##teamcity[testSuiteStarted";
+  private static final String SUITE_FINISHED = "##teamcity[testSuiteFinished";
+  private static final Pattern LOCATION_HINT_PATTERN = Pattern.compile("locationHint\\s*=\\s*'([^']*)'");
+  private static final Pattern LINE_SUFFIX_PATTERN = Pattern.compile(":\\d+$");
+
+  private final List<ProcessHandler> myForks;
+  private final CucumberJavaFeatureDurations myDurations;
+  private final AtomicInteger myRunningForks;
+  private volatile int myExitCode;
+
+  public CucumberJavaForkedProcessHandler(@NotNull List<ProcessHandler> forks, @NotNull CucumberJavaFeatureDurations durations) {
+    myForks = forks;
+    myDurations = durations;
+    myRunningForks = new AtomicInteger(forks.size());
+  }
+
+  @Override
+  public void startNotify() {
+    for (ProcessHandler fork : myForks) {
+      final ForkOutput output = new ForkOutput();
+      fork.addProcessListener(new ProcessAdapter() {
+        @Override
+        public void onTextAvailable(ProcessEvent event, Key outputType) {
+          output.onText(event.getText(), outputType);
+        }
+
+        @Override
+        public void processTerminated(ProcessEvent event) {
+          output.flush();
+          if (event.getExitCode() != 0) {
+            myExitCode = event.getExitCode();
+          }
+          if (myRunningForks.decrementAndGet() == 0) {
+            notifyProcessTerminated(myExitCode);
+          }
+        }
+      });
+    }
+    super.startNotify();
+    for (ProcessHandler fork : myForks) {
+      fork.startNotify();
+    }
+  }
+
+  @Override
+  protected void destroyProcessImpl() {
+    for (ProcessHandler fork : myForks) {
+      fork.destroyProcess();
+    }
+  }
+
+  @Override
+  protected void detachProcessImpl() {
+    for (ProcessHandler fork : myForks) {
+      fork.detachProcess();
+    }
+    notifyProcessDetached();
+  }
+
+  @Override
+  public boolean detachIsDefault() {
+    return false;
+  }
+
+  @Nullable
+  @Override
+  public OutputStream getProcessInput() {
+    return null;
+  }
+
+  private synchronized void printAll(@NotNull List<Pair<String, Key>> lines) {
+    for (Pair<String, Key> line : lines) {
+      notifyTextAvailable(line.first, line.second);
+    }
+  }
+
+  /**
+   * @return durations key of the feature file from the location hint of the suite, null if there is no hint
+   */
+  @Nullable
+  static String getFeatureKey(@NotNull String suiteStartedMessage) {
+    final Matcher matcher = LOCATION_HINT_PATTERN.matcher(suiteStartedMessage);
+    if (!matcher.find()) {
+      return null;
+    }
+    String location = StringUtil.trimStart(StringUtil.trimStart(matcher.group(1), "file://"), "file:");
+    location = LINE_SUFFIX_PATTERN.matcher(location).replaceFirst("");
+    return CucumberJavaFeatureDurations.toKey(location);
+  }
+
+  private class ForkOutput {
+    private final StringBuilder myIncompleteLine = new StringBuilder();
+    private final List<Pair<String, Key>> myHeldLines = new ArrayList<>();
+    private int mySuiteDepth;
+    private String myFeatureKey;
+    private long myFeatureStart;
+
+    synchronized void onText(@NotNull String text, @NotNull Key outputType) {
+      if (outputType != ProcessOutputTypes.STDOUT) {
+        addLine(text, outputType);
+        return;
+      }
+      myIncompleteLine.append(text);
+      int lineEnd;
+      while ((lineEnd = myIncompleteLine.indexOf("\n")) >= 0) {
+        final String line = myIncompleteLine.substring(0, lineEnd + 1);
+        myIncompleteLine.delete(0, lineEnd + 1);
+        onLine(line, outputType);
+      }
+    }
+
+    private void onLine(@NotNull String line, @NotNull Key outputType) {
+      if (line.startsWith(SUITE_STARTED)) {
+        if (mySuiteDepth++ == 0) {
+          myFeatureKey = getFeatureKey(line);
+          myFeatureStart = System.currentTimeMillis();
+        }
+      }
+      else if (line.startsWith(SUITE_FINISHED) && mySuiteDepth > 0) {
+        addLine(line, outputType);
+        if (--mySuiteDepth == 0) {
+          if (myFeatureKey != null) {
+            myDurations.setDuration(myFeatureKey, System.currentTimeMillis() - myFeatureStart);
+          }
+          releaseHeldLines();
+        }
+        return;
+      }
+      addLine(line, outputType);
+    }
+
+    private void addLine(@NotNull String line, @NotNull Key outputType) {
+      if (mySuiteDepth > 0) {
+        myHeldLines.add(Pair.create(line, outputType));
+      }
+      else {
+        printAll(Collections.singletonList(Pair.create(line, outputType)));
+      }
+    }
+
+    synchronized void flush() {
+      if (myIncompleteLine.length() > 0) {
+        myHeldLines.add(Pair.create(myIncompleteLine.toString(), ProcessOutputTypes.STDOUT));
+        myIncompleteLine.setLength(0);
+      }
+      mySuiteDepth = 0;
+      releaseHeldLines();
+    }
+
+    private void releaseHeldLines() {
+      if (!myHeldLines.isEmpty()) {
+        printAll(new ArrayList<>(myHeldLines));
+        myHeldLines.clear();
+      }
+    }
+  }
+}
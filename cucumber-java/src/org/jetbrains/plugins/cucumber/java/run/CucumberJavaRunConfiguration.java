@@ -4,7 +4,10 @@ import com.intellij.diagnostic.logging.LogConfigurationPanel;
 import com.intellij.execution.*;
 import com.intellij.execution.application.ApplicationConfiguration;
 import com.intellij.execution.configurations.*;
+import com.intellij.execution.executors.DefaultRunExecutor;
+import com.intellij.execution.process.KillableColoredProcessHandler;
 import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessTerminatedListener;
 import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.execution.runners.ProgramRunner;
 import com.intellij.execution.testframework.sm.SMTestRunnerConnectionUtil;
@@ -16,14 +19,20 @@ import com.intellij.openapi.options.SettingsEditor;
 import com.intellij.openapi.options.SettingsEditorGroup;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.NullableComputable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.cucumber.CucumberBundle;
 import org.jetbrains.plugins.cucumber.java.CucumberJavaBundle;
+import org.jetbrains.plugins.cucumber.psi.GherkinFileType;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 
 public class CucumberJavaRunConfiguration extends ApplicationConfiguration {
@@ -37,6 +46,8 @@ public class CucumberJavaRunConfiguration extends ApplicationConfiguration {
 
   public String myGeneratedName;
 
+  public int myForkCount = 1;
+
   protected CucumberJavaRunConfiguration(String name, Project project, ConfigurationFactory factory) {
     super(name, project, factory);
   }
@@ -55,6 +66,10 @@ public class CucumberJavaRunConfiguration extends ApplicationConfiguration {
   public RunProfileState getState(@NotNull Executor executor, @NotNull ExecutionEnvironment env) throws ExecutionException {
     return new JavaApplicationCommandLineState<CucumberJavaRunConfiguration>(CucumberJavaRunConfiguration.this, env) {
       protected JavaParameters createJavaParameters() throws ExecutionException {
+        return createJavaParameters(Collections.singletonList(myFilePath));
+      }
+
+      private JavaParameters createJavaParameters(@NotNull List<String> featurePaths) throws ExecutionException {
         final JavaParameters params = new JavaParameters();
         final JavaRunConfigurationModule module = getConfigurationModule();
 
@@ -87,10 +102,44 @@ public class CucumberJavaRunConfiguration extends ApplicationConfiguration {
         }
         params.getVMParametersList().addParametersString("-Dorg.jetbrains.run.directory=\"" + f.getAbsolutePath() + "\"");
 
-        params.getProgramParametersList().addParametersString("\"" + myFilePath + "\"");
+        for (String featurePath : featurePaths) {
+          params.getProgramParametersList().addParametersString("\"" + featurePath + "\"");
+        }
         return params;
       }
 
+      /**
+       * Runs features of the folder in the configured number of JVMs, falls back to a single JVM when there is
+       * nothing to split.
+       */
+      @NotNull
+      private ProcessHandler startForkedProcesses() throws ExecutionException {
+        final List<File> features = new ArrayList<>();
+        FileUtil.processFilesRecursively(new File(myFilePath), file -> {
+          if (file.isFile() && FileUtilRt.extensionEquals(file.getName(), GherkinFileType.INSTANCE.getDefaultExtension())) {
+            features.add(file);
+          }
+          return true;
+        });
+        if (features.size() < 2) {
+          return startProcess();
+        }
+        Collections.sort(features);
+
+        final CucumberJavaFeatureDurations durations = CucumberJavaFeatureDurations.getInstance(getProject());
+        final List<ProcessHandler> forks = new ArrayList<>();
+        for (List<File> group : durations.partition(features, getForkCount())) {
+          final List<String> featurePaths = new ArrayList<>(group.size());
+          for (File feature : group) {
+            featurePaths.add(feature.getPath());
+          }
+          forks.add(new KillableColoredProcessHandler(createJavaParameters(featurePaths).toCommandLine()));
+        }
+        final ProcessHandler processHandler = new CucumberJavaForkedProcessHandler(forks, durations);
+        ProcessTerminatedListener.attach(processHandler);
+        return processHandler;
+      }
+
       @Nullable
       private ConsoleView createConsole(@NotNull final Executor executor, ProcessHandler processHandler) throws ExecutionException {
         // console view
@@ -103,7 +152,10 @@ public class CucumberJavaRunConfiguration extends ApplicationConfiguration {
       @NotNull
       @Override
       public ExecutionResult execute(@NotNull Executor executor, @NotNull ProgramRunner runner) throws ExecutionException {
-        final ProcessHandler processHandler = startProcess();
+        final boolean forked = getForkCount() > 1 &&
+                               DefaultRunExecutor.EXECUTOR_ID.equals(executor.getId()) &&
+                               new File(myFilePath).isDirectory();
+        final ProcessHandler processHandler = forked ? startForkedProcesses() : startProcess();
         final ConsoleView console = createConsole(executor, processHandler);
         return new DefaultExecutionResult(console, processHandler, createActions(console, processHandler, executor));
       }
@@ -168,6 +220,17 @@ public class CucumberJavaRunConfiguration extends ApplicationConfiguration {
     myNameFilter = nameFilter;
   }
 
+  /**
+   * @return number of JVMs features of a folder are run in, debugging always uses one
+   */
+  public int getForkCount() {
+    return Math.max(1, myForkCount);
+  }
+
+  public void setForkCount(int forkCount) {
+    myForkCount = forkCount;
+  }
+
   @Nullable
   @Override
   public String suggestedName() {
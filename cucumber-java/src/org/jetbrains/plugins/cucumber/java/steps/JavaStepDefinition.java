@@ -1,7 +1,9 @@
 package org.jetbrains.plugins.cucumber.java.steps;
 
+import com.intellij.openapi.util.Pair;
 import com.intellij.psi.*;
 import org.apache.oro.text.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.cucumber.java.CucumberJavaUtil;
 import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
@@ -13,8 +15,25 @@ import java.util.regex.Matcher;
 import java.util.regex.PatternSyntaxException;
 
 public class JavaStepDefinition extends AbstractStepDefinition {
+  private final String myIndexedRegex;
+  private volatile Pair<Pattern, java.util.regex.Pattern> myJavaPattern;
+
   public JavaStepDefinition(PsiElement stepDef) {
+    this(stepDef, null);
+  }
+
+  /**
+   * @param indexedRegex regex taken from {@link JavaStepDefinitionIndex}, null if it should be computed from PSI
+   */
+  public JavaStepDefinition(PsiElement stepDef, @Nullable String indexedRegex) {
     super(stepDef);
+    myIndexedRegex = indexedRegex;
+  }
+
+  @Nullable
+  @Override
+  public String getCucumberRegex() {
+    return myIndexedRegex != null ? myIndexedRegex : super.getCucumberRegex();
   }
 
   @Override
@@ -44,10 +63,7 @@ public class JavaStepDefinition extends AbstractStepDefinition {
         final PsiConstantEvaluationHelper evaluationHelper = JavaPsiFacade.getInstance(element.getProject()).getConstantEvaluationHelper();
         final Object constantValue = evaluationHelper.computeConstantExpression(annotationValue, false);
         if (constantValue != null) {
-          String patternText = constantValue.toString();
-          if (patternText.length() > 1) {
-            return patternText.replace("\\\\", "\\").replace("\\\"", "\"");
-          }
+          return annotationValueToRegex(constantValue.toString());
         }
       }
     } else if (element instanceof PsiMethodCallExpression) {
@@ -66,19 +82,45 @@ public class JavaStepDefinition extends AbstractStepDefinition {
     return null;
   }
 
+  @Nullable
+  static String annotationValueToRegex(@NotNull String patternText) {
+    if (patternText.length() > 1) {
+      return patternText.replace("\\\\", "\\").replace("\\\"", "\"");
+    }
+    return null;
+  }
+
   @Override
   public boolean matches(String stepName) {
     Pattern perlPattern = getPattern();
 
     if (perlPattern != null) {
-      try {
-        final java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(perlPattern.getPattern());
+      final java.util.regex.Pattern pattern = getJavaPattern(perlPattern);
+      if (pattern != null) {
         Matcher m = pattern.matcher(stepName);
         return m.matches();
       }
+    }
+    return false;
+  }
+
+  /**
+   * The Perl pattern is cached by the base class until the regex changes, the Java one is compiled once for it.
+   */
+  @Nullable
+  private java.util.regex.Pattern getJavaPattern(@NotNull Pattern perlPattern) {
+    Pair<Pattern, java.util.regex.Pattern> cached = myJavaPattern;
+    if (cached == null || cached.first != perlPattern) {
+      java.util.regex.Pattern javaPattern;
+      try {
+        javaPattern = java.util.regex.Pattern.compile(perlPattern.getPattern());
+      }
       catch (PatternSyntaxException ignored) {
+        javaPattern = null;
       }
+      cached = Pair.create(perlPattern, javaPattern);
+      myJavaPattern = cached;
     }
-    return false;
+    return cached.second;
   }
 }
@@ -0,0 +1,266 @@
+package org.jetbrains.plugins.cucumber.java.steps;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.cucumber.java.CucumberJavaUtil;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Indexes step definition candidates of Java files, so they are not looked up by a scope-wide search.
+ * <p>
+ * Public methods are indexed by the short names of their annotations which have a value, the value is stored
+ * if it is a string literal or a concatenation of literals. Calls of Java 8 step methods ({@code Given("regex", () -> ...)})
+ * are indexed under {@link #JAVA8_KEY}. Nothing is resolved while indexing, callers check that the found elements
+ * are really step definitions.
+ */
+public class JavaStepDefinitionIndex extends FileBasedIndexExtension<String, List<JavaStepDefinitionIndex.StepEntry>> {
+  public static final ID<String, List<StepEntry>> INDEX_ID = ID.create("cucumber.java.steps");
+  public static final String JAVA8_KEY = "#java8";
+  private static final String[] JAVA8_KEYWORDS = {"Given", "And", "Then", "But", "When"};
+  private static final int VERSION = 1;
+
+  private final DataIndexer<String, List<StepEntry>, FileContent> myIndexer = new MyDataIndexer();
+
+  @NotNull
+  @Override
+  public ID<String, List<StepEntry>> getName() {
+    return INDEX_ID;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, List<StepEntry>, FileContent> getIndexer() {
+    return myIndexer;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<List<StepEntry>> getValueExternalizer() {
+    return new DataExternalizer<List<StepEntry>>() {
+      @Override
+      public void save(@NotNull DataOutput out, List<StepEntry> value) throws IOException {
+        DataInputOutputUtil.writeINT(out, value.size());
+        for (StepEntry entry : value) {
+          DataInputOutputUtil.writeINT(out, entry.getOffset());
+          out.writeBoolean(entry.getRegex() != null);
+          if (entry.getRegex() != null) {
+            IOUtil.writeUTF(out, entry.getRegex());
+          }
+        }
+      }
+
+      @Override
+      public List<StepEntry> read(@NotNull DataInput in) throws IOException {
+        int size = DataInputOutputUtil.readINT(in);
+        List<StepEntry> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          int offset = DataInputOutputUtil.readINT(in);
+          String regex = in.readBoolean() ? IOUtil.readUTF(in) : null;
+          result.add(new StepEntry(offset, regex));
+        }
+        return result;
+      }
+    };
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+
+  /**
+   * Processes PSI elements of indexed entries together with their indexed regex (null if it should be computed from PSI).
+   *
+   * @param elementClass class of elements to look for at the indexed offsets
+   */
+  public static <T extends PsiElement> void processEntries(@NotNull Project project,
+                                                           @NotNull String key,
+                                                           @NotNull GlobalSearchScope scope,
+                                                           @NotNull Class<T> elementClass,
+                                                           @NotNull EntryProcessor<T> processor) {
+    PsiManager psiManager = PsiManager.getInstance(project);
+    FileBasedIndex.getInstance().processValues(INDEX_ID, key, null, (file, entries) -> {
+      PsiFile psiFile = psiManager.findFile(file);
+      if (psiFile == null) {
+        return true;
+      }
+      for (StepEntry entry : entries) {
+        PsiElement leaf = psiFile.findElementAt(entry.getOffset());
+        T element = PsiTreeUtil.getParentOfType(leaf, elementClass);
+        if (element != null && !processor.process(element, entry.getRegex())) {
+          return false;
+        }
+      }
+      return true;
+    }, scope);
+  }
+
+  public interface EntryProcessor<T extends PsiElement> {
+    boolean process(@NotNull T element, @Nullable String indexedRegex);
+  }
+
+  @NotNull
+  static Map<String, List<StepEntry>> indexFile(@NotNull PsiFile file) {
+    Map<String, List<StepEntry>> result = new HashMap<>();
+    file.accept(new JavaRecursiveElementWalkingVisitor() {
+      @Override
+      public void visitMethod(PsiMethod method) {
+        super.visitMethod(method);
+        if (!method.hasModifierProperty(PsiModifier.PUBLIC) || method.getNameIdentifier() == null) {
+          return;
+        }
+        for (PsiAnnotation annotation : method.getModifierList().getAnnotations()) {
+          PsiJavaCodeReferenceElement reference = annotation.getNameReferenceElement();
+          String name = reference != null ? reference.getReferenceName() : null;
+          PsiAnnotationMemberValue value = CucumberJavaUtil.getAnnotationValue(annotation);
+          if (name == null || value == null) {
+            continue;
+          }
+          String literal = value instanceof PsiExpression ? evaluateLiteral((PsiExpression)value) : null;
+          String regex = literal != null ? JavaStepDefinition.annotationValueToRegex(literal) : null;
+          addEntry(result, name, new StepEntry(method.getNameIdentifier().getTextOffset(), regex));
+        }
+      }
+
+      @Override
+      public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+        super.visitMethodCallExpression(expression);
+        PsiElement nameElement = expression.getMethodExpression().getReferenceNameElement();
+        if (nameElement == null || !ArrayUtil.contains(nameElement.getText(), JAVA8_KEYWORDS)) {
+          return;
+        }
+        PsiExpression[] arguments = expression.getArgumentList().getExpressions();
+        if (arguments.length > 1) {
+          String regex = arguments[0] instanceof PsiLiteralExpression ? evaluateLiteral(arguments[0]) : null;
+          addEntry(result, JAVA8_KEY, new StepEntry(nameElement.getTextOffset(), regex));
+        }
+      }
+    });
+    return result;
+  }
+
+  private static void addEntry(@NotNull Map<String, List<StepEntry>> result, @NotNull String key, @NotNull StepEntry entry) {
+    List<StepEntry> entries = result.get(key);
+    if (entries == null) {
+      entries = new ArrayList<>(1);
+      result.put(key, entries);
+    }
+    entries.add(entry);
+  }
+
+  /**
+   * @return value of a string literal or of a concatenation of string literals, null for anything else
+   */
+  @Nullable
+  private static String evaluateLiteral(@NotNull PsiExpression expression) {
+    if (expression instanceof PsiLiteralExpression) {
+      Object value = ((PsiLiteralExpression)expression).getValue();
+      return value instanceof String ? (String)value : null;
+    }
+    if (expression instanceof PsiParenthesizedExpression) {
+      PsiExpression inner = ((PsiParenthesizedExpression)expression).getExpression();
+      return inner != null ? evaluateLiteral(inner) : null;
+    }
+    if (expression instanceof PsiPolyadicExpression) {
+      IElementType operation = ((PsiPolyadicExpression)expression).getOperationTokenType();
+      if (operation != JavaTokenType.PLUS) {
+        return null;
+      }
+      StringBuilder result = new StringBuilder();
+      for (PsiExpression operand : ((PsiPolyadicExpression)expression).getOperands()) {
+        String value = evaluateLiteral(operand);
+        if (value == null) {
+          return null;
+        }
+        result.append(value);
+      }
+      return result.toString();
+    }
+    return null;
+  }
+
+  public static class StepEntry {
+    private final int myOffset;
+    private final String myRegex;
+
+    public StepEntry(int offset, @Nullable String regex) {
+      myOffset = offset;
+      myRegex = regex;
+    }
+
+    /**
+     * @return offset of the name identifier of the annotated method or of the called Java 8 step method
+     */
+    public int getOffset() {
+      return myOffset;
+    }
+
+    /**
+     * @return step regex if it is known without resolving
+     */
+    @Nullable
+    public String getRegex() {
+      return myRegex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      StepEntry entry = (StepEntry)o;
+      return myOffset == entry.myOffset && StringUtil.equals(myRegex, entry.myRegex);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * myOffset + StringUtil.notNullize(myRegex).hashCode();
+    }
+  }
+
+  private static class MyDataIndexer implements DataIndexer<String, List<StepEntry>, FileContent> {
+    @NotNull
+    @Override
+    public Map<String, List<StepEntry>> map(@NotNull FileContent inputData) {
+      CharSequence text = inputData.getContentAsText();
+      if (StringUtil.indexOf(text, '@') < 0 && !StringUtil.contains(text, "cucumber")) {
+        return Collections.emptyMap();
+      }
+      return indexFile(inputData.getPsiFile());
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.jetbrains.plugins.cucumber.java.run;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+public class CucumberJavaForkedRunTest extends TestCase {
+  public void testPartitionBalancesDurations() {
+    final Map<File, Long> weights = new LinkedHashMap<>();
+    weights.put(new File("a.feature"), 70L);
+    weights.put(new File("b.feature"), 40L);
+    weights.put(new File("c.feature"), 30L);
+    weights.put(new File("d.feature"), 20L);
+    weights.put(new File("e.feature"), 20L);
+
+    final List<List<File>> groups = CucumberJavaFeatureDurations.partition(new ArrayList<>(weights.keySet()), weights, 2);
+    assertEquals(2, groups.size());
+    for (List<File> group : groups) {
+      long load = 0;
+      for (File feature : group) {
+        load += weights.get(feature);
+      }
+      assertEquals(90L, load);
+    }
+  }
+
+  public void testPartitionDoesNotCreateEmptyGroups() {
+    final Map<File, Long> weights = new HashMap<>();
+    weights.put(new File("a.feature"), 10L);
+    weights.put(new File("b.feature"), 10L);
+
+    final List<List<File>> groups = CucumberJavaFeatureDurations.partition(new ArrayList<>(weights.keySet()), weights, 8);
+    assertEquals(2, groups.size());
+    assertEquals(1, groups.get(0).size());
+    assertEquals(1, groups.get(1).size());
+  }
+
+  public void testFeatureKey() {
+    assertEquals("/project/features/eating.feature", CucumberJavaForkedProcessHandler.getFeatureKey(
+      "##teamcity[testSuiteStarted timestamp = '2016-01-01T00:00:00.000+0000' locationHint = 'file:///project/features/eating.feature:1' name = 'Feature: eating']"));
+    assertNull(CucumberJavaForkedProcessHandler.getFeatureKey("##teamcity[testSuiteStarted name = 'Feature: eating']"));
+  }
+
+  public void testWindowsFeatureKeyMatchesFeaturePath() {
+    final String key = CucumberJavaForkedProcessHandler.getFeatureKey(
+      "##teamcity[testSuiteStarted locationHint = 'file:///C:/project/features/eating.feature:1' name = 'Feature: eating']");
+    assertEquals(CucumberJavaFeatureDurations.toKey("C:\\project\\features\\eating.feature"), key);
+    assertFalse(key, key.startsWith("/"));
+  }
+
+  public void testDurationsOfMissingFeaturesAreDropped() throws IOException {
+    final File feature = FileUtil.createTempFile("eating", ".feature", true);
+    final CucumberJavaFeatureDurations durations = new CucumberJavaFeatureDurations();
+    durations.setDuration(feature.getPath(), 10L);
+    durations.setDuration(new File(feature.getParentFile(), "missing.feature").getPath(), 20L);
+
+    assertEquals(Collections.singleton(CucumberJavaFeatureDurations.toKey(feature.getPath())),
+                 durations.getState().durations.keySet());
+    assertEquals(Long.valueOf(10L), durations.getDuration(feature.getPath()));
+  }
+}
@@ -0,0 +1,40 @@
+package org.jetbrains.plugins.cucumber.java.steps;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.plugins.cucumber.java.CucumberJavaCodeInsightTestCase;
+
+import java.util.List;
+import java.util.Map;
+
+public class JavaStepDefinitionIndexTest extends CucumberJavaCodeInsightTestCase {
+  public void testIndexedEntries() {
+    PsiFile file = myFixture.configureByText(JavaFileType.INSTANCE,
+                                             "import cucumber.api.java.en.*;\n" +
+                                             "import cucumber.api.java8.En;\n" +
+                                             "public class Steps implements En {\n" +
+                                             "  private static final String PATTERN = \"^constant$\";\n" +
+                                             "  public Steps() {\n" +
+                                             "    Given(\"^lambda (\\\\d+)$\", (Integer i) -> {});\n" +
+                                             "  }\n" +
+                                             "  @Given(\"^I have (\\\\d+) \" + \"cukes$\")\n" +
+                                             "  public void iHave(int count) {}\n" +
+                                             "  @When(value = PATTERN, timeout = 10)\n" +
+                                             "  public void constant() {}\n" +
+                                             "  @Then(\"^private$\")\n" +
+                                             "  private void notAStep() {}\n" +
+                                             "}");
+    Map<String, List<JavaStepDefinitionIndex.StepEntry>> entries = JavaStepDefinitionIndex.indexFile(file);
+    assertSameElements(entries.keySet(), "Given", "When", JavaStepDefinitionIndex.JAVA8_KEY);
+
+    JavaStepDefinitionIndex.StepEntry given = assertOneElement(entries.get("Given"));
+    assertEquals("^I have (\\d+) cukes$", given.getRegex());
+    assertEquals(file.getText().indexOf("iHave"), given.getOffset());
+
+    JavaStepDefinitionIndex.StepEntry when = assertOneElement(entries.get("When"));
+    assertNull("Constants are resolved lazily", when.getRegex());
+
+    JavaStepDefinitionIndex.StepEntry lambda = assertOneElement(entries.get(JavaStepDefinitionIndex.JAVA8_KEY));
+    assertEquals("^lambda (\\d+)$", lambda.getRegex());
+  }
+}
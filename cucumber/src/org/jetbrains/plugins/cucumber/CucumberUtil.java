@@ -1,17 +1,24 @@
 package org.jetbrains.plugins.cucumber;
 
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiReference;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.PsiSearchHelper;
 import com.intellij.psi.search.PsiSearchHelper.SERVICE;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.psi.search.TextOccurenceProcessor;
 import com.intellij.psi.search.UsageSearchContext;
 import com.intellij.util.Processor;
+import org.apache.oro.text.regex.MalformedPatternException;
+import org.apache.oro.text.regex.Pattern;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
+import org.jetbrains.plugins.cucumber.steps.GherkinStepUsageIndex;
 import org.jetbrains.plugins.cucumber.steps.search.CucumberStepSearchUtil;
 
 import java.util.ArrayList;
@@ -84,7 +91,8 @@ public class CucumberUtil {
   /**
    * Passes to {@link com.intellij.psi.search.TextOccurenceProcessor} all elements in gherkin files that <em>may</em> have reference to
    * provided argument. I.e: calling this function for string literal "(.+)foo" would find step "Given I am foo".
-   * To extract search text, {@link #getTheBiggestWordToSearchByIndex(String)} is used.
+   * Steps are looked up in {@link GherkinStepUsageIndex} by matching the regexp against indexed step names. For local scopes,
+   * in dumb mode or if regexp can't be compiled, {@link #getTheBiggestWordToSearchByIndex(String)} is used to extract search text.
    *
    * @param stepDefinitionElement step defining element to search refs for.
    * @param regexp                regexp step should match
@@ -97,6 +105,18 @@ public class CucumberUtil {
                                                          @NotNull final String regexp,
                                                          @NotNull final TextOccurenceProcessor processor,
                                                          @NotNull final SearchScope effectiveSearchScope) {
+    final Project project = stepDefinitionElement.getProject();
+    if (effectiveSearchScope instanceof GlobalSearchScope && !DumbService.isDumb(project)) {
+      try {
+        final Pattern pattern = AbstractStepDefinition.compileStepPattern(regexp);
+        return GherkinStepUsageIndex.processMatchingSteps(project, pattern, (GlobalSearchScope)effectiveSearchScope,
+                                                          step -> processor.execute(step, 0));
+      }
+      catch (MalformedPatternException ignored) {
+        // fall back to the word search below
+      }
+    }
+
     final String word = getTheBiggestWordToSearchByIndex(regexp);
     if (StringUtil.isEmptyOrSpaces(word)) {
       return true;
@@ -9,9 +9,10 @@ import com.intellij.codeInsight.lookup.TailTypeDecorator;
 import com.intellij.codeInsight.template.TemplateBuilder;
 import com.intellij.codeInsight.template.TemplateBuilderFactory;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.patterns.PsiElementPattern;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -27,7 +28,6 @@ import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
 import org.jetbrains.plugins.cucumber.steps.CucumberStepsIndex;
 
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.intellij.patterns.PlatformPatterns.psiElement;
@@ -36,20 +36,6 @@ import static com.intellij.patterns.PlatformPatterns.psiElement;
  * @author yole
  */
 public class CucumberCompletionContributor extends CompletionContributor {
-  private static final Map<String, String> GROUP_TYPE_MAP = new HashMap<>();
-  private static final Map<String, String> INTERPOLATION_PARAMETERS_MAP = new HashMap<>();
-  static {
-    GROUP_TYPE_MAP.put("(.*)", "<string>");
-    GROUP_TYPE_MAP.put("(.+)", "<string>");
-    GROUP_TYPE_MAP.put("([^\"]*)", "<string>");
-    GROUP_TYPE_MAP.put("([^\"]+)", "<string>");
-    GROUP_TYPE_MAP.put("(\\d*)", "<number>");
-    GROUP_TYPE_MAP.put("(\\d)", "<number>");
-    GROUP_TYPE_MAP.put("(\\d+)", "<number>");
-    GROUP_TYPE_MAP.put("(\\.[\\d]+)", "<number>");
-    INTERPOLATION_PARAMETERS_MAP.put("#\\{[^\\}]*\\}", "<param>");
-  }
-
   private static final int SCENARIO_KEYWORD_PRIORITY = 70;
   private static final int SCENARIO_OUTLINE_KEYWORD_PRIORITY = 60;
   public static final Pattern POSSIBLE_GROUP_PATTERN = Pattern.compile("\\(([^\\)]*)\\)");
@@ -205,44 +191,18 @@ public class CucumberCompletionContributor extends CompletionContributor {
 
   private static void addStepDefinitions(CompletionResultSet result, PsiFile file) {
     result = result.withPrefixMatcher(new CucumberPrefixMatcher(result.getPrefixMatcher().getPrefix()));
+    final Module module = ModuleUtilCore.findModuleForPsiElement(file);
+    if (module == null) {
+      return;
+    }
     final List<AbstractStepDefinition> definitions = CucumberStepsIndex.getInstance(file.getProject()).getAllStepDefinitions(file);
-    for (AbstractStepDefinition definition : definitions) {
-      String text = definition.getCucumberRegex();
-      if (text != null) {
-        // trim regexp line start/end markers
-        text = StringUtil.trimStart(text, "^");
-        text = StringUtil.trimEnd(text, "$");
-        text = StringUtil.replace(text, "\\\"", "\"");
-        for (Map.Entry<String, String> group : GROUP_TYPE_MAP.entrySet()) {
-          text = StringUtil.replace(text, group.getKey(), group.getValue());
-        }
-
-        for (Map.Entry<String, String> group : INTERPOLATION_PARAMETERS_MAP.entrySet()) {
-          text = text.replaceAll(group.getKey(), group.getValue());
-        }
-
-        final List<TextRange> ranges = new ArrayList<>();
-        Matcher m = QUESTION_MARK_PATTERN.matcher(text);
-        if (m.find()) {
-          text = m.replaceAll("$1");
-        }
-
-        m = POSSIBLE_GROUP_PATTERN.matcher(text);
-        while (m.find()) {
-          text = m.replaceAll("$1");
-        }
-
-        m = PARAMETERS_PATTERN.matcher(text);
-        while (m.find()) {
-          ranges.add(new TextRange(m.start(), m.end()));
-        }
-
-        final PsiElement element = definition.getElement();
-        final LookupElementBuilder lookup = element != null
-                                            ? LookupElementBuilder.create(element, text).bold()
-                                            : LookupElementBuilder.create(text);
-        result.addElement(lookup.withInsertHandler(new StepInsertHandler(ranges)));
-      }
+    final CucumberStepTemplates templates = CucumberStepTemplates.getInstance(module, definitions);
+    for (CucumberStepTemplates.Template template : templates.findCandidates(result.getPrefixMatcher().getPrefix())) {
+      final PsiElement element = template.getDefinition().getElement();
+      final LookupElementBuilder lookup = element != null
+                                          ? LookupElementBuilder.create(element, template.getText()).bold()
+                                          : LookupElementBuilder.create(template.getText());
+      result.addElement(lookup.withInsertHandler(new StepInsertHandler(template.getRanges())));
     }
   }
 
@@ -44,7 +44,7 @@ public class CucumberPrefixMatcher extends PrefixMatcher {
     return StringUtil.containsAnyChar(word, "()\\#0123456789");
   }
 
-  private static List<String> getSignificantWords(String source) {
+  static List<String> getSignificantWords(String source) {
     final List<String> result = new ArrayList<>();
 
     final String[] words = source.split(" ");
@@ -0,0 +1,189 @@
+package org.jetbrains.plugins.cucumber.completion;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * Completion texts of step definitions together with an index of their significant words, so completion
+ * creates lookup elements only for the definitions whose words contain the words typed so far.
+ */
+class CucumberStepTemplates {
+  private static final Map<String, String> GROUP_TYPE_MAP = new HashMap<>();
+  private static final Map<String, String> INTERPOLATION_PARAMETERS_MAP = new HashMap<>();
+  static {
+    GROUP_TYPE_MAP.put("(.*)", "<string>");
+    GROUP_TYPE_MAP.put("(.+)", "<string>");
+    GROUP_TYPE_MAP.put("([^\"]*)", "<string>");
+    GROUP_TYPE_MAP.put("([^\"]+)", "<string>");
+    GROUP_TYPE_MAP.put("(\\d*)", "<number>");
+    GROUP_TYPE_MAP.put("(\\d)", "<number>");
+    GROUP_TYPE_MAP.put("(\\d+)", "<number>");
+    GROUP_TYPE_MAP.put("(\\.[\\d]+)", "<number>");
+    INTERPOLATION_PARAMETERS_MAP.put("#\\{[^\\}]*\\}", "<param>");
+  }
+
+  // released when the module is disposed: templates keep PSI of step definitions
+  private static final Map<Module, CucumberStepTemplates> ourModuleTemplates = ContainerUtil.newConcurrentMap();
+
+  private final long myModificationCount;
+  private final List<AbstractStepDefinition> myDefinitions;
+  private final List<Template> myTemplates = new ArrayList<>();
+  // significant word -> indices of templates containing it
+  private final Map<String, BitSet> myWordTemplates = new HashMap<>();
+
+  private CucumberStepTemplates(long modificationCount, @NotNull List<AbstractStepDefinition> definitions) {
+    myModificationCount = modificationCount;
+    myDefinitions = definitions;
+    for (AbstractStepDefinition definition : definitions) {
+      String regex = definition.getCucumberRegex();
+      if (regex == null) {
+        continue;
+      }
+      Template template = createTemplate(definition, regex);
+      int index = myTemplates.size();
+      myTemplates.add(template);
+      for (String word : CucumberPrefixMatcher.getSignificantWords(template.getText())) {
+        BitSet templates = myWordTemplates.get(word);
+        if (templates == null) {
+          templates = new BitSet();
+          myWordTemplates.put(word, templates);
+        }
+        templates.set(index);
+      }
+    }
+  }
+
+  /**
+   * Templates of the module are reused until PSI changes or the module gets a different set of step definitions.
+   */
+  @NotNull
+  static CucumberStepTemplates getInstance(@NotNull Module module, @NotNull List<AbstractStepDefinition> definitions) {
+    long modificationCount = PsiModificationTracker.SERVICE.getInstance(module.getProject()).getModificationCount();
+    CucumberStepTemplates templates = ourModuleTemplates.get(module);
+    if (templates != null && templates.myModificationCount == modificationCount && templates.myDefinitions.equals(definitions)) {
+      return templates;
+    }
+    templates = new CucumberStepTemplates(modificationCount, definitions);
+    synchronized (ourModuleTemplates) {
+      if (!module.isDisposed() && ourModuleTemplates.put(module, templates) == null) {
+        Disposer.register(module, () -> ourModuleTemplates.remove(module));
+      }
+    }
+    return templates;
+  }
+
+  @TestOnly
+  static boolean hasTemplates(@NotNull Module module) {
+    return ourModuleTemplates.containsKey(module);
+  }
+
+  /**
+   * Returns templates which may be accepted by {@link CucumberPrefixMatcher} with the given prefix: each significant word
+   * of the prefix is contained in some significant word of the template. The order of words is checked by the matcher.
+   */
+  @NotNull
+  List<Template> findCandidates(@NotNull String prefix) {
+    Set<String> prefixWords = new HashSet<>(CucumberPrefixMatcher.getSignificantWords(prefix));
+    prefixWords.remove("");
+    if (prefixWords.isEmpty()) {
+      return myTemplates;
+    }
+
+    BitSet candidates = null;
+    for (String prefixWord : prefixWords) {
+      BitSet containing = new BitSet();
+      for (Map.Entry<String, BitSet> entry : myWordTemplates.entrySet()) {
+        if (entry.getKey().contains(prefixWord)) {
+          containing.or(entry.getValue());
+        }
+      }
+      if (candidates == null) {
+        candidates = containing;
+      }
+      else {
+        candidates.and(containing);
+      }
+      if (candidates.isEmpty()) {
+        return Collections.emptyList();
+      }
+    }
+
+    List<Template> result = new ArrayList<>(candidates.cardinality());
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      result.add(myTemplates.get(i));
+    }
+    return result;
+  }
+
+  @NotNull
+  static Template createTemplate(@NotNull AbstractStepDefinition definition, @NotNull String regex) {
+    // trim regexp line start/end markers
+    String text = StringUtil.trimStart(regex, "^");
+    text = StringUtil.trimEnd(text, "$");
+    text = StringUtil.replace(text, "\\\"", "\"");
+    for (Map.Entry<String, String> group : GROUP_TYPE_MAP.entrySet()) {
+      text = StringUtil.replace(text, group.getKey(), group.getValue());
+    }
+
+    for (Map.Entry<String, String> group : INTERPOLATION_PARAMETERS_MAP.entrySet()) {
+      text = text.replaceAll(group.getKey(), group.getValue());
+    }
+
+    final List<TextRange> ranges = new ArrayList<>();
+    Matcher m = CucumberCompletionContributor.QUESTION_MARK_PATTERN.matcher(text);
+    if (m.find()) {
+      text = m.replaceAll("$1");
+    }
+
+    m = CucumberCompletionContributor.POSSIBLE_GROUP_PATTERN.matcher(text);
+    while (m.find()) {
+      text = m.replaceAll("$1");
+    }
+
+    m = CucumberCompletionContributor.PARAMETERS_PATTERN.matcher(text);
+    while (m.find()) {
+      ranges.add(new TextRange(m.start(), m.end()));
+    }
+    return new Template(definition, text, ranges);
+  }
+
+  static class Template {
+    private final AbstractStepDefinition myDefinition;
+    private final String myText;
+    private final List<TextRange> myRanges;
+
+    private Template(@NotNull AbstractStepDefinition definition, @NotNull String text, @NotNull List<TextRange> ranges) {
+      myDefinition = definition;
+      myText = text;
+      myRanges = ranges;
+    }
+
+    @NotNull
+    AbstractStepDefinition getDefinition() {
+      return myDefinition;
+    }
+
+    @NotNull
+    String getText() {
+      return myText;
+    }
+
+    /**
+     * @return ranges of parameters in the text
+     */
+    @NotNull
+    List<TextRange> getRanges() {
+      return myRanges;
+    }
+  }
+}
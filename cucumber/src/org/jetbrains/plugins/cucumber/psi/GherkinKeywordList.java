@@ -18,6 +18,7 @@ public class GherkinKeywordList {
   private Map<String, String> myKeyword2BaseNameTable = new THashMap<>();
   private Set<String> myKeywordsWithNoSpaceAfter = new THashSet<>();
   private GherkinKeywordTable myKeywordsTable = new GherkinKeywordTable();
+  private final GherkinKeywordTrie myKeywordTrie = new GherkinKeywordTrie();
 
   public GherkinKeywordList() {
   }
@@ -55,6 +56,10 @@ public class GherkinKeywordList {
         }
       }
     }
+
+    for (String keyword : getAllKeywords()) {
+      myKeywordTrie.add(keyword, getTokenType(keyword), isSpaceAfterKeyword(keyword));
+    }
   }
 
 
@@ -66,6 +71,10 @@ public class GherkinKeywordList {
     return myKeywordsTable;
   }
 
+  public GherkinKeywordTrie getKeywordTrie() {
+    return myKeywordTrie;
+  }
+
   public boolean isSpaceAfterKeyword(String keyword) {
     return !myKeywordsWithNoSpaceAfter.contains(keyword);
   }
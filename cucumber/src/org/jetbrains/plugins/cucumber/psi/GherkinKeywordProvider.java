@@ -17,4 +17,12 @@ public interface GherkinKeywordProvider {
   boolean isStepKeyword(String keyword);
   @NotNull
   GherkinKeywordTable getKeywordsTable(@Nullable String language);
+
+  /**
+   * @return keywords of the language prepared for the lexer, providers with many languages should build it once per language
+   */
+  @NotNull
+  default GherkinKeywordTrie getKeywordTrie(@Nullable String language) {
+    return GherkinKeywordTrie.create(this, language);
+  }
 }
@@ -0,0 +1,116 @@
+package org.jetbrains.plugins.cucumber.psi;
+
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Keywords of one language, looked up by the lexer with a single walk over the text instead of
+ * comparing every keyword at every line start.
+ * <p>
+ * Terminal nodes store the token type of the keyword and whether it should be followed by a non-word
+ * character, so the longest suitable keyword is found without consulting the keyword provider.
+ */
+public class GherkinKeywordTrie {
+  private final Node myRoot = new Node();
+
+  @NotNull
+  public static GherkinKeywordTrie create(@NotNull GherkinKeywordProvider provider, String language) {
+    GherkinKeywordTrie trie = new GherkinKeywordTrie();
+    for (String keyword : provider.getAllKeywords(language)) {
+      trie.add(keyword, provider.getTokenType(language, keyword), provider.isSpaceAfterKeyword(language, keyword));
+    }
+    return trie;
+  }
+
+  public void add(@NotNull String keyword, @Nullable IElementType tokenType, boolean spaceAfter) {
+    if (keyword.isEmpty()) {
+      return;
+    }
+    Node node = myRoot;
+    for (int i = 0; i < keyword.length(); i++) {
+      node = node.getOrCreateChild(keyword.charAt(i));
+    }
+    node.myKeyword = new Keyword(keyword.length(), tokenType, spaceAfter);
+  }
+
+  /**
+   * @return the longest keyword starting at {@code start}, keywords requiring a space after them are skipped
+   * if they are followed by a letter or a digit
+   */
+  @Nullable
+  public Keyword findKeyword(@NotNull CharSequence buffer, int start, int end) {
+    Keyword result = null;
+    Node node = myRoot;
+    for (int pos = start; pos < end; pos++) {
+      node = node.getChild(buffer.charAt(pos));
+      if (node == null) {
+        break;
+      }
+      Keyword keyword = node.myKeyword;
+      if (keyword != null && (!keyword.mySpaceAfter || pos + 1 == end || !Character.isLetterOrDigit(buffer.charAt(pos + 1)))) {
+        result = keyword;
+      }
+    }
+    return result;
+  }
+
+  public static class Keyword {
+    private final int myLength;
+    private final IElementType myTokenType;
+    private final boolean mySpaceAfter;
+
+    private Keyword(int length, @Nullable IElementType tokenType, boolean spaceAfter) {
+      myLength = length;
+      myTokenType = tokenType;
+      mySpaceAfter = spaceAfter;
+    }
+
+    public int getLength() {
+      return myLength;
+    }
+
+    @Nullable
+    public IElementType getTokenType() {
+      return myTokenType;
+    }
+  }
+
+  private static class Node {
+    private static final Node[] EMPTY_ARRAY = new Node[0];
+
+    private char[] myChars = ArrayUtil.EMPTY_CHAR_ARRAY;
+    private Node[] myChildren = EMPTY_ARRAY;
+    private Keyword myKeyword;
+
+    @Nullable
+    private Node getChild(char c) {
+      int index = Arrays.binarySearch(myChars, c);
+      return index >= 0 ? myChildren[index] : null;
+    }
+
+    @NotNull
+    private Node getOrCreateChild(char c) {
+      int index = Arrays.binarySearch(myChars, c);
+      if (index >= 0) {
+        return myChildren[index];
+      }
+      int insertion = -index - 1;
+      Node child = new Node();
+      char[] chars = new char[myChars.length + 1];
+      Node[] children = new Node[myChildren.length + 1];
+      System.arraycopy(myChars, 0, chars, 0, insertion);
+      System.arraycopy(myChildren, 0, children, 0, insertion);
+      System.arraycopy(myChars, insertion, chars, insertion + 1, myChars.length - insertion);
+      System.arraycopy(myChildren, insertion, children, insertion + 1, myChildren.length - insertion);
+      chars[insertion] = c;
+      children[insertion] = child;
+      myChars = chars;
+      myChildren = children;
+      return child;
+    }
+  }
+}
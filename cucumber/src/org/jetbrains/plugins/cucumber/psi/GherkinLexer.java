@@ -7,10 +7,6 @@ import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
  * @author yole
  */
@@ -21,7 +17,7 @@ public class GherkinLexer extends LexerBase {
   private int myPosition;
   private IElementType myCurrentToken;
   private int myCurrentTokenStart;
-  private List<String> myKeywords;
+  private GherkinKeywordTrie myKeywordTrie;
   private int myState;
 
   private final static int STATE_DEFAULT = 0;
@@ -35,7 +31,6 @@ public class GherkinLexer extends LexerBase {
 
   private static final String PYSTRING_MARKER = "\"\"\"";
   private final GherkinKeywordProvider myKeywordProvider;
-  private String myCurLanguage;
 
   public GherkinLexer(GherkinKeywordProvider provider) {
     myKeywordProvider = provider;
@@ -43,9 +38,7 @@ public class GherkinLexer extends LexerBase {
   }
 
   private void updateLanguage(String language) {
-    myCurLanguage = language;
-    myKeywords = new ArrayList<>(myKeywordProvider.getAllKeywords(language));
-    Collections.sort(myKeywords, (o1, o2) -> o2.length() - o1.length());
+    myKeywordTrie = myKeywordProvider.getKeywordTrie(language);
   }
 
   @Override
@@ -187,24 +180,17 @@ public class GherkinLexer extends LexerBase {
     }
     else {
       if (myState == STATE_DEFAULT) {
-        for (String keyword : myKeywords) {
-          int length = keyword.length();
-          if (isStringAtPosition(keyword)) {
-            if (myKeywordProvider.isSpaceAfterKeyword(myCurLanguage, keyword) &&
-                myEndOffset - myPosition > length &&
-                Character.isLetterOrDigit(myBuffer.charAt(myPosition + length))) {
-              continue;
-            }
-            myCurrentToken = myKeywordProvider.getTokenType(myCurLanguage, keyword);
-            myPosition += length;
-            if (myCurrentToken == GherkinTokenTypes.STEP_KEYWORD || myCurrentToken == GherkinTokenTypes.SCENARIO_OUTLINE_KEYWORD) {
-              myState = STATE_AFTER_KEYWORD_WITH_PARAMETER;
-            } else {
-              myState = STATE_AFTER_KEYWORD;
-            }
-
-            return;
+        GherkinKeywordTrie.Keyword keyword = myKeywordTrie.findKeyword(myBuffer, myPosition, myEndOffset);
+        if (keyword != null) {
+          myCurrentToken = keyword.getTokenType();
+          myPosition += keyword.getLength();
+          if (myCurrentToken == GherkinTokenTypes.STEP_KEYWORD || myCurrentToken == GherkinTokenTypes.SCENARIO_OUTLINE_KEYWORD) {
+            myState = STATE_AFTER_KEYWORD_WITH_PARAMETER;
+          } else {
+            myState = STATE_AFTER_KEYWORD;
           }
+
+          return;
         }
       }
       if (myState == STATE_PARAMETER_INSIDE_STEP) {
@@ -108,6 +108,12 @@ public class JsonGherkinKeywordProvider implements GherkinKeywordProvider {
     return getKeywordList(language).getKeywordsTable();
   }
 
+  @NotNull
+  @Override
+  public GherkinKeywordTrie getKeywordTrie(@Nullable String language) {
+    return getKeywordList(language).getKeywordTrie();
+  }
+
   @NotNull
   private GherkinKeywordList getKeywordList(@Nullable final String language) {
     GherkinKeywordList keywordList = myLanguageKeywords.get(language);
@@ -62,16 +62,7 @@ public abstract class AbstractStepDefinition {
       final String cucumberRegex = getCucumberRegex();
       if (cucumberRegex == null) return null;
       if (myRegexText == null || !cucumberRegex.equals(myRegexText)) {
-        final StringBuilder patternText = new StringBuilder(ESCAPE_PATTERN.matcher(cucumberRegex).replaceAll("(.*)"));
-        if (patternText.toString().startsWith(CUCUMBER_START_PREFIX)) {
-          patternText.replace(0, CUCUMBER_START_PREFIX.length(), "^");
-        }
-
-        if (patternText.toString().endsWith(CUCUMBER_END_SUFFIX)) {
-          patternText.replace(patternText.length() - CUCUMBER_END_SUFFIX.length(), patternText.length(), "$");
-        }
-
-        myRegex = new Perl5Compiler().compile(patternText.toString(), Perl5Compiler.CASE_INSENSITIVE_MASK);
+        myRegex = compileStepPattern(cucumberRegex);
         myRegexText = cucumberRegex;
       }
       return myRegex;
@@ -81,6 +72,23 @@ public abstract class AbstractStepDefinition {
     }
   }
 
+  /**
+   * Compiles step definition regex the way {@link #matches(String)} uses it
+   */
+  @NotNull
+  public static Pattern compileStepPattern(@NotNull final String cucumberRegex) throws MalformedPatternException {
+    final StringBuilder patternText = new StringBuilder(ESCAPE_PATTERN.matcher(cucumberRegex).replaceAll("(.*)"));
+    if (patternText.toString().startsWith(CUCUMBER_START_PREFIX)) {
+      patternText.replace(0, CUCUMBER_START_PREFIX.length(), "^");
+    }
+
+    if (patternText.toString().endsWith(CUCUMBER_END_SUFFIX)) {
+      patternText.replace(patternText.length() - CUCUMBER_END_SUFFIX.length(), patternText.length(), "$");
+    }
+
+    return new Perl5Compiler().compile(patternText.toString(), Perl5Compiler.CASE_INSENSITIVE_MASK);
+  }
+
   @Nullable
   public String getCucumberRegex() {
     return getCucumberRegexFromElement(getElement());
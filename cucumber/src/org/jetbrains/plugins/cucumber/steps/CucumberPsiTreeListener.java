@@ -22,6 +22,10 @@ public class CucumberPsiTreeListener extends PsiTreeChangeAdapter {
     changesWatchersMap.put(parent, changesWatcher);
   }
 
+  public void removeChangesWatcher(final PsiElement parent) {
+    changesWatchersMap.remove(parent);
+  }
+
   private void processChange(final PsiElement parent) {
     for (Map.Entry<PsiElement, ChangesWatcher> entry : changesWatchersMap.entrySet()) {
       if (PsiTreeUtil.isAncestor(entry.getKey(), parent, false)) {
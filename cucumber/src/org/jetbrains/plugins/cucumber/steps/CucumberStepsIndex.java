@@ -11,6 +11,8 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.HashMap;
 import org.apache.oro.text.regex.Pattern;
 import org.jetbrains.annotations.NotNull;
@@ -31,6 +33,7 @@ public class CucumberStepsIndex {
 
   private final Map<BDDFrameworkType, CucumberJvmExtensionPoint> myExtensionMap;
   private final Map<CucumberJvmExtensionPoint, Object> myExtensionData;
+  private final Map<Module, CachedMatcher> myMatchers = ContainerUtil.createConcurrentWeakMap();
   private Project myProject;
 
   public static CucumberStepsIndex getInstance(Project project) {
@@ -115,8 +118,8 @@ public class CucumberStepsIndex {
     Map<Class<? extends AbstractStepDefinition>, AbstractStepDefinition> definitionsByClass =
       new java.util.HashMap<>();
     List<AbstractStepDefinition> allSteps = loadStepsFor(featureFile, module);
-    for (AbstractStepDefinition stepDefinition : allSteps) {
-      if (stepDefinition.matches(step.getSubstitutedName()) && stepDefinition.supportsStep(step)) {
+    for (AbstractStepDefinition stepDefinition : getMatcher(module, allSteps).findMatching(step.getSubstitutedName())) {
+      if (stepDefinition.supportsStep(step)) {
         final Pattern currentLongestPattern = getPatternByDefinition(definitionsByClass.get(stepDefinition.getClass()));
         final Pattern newPattern = getPatternByDefinition(stepDefinition);
         final int newPatternLength = ((newPattern != null) ? newPattern.getPattern().length() : -1);
@@ -128,6 +131,26 @@ public class CucumberStepsIndex {
     return definitionsByClass.values();
   }
 
+  /**
+   * Returns matcher for the given definitions of the module. It is reused until PSI changes
+   * or the module gets a different set of definitions.
+   */
+  @NotNull
+  private StepDefinitionMatcher<AbstractStepDefinition> getMatcher(@NotNull Module module,
+                                                                   @NotNull List<AbstractStepDefinition> definitions) {
+    long modificationCount = PsiModificationTracker.SERVICE.getInstance(module.getProject()).getModificationCount();
+    CachedMatcher cached = myMatchers.get(module);
+    if (cached != null && cached.myModificationCount == modificationCount && cached.myMatcher.getDefinitions().equals(definitions)) {
+      return cached.myMatcher;
+    }
+    StepDefinitionMatcher<AbstractStepDefinition> matcher = new StepDefinitionMatcher<>(definitions, definition -> {
+      Pattern pattern = definition.getPattern();
+      return pattern != null ? pattern.getPattern() : null;
+    }, AbstractStepDefinition::matches);
+    myMatchers.put(module, new CachedMatcher(modificationCount, matcher));
+    return matcher;
+  }
+
   /**
    * Returns pattern from step definition (if exists)
    *
@@ -208,6 +231,7 @@ public class CucumberStepsIndex {
   }
 
   public void reset() {
+    myMatchers.clear();
     for (CucumberJvmExtensionPoint e : myExtensionMap.values()) {
       e.reset(myProject);
     }
@@ -246,4 +270,14 @@ public class CucumberStepsIndex {
 
     return false;
   }
+
+  private static class CachedMatcher {
+    private final long myModificationCount;
+    private final StepDefinitionMatcher<AbstractStepDefinition> myMatcher;
+
+    CachedMatcher(long modificationCount, @NotNull StepDefinitionMatcher<AbstractStepDefinition> matcher) {
+      myModificationCount = modificationCount;
+      myMatcher = matcher;
+    }
+  }
 }
@@ -0,0 +1,183 @@
+package org.jetbrains.plugins.cucumber.steps;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.Processor;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.Perl5Matcher;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.cucumber.psi.GherkinFileType;
+import org.jetbrains.plugins.cucumber.psi.GherkinStep;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Maps step names to the offsets of Gherkin steps using them, so usages of a step definition are found by matching
+ * its regex against distinct step names instead of loading every feature file containing some word of the regex.
+ * <p>
+ * Steps of scenario outlines are indexed by their name with the first examples row substituted, the same name
+ * step references are resolved by.
+ */
+public class GherkinStepUsageIndex extends FileBasedIndexExtension<String, List<Integer>> {
+  public static final ID<String, List<Integer>> INDEX_ID = ID.create("cucumber.step.usages");
+  private static final int VERSION = 1;
+
+  private final DataIndexer<String, List<Integer>, FileContent> myIndexer = inputData -> indexFile(inputData.getPsiFile());
+
+  @NotNull
+  @Override
+  public ID<String, List<Integer>> getName() {
+    return INDEX_ID;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, List<Integer>, FileContent> getIndexer() {
+    return myIndexer;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<List<Integer>> getValueExternalizer() {
+    return new DataExternalizer<List<Integer>>() {
+      @Override
+      public void save(@NotNull DataOutput out, List<Integer> value) throws IOException {
+        DataInputOutputUtil.writeINT(out, value.size());
+        int previous = 0;
+        for (Integer offset : value) {
+          DataInputOutputUtil.writeINT(out, offset - previous);
+          previous = offset;
+        }
+      }
+
+      @Override
+      public List<Integer> read(@NotNull DataInput in) throws IOException {
+        int size = DataInputOutputUtil.readINT(in);
+        List<Integer> result = new ArrayList<>(size);
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+          offset += DataInputOutputUtil.readINT(in);
+          result.add(offset);
+        }
+        return result;
+      }
+    };
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(GherkinFileType.INSTANCE);
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+
+  /**
+   * Passes to processor all steps in scope whose name matches the pattern (compiled
+   * by {@link AbstractStepDefinition#compileStepPattern(String)}).
+   *
+   * @return false if processing was stopped by processor
+   */
+  public static boolean processMatchingSteps(@NotNull Project project,
+                                             @NotNull Pattern pattern,
+                                             @NotNull GlobalSearchScope scope,
+                                             @NotNull Processor<GherkinStep> processor) {
+    Map<VirtualFile, List<Integer>> usages = ReadAction.compute(() -> findUsages(project, pattern, scope));
+    PsiManager psiManager = PsiManager.getInstance(project);
+    for (Map.Entry<VirtualFile, List<Integer>> entry : usages.entrySet()) {
+      boolean proceed = ReadAction.compute(() -> {
+        PsiFile psiFile = entry.getKey().isValid() ? psiManager.findFile(entry.getKey()) : null;
+        if (psiFile == null) {
+          return true;
+        }
+        for (Integer offset : entry.getValue()) {
+          GherkinStep step = PsiTreeUtil.getParentOfType(psiFile.findElementAt(offset), GherkinStep.class, false);
+          if (step != null && !processor.process(step)) {
+            return false;
+          }
+        }
+        return true;
+      });
+      if (!proceed) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  private static Map<VirtualFile, List<Integer>> findUsages(@NotNull Project project,
+                                                            @NotNull Pattern pattern,
+                                                            @NotNull GlobalSearchScope scope) {
+    String literal = StepDefinitionMatcher.findRequiredLiteral(pattern.getPattern());
+    Perl5Matcher matcher = new Perl5Matcher();
+    List<String> stepNames = new ArrayList<>();
+    FileBasedIndex index = FileBasedIndex.getInstance();
+    index.processAllKeys(INDEX_ID, stepName -> {
+      if ((literal == null || StringUtil.containsIgnoreCase(stepName, literal)) && matcher.contains(stepName, pattern)) {
+        stepNames.add(stepName);
+      }
+      return true;
+    }, project);
+
+    Map<VirtualFile, List<Integer>> result = new LinkedHashMap<>();
+    for (String stepName : stepNames) {
+      index.processValues(INDEX_ID, stepName, null, (file, offsets) -> {
+        List<Integer> fileOffsets = result.get(file);
+        if (fileOffsets == null) {
+          fileOffsets = new ArrayList<>();
+          result.put(file, fileOffsets);
+        }
+        fileOffsets.addAll(offsets);
+        return true;
+      }, scope);
+    }
+    return result;
+  }
+
+  @NotNull
+  static Map<String, List<Integer>> indexFile(@NotNull PsiFile file) {
+    Map<String, List<Integer>> result = new HashMap<>();
+    for (GherkinStep step : PsiTreeUtil.findChildrenOfType(file, GherkinStep.class)) {
+      String stepName = step.getSubstitutedName();
+      if (StringUtil.isEmptyOrSpaces(stepName)) {
+        continue;
+      }
+      List<Integer> offsets = result.get(stepName);
+      if (offsets == null) {
+        offsets = new ArrayList<>(1);
+        result.put(stepName, offsets);
+      }
+      offsets.add(step.getTextOffset());
+    }
+    return result;
+  }
+}
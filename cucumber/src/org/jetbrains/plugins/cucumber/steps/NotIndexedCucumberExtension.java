@@ -3,6 +3,7 @@ package org.jetbrains.plugins.cucumber.steps;
 import com.intellij.ProjectTopics;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.progress.ProcessCanceledException;
@@ -13,6 +14,10 @@ import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
 import com.intellij.psi.*;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.messages.MessageBusConnection;
@@ -31,40 +36,27 @@ public abstract class NotIndexedCucumberExtension extends AbstractCucumberExtens
 
     PsiManager.getInstance(project).addPsiTreeChangeListener(result.myCucumberPsiTreeListener);
 
-    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+    // keep step files of processed roots up to date
+    final MessageBusConnection connection = project.getMessageBus().connect();
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
       @Override
-      public void childAdded(@NotNull PsiTreeChangeEvent event) {
-        final PsiElement parent = event.getParent();
-        PsiElement child = event.getChild();
-        if (isStepLikeFile(child, parent)) {
-          final PsiFile file = (PsiFile)child;
-          result.myUpdateQueue.queue(new Update(parent) {
-            public void run() {
-              if (file.isValid()) {
-                reloadAbstractStepDefinitions(file);
-                createWatcher(file);
-              }
-            }
-          });
+      public void before(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (event instanceof VFileDeleteEvent && event.getFile() != null) {
+            forgetStepFiles(project, result, event.getFile());
+          }
         }
       }
 
       @Override
-      public void childRemoved(@NotNull PsiTreeChangeEvent event) {
-        final PsiElement parent = event.getParent();
-        final PsiElement child = event.getChild();
-        if (isStepLikeFile(child, parent)) {
-          result.myUpdateQueue.queue(new Update(parent) {
-            public void run() {
-              removeAbstractStepDefinitionsRelatedTo((PsiFile)child);
-            }
-          });
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          processFileEvent(project, result, event);
         }
       }
     });
 
     // clear caches after modules roots were changed
-    final MessageBusConnection connection = project.getMessageBus().connect();
     connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
       final List<VirtualFile> myPreviousStepDefsProviders = new ArrayList<>();
 
@@ -108,7 +100,7 @@ public abstract class NotIndexedCucumberExtension extends AbstractCucumberExtens
 
     final Set<PsiFile> stepDefs = ContainerUtil.newHashSet();
     for (PsiDirectory root : stepDefRoots) {
-      stepDefs.addAll(gatherStepDefinitionsFilesFromDirectory(root, true));
+      stepDefs.addAll(getStepFiles(root, true));
     }
     return stepDefs.isEmpty() ? Collections.emptySet() : stepDefs;
   }
@@ -190,30 +182,177 @@ public abstract class NotIndexedCucumberExtension extends AbstractCucumberExtens
     }
   }
 
+  /**
+   * Returns step definition files under the root. The files of each root are collected by a VFS walk once
+   * and then kept up to date by the VFS listener registered in {@link #getDataObject(Project)}.
+   */
   @NotNull
-  private List<PsiFile> gatherStepDefinitionsFilesFromDirectory(@NotNull final PsiDirectory dir, final boolean writableOnly) {
-    final List<PsiFile> result = new ArrayList<>();
-
-    // find step definitions in current folder
-    for (PsiFile file : dir.getFiles()) {
-      final VirtualFile virtualFile = file.getVirtualFile();
-
-      final PsiDirectory parent = file.getParent();
-      if (parent != null) {
-        boolean isStepFile = writableOnly ? isWritableStepLikeFile(file, parent) : isStepLikeFile(file, parent);
-        if (isStepFile && virtualFile != null) {
-          result.add(file);
+  private List<PsiFile> getStepFiles(@NotNull final PsiDirectory root, final boolean writableOnly) {
+    final DataObject dataObject = (DataObject)CucumberStepsIndex.getInstance(root.getProject()).getExtensionDataObject(this);
+    final VirtualFile rootFile = root.getVirtualFile();
+    Set<VirtualFile> stepFiles;
+    synchronized (dataObject.myStepFiles) {
+      stepFiles = dataObject.myStepFiles.get(rootFile);
+    }
+    if (stepFiles == null) {
+      final Set<VirtualFile> collected = collectStepFiles(root.getManager(), rootFile);
+      synchronized (dataObject.myStepFiles) {
+        stepFiles = dataObject.myStepFiles.get(rootFile);
+        if (stepFiles == null) {
+          stepFiles = collected;
+          dataObject.myStepFiles.put(rootFile, stepFiles);
         }
       }
     }
-    // process subfolders
-    for (PsiDirectory subDir : dir.getSubdirectories()) {
-      result.addAll(gatherStepDefinitionsFilesFromDirectory(subDir, writableOnly));
+
+    final List<VirtualFile> files;
+    synchronized (dataObject.myStepFiles) {
+      files = new ArrayList<>(stepFiles);
     }
+    final List<PsiFile> result = new ArrayList<>(files.size());
+    for (VirtualFile file : files) {
+      final PsiFile psiFile = file.isValid() ? root.getManager().findFile(file) : null;
+      final PsiDirectory parent = psiFile != null ? psiFile.getParent() : null;
+      if (parent != null && (!writableOnly || isWritableStepLikeFile(psiFile, parent))) {
+        result.add(psiFile);
+      }
+    }
+    return result;
+  }
 
+  @NotNull
+  private Set<VirtualFile> collectStepFiles(@NotNull final PsiManager psiManager, @NotNull final VirtualFile dir) {
+    final Set<VirtualFile> result = new LinkedHashSet<>();
+    final FileTypeManager fileTypeManager = FileTypeManager.getInstance();
+    VfsUtilCore.visitChildrenRecursively(dir, new VirtualFileVisitor() {
+      @Override
+      public boolean visitFile(@NotNull VirtualFile file) {
+        if (fileTypeManager.isFileIgnored(file)) {
+          return false;
+        }
+        if (!file.isDirectory()) {
+          final PsiFile psiFile = psiManager.findFile(file);
+          final PsiDirectory parent = psiFile != null ? psiFile.getParent() : null;
+          if (parent != null && isStepLikeFile(psiFile, parent)) {
+            result.add(file);
+          }
+        }
+        return true;
+      }
+    });
     return result;
   }
 
+  private void processFileEvent(@NotNull final Project project, @NotNull final DataObject dataObject, @NotNull final VFileEvent event) {
+    if (event instanceof VFileDeleteEvent) {
+      return;
+    }
+    final VirtualFile file = event instanceof VFileCopyEvent ? ((VFileCopyEvent)event).findCreatedFile() : event.getFile();
+    if (file == null) {
+      return;
+    }
+    if (event instanceof VFileContentChangeEvent) {
+      // only the changed file is parsed again
+      if (isKnownStepFile(dataObject, file)) {
+        final PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+        if (psiFile != null) {
+          dataObject.myUpdateQueue.queue(new Update(psiFile) {
+            public void run() {
+              if (psiFile.isValid()) {
+                reloadAbstractStepDefinitions(psiFile);
+              }
+            }
+          });
+        }
+      }
+      return;
+    }
+    if (event instanceof VFilePropertyChangeEvent && !VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent)event).getPropertyName())) {
+      return;
+    }
+
+    // file was created, copied, moved or renamed: it may have left some roots and entered others
+    if (event instanceof VFileMoveEvent || event instanceof VFilePropertyChangeEvent) {
+      forgetStepFiles(project, dataObject, file);
+    }
+    final List<VirtualFile> roots = new ArrayList<>();
+    synchronized (dataObject.myStepFiles) {
+      for (VirtualFile root : dataObject.myStepFiles.keySet()) {
+        if (VfsUtilCore.isAncestor(root, file, false)) {
+          roots.add(root);
+        }
+      }
+    }
+    if (roots.isEmpty()) {
+      return;
+    }
+    dataObject.myUpdateQueue.queue(new Update(file) {
+      public void run() {
+        if (project.isDisposed() || !file.isValid()) {
+          return;
+        }
+        final PsiManager psiManager = PsiManager.getInstance(project);
+        final Set<VirtualFile> stepFiles = collectStepFiles(psiManager, file);
+        synchronized (dataObject.myStepFiles) {
+          for (VirtualFile root : roots) {
+            final Set<VirtualFile> rootStepFiles = dataObject.myStepFiles.get(root);
+            if (rootStepFiles != null) {
+              rootStepFiles.addAll(stepFiles);
+            }
+          }
+        }
+        for (VirtualFile stepFile : stepFiles) {
+          final PsiFile psiFile = psiManager.findFile(stepFile);
+          if (psiFile != null) {
+            reloadAbstractStepDefinitions(psiFile);
+            createWatcher(psiFile);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Removes the file (or all files of the directory) from step files of known roots and drops their definitions
+   */
+  private void forgetStepFiles(@NotNull final Project project, @NotNull final DataObject dataObject, @NotNull final VirtualFile file) {
+    final Set<VirtualFile> removed = new HashSet<>();
+    synchronized (dataObject.myStepFiles) {
+      for (Set<VirtualFile> stepFiles : dataObject.myStepFiles.values()) {
+        for (Iterator<VirtualFile> iterator = stepFiles.iterator(); iterator.hasNext(); ) {
+          final VirtualFile stepFile = iterator.next();
+          if (VfsUtilCore.isAncestor(file, stepFile, false)) {
+            iterator.remove();
+            removed.add(stepFile);
+          }
+        }
+      }
+    }
+    final PsiManager psiManager = PsiManager.getInstance(project);
+    for (VirtualFile stepFile : removed) {
+      final PsiFile psiFile = stepFile.isValid() ? psiManager.findFile(stepFile) : null;
+      if (psiFile != null) {
+        dataObject.myCucumberPsiTreeListener.removeChangesWatcher(psiFile);
+        dataObject.myUpdateQueue.queue(new Update(psiFile) {
+          public void run() {
+            removeAbstractStepDefinitionsRelatedTo(psiFile);
+          }
+        });
+      }
+    }
+  }
+
+  private static boolean isKnownStepFile(@NotNull final DataObject dataObject, @NotNull final VirtualFile file) {
+    synchronized (dataObject.myStepFiles) {
+      for (Set<VirtualFile> stepFiles : dataObject.myStepFiles.values()) {
+        if (stepFiles.contains(file)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   public static void collectDependencies(Module module, Set<Module> modules) {
     if (modules.contains(module)) return;
     final Module[] dependencies = ModuleRootManager.getInstance(module).getDependencies();
@@ -260,7 +399,7 @@ public abstract class NotIndexedCucumberExtension extends AbstractCucumberExtens
         // let's process each folder separately
         try {
           dataObject.myProcessedStepDirectories.add(root.getVirtualFile().getPath());
-          final List<PsiFile> files = gatherStepDefinitionsFilesFromDirectory(root, false);
+          final List<PsiFile> files = getStepFiles(root, false);
           for (final PsiFile file : files) {
             removeAbstractStepDefinitionsRelatedTo(file);
             stepDefinitions.addAll(getStepDefinitions(file));
@@ -336,6 +475,9 @@ public abstract class NotIndexedCucumberExtension extends AbstractCucumberExtens
       dataObject.myStepDefinitions.clear();
     }
     dataObject.myProcessedStepDirectories.clear();
+    synchronized (dataObject.myStepFiles) {
+      dataObject.myStepFiles.clear();
+    }
   }
 
   public void flush(@NotNull final Project project) {
@@ -355,6 +497,9 @@ public abstract class NotIndexedCucumberExtension extends AbstractCucumberExtens
 
     final Set<String> myProcessedStepDirectories = new HashSet<>();
 
+    // step definition files of processed roots, maintained by the VFS listener
+    final Map<VirtualFile, Set<VirtualFile>> myStepFiles = new HashMap<>();
+
     final MergingUpdateQueue myUpdateQueue = new MergingUpdateQueue("Steps reparse", 500, true, null);
 
     final CucumberPsiTreeListener myCucumberPsiTreeListener = new CucumberPsiTreeListener();
@@ -0,0 +1,482 @@
+package org.jetbrains.plugins.cucumber.steps;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Finds the step definitions matching a step name without evaluating every definition regex.
+ * <p>
+ * For each regex the longest literal fragment that any match must contain is extracted. All fragments are put
+ * into an Aho-Corasick automaton, so a single pass over the step name yields the candidate definitions.
+ * Only the candidates and the definitions without a usable fragment are checked with their own matching logic.
+ * Fragments are compared case-insensitively, so the filter is valid for both case-sensitive and case-insensitive matching.
+ * <p>
+ * Immutable after creation, so an instance can be shared between threads.
+ *
+ * @param <T> type of step definitions
+ */
+class StepDefinitionMatcher<T> {
+  private final List<T> myDefinitions;
+  private final BiPredicate<T, String> myMatchPredicate;
+  /**
+   * Indices of definitions without a required fragment, they are always checked.
+   */
+  private final int[] myUnfiltered;
+  private final LiteralAutomaton myAutomaton;
+
+  /**
+   * @param regexFunction  returns regex of a definition or null if the definition never matches
+   * @param matchPredicate checks if a definition matches a step name
+   */
+  StepDefinitionMatcher(@NotNull List<T> definitions,
+                        @NotNull Function<T, String> regexFunction,
+                        @NotNull BiPredicate<T, String> matchPredicate) {
+    myDefinitions = new ArrayList<>(definitions);
+    myMatchPredicate = matchPredicate;
+    List<Integer> unfiltered = new ArrayList<>();
+    LiteralAutomaton.Builder builder = new LiteralAutomaton.Builder();
+    for (int i = 0; i < myDefinitions.size(); i++) {
+      String regex = regexFunction.apply(myDefinitions.get(i));
+      if (regex == null) {
+        continue;
+      }
+      String literal = findRequiredLiteral(regex);
+      if (literal != null) {
+        builder.add(toLowerCase(literal), i);
+      }
+      else {
+        unfiltered.add(i);
+      }
+    }
+    myUnfiltered = new int[unfiltered.size()];
+    for (int i = 0; i < myUnfiltered.length; i++) {
+      myUnfiltered[i] = unfiltered.get(i);
+    }
+    myAutomaton = builder.build();
+  }
+
+  @NotNull
+  List<T> getDefinitions() {
+    return myDefinitions;
+  }
+
+  /**
+   * @return definitions matching the step name, in the order they were passed to the constructor
+   */
+  @NotNull
+  List<T> findMatching(@NotNull String stepName) {
+    BitSet candidates = new BitSet(myDefinitions.size());
+    myAutomaton.collectMatches(toLowerCase(stepName), candidates);
+    for (int index : myUnfiltered) {
+      candidates.set(index);
+    }
+    if (candidates.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<T> result = new ArrayList<>(1);
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      T definition = myDefinitions.get(i);
+      if (myMatchPredicate.test(definition, stepName)) {
+        result.add(definition);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String toLowerCase(@NotNull String s) {
+    char[] chars = s.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(chars[i]);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Finds the longest run of literal characters that occurs in every string matched by the regex.
+   *
+   * @return the literal or null if the regex has no such literal or its syntax is not understood
+   */
+  @Nullable
+  static String findRequiredLiteral(@NotNull String regex) {
+    if (hasExtendedModifier(regex)) {
+      return null;
+    }
+    String best = null;
+    StringBuilder run = new StringBuilder();
+    int i = 0;
+    int length = regex.length();
+    while (i < length) {
+      char c = regex.charAt(i);
+      switch (c) {
+        case '|':
+          // alternation on the top level: no fragment is required
+          return null;
+        case '(':
+          int groupEnd = skipGroup(regex, i);
+          if (groupEnd < 0) {
+            return null;
+          }
+          best = longest(best, run);
+          i = groupEnd;
+          continue;
+        case '[':
+          int classEnd = skipCharacterClass(regex, i);
+          if (classEnd < 0) {
+            return null;
+          }
+          best = longest(best, run);
+          i = classEnd;
+          continue;
+        case '*':
+        case '?':
+          dropLast(run);
+          best = longest(best, run);
+          i++;
+          continue;
+        case '+':
+          best = longest(best, run);
+          i++;
+          continue;
+        case '{':
+          int quantifierEnd = skipQuantifier(regex, i);
+          if (quantifierEnd > 0) {
+            if (regex.charAt(i + 1) == '0') {
+              dropLast(run);
+            }
+            best = longest(best, run);
+            i = quantifierEnd;
+            continue;
+          }
+          run.append(c);
+          i++;
+          continue;
+        case '.':
+        case '^':
+        case '$':
+          best = longest(best, run);
+          i++;
+          continue;
+        case '\\':
+          if (i + 1 >= length) {
+            return null;
+          }
+          char escaped = regex.charAt(i + 1);
+          if (Character.isLetterOrDigit(escaped)) {
+            if (escaped == 'Q' || escaped == 'E') {
+              return null;
+            }
+            best = longest(best, run);
+            i = skipEscape(regex, i);
+            continue;
+          }
+          run.append(escaped);
+          i += 2;
+          continue;
+        default:
+          run.append(c);
+          i++;
+      }
+    }
+    best = longest(best, run);
+    return best != null && !best.isEmpty() ? best : null;
+  }
+
+  /**
+   * Whitespace is not literal in (?x) mode.
+   */
+  private static boolean hasExtendedModifier(@NotNull String regex) {
+    int i = regex.indexOf("(?");
+    while (i >= 0) {
+      for (int j = i + 2; j < regex.length(); j++) {
+        char c = regex.charAt(j);
+        if (c == 'x') {
+          return true;
+        }
+        if (!Character.isLetter(c) && c != '-') {
+          break;
+        }
+      }
+      i = regex.indexOf("(?", i + 2);
+    }
+    return false;
+  }
+
+  @Nullable
+  private static String longest(@Nullable String best, @NotNull StringBuilder run) {
+    String result = best;
+    if (best == null || run.length() > best.length()) {
+      result = run.toString();
+    }
+    run.setLength(0);
+    return result;
+  }
+
+  private static void dropLast(@NotNull StringBuilder run) {
+    if (run.length() > 0) {
+      run.setLength(run.length() - 1);
+    }
+  }
+
+  /**
+   * @return index after the closing parenthesis or -1 if the group is not closed
+   */
+  private static int skipGroup(@NotNull String regex, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        if (i < 0) {
+          return -1;
+        }
+        continue;
+      }
+      if (c == '(') {
+        depth++;
+      }
+      else if (c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  /**
+   * @return index after the closing bracket or -1 if the class is not closed
+   */
+  private static int skipCharacterClass(@NotNull String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++;
+    }
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == ']') {
+        return i + 1;
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  /**
+   * @return index after the closing brace of a {n}, {n,} or {n,m} quantifier or -1 if there is no quantifier
+   */
+  private static int skipQuantifier(@NotNull String regex, int start) {
+    int i = start + 1;
+    int digitsStart = i;
+    while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+      i++;
+    }
+    if (i == digitsStart) {
+      return -1;
+    }
+    if (i < regex.length() && regex.charAt(i) == ',') {
+      i++;
+      while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+        i++;
+      }
+    }
+    return i < regex.length() && regex.charAt(i) == '}' ? i + 1 : -1;
+  }
+
+  /**
+   * @return index after an escape sequence starting with a backslash followed by a letter or a digit
+   */
+  private static int skipEscape(@NotNull String regex, int start) {
+    char c = regex.charAt(start + 1);
+    int i = start + 2;
+    if (c == 'x') {
+      if (i < regex.length() && regex.charAt(i) == '{') {
+        int end = regex.indexOf('}', i);
+        return end < 0 ? regex.length() : end + 1;
+      }
+      return Math.min(regex.length(), i + 2);
+    }
+    if (c == 'u') {
+      int end = Math.min(regex.length(), i + 4);
+      while (i < end && Character.digit(regex.charAt(i), 16) >= 0) {
+        i++;
+      }
+      return i;
+    }
+    if (c == 'c') {
+      return Math.min(regex.length(), i + 1);
+    }
+    if (c == 'p' || c == 'P') {
+      if (i < regex.length() && regex.charAt(i) == '{') {
+        int end = regex.indexOf('}', i);
+        return end < 0 ? regex.length() : end + 1;
+      }
+      return Math.min(regex.length(), i + 1);
+    }
+    if (Character.isDigit(c)) {
+      while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+        i++;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Aho-Corasick automaton over literal fragments, each fragment is mapped to the indices of its definitions.
+   */
+  private static class LiteralAutomaton {
+    private final char[][] myLabels;
+    private final int[][] myTargets;
+    private final int[] myFailure;
+    /**
+     * Nearest node on the failure chain (the node itself included) that ends a fragment, -1 if none.
+     */
+    private final int[] myOutputLink;
+    private final int[][] myOutputs;
+
+    private LiteralAutomaton(@NotNull char[][] labels,
+                             @NotNull int[][] targets,
+                             @NotNull int[] failure,
+                             @NotNull int[] outputLink,
+                             @NotNull int[][] outputs) {
+      myLabels = labels;
+      myTargets = targets;
+      myFailure = failure;
+      myOutputLink = outputLink;
+      myOutputs = outputs;
+    }
+
+    void collectMatches(@NotNull String text, @NotNull BitSet result) {
+      int state = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        int next = findTarget(state, c);
+        while (next < 0 && state != 0) {
+          state = myFailure[state];
+          next = findTarget(state, c);
+        }
+        state = next < 0 ? 0 : next;
+        for (int node = myOutputLink[state]; node >= 0; node = myOutputLink[myFailure[node]]) {
+          for (int index : myOutputs[node]) {
+            result.set(index);
+          }
+          if (node == 0) {
+            break;
+          }
+        }
+      }
+    }
+
+    private int findTarget(int node, char c) {
+      char[] labels = myLabels[node];
+      for (int i = 0; i < labels.length; i++) {
+        if (labels[i] == c) {
+          return myTargets[node][i];
+        }
+      }
+      return -1;
+    }
+
+    private static class Builder {
+      private final List<Map<Character, Integer>> myChildren = new ArrayList<>();
+      private final List<List<Integer>> myOutputs = new ArrayList<>();
+
+      Builder() {
+        newNode();
+      }
+
+      private int newNode() {
+        myChildren.add(new LinkedHashMap<>(2));
+        myOutputs.add(null);
+        return myChildren.size() - 1;
+      }
+
+      void add(@NotNull String literal, int index) {
+        int node = 0;
+        for (int i = 0; i < literal.length(); i++) {
+          Integer child = myChildren.get(node).get(literal.charAt(i));
+          if (child == null) {
+            child = newNode();
+            myChildren.get(node).put(literal.charAt(i), child);
+          }
+          node = child;
+        }
+        List<Integer> outputs = myOutputs.get(node);
+        if (outputs == null) {
+          outputs = new ArrayList<>(1);
+          myOutputs.set(node, outputs);
+        }
+        outputs.add(index);
+      }
+
+      @NotNull
+      LiteralAutomaton build() {
+        int size = myChildren.size();
+        char[][] labels = new char[size][];
+        int[][] targets = new int[size][];
+        int[][] outputs = new int[size][];
+        for (int node = 0; node < size; node++) {
+          Map<Character, Integer> children = myChildren.get(node);
+          labels[node] = new char[children.size()];
+          targets[node] = new int[children.size()];
+          int i = 0;
+          for (Map.Entry<Character, Integer> entry : children.entrySet()) {
+            labels[node][i] = entry.getKey();
+            targets[node][i] = entry.getValue();
+            i++;
+          }
+          List<Integer> nodeOutputs = myOutputs.get(node);
+          outputs[node] = new int[nodeOutputs != null ? nodeOutputs.size() : 0];
+          for (int j = 0; j < outputs[node].length; j++) {
+            outputs[node][j] = nodeOutputs.get(j);
+          }
+        }
+
+        int[] failure = new int[size];
+        int[] outputLink = new int[size];
+        outputLink[0] = outputs[0].length > 0 ? 0 : -1;
+        LiteralAutomaton automaton = new LiteralAutomaton(labels, targets, failure, outputLink, outputs);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+          failure[child] = 0;
+          queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+          int node = queue.poll();
+          outputLink[node] = outputs[node].length > 0 ? node : outputLink[failure[node]];
+          for (int i = 0; i < labels[node].length; i++) {
+            char c = labels[node][i];
+            int child = targets[node][i];
+            int fallback = failure[node];
+            int next = automaton.findTarget(fallback, c);
+            while (next < 0 && fallback != 0) {
+              fallback = failure[fallback];
+              next = automaton.findTarget(fallback, c);
+            }
+            failure[child] = next < 0 || next == child ? 0 : next;
+            queue.add(child);
+          }
+        }
+        return automaton;
+      }
+    }
+  }
+}
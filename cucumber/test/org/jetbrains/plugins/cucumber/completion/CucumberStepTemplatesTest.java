@@ -0,0 +1,112 @@
+package org.jetbrains.plugins.cucumber.completion;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.module.EmptyModuleType;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiElement;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CucumberStepTemplatesTest extends LightPlatformCodeInsightFixtureTestCase {
+  public void testTemplatesAreReleasedWithModule() {
+    final ModuleManager moduleManager = ModuleManager.getInstance(getProject());
+    final Module module = WriteAction.compute(
+      () -> moduleManager.newModule(FileUtil.getTempDirectory() + "/steps.iml", EmptyModuleType.EMPTY_MODULE));
+    try {
+      final CucumberStepTemplates templates = CucumberStepTemplates.getInstance(module, Collections.emptyList());
+      assertTrue(CucumberStepTemplates.hasTemplates(module));
+      assertSame(templates, CucumberStepTemplates.getInstance(module, Collections.emptyList()));
+    }
+    finally {
+      WriteAction.run(() -> moduleManager.disposeModule(module));
+    }
+    assertFalse(CucumberStepTemplates.hasTemplates(module));
+  }
+
+  public void testTemplates() {
+    final List<AbstractStepDefinition> definitions = Arrays.asList(
+      definition("have.txt", "^I have (\\d+) cukes in my \"([^\"]*)\"$"),
+      definition("eat.txt", "^I eat (.*) cukes$"),
+      definition("none.txt", null));
+    final List<CucumberStepTemplates.Template> templates = CucumberStepTemplates.getInstance(myModule, definitions).findCandidates("");
+
+    assertEquals(2, templates.size());
+    assertSame(definitions.get(0), templates.get(0).getDefinition());
+    assertEquals("I have <number> cukes in my \"<string>\"", templates.get(0).getText());
+    assertEquals(Arrays.asList(new TextRange(7, 15), new TextRange(29, 37)), templates.get(0).getRanges());
+    assertSame(definitions.get(1), templates.get(1).getDefinition());
+    assertEquals("I eat <string> cukes", templates.get(1).getText());
+    assertEquals(Collections.singletonList(new TextRange(6, 14)), templates.get(1).getRanges());
+  }
+
+  public void testFindCandidates() {
+    final CucumberStepTemplates templates = CucumberStepTemplates.getInstance(myModule, Arrays.asList(
+      definition("have.txt", "^I have (\\d+) cukes in my \"([^\"]*)\"$"),
+      definition("eat.txt", "^I eat (.*) cukes$")));
+
+    assertCandidates(templates, "", "I have <number> cukes in my \"<string>\"", "I eat <string> cukes");
+    assertCandidates(templates, "cuk", "I have <number> cukes in my \"<string>\"", "I eat <string> cukes");
+    assertCandidates(templates, "5 CU", "I have <number> cukes in my \"<string>\"", "I eat <string> cukes");
+    assertCandidates(templates, "I ha", "I have <number> cukes in my \"<string>\"");
+    assertCandidates(templates, "ea cu", "I eat <string> cukes");
+    assertCandidates(templates, "eat my");
+  }
+
+  public void testTemplatesAreRenderedAgainOnPsiChange() {
+    final TestStepDefinition definition = definition("have.txt", "^I have (\\d+) cukes$");
+    final List<AbstractStepDefinition> definitions = Collections.singletonList(definition);
+    final CucumberStepTemplates templates = CucumberStepTemplates.getInstance(myModule, definitions);
+    assertSame(templates, CucumberStepTemplates.getInstance(myModule, new ArrayList<>(definitions)));
+    assertEquals(1, definition.myRegexRequests);
+
+    definition.myRegex = "^I have (\\d+) big cukes$";
+    myFixture.addFileToProject("other.txt", "");
+    final CucumberStepTemplates changed = CucumberStepTemplates.getInstance(myModule, definitions);
+    assertNotSame(templates, changed);
+    assertEquals(2, definition.myRegexRequests);
+    assertCandidates(changed, "big", "I have <number> big cukes");
+  }
+
+  private static void assertCandidates(CucumberStepTemplates templates, String prefix, String... expected) {
+    final List<String> texts = new ArrayList<>();
+    for (CucumberStepTemplates.Template template : templates.findCandidates(prefix)) {
+      texts.add(template.getText());
+    }
+    assertEquals(prefix, Arrays.asList(expected), texts);
+  }
+
+  private TestStepDefinition definition(String fileName, @Nullable String regex) {
+    return new TestStepDefinition(myFixture.addFileToProject(fileName, ""), regex);
+  }
+
+  private static class TestStepDefinition extends AbstractStepDefinition {
+    private String myRegex;
+    private int myRegexRequests;
+
+    private TestStepDefinition(PsiElement element, @Nullable String regex) {
+      super(element);
+      myRegex = regex;
+    }
+
+    @Override
+    public List<String> getVariableNames() {
+      return Collections.emptyList();
+    }
+
+    @Nullable
+    @Override
+    protected String getCucumberRegexFromElement(PsiElement element) {
+      myRegexRequests++;
+      return myRegex;
+    }
+  }
+}
@@ -2,7 +2,9 @@ package org.jetbrains.plugins.cucumber.psi;
 
 import com.intellij.lexer.Lexer;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.testFramework.PlatformTestUtil;
 import junit.framework.TestCase;
+import org.jetbrains.plugins.cucumber.psi.i18n.JsonGherkinKeywordProvider;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -12,6 +14,10 @@ import java.util.List;
  * @author yole
  */
 public class GherkinLexerTest extends TestCase {
+  private static final String[] BENCHMARK_LANGUAGES = {"en", "fr", "de", "ru", "ja", "zh-CN", "ar", "es", "pl", "tlh", "en-lol", "uk"};
+  private static final int BENCHMARK_FEATURES = 200;
+  private static final int BENCHMARK_STEPS_PER_SCENARIO = 20;
+
   public void testComment() {
     doTest("# foo", "COMMENT:0-5");
   }
@@ -134,6 +140,52 @@ public class GherkinLexerTest extends TestCase {
     doTest("|\u3000\n", "PIPE:0-1", "WHITE_SPACE:1-3");
   }
 
+  public void testFallbackToShorterKeyword() {
+    // "Scenario Outline" is rejected as it is followed by a letter, "Scenario" on the same trie path is taken
+    doTest("Scenario Outlined", "SCENARIO_KEYWORD:0-8", "WHITE_SPACE:8-9", "TEXT:9-17");
+  }
+
+  public void testThroughput() {
+    GherkinKeywordProvider provider = JsonGherkinKeywordProvider.getKeywordProvider();
+    StringBuilder corpus = new StringBuilder();
+    int features = 0;
+    int steps = 0;
+    for (int i = 0; i < BENCHMARK_FEATURES; i++) {
+      String language = BENCHMARK_LANGUAGES[i % BENCHMARK_LANGUAGES.length];
+      GherkinKeywordTable table = provider.getKeywordsTable(language);
+      corpus.append("# language: ").append(language).append("\n");
+      corpus.append(table.getFeatureSectionKeyword()).append(": feature ").append(i).append("\n\n");
+      features++;
+      for (String scenarioKeyword : table.getScenarioKeywords()) {
+        corpus.append("  ").append(scenarioKeyword).append(": scenario ").append(i).append("\n");
+        for (int j = 0; j < BENCHMARK_STEPS_PER_SCENARIO; j++) {
+          for (String stepKeyword : table.getStepKeywords()) {
+            corpus.append("    ").append(stepKeyword).append(" step ").append(j).append(" with \"value\"\n");
+            steps++;
+          }
+        }
+      }
+      corpus.append("\n");
+    }
+    int expectedFeatures = features;
+    int expectedSteps = steps;
+    Lexer lexer = new GherkinLexer(provider);
+    PlatformTestUtil.startPerformanceTest("Gherkin lexer throughput", 2000, () -> {
+      int featureKeywords = 0;
+      int stepKeywords = 0;
+      for (lexer.start(corpus); lexer.getTokenType() != null; lexer.advance()) {
+        if (lexer.getTokenType() == GherkinTokenTypes.FEATURE_KEYWORD) {
+          featureKeywords++;
+        }
+        else if (lexer.getTokenType() == GherkinTokenTypes.STEP_KEYWORD) {
+          stepKeywords++;
+        }
+      }
+      assertEquals(expectedFeatures, featureKeywords);
+      assertEquals(expectedSteps, stepKeywords);
+    }).assertTiming();
+  }
+
   private static void doTest(String text, String... expectedTokens) {
     Lexer lexer = new GherkinLexer(new MockGherkinKeywordProvider());
     lexer.start(text);
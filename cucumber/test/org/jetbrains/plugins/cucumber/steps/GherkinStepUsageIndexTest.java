@@ -0,0 +1,54 @@
+package org.jetbrains.plugins.cucumber.steps;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.CommonProcessors;
+import org.apache.oro.text.regex.MalformedPatternException;
+import org.jetbrains.plugins.cucumber.CucumberCodeInsightTestCase;
+import org.jetbrains.plugins.cucumber.psi.GherkinStep;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class GherkinStepUsageIndexTest extends CucumberCodeInsightTestCase {
+  private static final String FEATURE = "Feature: cukes\n" +
+                                        "  Scenario: eating\n" +
+                                        "    Given I have 5 cukes\n" +
+                                        "    When I eat 2 cukes\n" +
+                                        "    Then I have 5 cukes\n" +
+                                        "  Scenario Outline: counting\n" +
+                                        "    Given I have <count> cukes\n" +
+                                        "    Examples:\n" +
+                                        "      | count |\n" +
+                                        "      | 10    |\n";
+
+  public void testIndexedStepNames() {
+    PsiFile file = myFixture.configureByText("cukes.feature", FEATURE);
+    Map<String, List<Integer>> entries = GherkinStepUsageIndex.indexFile(file);
+    assertSameElements(entries.keySet(), "I have 5 cukes", "I eat 2 cukes", "I have 10 cukes");
+
+    List<Integer> offsets = entries.get("I have 5 cukes");
+    assertEquals(2, offsets.size());
+    assertEquals(FEATURE.indexOf("Given I have 5"), offsets.get(0).intValue());
+    assertEquals(FEATURE.indexOf("Then I have 5"), offsets.get(1).intValue());
+  }
+
+  public void testMatchingSteps() throws MalformedPatternException {
+    myFixture.configureByText("cukes.feature", FEATURE);
+    assertMatchingSteps("^I have (\\d+) cukes$", "I have 5 cukes", "I have 5 cukes", "I have <count> cukes");
+    assertMatchingSteps("^I eat (\\d+) cukes$", "I eat 2 cukes");
+    assertMatchingSteps("^I have (\\d+) cucumbers$");
+  }
+
+  private void assertMatchingSteps(String regex, String... expectedStepNames) throws MalformedPatternException {
+    CommonProcessors.CollectProcessor<GherkinStep> processor = new CommonProcessors.CollectProcessor<>();
+    GherkinStepUsageIndex.processMatchingSteps(getProject(), AbstractStepDefinition.compileStepPattern(regex),
+                                               GlobalSearchScope.projectScope(getProject()), processor);
+    List<String> stepNames = new ArrayList<>();
+    for (GherkinStep step : processor.getResults()) {
+      stepNames.add(step.getStepName());
+    }
+    assertSameElements(stepNames, expectedStepNames);
+  }
+}
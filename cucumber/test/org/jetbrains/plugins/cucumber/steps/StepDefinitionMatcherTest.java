@@ -0,0 +1,121 @@
+package org.jetbrains.plugins.cucumber.steps;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import org.apache.oro.text.regex.MalformedPatternException;
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StepDefinitionMatcherTest {
+  private static final int DEFINITIONS = 5000;
+  private static final int STEPS = 500;
+
+  @Test
+  public void testRequiredLiteral() {
+    assertEquals("I have ", StepDefinitionMatcher.findRequiredLiteral("^I have (\\d+) cukes$"));
+    assertEquals(" cukes in my belly", StepDefinitionMatcher.findRequiredLiteral("^I have (\\d+) cukes in my belly$"));
+    assertEquals(" logged in", StepDefinitionMatcher.findRequiredLiteral("^the users? (?:is|are) logged in$"));
+    assertEquals("file.txt ", StepDefinitionMatcher.findRequiredLiteral("^file\\.txt [a-z]+$"));
+    assertEquals("aaa", StepDefinitionMatcher.findRequiredLiteral("x{0,2}aaab{0}"));
+    assertEquals("bc", StepDefinitionMatcher.findRequiredLiteral("\\x41bc"));
+    assertEquals("the user", StepDefinitionMatcher.findRequiredLiteral("^the users? (\\w+)$"));
+    assertNull(StepDefinitionMatcher.findRequiredLiteral("^I (?:go|run)$|^I walk$"));
+    assertNull(StepDefinitionMatcher.findRequiredLiteral("(?x) I have \\s+ cukes"));
+    assertNull(StepDefinitionMatcher.findRequiredLiteral("^(.*)$"));
+  }
+
+  @Test
+  public void testUnicodeEscape() {
+    String regex = "^caf\\u00e9 au (\\w+)$";
+    assertEquals(" au ", StepDefinitionMatcher.findRequiredLiteral(regex));
+
+    StepDefinitionMatcher<String> matcher = new StepDefinitionMatcher<>(Collections.singletonList(regex), r -> r,
+                                                                        (r, step) -> java.util.regex.Pattern.compile(r).matcher(step).find());
+    assertEquals(Collections.singletonList(regex), matcher.findMatching("caf\u00e9 au lait"));
+  }
+
+  @Test
+  public void testMatching() {
+    List<String> regexes = Arrays.asList("^I have (\\d+) cukes$",
+                                         "^I HAVE (\\d+) cukes$",
+                                         "^the users? (?:is|are) logged in$",
+                                         "^(.*) logged in$",
+                                         "^I (?:go|run)$|^I walk$",
+                                         "^broken [$");
+    assertMatching(regexes, "I have 5 cukes");
+    assertMatching(regexes, "the users are logged in");
+    assertMatching(regexes, "I walk");
+    assertMatching(regexes, "nothing");
+  }
+
+  @Test
+  public void testPerformance() {
+    List<String> regexes = new ArrayList<>(DEFINITIONS);
+    for (int i = 0; i < DEFINITIONS; i++) {
+      switch (i % 4) {
+        case 0:
+          regexes.add("^I have (\\d+) cukes in bucket " + i + "$");
+          break;
+        case 1:
+          regexes.add("^the order " + i + " contains \"([^\"]*)\"$");
+          break;
+        case 2:
+          regexes.add("^user (\\w+) opens page number " + i + "(?: again)?$");
+          break;
+        default:
+          regexes.add("^the (.*) service " + i + " is (up|down)$");
+      }
+    }
+    List<String> steps = new ArrayList<>(STEPS);
+    for (int i = 0; i < STEPS; i++) {
+      int definition = i * (DEFINITIONS / STEPS);
+      steps.add(i % 2 == 0 ? "I have 42 cukes in bucket " + definition : "the order " + (definition - 1) + " contains \"milk\"");
+    }
+    Map<String, Pattern> patterns = compile(regexes);
+    PlatformTestUtil.startPerformanceTest("Cucumber step definition matching", 1500, () -> {
+      StepDefinitionMatcher<String> matcher = new StepDefinitionMatcher<>(regexes, regex -> regex, (regex, step) -> matches(patterns, regex, step));
+      for (String step : steps) {
+        assertEquals(1, matcher.findMatching(step).size());
+      }
+    }).assertTiming();
+  }
+
+  private static void assertMatching(@NotNull List<String> regexes, @NotNull String step) {
+    Map<String, Pattern> patterns = compile(regexes);
+    List<String> expected = new ArrayList<>();
+    for (String regex : regexes) {
+      if (matches(patterns, regex, step)) {
+        expected.add(regex);
+      }
+    }
+    StepDefinitionMatcher<String> matcher = new StepDefinitionMatcher<>(regexes, regex -> patterns.containsKey(regex) ? regex : null,
+                                                                        (regex, s) -> matches(patterns, regex, s));
+    assertEquals(expected, matcher.findMatching(step));
+  }
+
+  private static boolean matches(@NotNull Map<String, Pattern> patterns, @NotNull String regex, @NotNull String step) {
+    Pattern pattern = patterns.get(regex);
+    return pattern != null && new Perl5Matcher().contains(step, pattern);
+  }
+
+  @NotNull
+  private static Map<String, Pattern> compile(@NotNull List<String> regexes) {
+    Map<String, Pattern> result = new HashMap<>();
+    Perl5Compiler compiler = new Perl5Compiler();
+    for (String regex : regexes) {
+      try {
+        result.put(regex, compiler.compile(regex, Perl5Compiler.CASE_INSENSITIVE_MASK));
+      }
+      catch (MalformedPatternException ignored) {
+      }
+    }
+    return result;
+  }
+}
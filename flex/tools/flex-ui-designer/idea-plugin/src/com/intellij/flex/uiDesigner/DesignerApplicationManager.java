@@ -352,7 +352,8 @@ public class DesignerApplicationManager {
     synchronized (initialRenderQueue) {
       final AtomicBoolean result = new AtomicBoolean();
       if (!initialRenderQueue.isEmpty()) {
-        initialRenderQueue.processActions(renderAction -> {
+        // coalesce with a queued action for the same kind of changes, the executing one has already collected its documents
+        initialRenderQueue.processPendingActions(renderAction -> {
           if (renderAction.file == null) {
             ComplexRenderAction action = (ComplexRenderAction)renderAction;
             if (onlyStyle == action.onlyStyle) {
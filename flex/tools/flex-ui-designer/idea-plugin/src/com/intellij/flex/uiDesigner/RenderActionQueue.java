@@ -18,36 +18,51 @@ import static com.intellij.flex.uiDesigner.DocumentFactoryManager.DocumentInfo;
 
 class RenderActionQueue implements Runnable {
   private final Queue<RenderAction> queue = new Queue<>(4);
+  // suspended and wasPending are guarded by queue
   private boolean suspended;
   // pending due to suspend
   private boolean wasPending;
 
   public void suspend() {
-    suspended = true;
+    synchronized (queue) {
+      suspended = true;
+    }
   }
 
   public void resume() {
-    suspended = false;
-    if (wasPending) {
+    final RenderAction renderAction;
+    synchronized (queue) {
+      suspended = false;
+      if (!wasPending) {
+        return;
+      }
       wasPending = false;
-      execute(queue.peekFirst());
+      renderAction = queue.peekFirst();
     }
+    execute(renderAction);
   }
 
   public void add(RenderAction renderAction) {
-    queue.addLast(renderAction);
-    if (queue.size() == 1) {
-      execute(renderAction);
+    synchronized (queue) {
+      queue.addLast(renderAction);
+      if (queue.size() != 1 || !canExecute()) {
+        return;
+      }
     }
+    execute(renderAction);
   }
 
-  private void execute(RenderAction renderAction) {
+  // must be called under queue lock, head action is either started by caller or marked as pending
+  private boolean canExecute() {
     if (suspended) {
       assert !wasPending;
       wasPending = true;
-      return;
+      return false;
     }
+    return true;
+  }
 
+  private void execute(RenderAction renderAction) {
     renderAction.result.doWhenProcessed(this);
     Application application = ApplicationManager.getApplication();
     boolean isDispatchThread = application.isDispatchThread();
@@ -71,10 +86,15 @@ class RenderActionQueue implements Runnable {
 
   @Override
   public void run() {
-    queue.pullFirst();
-    if (!queue.isEmpty()) {
-      execute(queue.peekFirst());
+    final RenderAction renderAction;
+    synchronized (queue) {
+      queue.pullFirst();
+      if (queue.isEmpty() || !canExecute()) {
+        return;
+      }
+      renderAction = queue.peekFirst();
     }
+    execute(renderAction);
   }
 
   public void processActions(Processor<RenderAction> processor) {
@@ -83,6 +103,17 @@ class RenderActionQueue implements Runnable {
     }
   }
 
+  /**
+   * Queued actions that may still be changed or merged into: the head action is already executing unless the queue is suspended.
+   */
+  public void processPendingActions(final Processor<RenderAction> processor) {
+    synchronized (queue) {
+      final boolean headStarted = !wasPending;
+      final int[] index = {0};
+      queue.process(action -> (headStarted && index[0]++ == 0) || processor.process(action));
+    }
+  }
+
   public AsyncResult<DocumentInfo> findResult(PsiFile psiFile) {
    return findResult(psiFile.getVirtualFile());
   }
@@ -1,6 +1,7 @@
 package com.intellij.flex.uiDesigner.libraries;
 
 import com.intellij.flex.uiDesigner.AssetCounter;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
@@ -8,6 +9,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.io.Info;
 
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
 public class Library extends Info<VirtualFile> {
@@ -24,6 +28,9 @@ public class Library extends Info<VirtualFile> {
   // en_US => {"layout", "components"}
   public final Map<String, THashSet<String>> resourceBundles = new THashMap<>();
 
+  private String contentHash;
+  private long contentHashStamp = -1;
+
   Library(@NotNull VirtualFile file) {
     super(file);
   }
@@ -62,6 +69,27 @@ public class Library extends Info<VirtualFile> {
     return element;
   }
 
+  /**
+   * catalog.xml lists the library.swf digest and the modification time of every definition,
+   * so its hash identifies the SWC content regardless of the file timestamp
+   */
+  @NotNull
+  String getContentHash() throws IOException {
+    final VirtualFile catalogFile = getCatalogFile();
+    if (contentHash == null || contentHashStamp != catalogFile.getModificationStamp()) {
+      final MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new IOException(e);
+      }
+      contentHash = StringUtil.toHexString(digest.digest(catalogFile.contentsToByteArray()));
+      contentHashStamp = catalogFile.getModificationStamp();
+    }
+    return contentHash;
+  }
+
   @Override
   public String toString() {
     return getFile().getNameWithoutExtension();
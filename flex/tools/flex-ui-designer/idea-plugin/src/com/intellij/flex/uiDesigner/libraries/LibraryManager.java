@@ -139,7 +139,7 @@ public class LibraryManager implements Disposable {
       librarySet = null;
     }
     else {
-      final String key = createKey(libraryCollector.externalLibraries, false);
+      final String key = createKey(libraryCollector.externalLibraries, "#" + flexLibrarySet.getId());
       librarySet = librarySets.get(key);
       if (librarySet == null) {
         final SortResult sortResult = sortLibraries(new LibrarySorter(), libraryCollector, flexLibrarySet.contains, key, false);
@@ -179,7 +179,7 @@ public class LibraryManager implements Disposable {
   }
 
   private FlexLibrarySet getOrCreateFlexLibrarySet(LibraryCollector libraryCollector, AssetCounter assetCounter) throws InitException {
-    final String key = createKey(libraryCollector.sdkLibraries, true);
+    final String key = createKey(libraryCollector.sdkLibraries, "_" + libraryCollector.getFlexSdkVersion());
     FlexLibrarySet flexLibrarySet = (FlexLibrarySet)librarySets.get(key);
     if (flexLibrarySet == null) {
       final Set<CharSequence> globalDefinitions = getGlobalDefinitions(libraryCollector.getGlobalLibrary());
@@ -216,27 +216,28 @@ public class LibraryManager implements Disposable {
     return globalDefinitions;
   }
 
-  private String createKey(List<Library> libraries, boolean isSdk) {
+  /**
+   * Key of the sorted and merged library set: content hashes of the libraries plus the definition filter applied to them,
+   * so touching SWC timestamps (checkout, cache restore) doesn't invalidate the persisted result.
+   * A content change of any library rebuilds the whole set: merged ABC shares one constant pool per set.
+   */
+  private String createKey(List<Library> libraries, String filterId) throws InitException {
     // we don't depend on library order
-    final VirtualFile[] files = new VirtualFile[libraries.size()];
-    for (int i = 0, librariesSize = libraries.size(); i < librariesSize; i++) {
-      files[i] = libraries.get(i).getFile();
-    }
-    
-    Arrays.sort(files, (o1, o2) -> StringUtil.compare(o1.getPath(), o2.getPath(), false));
-    
+    final Library[] sortedLibraries = libraries.toArray(new Library[libraries.size()]);
+    Arrays.sort(sortedLibraries, (o1, o2) -> StringUtil.compare(o1.getFile().getPath(), o2.getFile().getPath(), false));
+
     final StringBuilder stringBuilder = StringBuilderSpinAllocator.alloc();
     try {
-      if (isSdk) {
-        stringBuilder.append('_');
-      }
-
-      for (VirtualFile file : files) {
-        stringBuilder.append(file.getTimeStamp()).append(file.getPath()).append(':');
+      stringBuilder.append(filterId).append(':');
+      for (Library library : sortedLibraries) {
+        stringBuilder.append(library.getContentHash()).append(library.getFile().getPath()).append(':');
       }
 
       return stringBuilder.toString();
     }
+    catch (IOException e) {
+      throw new InitException(e, "error.sort.libraries");
+    }
     finally {
       StringBuilderSpinAllocator.dispose(stringBuilder);
     }
@@ -6,17 +6,22 @@ import com.intellij.flex.uiDesigner.abc.DecoderException;
 import com.intellij.flex.uiDesigner.abc.Encoder;
 import com.intellij.flex.uiDesigner.io.IOUtil;
 import com.intellij.openapi.util.Condition;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.intellij.flex.uiDesigner.libraries.Definition.ResolvedState;
 
@@ -36,21 +41,85 @@ public class LibrarySorter {
   }
 
   private static List<LibrarySetItem> collectItems(final List<Library> libraries, Map<CharSequence, Definition> definitionMap,
-                                                   Condition<String> isExternal) throws IOException {
-    final List<LibrarySetItem> items = new ArrayList<>(libraries.size());
+                                                   final Condition<String> isExternal) throws IOException {
+    // catalogs are independent, so parse them concurrently into per-library maps and merge them in library order
+    final ExecutorService executor = AppExecutorUtil.getAppExecutorService();
+    final List<LibrarySetItem> allItems = new ArrayList<>(libraries.size());
+    final List<Future<THashMap<CharSequence, Definition>>> catalogs = new ArrayList<>(libraries.size());
+    try {
+      for (Library library : libraries) {
+        final LibrarySetItem item = new LibrarySetItem(library);
+        allItems.add(item);
+        catalogs.add(executor.submit(() -> parseCatalog(item, isExternal)));
+      }
+
+      final List<LibrarySetItem> items = new ArrayList<>(libraries.size());
+      for (int i = 0, size = allItems.size(); i < size; i++) {
+        LibrarySetItem item = allItems.get(i);
+        mergeDefinitions(getCatalog(catalogs.get(i)), definitionMap);
+        if (item.hasDefinitions() || item.library.hasResourceBundles()) {
+          items.add(item);
+        }
+      }
+
+      return items;
+    }
+    finally {
+      // no-op for completed ones, drops not started ones if merging failed
+      for (Future<THashMap<CharSequence, Definition>> catalog : catalogs) {
+        catalog.cancel(false);
+      }
+    }
+  }
+
+  private static THashMap<CharSequence, Definition> parseCatalog(LibrarySetItem item, Condition<String> isExternal) throws IOException {
+    final THashMap<CharSequence, Definition> definitionMap = new THashMap<>(128, AbcTranscoder.HASHING_STRATEGY);
     final CatalogXmlBuilder catalogXmlBuilder = new CatalogXmlBuilder(definitionMap, isExternal);
-    for (Library library : libraries) {
-      LibrarySetItem item = new LibrarySetItem(library);
-      catalogXmlBuilder.setLibrary(item);
-      IOUtil.parseXml(library.getCatalogFile(), catalogXmlBuilder);
-      if (item.hasDefinitions() || library.hasResourceBundles()) {
-        items.add(item);
+    catalogXmlBuilder.setLibrary(item);
+    IOUtil.parseXml(item.library.getCatalogFile(), catalogXmlBuilder);
+    return definitionMap;
+  }
+
+  private static THashMap<CharSequence, Definition> getCatalog(Future<THashMap<CharSequence, Definition>> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      throw new ClosedByInterruptException();
+    }
+    catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
       }
+      throw new IOException(cause);
     }
+  }
+
+  // the same rule as CatalogXmlBuilder applies within one catalog: the definition with the latest modification time wins
+  private static void mergeDefinitions(THashMap<CharSequence, Definition> libraryDefinitions, final Map<CharSequence, Definition> definitionMap) {
+    libraryDefinitions.forEachEntry((name, definition) -> {
+      final Definition oldDefinition = definitionMap.get(name);
+      if (oldDefinition != null) {
+        if (definition.getTime() > oldDefinition.getTime()) {
+          oldDefinition.markAsUnresolved();
+        }
+        else {
+          definition.markAsUnresolved();
+          return true;
+        }
+      }
 
-    return items;
+      definitionMap.put(name, definition);
+      return true;
+    });
   }
 
+  /**
+   * Sorts and merges the whole set: catalogs are parsed concurrently, ABC filtering and merging into outFile is sequential,
+   * since character ids and the constant pool are shared by all libraries of the set. Nothing is reused from a previous
+   * sort of a set that differs in one library.
+   */
   public SortResult sort(List<Library> libraries, File outFile, Condition<String> isExternal, boolean returnDefinitionMap) throws IOException {
     final THashMap<CharSequence, Definition> definitionMap = new THashMap<>(libraries.size() * 128, AbcTranscoder.HASHING_STRATEGY);
     final List<LibrarySetItem> unsortedItems = collectItems(libraries, definitionMap, isExternal);
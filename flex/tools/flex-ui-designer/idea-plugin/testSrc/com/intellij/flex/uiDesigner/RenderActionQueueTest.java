@@ -0,0 +1,51 @@
+package com.intellij.flex.uiDesigner;
+
+import com.intellij.openapi.util.AsyncResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.intellij.flex.uiDesigner.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class RenderActionQueueTest {
+  @SuppressWarnings("unchecked")
+  @Test
+  public void pendingActionsOfSuspendedQueue() {
+    RenderActionQueue queue = new RenderActionQueue();
+    queue.suspend();
+
+    TestRenderAction first = new TestRenderAction();
+    TestRenderAction second = new TestRenderAction();
+    queue.add(first);
+    queue.add(second);
+
+    // head is not started while suspended, so it still may be merged into
+    final List<RenderActionQueue.RenderAction> visited = new ArrayList<>();
+    queue.processPendingActions(action -> {
+      visited.add(action);
+      return true;
+    });
+    assertThat(visited, contains((RenderActionQueue.RenderAction)first, second));
+    assertThat(first.runCount, 0);
+  }
+
+  private static class TestRenderAction extends RenderActionQueue.RenderAction<AsyncResult<Object>> {
+    private int runCount;
+
+    private TestRenderAction() {
+      super(null, null, new AsyncResult<>());
+    }
+
+    @Override
+    protected boolean isNeedEdt() {
+      return false;
+    }
+
+    @Override
+    protected void doRun() {
+      runCount++;
+    }
+  }
+}
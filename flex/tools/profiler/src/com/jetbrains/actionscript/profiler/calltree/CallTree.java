@@ -1,7 +1,6 @@
 package com.jetbrains.actionscript.profiler.calltree;
 
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
 import gnu.trove.THashSet;
 
@@ -23,7 +22,7 @@ public class CallTree {
   }
 
   public void addFrames(FrameInfo[] frames, long duration) {
-    root.addChildren(Arrays.asList(ArrayUtil.reverseArray(frames)), duration);
+    root.addFrames(frames, duration);
   }
 
   /*
@@ -86,9 +86,14 @@ class CallTreeNode implements FrameInfoProducer, FilePathProducer {
     return frameInfo.toString() + " (" + children.size() + ")";
   }
 
-  public void addChildren(List<FrameInfo> reversedFrames, long duration) {
+  /**
+   * Adds sample frames (innermost frame first, as they come from the agent) walking them from the outermost one,
+   * so no reversed copy of the array is needed per sample.
+   */
+  public void addFrames(FrameInfo[] frames, long duration) {
     CallTreeNode node = this;
-    for (FrameInfo frame : reversedFrames) {
+    for (int i = frames.length - 1; i >= 0; --i) {
+      final FrameInfo frame = frames[i];
       CallTreeNode child = node.findChildByName(frame);
       if (child == null) {
         child = new CallTreeNode(frame, 0);
@@ -5,11 +5,8 @@ import com.jetbrains.actionscript.profiler.calltree.CallTree;
 import com.jetbrains.actionscript.profiler.livetable.LiveModelController;
 import com.jetbrains.actionscript.profiler.sampler.CreateObjectSample;
 import com.jetbrains.actionscript.profiler.sampler.Sample;
-
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
+import gnu.trove.TIntHashSet;
+import gnu.trove.TIntObjectHashMap;
 
 /**
  * @author: Fedor.Korotkov
@@ -20,17 +17,27 @@ public class ProfileData {
   public static final Key<ProfilingManager> PROFILING_MANAGER = Key.create("ASProfilingManager");
 
   private CallTree callTree = new CallTree();
-  private final Map<Integer, CreateObjectSample> objects = new HashMap<>();
-  private final Map<Integer, Set<Integer>> references = new LinkedHashMap<>(50);
+  // live objects and references are keyed by agent object ids, keep them in open addressing maps without boxing
+  private final TIntObjectHashMap<CreateObjectSample> objects = new TIntObjectHashMap<>();
+  private final TIntObjectHashMap<TIntHashSet> references = new TIntObjectHashMap<>(50);
 
   public CallTree getCallTree() {
     return callTree;
   }
 
-  public Map<Integer, Set<Integer>> getReferences() {
+  public TIntObjectHashMap<TIntHashSet> getReferences() {
     return references;
   }
 
+  public void addReference(int pid, int id) {
+    TIntHashSet ids = references.get(pid);
+    if (ids == null) {
+      ids = new TIntHashSet(3);
+      references.put(pid, ids);
+    }
+    ids.add(id);
+  }
+
   public void putNewObject(int id, CreateObjectSample sample) {
     objects.put(id, sample);
   }
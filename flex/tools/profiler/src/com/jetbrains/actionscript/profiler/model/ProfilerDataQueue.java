@@ -0,0 +1,109 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands samples decoded on the socket reading thread over to a single aggregating thread.
+ * The queue is bounded: when aggregation falls behind, the reader blocks instead of buffering an unbounded backlog.
+ */
+class ProfilerDataQueue {
+  private static final Logger LOG = Logger.getInstance(ProfilerDataQueue.class.getName());
+  private static final int DEFAULT_CAPACITY = 16 * 1024;
+  private static final long POLL_INTERVAL_MS = 100;
+  private static final Runnable STOP = () -> {
+  };
+
+  private final BlockingQueue<Runnable> myQueue;
+  private boolean myStarted;
+  private volatile boolean myStopped;
+
+  ProfilerDataQueue() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  ProfilerDataQueue(int capacity) {
+    myQueue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  synchronized void start() {
+    if (myStarted) return;
+    myStarted = true;
+    ApplicationManager.getApplication().executeOnPooledThread(this::drain);
+  }
+
+  /**
+   * Blocks while the queue is full.
+   *
+   * @return false if the task is rejected because the queue is stopped
+   */
+  boolean post(Runnable task) {
+    try {
+      while (!myStopped) {
+        if (myQueue.offer(task, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * Blocks until everything posted before this call has been aggregated, or the queue is stopped.
+   */
+  void flush() {
+    final CountDownLatch latch = new CountDownLatch(1);
+    if (!post(latch::countDown)) return;
+    try {
+      while (!latch.await(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        if (myStopped) return;
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  void stop() {
+    myStopped = true;
+    // the aggregating thread may be blocked in take(), wake it up; if the queue is full it will see the flag anyway
+    myQueue.offer(STOP);
+  }
+
+  private void drain() {
+    final List<Runnable> batch = new ArrayList<>();
+    try {
+      while (!myStopped) {
+        batch.add(myQueue.take());
+        myQueue.drainTo(batch);
+        for (Runnable task : batch) {
+          if (task == STOP) return;
+          try {
+            task.run();
+          }
+          catch (Throwable t) {
+            LOG.error(t);
+          }
+        }
+        batch.clear();
+      }
+    }
+    catch (InterruptedException ignored) {
+    }
+    finally {
+      // nobody takes from the queue anymore, don't let posting threads wait for room
+      myStopped = true;
+      myQueue.clear();
+    }
+  }
+}
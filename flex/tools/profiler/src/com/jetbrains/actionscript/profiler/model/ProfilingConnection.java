@@ -5,6 +5,7 @@ import com.intellij.lang.javascript.psi.JSCommonTypeNames;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.jetbrains.actionscript.profiler.sampler.*;
+import gnu.trove.TIntObjectHashMap;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
@@ -23,6 +24,7 @@ public class ProfilingConnection {
   private DataInputStream myInputStream;
   private PacketProcessor myCurrentPacketProcessor;
   private final Map<String, PacketProcessor> myInitialString2ProcessorsMap = new HashMap<>();
+  private final ProfilerDataQueue myDataQueue = new ProfilerDataQueue();
   private final Callback myIoHandler;
   private final int myPort;
   private static final int ourAgentVersion = 4;
@@ -36,7 +38,7 @@ public class ProfilingConnection {
       new PolicyFileRequestProcessor(port)
     );
 
-    BatchSamplesProcessor samplesProcessor = new BatchSamplesProcessor(sampleProcessor);
+    BatchSamplesProcessor samplesProcessor = new BatchSamplesProcessor(sampleProcessor, myDataQueue);
     myInitialString2ProcessorsMap.put(
       BatchSamplesProcessor.BATCH_MARKER,
       samplesProcessor
@@ -69,7 +71,7 @@ public class ProfilingConnection {
 
     myInitialString2ProcessorsMap.put(
       SampleInfoProcessor.COMMAND_MARKER,
-      new SampleInfoProcessor(sampleProcessor)
+      new SampleInfoProcessor(sampleProcessor, myDataQueue)
     );
 
     myIoHandler = ioHandler;
@@ -86,6 +88,7 @@ public class ProfilingConnection {
       myOutputStream = socket.getOutputStream();
       myServerSocket.close();
       myServerSocket = null;
+      myDataQueue.start();
       myIoHandler.finished("Connection established", null);
     }
     catch (IOException ex) {
@@ -223,6 +226,7 @@ public class ProfilingConnection {
     if (myDisposed) return;
     myAbortingSocketConnection = true;
     myDisposed = true;
+    myDataQueue.stop();
     if (myServerSocket != null) myServerSocket.close();
     if (myOutputStream != null) myOutputStream.close();
     if (myInputStream != null) myInputStream.close();
@@ -276,11 +280,13 @@ public class ProfilingConnection {
     private static final String DELETE_OBJECT_SAMPLE_MARKER = "d\0";
 
     private final ProfilerDataConsumer mySampleProcessor;
+    private final ProfilerDataQueue myDataQueue;
 
     private long sampleDuration = -1;
     private int frameIndex;
 
-    private final Map<String, String> dictionary = new HashMap<>(1000);
+    // agent sends a frame string once and refers to it by its ordinal later, keep the built frame under that id
+    private final TIntObjectHashMap<FrameInfo> frameDictionary = new TIntObjectHashMap<>(1000);
     private final Map<String, String> typeDictionary = new HashMap<>(1000);
     private FrameInfo[] frames;
     private String type;
@@ -292,8 +298,9 @@ public class ProfilingConnection {
     private Sample lastCreateObjectSample;
     private final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
 
-    public BatchSamplesProcessor(ProfilerDataConsumer sampleProcessor) {
+    public BatchSamplesProcessor(ProfilerDataConsumer sampleProcessor, ProfilerDataQueue dataQueue) {
       this.mySampleProcessor = sampleProcessor;
+      this.myDataQueue = dataQueue;
     }
 
     @Override
@@ -336,14 +343,16 @@ public class ProfilingConnection {
           }
         }
         else {
+          FrameInfo frame;
           if (Character.isDigit(ch)) {
-            output = dictionary.get(output);
+            frame = frameDictionary.get(Integer.parseInt(output));
           }
           else {
-            dictionary.put("" + (dictionary.size() + 1), output);
+            frame = frameInfoBuilder.buildInstance(output);
+            frameDictionary.put(frameDictionary.size() + 1, frame);
           }
 
-          frames[frameIndex++] = frameInfoBuilder.buildInstance(output);
+          frames[frameIndex++] = frame;
         }
         return maybeFinishSample();
       }
@@ -384,7 +393,7 @@ public class ProfilingConnection {
           final int size = endIndex2 != specialArgs.length() ? Integer.parseInt(specialArgs.substring(endIndex2 + 1)) : 0;
           if (type != null) {
             type = getClassName(type);
-            mySampleProcessor.process(new DeleteObjectSample(sampleDuration, frames, id, type, size));
+            post(new DeleteObjectSample(sampleDuration, frames, id, type, size));
           }
           return ProcessingResult.FINISHED;
         }
@@ -393,7 +402,7 @@ public class ProfilingConnection {
           sample = new Sample(sampleDuration, frames);
           lastCpuSample = sample;
         }
-        mySampleProcessor.process(sample);
+        post(sample);
         frameIndex = -1;
         return ProcessingResult.FINISHED;
       }
@@ -402,6 +411,10 @@ public class ProfilingConnection {
       }
     }
 
+    private void post(final Sample sample) {
+      myDataQueue.post(() -> mySampleProcessor.process(sample));
+    }
+
     private String getClassName(String className) {
       if (Character.isDigit(className.charAt(0))) {
         className = typeDictionary.get(className);
@@ -432,7 +445,7 @@ public class ProfilingConnection {
     }
 
     private void clearProfilingState() {
-      dictionary.clear();
+      frameDictionary.clear();
       typeDictionary.clear();
       lastCpuSample = null;
       lastCreateObjectSample = null;
@@ -450,6 +463,8 @@ public class ProfilingConnection {
       synchronized (myOutputStream) {
         callback = callbacks.removeFirst();
       }
+      // command results (e.g. stop profiling) must observe every sample received before them
+      myDataQueue.flush();
       callback.finished(output, null);
       return ProcessingResult.FINISHED;
     }
@@ -473,9 +488,11 @@ public class ProfilingConnection {
   private static class SampleInfoProcessor extends PacketProcessor {
     public static final String COMMAND_MARKER = "si\0";
     private final ProfilerDataConsumer myDataConsumer;
+    private final ProfilerDataQueue myDataQueue;
 
-    SampleInfoProcessor(ProfilerDataConsumer dataConsumer) {
+    SampleInfoProcessor(ProfilerDataConsumer dataConsumer, ProfilerDataQueue dataQueue) {
       myDataConsumer = dataConsumer;
+      myDataQueue = dataQueue;
     }
 
     @Override
@@ -487,13 +504,13 @@ public class ProfilingConnection {
       }
 
       int i = output.indexOf(',');
-      int id = Integer.parseInt(output.substring(0, i));
+      final int id = Integer.parseInt(output.substring(0, i));
 
       while (i != -1) {
         int nextI = output.indexOf(',', i + 1);
         if (nextI == -1) nextI = output.length();
-        int nextId = Integer.parseInt(output.substring(i + 1, nextI));
-        myDataConsumer.referenced(id, nextId);
+        final int nextId = Integer.parseInt(output.substring(i + 1, nextI));
+        myDataQueue.post(() -> myDataConsumer.referenced(id, nextId));
         if (nextI == output.length()) break;
         i = nextI;
       }
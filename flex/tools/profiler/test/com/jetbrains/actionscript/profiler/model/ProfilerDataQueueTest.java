@@ -0,0 +1,61 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProfilerDataQueueTest extends LightCodeInsightFixtureTestCase {
+  public void testFlushWaitsForPostedTasks() {
+    ProfilerDataQueue queue = new ProfilerDataQueue(4);
+    queue.start();
+    AtomicInteger processed = new AtomicInteger();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(queue.post(processed::incrementAndGet));
+    }
+    queue.flush();
+    assertEquals(100, processed.get());
+    queue.stop();
+  }
+
+  public void testPostAndFlushAfterStop() {
+    ProfilerDataQueue queue = new ProfilerDataQueue(4);
+    queue.start();
+    queue.stop();
+    assertFalse(queue.post(() -> fail("Must not run after stop")));
+    queue.flush();
+  }
+
+  public void testStopReleasesBlockedPostAndFlush() throws Exception {
+    ProfilerDataQueue queue = new ProfilerDataQueue(1);
+    queue.start();
+    CountDownLatch aggregating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    queue.post(() -> {
+      aggregating.countDown();
+      awaitQuietly(release);
+    });
+    assertTrue(aggregating.await(10, TimeUnit.SECONDS));
+    // the aggregating thread is busy and the queue is full: both calls block
+    queue.post(() -> {});
+    Future<?> post = ApplicationManager.getApplication().executeOnPooledThread(() -> queue.post(() -> {}));
+    Future<?> flush = ApplicationManager.getApplication().executeOnPooledThread(queue::flush);
+
+    queue.stop();
+    post.get(10, TimeUnit.SECONDS);
+    flush.get(10, TimeUnit.SECONDS);
+    release.countDown();
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
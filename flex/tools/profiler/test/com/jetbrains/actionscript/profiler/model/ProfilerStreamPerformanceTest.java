@@ -0,0 +1,77 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.jetbrains.actionscript.profiler.calltree.CallTree;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ProfilerStreamPerformanceTest extends LightCodeInsightFixtureTestCase {
+  private static final int SAMPLES = 200000;
+  private static final int METHODS = 500;
+  private static final int MAX_DEPTH = 30;
+
+  public void testSampleStream() {
+    final List<String> stream = recordStream();
+    PlatformTestUtil.startPerformanceTest("Profiler sample stream", 5000, () -> {
+      ProfilerDataConsumer consumer = new ProfilerDataConsumer(null);
+      replay(stream, consumer);
+      CallTree callTree = consumer.getProfileData().getCallTree();
+      Map<FrameInfo, Long> cumulative = callTree.getTimeMaps().getFirst();
+      assertEquals(METHODS, cumulative.size());
+    }).assertTiming();
+  }
+
+  private static void replay(List<String> stream, ProfilerDataConsumer consumer) {
+    ProfilerDataQueue queue = new ProfilerDataQueue(1024);
+    queue.start();
+    ProfilingConnection.BatchSamplesProcessor processor = new ProfilingConnection.BatchSamplesProcessor(consumer, queue);
+    boolean inPacket = false;
+    try {
+      for (String line : stream) {
+        if (!inPacket) {
+          processor.startingPacket(line);
+          inPacket = true;
+        }
+        inPacket = processor.process(line) == ProfilingConnection.PacketProcessor.ProcessingResult.CONTINUE;
+      }
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    queue.flush();
+    queue.stop();
+  }
+
+  /**
+   * Emulates what the agent sends: a frame string is sent in full once and by its ordinal afterwards.
+   */
+  private static List<String> recordStream() {
+    List<String> result = new ArrayList<>();
+    boolean[] sent = new boolean[METHODS];
+    int[] ordinals = new int[METHODS];
+    int nextOrdinal = 1;
+    result.add("b\0");
+    for (int sample = 0; sample < SAMPLES; sample++) {
+      int depth = 1 + sample % MAX_DEPTH;
+      boolean allocation = sample % 4 == 0;
+      result.add(allocation ? "c\0" + depth + " " + sample + " com.foo::Allocated 16" : "s\0" + (1 + sample % 7) + " " + depth);
+      for (int frame = 0; frame < depth; frame++) {
+        int method = (sample * 31 + frame * 17) % METHODS;
+        if (sent[method]) {
+          result.add(String.valueOf(ordinals[method]));
+        }
+        else {
+          sent[method] = true;
+          ordinals[method] = nextOrdinal++;
+          result.add("com.foo::Class" + method + "/method" + method + "()[src;com/foo;Class" + method + ".as:" + method + "]");
+        }
+      }
+      if (sample % 1000 == 999) result.add("b\0");
+    }
+    return result;
+  }
+}
@@ -5,19 +5,27 @@ import com.intellij.coverage.CoverageSuitesBundle;
 import com.intellij.coverage.SimpleCoverageAnnotator;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiDirectory;
+import com.intellij.rt.coverage.data.ClassData;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.Map;
 
 /**
  * @author Sergey Simonchik
  */
 public class KarmaCoverageAnnotator extends SimpleCoverageAnnotator {
 
+  private final Map<String, Pair<KarmaLcovParser.FileLineHits, FileCoverageInfo>> myCoveredFileInfos = ContainerUtil.newConcurrentMap();
+
   public KarmaCoverageAnnotator(Project project) {
     super(project);
+    Disposer.register(project, myCoveredFileInfos::clear);
   }
 
   public static KarmaCoverageAnnotator getInstance(@NotNull Project project) {
@@ -29,6 +37,47 @@ public class KarmaCoverageAnnotator extends SimpleCoverageAnnotator {
     return false;
   }
 
+  /**
+   * Keeps infos of files whose line hits are still the same in the latest report, forgets the rest.
+   */
+  @Override
+  public void onSuiteChosen(CoverageSuitesBundle newSuite) {
+    super.onSuiteChosen(newSuite);
+    if (newSuite == null) {
+      myCoveredFileInfos.clear();
+      return;
+    }
+    KarmaCoverageRunner runner = KarmaCoverageRunner.getInstance();
+    myCoveredFileInfos.entrySet().removeIf(entry -> entry.getValue().first != runner.getLineHits(entry.getKey()));
+  }
+
+  /**
+   * Reuses the info computed for the same line hits: {@link KarmaCoverageRunner} keeps line hits of files
+   * whose coverage hasn't changed since the previous run. Line hits are those the annotated class data
+   * was created from, so any suite, not only the latest one, gets its own info.
+   */
+  @Override
+  @Nullable
+  protected FileCoverageInfo fileInfoForCoveredFile(@NotNull ClassData classData) {
+    String path = classData.getName();
+    KarmaLcovParser.FileLineHits lineHits = KarmaCoverageRunner.getInstance().getLineHitsOf(classData.getLines());
+    if (lineHits == null) {
+      return super.fileInfoForCoveredFile(classData);
+    }
+    Pair<KarmaLcovParser.FileLineHits, FileCoverageInfo> cached = myCoveredFileInfos.get(path);
+    if (cached != null && cached.first == lineHits) {
+      return cached.second;
+    }
+    FileCoverageInfo info = super.fileInfoForCoveredFile(classData);
+    if (info != null) {
+      myCoveredFileInfos.put(path, Pair.create(lineHits, info));
+    }
+    else {
+      myCoveredFileInfos.remove(path);
+    }
+    return info;
+  }
+
   @Override
   @Nullable
   protected FileCoverageInfo fillInfoForUncoveredFile(@NotNull File file) {
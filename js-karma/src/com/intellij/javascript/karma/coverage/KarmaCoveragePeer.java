@@ -1,14 +1,15 @@
 package com.intellij.javascript.karma.coverage;
 
-import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.intellij.javascript.karma.server.KarmaServer;
-import com.intellij.javascript.karma.server.StreamEventHandler;
+import com.intellij.javascript.karma.server.TypedStreamEventHandler;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.ObjectUtils;
-import com.intellij.webcore.util.JsonUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -47,19 +48,28 @@ public class KarmaCoveragePeer {
   }
 
   public void registerEventHandlers(@NotNull final KarmaServer server) {
-    server.registerStreamEventHandler(new StreamEventHandler() {
+    server.registerStreamEventHandler(new TypedStreamEventHandler<String>() {
       @NotNull
       @Override
       public String getEventType() {
         return "coverageFinished";
       }
 
+      @Nullable
       @Override
-      public void handle(@NotNull JsonElement eventBody) {
+      protected String decode(@NotNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+          return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+      }
+
+      @Override
+      protected void handleEvent(@Nullable String path) {
         KarmaCoverageSession coverageSession = myActiveCoverageSession;
         myActiveCoverageSession = null;
         if (coverageSession != null) {
-          String path = JsonUtil.getString(eventBody);
           if (path != null) {
             File file = new File(path);
             if (file.isAbsolute() && file.isFile()) {
@@ -3,13 +3,9 @@ package com.intellij.javascript.karma.coverage;
 import com.intellij.coverage.CoverageEngine;
 import com.intellij.coverage.CoverageRunner;
 import com.intellij.coverage.CoverageSuite;
-import com.intellij.coverage.SimpleCoverageAnnotator;
 import com.intellij.javascript.karma.KarmaConfig;
 import com.intellij.javascript.karma.server.KarmaServer;
-import com.intellij.javascript.testFramework.coverage.CoverageSerializationUtils;
-import com.intellij.javascript.testFramework.coverage.LcovCoverageReport;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.rt.coverage.data.ClassData;
 import com.intellij.rt.coverage.data.LineData;
 import com.intellij.rt.coverage.data.ProjectData;
 import com.intellij.util.ObjectUtils;
@@ -18,13 +14,20 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 public class KarmaCoverageRunner extends CoverageRunner {
 
   private static final Logger LOG = Logger.getInstance(KarmaCoverageRunner.class);
   private KarmaServer myKarmaServer;
+  private final Object myLock = new Object();
+  private File myLastBasePath;
+  private Map<String, KarmaLcovParser.FileLineHits> myLastFiles = Collections.emptyMap();
+  // line hits each line data array was created from, arrays are compared by identity and forgotten with their project data
+  private final Map<Object[], KarmaLcovParser.FileLineHits> myLinesSources = new WeakHashMap<>();
 
   @NotNull
   public static KarmaCoverageRunner getInstance() {
@@ -59,28 +62,83 @@ public class KarmaCoverageRunner extends CoverageRunner {
     myKarmaServer = karmaServer;
   }
 
+  /**
+   * Builds project data from the report. Line hits of files that are the same as in the previous report
+   * with the same base path are kept, so {@link #getLineHits(String)} returns the same instance for them:
+   * in watch mode only a few files usually change between runs.
+   * Every project data gets its own line data, nothing is shared between runs: line data of merged suites are
+   * updated in place.
+   */
   @NotNull
-  private static ProjectData readProjectData(@NotNull File dataFile, @NotNull File basePath) throws IOException {
-    ProjectData projectData = new ProjectData();
-    LcovCoverageReport report = CoverageSerializationUtils.readLCOV(basePath, dataFile);
-    for (Map.Entry<String, List<LcovCoverageReport.LineHits>> entry : report.getInfo().entrySet()) {
-      String filePath = entry.getKey();
-      ClassData classData = projectData.getOrCreateClassData(filePath);
-      int max = 0;
-      List<LcovCoverageReport.LineHits> lineHitsList = entry.getValue();
-      if (lineHitsList.size() > 0) {
-        LcovCoverageReport.LineHits lastLineHits = lineHitsList.get(lineHitsList.size() - 1);
-        max = lastLineHits.getLineNumber();
+  ProjectData readProjectData(@NotNull File dataFile, @NotNull File basePath) throws IOException {
+    Map<String, KarmaLcovParser.FileLineHits> report = KarmaLcovParser.parse(dataFile, basePath);
+    synchronized (myLock) {
+      Map<String, KarmaLcovParser.FileLineHits> previous = basePath.equals(myLastBasePath)
+                                                           ? myLastFiles
+                                                           : Collections.emptyMap();
+      Map<String, KarmaLcovParser.FileLineHits> current = new HashMap<>(report.size());
+      ProjectData projectData = new ProjectData();
+      int changed = 0;
+      for (Map.Entry<String, KarmaLcovParser.FileLineHits> entry : report.entrySet()) {
+        String filePath = entry.getKey();
+        KarmaLcovParser.FileLineHits lineHits = entry.getValue();
+        KarmaLcovParser.FileLineHits previousLineHits = previous.get(filePath);
+        if (lineHits.equals(previousLineHits)) {
+          lineHits = previousLineHits;
+        }
+        else {
+          changed++;
+        }
+        current.put(filePath, lineHits);
+        LineData[] lines = createLines(lineHits);
+        myLinesSources.put(lines, lineHits);
+        projectData.getOrCreateClassData(filePath).setLines(lines);
       }
-      LineData[] lines = new LineData[max + 1];
-      for (LcovCoverageReport.LineHits lineHits : lineHitsList) {
-        LineData lineData = new LineData(lineHits.getLineNumber(), null);
-        lineData.setHits(lineHits.getHits());
-        lines[lineHits.getLineNumber()] = lineData;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Karma coverage: " + changed + " of " + report.size() + " files changed");
+      }
+      myLastBasePath = basePath;
+      myLastFiles = current;
+      return projectData;
+    }
+  }
+
+  /**
+   * @return line hits of the file in the last loaded report, the same instance as long as they don't change
+   */
+  @Nullable
+  KarmaLcovParser.FileLineHits getLineHits(@NotNull String filePath) {
+    synchronized (myLock) {
+      return myLastFiles.get(filePath);
+    }
+  }
+
+  /**
+   * @param lines line data array of a class data loaded by this runner
+   * @return line hits the array was created from, null if the array wasn't created by this runner (e.g. merged suites)
+   */
+  @Nullable
+  KarmaLcovParser.FileLineHits getLineHitsOf(@Nullable Object[] lines) {
+    if (lines == null) {
+      return null;
+    }
+    synchronized (myLock) {
+      return myLinesSources.get(lines);
+    }
+  }
+
+  @NotNull
+  private static LineData[] createLines(@NotNull KarmaLcovParser.FileLineHits lineHits) {
+    int maxLine = lineHits.getMaxLine();
+    LineData[] lines = new LineData[Math.max(maxLine, 0) + 1];
+    for (int line = 0; line <= maxLine; line++) {
+      if (lineHits.isExecutable(line)) {
+        LineData lineData = new LineData(line, null);
+        lineData.setHits(lineHits.getHits(line));
+        lines[line] = lineData;
       }
-      classData.setLines(lines);
     }
-    return projectData;
+    return lines;
   }
 
   @Override
@@ -0,0 +1,177 @@
+package com.intellij.javascript.karma.coverage;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads an lcov.info report line by line, keeping line hits of every source file in a primitive array.
+ * Only {@code SF}, {@code DA} and {@code end_of_record} records are taken into account.
+ */
+public class KarmaLcovParser {
+
+  private static final String SOURCE_FILE_PREFIX = "SF:";
+  private static final String LINE_HIT_PREFIX = "DA:";
+  private static final String END_OF_RECORD = "end_of_record";
+
+  private KarmaLcovParser() {}
+
+  /**
+   * @param basePath directory relative source file paths are resolved against
+   * @return system-independent canonical file path to its line hits, in the order of the report
+   */
+  @NotNull
+  public static Map<String, FileLineHits> parse(@NotNull File lcovFile, @NotNull File basePath) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lcovFile), StandardCharsets.UTF_8))) {
+      return parse(reader, basePath);
+    }
+  }
+
+  @NotNull
+  static Map<String, FileLineHits> parse(@NotNull BufferedReader reader, @NotNull File basePath) throws IOException {
+    Map<String, FileLineHits> result = new LinkedHashMap<>();
+    Map<String, String> resolvedPaths = new HashMap<>();
+    FileLineHits current = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.startsWith(LINE_HIT_PREFIX)) {
+        if (current != null) {
+          addLineHits(current, line);
+        }
+      }
+      else if (line.startsWith(SOURCE_FILE_PREFIX)) {
+        String path = resolvedPaths.computeIfAbsent(line.substring(SOURCE_FILE_PREFIX.length()).trim(),
+                                                    sourcePath -> resolvePath(sourcePath, basePath));
+        current = result.get(path);
+        if (current == null) {
+          current = new FileLineHits();
+          result.put(path, current);
+        }
+      }
+      else if (END_OF_RECORD.equals(line.trim())) {
+        current = null;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Resolves symlinks and {@code ..} the same way for every record, so all records of a file end up under one key.
+   */
+  @NotNull
+  private static String resolvePath(@NotNull String path, @NotNull File basePath) {
+    File file = new File(path);
+    if (!file.isAbsolute()) {
+      file = new File(basePath, path);
+    }
+    try {
+      return FileUtil.toSystemIndependentName(file.getCanonicalPath());
+    }
+    catch (IOException e) {
+      return FileUtil.toCanonicalPath(FileUtil.toSystemIndependentName(file.getAbsolutePath()));
+    }
+  }
+
+  /**
+   * Parses {@code DA:<line number>,<execution count>[,<checksum>]} without splitting the line.
+   */
+  private static void addLineHits(@NotNull FileLineHits lineHits, @NotNull String line) throws IOException {
+    int commaInd = line.indexOf(',', LINE_HIT_PREFIX.length());
+    if (commaInd < 0) {
+      throw new IOException("Malformed line hits: " + line);
+    }
+    int hitsEnd = line.indexOf(',', commaInd + 1);
+    if (hitsEnd < 0) {
+      hitsEnd = line.length();
+    }
+    int lineNumber = parseInt(line, LINE_HIT_PREFIX.length(), commaInd);
+    int hits = parseInt(line, commaInd + 1, hitsEnd);
+    if (lineNumber < 0 || hits < 0) {
+      throw new IOException("Malformed line hits: " + line);
+    }
+    lineHits.add(lineNumber, hits);
+  }
+
+  private static int parseInt(@NotNull String text, int start, int end) {
+    if (start >= end) {
+      return -1;
+    }
+    long result = 0;
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+      if (result > Integer.MAX_VALUE) {
+        // huge execution counts are possible for hot lines
+        result = Integer.MAX_VALUE;
+      }
+    }
+    return (int)result;
+  }
+
+  /**
+   * Line hits of a source file: {@code getHits(line)} is -1 for lines without executable code.
+   */
+  public static class FileLineHits {
+    private static final int NOT_EXECUTABLE = -1;
+
+    private int[] myHits = new int[0];
+    private int myMaxLine = -1;
+
+    void add(int lineNumber, int hits) {
+      if (lineNumber >= myHits.length) {
+        int oldLength = myHits.length;
+        myHits = Arrays.copyOf(myHits, Math.max(lineNumber + 1, oldLength * 2));
+        Arrays.fill(myHits, oldLength, myHits.length, NOT_EXECUTABLE);
+      }
+      int prev = myHits[lineNumber];
+      myHits[lineNumber] = prev == NOT_EXECUTABLE ? hits : (int)Math.min((long)prev + hits, Integer.MAX_VALUE);
+      myMaxLine = Math.max(myMaxLine, lineNumber);
+    }
+
+    /**
+     * @return the largest line number with executable code, -1 if there are no such lines
+     */
+    public int getMaxLine() {
+      return myMaxLine;
+    }
+
+    public int getHits(int lineNumber) {
+      return lineNumber <= myMaxLine ? myHits[lineNumber] : NOT_EXECUTABLE;
+    }
+
+    public boolean isExecutable(int lineNumber) {
+      return getHits(lineNumber) != NOT_EXECUTABLE;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) return true;
+      if (!(o instanceof FileLineHits)) return false;
+      FileLineHits other = (FileLineHits)o;
+      if (myMaxLine != other.myMaxLine) return false;
+      for (int i = 0; i <= myMaxLine; i++) {
+        if (myHits[i] != other.myHits[i]) return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = myMaxLine;
+      for (int i = 0; i <= myMaxLine; i++) {
+        result = 31 * result + myHits[i];
+      }
+      return result;
+    }
+  }
+}
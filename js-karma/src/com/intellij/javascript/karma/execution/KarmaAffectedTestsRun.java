@@ -0,0 +1,154 @@
+package com.intellij.javascript.karma.execution;
+
+import com.intellij.javascript.karma.KarmaConfig;
+import com.intellij.javascript.karma.scope.KarmaImportGraph;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Run of {@link com.intellij.javascript.karma.scope.KarmaScopeKind#AFFECTED_TESTS} scope: selects test files
+ * reachable in the import graph from files changed since the last successful run of the configuration.
+ */
+class KarmaAffectedTestsRun {
+
+  private static final Logger LOG = Logger.getInstance(KarmaAffectedTestsRun.class);
+  private static final ConcurrentMap<File, KarmaImportGraph> ourGraphs = ContainerUtil.newConcurrentMap();
+
+  private final KarmaImportGraph myGraph;
+  private final File myStorageFile;
+  private final Map<String, KarmaImportGraph.FileStamp> myStamps;
+  private final List<String> myAffectedTestFiles;
+  private final int myTestFileCount;
+
+  private KarmaAffectedTestsRun(@NotNull KarmaImportGraph graph,
+                                @NotNull File storageFile,
+                                @NotNull Map<String, KarmaImportGraph.FileStamp> stamps,
+                                @Nullable List<String> affectedTestFiles,
+                                int testFileCount) {
+    myGraph = graph;
+    myStorageFile = storageFile;
+    myStamps = stamps;
+    myAffectedTestFiles = affectedTestFiles;
+    myTestFileCount = testFileCount;
+  }
+
+  @NotNull
+  static KarmaAffectedTestsRun prepare(@NotNull Project project,
+                                       @NotNull KarmaRunSettings runSettings,
+                                       @Nullable KarmaConfig config) {
+    File configFile = new File(runSettings.getConfigPath());
+    File root = getRoot(configFile, config);
+    File storageFile = new File(PathManager.getSystemPath(), "karma/affected-tests/" +
+                                                            FileUtil.sanitizeFileName(configFile.getName()) + "." +
+                                                            Integer.toHexString(FileUtil.pathHashCode(configFile.getPath())));
+    KarmaImportGraph graph = ourGraphs.computeIfAbsent(storageFile, file -> KarmaImportGraph.load(file, root));
+    if (!graph.getRoot().equals(root)) {
+      graph = new KarmaImportGraph(root);
+      ourGraphs.put(storageFile, graph);
+    }
+    KarmaImportGraph finalGraph = graph;
+    KarmaAffectedTestsRun[] result = new KarmaAffectedTestsRun[1];
+    Runnable computation = () -> {
+      synchronized (finalGraph) {
+        long start = System.currentTimeMillis();
+        int reread = finalGraph.update(LocalFileSystem.getInstance().refreshAndFindFileByIoFile(root));
+        Set<String> changedFiles = finalGraph.getChangedFilesSinceGreenRun();
+        List<String> affected = changedFiles != null ? finalGraph.findAffectedTestFiles(changedFiles) : null;
+        int testFileCount = finalGraph.getTestFiles().size();
+        LOG.info("Karma affected tests: " + reread + " files re-read, " +
+                 (changedFiles != null ? changedFiles.size() + " changed" : "no successful run yet") +
+                 ", " + (System.currentTimeMillis() - start) + " ms");
+        result[0] = new KarmaAffectedTestsRun(finalGraph, storageFile, finalGraph.getStamps(), affected, testFileCount);
+      }
+    };
+    if (ApplicationManager.getApplication().isDispatchThread()) {
+      ProgressManager.getInstance().runProcessWithProgressSynchronously(computation, "Finding Affected Karma Tests", false, project);
+    }
+    else {
+      computation.run();
+    }
+    return result[0];
+  }
+
+  @NotNull
+  private static File getRoot(@NotNull File configFile, @Nullable KarmaConfig config) {
+    String basePath = config != null ? config.getBasePath() : null;
+    if (basePath != null) {
+      File basePathDir = new File(basePath);
+      if (basePathDir.isAbsolute() && basePathDir.isDirectory()) {
+        return basePathDir;
+      }
+    }
+    return configFile.getAbsoluteFile().getParentFile();
+  }
+
+  /**
+   * @return absolute paths of test files to run, or null if all tests should run
+   */
+  @Nullable
+  List<File> getAffectedTestFiles() {
+    if (myAffectedTestFiles == null) {
+      return null;
+    }
+    return ContainerUtil.map(myAffectedTestFiles, path -> new File(myGraph.getRoot(), path));
+  }
+
+  @NotNull
+  String getReport() {
+    if (myAffectedTestFiles == null) {
+      return "Running all tests: no successful run to compare with";
+    }
+    int skipped = Math.max(0, myTestFileCount - myAffectedTestFiles.size());
+    StringBuilder report = new StringBuilder();
+    report.append("Affected tests: running ").append(myAffectedTestFiles.size())
+      .append(" of ").append(myTestFileCount).append(" test files, ")
+      .append(skipped).append(" skipped");
+    long fullRunDuration;
+    int fullRunTestFileCount;
+    synchronized (myGraph) {
+      fullRunDuration = myGraph.getFullRunDurationMillis();
+      fullRunTestFileCount = myGraph.getFullRunTestFileCount();
+    }
+    if (fullRunDuration > 0 && fullRunTestFileCount > 0 && skipped > 0) {
+      long saved = fullRunDuration * Math.min(skipped, fullRunTestFileCount) / fullRunTestFileCount;
+      report.append(", about ").append(StringUtil.formatDuration(saved)).append(" saved compared to the last full run");
+    }
+    return report.toString();
+  }
+
+  /**
+   * Remembers file stamps at the start of the run as the new baseline if all tests passed.
+   */
+  void onFinished(boolean passed, long durationMillis) {
+    synchronized (myGraph) {
+      if (myAffectedTestFiles == null) {
+        myGraph.setFullRun(durationMillis, myTestFileCount);
+      }
+      if (passed) {
+        myGraph.setGreenStamps(myStamps);
+      }
+      try {
+        myGraph.save(myStorageFile);
+      }
+      catch (IOException e) {
+        LOG.warn("Cannot save import graph to " + myStorageFile, e);
+      }
+    }
+  }
+}
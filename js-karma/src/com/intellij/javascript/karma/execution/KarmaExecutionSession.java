@@ -8,6 +8,7 @@ import com.intellij.execution.testframework.TestConsoleProperties;
 import com.intellij.execution.testframework.sm.SMTestRunnerConnectionUtil;
 import com.intellij.execution.testframework.sm.runner.SMTRunnerConsoleProperties;
 import com.intellij.execution.testframework.sm.runner.SMTestLocator;
+import com.intellij.execution.testframework.sm.runner.SMTestProxy;
 import com.intellij.execution.testframework.sm.runner.TestProxyFilterProvider;
 import com.intellij.execution.testframework.sm.runner.ui.SMTRunnerConsoleView;
 import com.intellij.javascript.karma.KarmaConfig;
@@ -21,6 +22,7 @@ import com.intellij.javascript.testFramework.jasmine.JasmineFileStructureBuilder
 import com.intellij.javascript.testFramework.qunit.QUnitFileStructure;
 import com.intellij.javascript.testFramework.qunit.QUnitFileStructureBuilder;
 import com.intellij.lang.javascript.psi.JSFile;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
@@ -37,7 +39,10 @@ import org.jetbrains.io.LocalFileFinder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class KarmaExecutionSession {
 
@@ -52,6 +57,8 @@ public class KarmaExecutionSession {
   private final SMTRunnerConsoleView mySmtConsoleView;
   private final ProcessHandler myProcessHandler;
   private final KarmaExecutionType myExecutionType;
+  private KarmaAffectedTestsRun myAffectedTestsRun;
+  private String myAffectedTestsFilter;
 
   public KarmaExecutionSession(@NotNull Project project,
                                @NotNull KarmaRunConfiguration runConfiguration,
@@ -93,6 +100,9 @@ public class KarmaExecutionSession {
       throw new ExecutionException("Can't find karma-intellij test runner", e);
     }
     if (server.areBrowsersReady()) {
+      if (myRunSettings.getScopeKind() == KarmaScopeKind.AFFECTED_TESTS && !prepareAffectedTestsRun(server.getKarmaConfig())) {
+        return createNoAffectedTestsProcessHandler();
+      }
       return createOSProcessHandler(server, clientAppFile);
     }
     final NopProcessHandler nopProcessHandler = new NopProcessHandler();
@@ -123,6 +133,9 @@ public class KarmaExecutionSession {
     GeneralCommandLine commandLine = createCommandLine(interpreter, server.getServerPort(), server.getKarmaConfig(), clientAppFile);
     OSProcessHandler processHandler = new KillableColoredProcessHandler(commandLine);
     server.getRestarter().onRunnerExecutionStarted(processHandler);
+    if (myAffectedTestsRun != null) {
+      listenForAffectedTestsRunFinish(processHandler, myAffectedTestsRun);
+    }
     ProcessTerminatedListener.attach(processHandler);
     mySmtConsoleView.attachToProcess(processHandler);
     return processHandler;
@@ -160,9 +173,100 @@ public class KarmaExecutionSession {
     else if (myRunSettings.getScopeKind() == KarmaScopeKind.SUITE || myRunSettings.getScopeKind() == KarmaScopeKind.TEST) {
       commandLine.addParameter("--testName=" + StringUtil.join(myRunSettings.getTestNames(), " "));
     }
+    else if (myRunSettings.getScopeKind() == KarmaScopeKind.AFFECTED_TESTS && myAffectedTestsFilter != null) {
+      commandLine.addParameter("--testName=" + myAffectedTestsFilter);
+    }
     return commandLine;
   }
 
+  /**
+   * Stores the filter matching top level suites of affected test files, null if all tests should run.
+   *
+   * @return false if no tests are affected by changes since the last successful run
+   */
+  private boolean prepareAffectedTestsRun(@Nullable KarmaConfig config) throws ExecutionException {
+    KarmaAffectedTestsRun affectedTestsRun = KarmaAffectedTestsRun.prepare(myProject, myRunSettings, config);
+    mySmtConsoleView.getResultsViewer().getTestsRootNode().addSystemOutput(affectedTestsRun.getReport());
+    List<File> testFiles = affectedTestsRun.getAffectedTestFiles();
+    if (testFiles != null) {
+      Set<String> topNames = new LinkedHashSet<>();
+      for (File testFile : testFiles) {
+        VirtualFile file = LocalFileFinder.findFile(testFile.getPath());
+        JSFile jsFile = file != null ? ObjectUtils.tryCast(PsiManager.getInstance(myProject).findFile(file), JSFile.class) : null;
+        if (jsFile != null) {
+          topNames.addAll(getTopLevelSuiteNames(jsFile));
+        }
+      }
+      if (topNames.isEmpty()) {
+        return false;
+      }
+      myAffectedTestsFilter = createTopLevelSuitesFilter(topNames);
+    }
+    myAffectedTestsRun = affectedTestsRun;
+    return true;
+  }
+
+  /**
+   * Finishes the run normally with an empty test tree, there is nothing to run.
+   */
+  @NotNull
+  private ProcessHandler createNoAffectedTestsProcessHandler() {
+    final NopProcessHandler processHandler = new NopProcessHandler();
+    mySmtConsoleView.getResultsViewer().getTestsRootNode().addSystemOutput("No tests are affected by changes since the last successful run\n");
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void startNotified(@NotNull ProcessEvent event) {
+        processHandler.destroyProcess();
+      }
+    });
+    mySmtConsoleView.attachToProcess(processHandler);
+    return processHandler;
+  }
+
+  /**
+   * A single suite is passed as a plain name prefix, like for {@link KarmaScopeKind#TEST_FILE}.
+   * Several suites are passed as a "/regexp/" filter.
+   */
+  @NotNull
+  private static String createTopLevelSuitesFilter(@NotNull Collection<String> topNames) {
+    if (topNames.size() == 1) {
+      return ContainerUtil.getFirstItem(topNames) + " ";
+    }
+    StringBuilder result = new StringBuilder("/^(?:");
+    boolean first = true;
+    for (String name : topNames) {
+      if (!first) {
+        result.append('|');
+      }
+      first = false;
+      for (int i = 0; i < name.length(); i++) {
+        char c = name.charAt(i);
+        if ("\\^$.|?*+()[]{}/".indexOf(c) >= 0) {
+          result.append('\\');
+        }
+        result.append(c);
+      }
+    }
+    return result.append(") /").toString();
+  }
+
+  private void listenForAffectedTestsRunFinish(@NotNull ProcessHandler processHandler,
+                                               @NotNull KarmaAffectedTestsRun affectedTestsRun) {
+    long startTime = System.currentTimeMillis();
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void processTerminated(@NotNull ProcessEvent event) {
+        long duration = System.currentTimeMillis() - startTime;
+        // test events are handled in EDT, let them be processed first
+        ApplicationManager.getApplication().invokeLater(() -> {
+          SMTestProxy.SMRootTestProxy root = mySmtConsoleView.getResultsViewer().getTestsRootNode();
+          boolean passed = !root.isLeaf() && !root.isDefect();
+          ApplicationManager.getApplication().executeOnPooledThread(() -> affectedTestsRun.onFinished(passed, duration));
+        });
+      }
+    });
+  }
+
   private static List<String> findTopLevelSuiteNames(@NotNull Project project, @NotNull String testFilePath) throws ExecutionException {
     VirtualFile file = LocalFileFinder.findFile(testFilePath);
     if (file == null) {
@@ -174,17 +278,22 @@ public class KarmaExecutionSession {
       LOG.info("Not a JavaScript file " + testFilePath + ", " + (psiFile == null ? "null" : psiFile.getClass()));
       throw new ExecutionException("Not a JavaScript file: " + testFilePath);
     }
-    JasmineFileStructure jasmine = JasmineFileStructureBuilder.getInstance().fetchCachedTestFileStructure(jsFile);
-    List<String> elements = jasmine.getTopLevelElements();
+    List<String> elements = getTopLevelSuiteNames(jsFile);
     if (!elements.isEmpty()) {
       return elements;
     }
-    QUnitFileStructure qunit = QUnitFileStructureBuilder.getInstance().fetchCachedTestFileStructure(jsFile);
-    elements = qunit.getTopLevelElements();
+    throw new ExecutionException("No tests found in " + testFilePath);
+  }
+
+  @NotNull
+  private static List<String> getTopLevelSuiteNames(@NotNull JSFile jsFile) {
+    JasmineFileStructure jasmine = JasmineFileStructureBuilder.getInstance().fetchCachedTestFileStructure(jsFile);
+    List<String> elements = jasmine.getTopLevelElements();
     if (!elements.isEmpty()) {
       return elements;
     }
-    throw new ExecutionException("No tests found in " + testFilePath);
+    QUnitFileStructure qunit = QUnitFileStructureBuilder.getInstance().fetchCachedTestFileStructure(jsFile);
+    return qunit.getTopLevelElements();
   }
 
   @NotNull
@@ -181,7 +181,7 @@ public class KarmaRunConfiguration extends LocatableConfigurationBase implements
   public String suggestedName() {
     KarmaRunSettings settings = myRunSettings;
     KarmaScopeKind scopeKind = settings.getScopeKind();
-    if (scopeKind == KarmaScopeKind.ALL) {
+    if (scopeKind == KarmaScopeKind.ALL || scopeKind == KarmaScopeKind.AFFECTED_TESTS) {
       return PathUtil.getFileName(settings.getConfigPath());
     }
     if (scopeKind == KarmaScopeKind.TEST_FILE) {
@@ -0,0 +1,396 @@
+package com.intellij.javascript.karma.scope;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Graph of relative imports between JavaScript and TypeScript sources under a root directory.
+ * <p>
+ * The graph is updated incrementally: a file is re-read only if its length or modification time changed.
+ * It also keeps the stamps of all files at the moment of the last successful run, so that the test files
+ * reachable from files changed since then can be found.
+ * Not thread-safe.
+ */
+public class KarmaImportGraph {
+
+  private static final Logger LOG = Logger.getInstance(KarmaImportGraph.class);
+  private static final int VERSION = 1;
+  private static final int MAX_FILE_LENGTH = 2 * 1024 * 1024;
+  private static final String[] EXTENSIONS = {".ts", ".tsx", ".js", ".jsx"};
+  private static final Set<String> SKIPPED_DIR_NAMES = new HashSet<>(Arrays.asList("node_modules", "bower_components"));
+  private static final Pattern IMPORT_PATTERN = Pattern.compile(
+    "(?:\\bfrom|\\bimport|\\brequire\\s*\\()\\s*\\(?\\s*(['\"])(\\.\\.?/[^'\"\\n]*)\\1"
+  );
+  private static final Pattern TEST_FILE_PATTERN = Pattern.compile("(?:[._-](?:spec|test)|Spec|Test)\\.[jt]sx?$");
+
+  private final File myRoot;
+  private final Map<String, Node> myNodes = new HashMap<>();
+  private Map<String, FileStamp> myGreenStamps;
+  private long myFullRunDurationMillis = -1;
+  private int myFullRunTestFileCount;
+
+  public KarmaImportGraph(@NotNull File root) {
+    myRoot = root;
+  }
+
+  @NotNull
+  public File getRoot() {
+    return myRoot;
+  }
+
+  /**
+   * Re-reads imports of added and modified files and forgets removed files.
+   * Stamps are taken from VFS, so unchanged files are not accessed on disk.
+   *
+   * @param root VFS directory of {@link #getRoot()}, null if it doesn't exist
+   * @return number of re-read files
+   */
+  public int update(@Nullable VirtualFile root) {
+    Set<String> visited = new HashSet<>();
+    int[] reread = new int[1];
+    if (root != null) {
+      ApplicationManager.getApplication().runReadAction(() -> collect(root, "", visited, reread));
+    }
+    myNodes.keySet().retainAll(visited);
+    return reread[0];
+  }
+
+  private void collect(@NotNull VirtualFile dir, @NotNull String relativeDirPath, @NotNull Set<String> visited, int[] reread) {
+    for (VirtualFile child : dir.getChildren()) {
+      String name = child.getName();
+      String relativePath = relativeDirPath.isEmpty() ? name : relativeDirPath + "/" + name;
+      if (child.isDirectory()) {
+        if (!name.startsWith(".") && !SKIPPED_DIR_NAMES.contains(name)) {
+          collect(child, relativePath, visited, reread);
+        }
+      }
+      else if (hasSourceExtension(name)) {
+        visited.add(relativePath);
+        FileStamp stamp = new FileStamp(child.getLength(), child.getTimeStamp());
+        Node node = myNodes.get(relativePath);
+        if (node == null || !node.myStamp.equals(stamp)) {
+          myNodes.put(relativePath, new Node(stamp, readImports(child, relativeDirPath)));
+          reread[0]++;
+        }
+      }
+    }
+  }
+
+  @NotNull
+  private static List<String> readImports(@NotNull VirtualFile file, @NotNull String relativeDirPath) {
+    if (file.getLength() > MAX_FILE_LENGTH) {
+      return Collections.emptyList();
+    }
+    String text;
+    try {
+      text = VfsUtilCore.loadText(file);
+    }
+    catch (IOException e) {
+      LOG.info("Cannot read " + file, e);
+      return Collections.emptyList();
+    }
+    return parseImports(text, relativeDirPath);
+  }
+
+  /**
+   * @return root-relative paths of relatively imported modules, as written in the source: possibly without an extension
+   */
+  @NotNull
+  static List<String> parseImports(@NotNull CharSequence text, @NotNull String relativeDirPath) {
+    List<String> result = new ArrayList<>();
+    Matcher matcher = IMPORT_PATTERN.matcher(text);
+    while (matcher.find()) {
+      String path = relativeDirPath.isEmpty() ? matcher.group(2) : relativeDirPath + "/" + matcher.group(2);
+      String normalized = FileUtil.toCanonicalPath(path, '/');
+      if (normalized != null && !normalized.startsWith("../")) {
+        result.add(StringUtil.trimEnd(normalized, "/"));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return paths of files changed, added or removed since the last successful run,
+   *         or null if there was no successful run yet
+   */
+  @Nullable
+  public Set<String> getChangedFilesSinceGreenRun() {
+    Map<String, FileStamp> greenStamps = myGreenStamps;
+    if (greenStamps == null) {
+      return null;
+    }
+    Set<String> result = new HashSet<>();
+    for (Map.Entry<String, Node> entry : myNodes.entrySet()) {
+      if (!entry.getValue().myStamp.equals(greenStamps.get(entry.getKey()))) {
+        result.add(entry.getKey());
+      }
+    }
+    for (String path : greenStamps.keySet()) {
+      if (!myNodes.containsKey(path)) {
+        result.add(path);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return test files which are among the changed files or import them directly or transitively, sorted
+   */
+  @NotNull
+  public List<String> findAffectedTestFiles(@NotNull Collection<String> changedFiles) {
+    Map<String, List<String>> importers = new HashMap<>();
+    for (Map.Entry<String, Node> entry : myNodes.entrySet()) {
+      for (String imported : entry.getValue().myImports) {
+        String target = resolve(imported);
+        List<String> list = importers.get(target);
+        if (list == null) {
+          list = new ArrayList<>(2);
+          importers.put(target, list);
+        }
+        list.add(entry.getKey());
+      }
+    }
+    Set<String> visited = new HashSet<>();
+    Deque<String> queue = new ArrayDeque<>();
+    for (String changed : changedFiles) {
+      enqueue(changed, visited, queue);
+      if (!myNodes.containsKey(changed)) {
+        // a removed file is referred by unresolved imports: without an extension or as a directory index
+        String withoutExtension = trimSourceExtension(changed);
+        enqueue(withoutExtension, visited, queue);
+        enqueue(StringUtil.trimEnd(withoutExtension, "/index"), visited, queue);
+      }
+    }
+    List<String> result = new ArrayList<>();
+    while (!queue.isEmpty()) {
+      String path = queue.poll();
+      if (myNodes.containsKey(path) && isTestFile(path)) {
+        result.add(path);
+      }
+      List<String> list = importers.get(path);
+      if (list != null) {
+        for (String importer : list) {
+          enqueue(importer, visited, queue);
+        }
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static void enqueue(@NotNull String path, @NotNull Set<String> visited, @NotNull Deque<String> queue) {
+    if (visited.add(path)) {
+      queue.add(path);
+    }
+  }
+
+  @NotNull
+  private String resolve(@NotNull String imported) {
+    if (myNodes.containsKey(imported)) {
+      return imported;
+    }
+    for (String extension : EXTENSIONS) {
+      if (myNodes.containsKey(imported + extension)) {
+        return imported + extension;
+      }
+    }
+    for (String extension : EXTENSIONS) {
+      String index = imported + "/index" + extension;
+      if (myNodes.containsKey(index)) {
+        return index;
+      }
+    }
+    return imported;
+  }
+
+  @NotNull
+  public List<String> getTestFiles() {
+    List<String> result = new ArrayList<>();
+    for (String path : myNodes.keySet()) {
+      if (isTestFile(path)) {
+        result.add(path);
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * @return current stamps of all files, to be passed to {@link #setGreenStamps(Map)} if the run succeeds
+   */
+  @NotNull
+  public Map<String, FileStamp> getStamps() {
+    Map<String, FileStamp> result = new HashMap<>(myNodes.size());
+    for (Map.Entry<String, Node> entry : myNodes.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().myStamp);
+    }
+    return result;
+  }
+
+  public void setGreenStamps(@NotNull Map<String, FileStamp> stamps) {
+    myGreenStamps = stamps;
+  }
+
+  /**
+   * @return duration of the last run of all tests, -1 if unknown
+   */
+  public long getFullRunDurationMillis() {
+    return myFullRunDurationMillis;
+  }
+
+  public int getFullRunTestFileCount() {
+    return myFullRunTestFileCount;
+  }
+
+  public void setFullRun(long durationMillis, int testFileCount) {
+    myFullRunDurationMillis = durationMillis;
+    myFullRunTestFileCount = testFileCount;
+  }
+
+  static boolean isTestFile(@NotNull String path) {
+    return TEST_FILE_PATTERN.matcher(path).find();
+  }
+
+  private static boolean hasSourceExtension(@NotNull String name) {
+    for (String extension : EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @NotNull
+  private static String trimSourceExtension(@NotNull String path) {
+    for (String extension : EXTENSIONS) {
+      if (path.endsWith(extension)) {
+        return path.substring(0, path.length() - extension.length());
+      }
+    }
+    return path;
+  }
+
+  public void save(@NotNull File file) throws IOException {
+    FileUtil.createParentDirs(file);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(VERSION);
+      out.writeUTF(myRoot.getPath());
+      out.writeLong(myFullRunDurationMillis);
+      out.writeInt(myFullRunTestFileCount);
+      out.writeInt(myNodes.size());
+      for (Map.Entry<String, Node> entry : myNodes.entrySet()) {
+        Node node = entry.getValue();
+        out.writeUTF(entry.getKey());
+        node.myStamp.write(out);
+        out.writeInt(node.myImports.size());
+        for (String imported : node.myImports) {
+          out.writeUTF(imported);
+        }
+      }
+      Map<String, FileStamp> greenStamps = myGreenStamps;
+      out.writeInt(greenStamps != null ? greenStamps.size() : -1);
+      if (greenStamps != null) {
+        for (Map.Entry<String, FileStamp> entry : greenStamps.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the saved graph, or an empty graph if the file is missing, outdated or was saved for another root
+   */
+  @NotNull
+  public static KarmaImportGraph load(@NotNull File file, @NotNull File root) {
+    KarmaImportGraph graph = new KarmaImportGraph(root);
+    if (!file.isFile()) {
+      return graph;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != VERSION || !root.getPath().equals(in.readUTF())) {
+        return graph;
+      }
+      graph.myFullRunDurationMillis = in.readLong();
+      graph.myFullRunTestFileCount = in.readInt();
+      int nodeCount = in.readInt();
+      for (int i = 0; i < nodeCount; i++) {
+        String path = in.readUTF();
+        FileStamp stamp = FileStamp.read(in);
+        int importCount = in.readInt();
+        List<String> imports = new ArrayList<>(importCount);
+        for (int j = 0; j < importCount; j++) {
+          imports.add(in.readUTF());
+        }
+        graph.myNodes.put(path, new Node(stamp, imports));
+      }
+      int greenCount = in.readInt();
+      if (greenCount >= 0) {
+        Map<String, FileStamp> greenStamps = new HashMap<>(greenCount);
+        for (int i = 0; i < greenCount; i++) {
+          greenStamps.put(in.readUTF(), FileStamp.read(in));
+        }
+        graph.myGreenStamps = greenStamps;
+      }
+      return graph;
+    }
+    catch (IOException e) {
+      LOG.info("Cannot load import graph from " + file, e);
+      return new KarmaImportGraph(root);
+    }
+  }
+
+  private static class Node {
+    private final FileStamp myStamp;
+    private final List<String> myImports;
+
+    private Node(@NotNull FileStamp stamp, @NotNull List<String> imports) {
+      myStamp = stamp;
+      myImports = imports;
+    }
+  }
+
+  public static class FileStamp {
+    private final long myLength;
+    private final long myModified;
+
+    private FileStamp(long length, long modified) {
+      myLength = length;
+      myModified = modified;
+    }
+
+    private void write(@NotNull DataOutput out) throws IOException {
+      out.writeLong(myLength);
+      out.writeLong(myModified);
+    }
+
+    @NotNull
+    private static FileStamp read(@NotNull DataInput in) throws IOException {
+      return new FileStamp(in.readLong(), in.readLong());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof FileStamp)) return false;
+      FileStamp stamp = (FileStamp)o;
+      return myLength == stamp.myLength && myModified == stamp.myModified;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Long.hashCode(myLength) + Long.hashCode(myModified);
+    }
+  }
+}
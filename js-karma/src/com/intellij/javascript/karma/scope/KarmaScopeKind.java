@@ -34,6 +34,14 @@ public enum KarmaScopeKind {
     public KarmaScopeView createView(@NotNull Project project) {
       return new KarmaSuiteOrTestScopeView("Edit test name", "Test name:");
     }
+  },
+
+  AFFECTED_TESTS("Affected tests &only") {
+    @NotNull
+    @Override
+    public KarmaScopeView createView(@NotNull Project project) {
+      return new KarmaAllTestsScopeView();
+    }
   };
 
   private final String myName;
@@ -76,7 +76,18 @@ public class KarmaServer {
     myProcessOutputManager.addStreamEventListener(new StreamEventListener() {
       @Override
       public void on(@NotNull String eventType, @NotNull String eventBody) {
-        LOG.info("Processing Karma event " + eventType + " " + eventBody);
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Processing Karma event " + eventType + " " + eventBody);
+        }
+        StreamEventHandler handler = myHandlers.get(eventType);
+        if (handler == null) {
+          LOG.warn("Cannot find handler for " + eventType);
+          return;
+        }
+        if (handler instanceof TypedStreamEventHandler) {
+          ((TypedStreamEventHandler<?>)handler).handle(eventBody);
+          return;
+        }
         JsonElement jsonElement;
         try {
           JsonParser jsonParser = new JsonParser();
@@ -87,13 +98,7 @@ public class KarmaServer {
                    " (eventType: " + eventType + ", eventBody: " + eventBody + ")");
           return;
         }
-        StreamEventHandler handler = myHandlers.get(eventType);
-        if (handler != null) {
-          handler.handle(jsonElement);
-        }
-        else {
-          LOG.warn("Cannot find handler for " + eventType);
-        }
+        handler.handle(jsonElement);
       }
     });
   }
@@ -3,17 +3,18 @@ package com.intellij.javascript.karma.server;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Maps;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.intellij.javascript.karma.KarmaConfig;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ObjectUtils;
 import com.intellij.util.containers.ContainerUtil;
-import com.intellij.webcore.util.JsonUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -184,7 +185,13 @@ public class KarmaServerState {
     return null;
   }
 
-  private class BrowserEventHandler implements StreamEventHandler {
+  private static class BrowserEvent {
+    private String myId;
+    private String myName;
+    private Boolean myAutoCaptured;
+  }
+
+  private class BrowserEventHandler extends TypedStreamEventHandler<BrowserEvent> {
 
     private final String myEventType;
 
@@ -198,20 +205,44 @@ public class KarmaServerState {
       return myEventType;
     }
 
+    @Nullable
     @Override
-    public void handle(@NotNull JsonElement eventBody) {
-      if (eventBody.isJsonObject()) {
-        JsonObject event = eventBody.getAsJsonObject();
-        String id = JsonUtil.getChildAsString(event, "id");
-        String name = JsonUtil.getChildAsString(event, "name");
-        Boolean autoCaptured = JsonUtil.getChildAsBooleanObj(event, "isAutoCaptured");
-        if (id != null && name != null) {
-          handleBrowsersChange(myEventType, id, name, autoCaptured);
+    protected BrowserEvent decode(@NotNull JsonReader reader) throws IOException {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        return null;
+      }
+      BrowserEvent event = new BrowserEvent();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if ("id".equals(name)) {
+          event.myId = nextStringOrNull(reader);
+        }
+        else if ("name".equals(name)) {
+          event.myName = nextStringOrNull(reader);
+        }
+        else if ("isAutoCaptured".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+          event.myAutoCaptured = reader.nextBoolean();
         }
         else {
-          LOG.warn("Illegal browser event. Type: " + myEventType + ", body: " + eventBody.toString());
+          reader.skipValue();
         }
       }
+      reader.endObject();
+      return event;
+    }
+
+    @Override
+    protected void handleEvent(@Nullable BrowserEvent event) {
+      if (event == null) {
+        return;
+      }
+      if (event.myId != null && event.myName != null) {
+        handleBrowsersChange(myEventType, event.myId, event.myName, event.myAutoCaptured);
+      }
+      else {
+        LOG.warn("Illegal browser event. Type: " + myEventType + ", id: " + event.myId + ", name: " + event.myName);
+      }
     }
   }
 
@@ -235,26 +266,42 @@ public class KarmaServerState {
     }
   }
 
-  private class BrowserCapturingFailedEventHandler implements StreamEventHandler {
+  private class BrowserCapturingFailedEventHandler extends TypedStreamEventHandler<String> {
     @NotNull
     @Override
     public String getEventType() {
       return "browserCapturingFailed";
     }
 
+    @Nullable
     @Override
-    public void handle(@NotNull JsonElement eventBody) {
-      if (!eventBody.isJsonObject()) {
+    protected String decode(@NotNull JsonReader reader) throws IOException {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
         LOG.warn("Not an object");
-        return;
+        return null;
       }
-      String name = JsonUtil.getChildAsString(eventBody.getAsJsonObject(), "browserLauncherName");
-      if (name != null) {
-        onBrowserCapturingFailed(name);
+      String launcherName = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if ("browserLauncherName".equals(reader.nextName())) {
+          launcherName = nextStringOrNull(reader);
+        }
+        else {
+          reader.skipValue();
+        }
       }
-      else {
+      reader.endObject();
+      if (launcherName == null) {
         LOG.warn("Unspecified name");
       }
+      return launcherName;
+    }
+
+    @Override
+    protected void handleEvent(@Nullable String launcherName) {
+      if (launcherName != null) {
+        onBrowserCapturingFailed(launcherName);
+      }
     }
   }
 }
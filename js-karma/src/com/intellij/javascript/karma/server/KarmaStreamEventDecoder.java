@@ -0,0 +1,99 @@
+package com.intellij.javascript.karma.server;
+
+import com.intellij.javascript.karma.util.StreamEventListener;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
+import com.intellij.util.Consumer;
+import com.intellij.util.PairConsumer;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Splits standard output of the karma server into lines and recognizes {@code ##intellij-event[type:body]} frames.
+ * Frames are recognized in place, in the received chunk of text: only the event type and the body are copied.
+ * A line is copied only if it is not an event or is split between several chunks.
+ */
+class KarmaStreamEventDecoder {
+
+  private static final char NEW_LINE = '\n';
+  private static final String PREFIX = "##intellij-event[";
+  private static final String SUFFIX = "]\n";
+
+  private final StreamEventListener myEventListener;
+  private final Consumer<String> myLineConsumer;
+  private final PairConsumer<String, Key> myTextConsumer;
+  private final List<Pair<String, Key>> myCurrentLineChunks = ContainerUtil.newArrayList();
+
+  /**
+   * @param lineConsumer receives lines which are not events
+   * @param textConsumer receives text of lines which are not events, with the output type of each chunk
+   */
+  KarmaStreamEventDecoder(@NotNull StreamEventListener eventListener,
+                          @NotNull Consumer<String> lineConsumer,
+                          @NotNull PairConsumer<String, Key> textConsumer) {
+    myEventListener = eventListener;
+    myLineConsumer = lineConsumer;
+    myTextConsumer = textConsumer;
+  }
+
+  void process(@NotNull String text, @NotNull Key type) {
+    int lineStartInd = 0;
+    int newLineInd = text.indexOf(NEW_LINE);
+    while (newLineInd != -1) {
+      if (myCurrentLineChunks.isEmpty()) {
+        if (!handleEvent(text, lineStartInd, newLineInd + 1)) {
+          String line = text.substring(lineStartInd, newLineInd + 1); // always not empty
+          myLineConsumer.consume(line);
+          myTextConsumer.consume(line, type);
+        }
+      }
+      else {
+        myCurrentLineChunks.add(Pair.create(text.substring(lineStartInd, newLineInd + 1), type));
+        String line = concatCurrentLineChunks();
+        if (!handleEvent(line, 0, line.length())) {
+          myLineConsumer.consume(line);
+          for (Pair<String, Key> chunk : myCurrentLineChunks) {
+            myTextConsumer.consume(chunk.getFirst(), chunk.getSecond());
+          }
+        }
+        myCurrentLineChunks.clear();
+      }
+      lineStartInd = newLineInd + 1;
+      newLineInd = text.indexOf(NEW_LINE, lineStartInd);
+    }
+    if (lineStartInd < text.length()) {
+      myCurrentLineChunks.add(Pair.create(text.substring(lineStartInd), type));
+    }
+  }
+
+  @NotNull
+  private String concatCurrentLineChunks() {
+    int size = 0;
+    for (Pair<String, Key> chunk : myCurrentLineChunks) {
+      size += chunk.getFirst().length();
+    }
+    StringBuilder result = new StringBuilder(size);
+    for (Pair<String, Key> chunk : myCurrentLineChunks) {
+      result.append(chunk.getFirst());
+    }
+    return result.toString();
+  }
+
+  /**
+   * @param end index after the line's new line character
+   */
+  private boolean handleEvent(@NotNull String text, int start, int end) {
+    int bodyEnd = end - SUFFIX.length();
+    if (bodyEnd < start + PREFIX.length() || !text.startsWith(PREFIX, start) || !text.startsWith(SUFFIX, bodyEnd)) {
+      return false;
+    }
+    int colonInd = text.indexOf(':', start + PREFIX.length());
+    if (colonInd == -1 || colonInd >= bodyEnd) {
+      return false;
+    }
+    myEventListener.on(text.substring(start + PREFIX.length(), colonInd), text.substring(colonInd + 1, bodyEnd));
+    return true;
+  }
+}
@@ -0,0 +1,61 @@
+package com.intellij.javascript.karma.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Handler of a frequent event which is decoded from the event text with a streaming reader,
+ * without building a {@link JsonElement} tree.
+ */
+public abstract class TypedStreamEventHandler<T> implements StreamEventHandler {
+
+  private static final Logger LOG = Logger.getInstance(TypedStreamEventHandler.class);
+
+  /**
+   * @return decoded event or null if the body doesn't have the expected form
+   */
+  @Nullable
+  protected abstract T decode(@NotNull JsonReader reader) throws IOException;
+
+  protected abstract void handleEvent(@Nullable T event);
+
+  @Override
+  public final void handle(@NotNull JsonElement eventBody) {
+    handle(eventBody.toString());
+  }
+
+  public final void handle(@NotNull String eventBody) {
+    T event;
+    try {
+      JsonReader reader = new JsonReader(new StringReader(eventBody));
+      reader.setLenient(true);
+      event = decode(reader);
+    }
+    catch (IOException | IllegalStateException | NumberFormatException e) {
+      LOG.warn("Cannot parse message from karma server:" +
+               " (eventType: " + getEventType() + ", eventBody: " + eventBody + ")");
+      return;
+    }
+    handleEvent(event);
+  }
+
+  /**
+   * @return value of a string or a number, null for other values
+   */
+  @Nullable
+  protected static String nextStringOrNull(@NotNull JsonReader reader) throws IOException {
+    JsonToken token = reader.peek();
+    if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+      return reader.nextString();
+    }
+    reader.skipValue();
+    return null;
+  }
+}
@@ -0,0 +1,127 @@
+package com.intellij.javascript.karma.util;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.util.PairConsumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps the last {@code capacity} characters of process output in a single char array.
+ * Output types are stored as runs: adjacent texts of the same type share one run.
+ * Not thread-safe.
+ */
+public class ArchivedOutputRingBuffer {
+
+  private final char[] myChars;
+  private int myStart;
+  private int myLength;
+
+  private Key[] myRunTypes = new Key[16];
+  private int[] myRunLengths = new int[16];
+  private int myRunStart;
+  private int myRunCount;
+
+  private boolean myTruncated;
+
+  public ArchivedOutputRingBuffer(int capacity) {
+    myChars = new char[capacity];
+  }
+
+  public void append(@NotNull String text, @NotNull Key outputType) {
+    int length = text.length();
+    if (length == 0) {
+      return;
+    }
+    int capacity = myChars.length;
+    if (length >= capacity) {
+      myTruncated |= myLength > 0 || length > capacity;
+      myStart = 0;
+      myLength = 0;
+      myRunStart = 0;
+      myRunCount = 0;
+      text.getChars(length - capacity, length, myChars, 0);
+      myLength = capacity;
+      addRun(outputType, capacity);
+      return;
+    }
+
+    int overflow = myLength + length - capacity;
+    while (overflow > 0) {
+      int firstRunLength = myRunLengths[myRunStart];
+      int dropped = Math.min(firstRunLength, overflow);
+      if (dropped == firstRunLength) {
+        myRunTypes[myRunStart] = null;
+        myRunStart = (myRunStart + 1) % myRunTypes.length;
+        myRunCount--;
+      }
+      else {
+        myRunLengths[myRunStart] -= dropped;
+      }
+      myStart = (myStart + dropped) % capacity;
+      myLength -= dropped;
+      overflow -= dropped;
+      myTruncated = true;
+    }
+
+    int end = (myStart + myLength) % capacity;
+    int firstPart = Math.min(length, capacity - end);
+    text.getChars(0, firstPart, myChars, end);
+    if (firstPart < length) {
+      text.getChars(firstPart, length, myChars, 0);
+    }
+    myLength += length;
+    addRun(outputType, length);
+  }
+
+  private void addRun(@NotNull Key outputType, int length) {
+    if (myRunCount > 0) {
+      int last = (myRunStart + myRunCount - 1) % myRunTypes.length;
+      if (myRunTypes[last] == outputType) {
+        myRunLengths[last] += length;
+        return;
+      }
+    }
+    if (myRunCount == myRunTypes.length) {
+      Key[] types = new Key[myRunCount * 2];
+      int[] lengths = new int[myRunCount * 2];
+      for (int i = 0; i < myRunCount; i++) {
+        int ind = (myRunStart + i) % myRunTypes.length;
+        types[i] = myRunTypes[ind];
+        lengths[i] = myRunLengths[ind];
+      }
+      myRunTypes = types;
+      myRunLengths = lengths;
+      myRunStart = 0;
+    }
+    int ind = (myRunStart + myRunCount) % myRunTypes.length;
+    myRunTypes[ind] = outputType;
+    myRunLengths[ind] = length;
+    myRunCount++;
+  }
+
+  /**
+   * Passes the kept output to the consumer, one call per run of the same output type.
+   */
+  public void forEach(@NotNull PairConsumer<String, Key> consumer) {
+    int offset = myStart;
+    for (int i = 0; i < myRunCount; i++) {
+      int ind = (myRunStart + i) % myRunTypes.length;
+      int length = myRunLengths[ind];
+      StringBuilder text = new StringBuilder(length);
+      int firstPart = Math.min(length, myChars.length - offset);
+      text.append(myChars, offset, firstPart);
+      if (firstPart < length) {
+        text.append(myChars, 0, length - firstPart);
+      }
+      consumer.consume(text.toString(), myRunTypes[ind]);
+      offset = (offset + length) % myChars.length;
+    }
+  }
+
+  public boolean isTruncated() {
+    return myTruncated;
+  }
+
+  public int length() {
+    return myLength;
+  }
+}
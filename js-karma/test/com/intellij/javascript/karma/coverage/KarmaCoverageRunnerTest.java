@@ -0,0 +1,84 @@
+package com.intellij.javascript.karma.coverage;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.rt.coverage.data.ClassData;
+import com.intellij.rt.coverage.data.LineData;
+import com.intellij.rt.coverage.data.ProjectData;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class KarmaCoverageRunnerTest {
+
+  private File myDir;
+  private File myBasePath;
+  private File myDataFile;
+
+  @Before
+  public void setUp() throws IOException {
+    myDir = FileUtil.createTempDirectory("karma-coverage", null);
+    myBasePath = new File(myDir, "project");
+    myDataFile = new File(myDir, "lcov.info");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtil.delete(myDir);
+  }
+
+  @Test
+  public void testUnchangedFilesKeepLineHits() throws IOException {
+    KarmaCoverageRunner runner = new KarmaCoverageRunner();
+    ProjectData first = read(runner, "SF:a.js\nDA:1,1\nend_of_record\nSF:b.js\nDA:1,0\nend_of_record\n");
+    ProjectData second = read(runner, "SF:a.js\nDA:1,1\nend_of_record\nSF:b.js\nDA:1,4\nend_of_record\n");
+
+    Object[] firstA = lines(first, "a.js");
+    Object[] secondA = lines(second, "a.js");
+    Assert.assertNotSame(firstA, secondA);
+    Assert.assertNotNull(runner.getLineHitsOf(firstA));
+    Assert.assertSame(runner.getLineHitsOf(firstA), runner.getLineHitsOf(secondA));
+    Assert.assertSame(runner.getLineHits(path("a.js")), runner.getLineHitsOf(secondA));
+
+    Object[] firstB = lines(first, "b.js");
+    Object[] secondB = lines(second, "b.js");
+    Assert.assertNotSame(runner.getLineHitsOf(firstB), runner.getLineHitsOf(secondB));
+    Assert.assertEquals(0, ((LineData)firstB[1]).getHits());
+    Assert.assertEquals(4, ((LineData)secondB[1]).getHits());
+    Assert.assertSame(runner.getLineHits(path("b.js")), runner.getLineHitsOf(secondB));
+  }
+
+  @Test
+  public void testLinesNotLoadedByRunner() {
+    KarmaCoverageRunner runner = new KarmaCoverageRunner();
+    Assert.assertNull(runner.getLineHitsOf(null));
+    Assert.assertNull(runner.getLineHitsOf(new LineData[2]));
+  }
+
+  @NotNull
+  private ProjectData read(@NotNull KarmaCoverageRunner runner, @NotNull String lcov) throws IOException {
+    FileUtil.writeToFile(myDataFile, lcov);
+    return runner.readProjectData(myDataFile, myBasePath);
+  }
+
+  @NotNull
+  private Object[] lines(@NotNull ProjectData projectData, @NotNull String relativePath) {
+    ClassData classData = projectData.getClassData(path(relativePath));
+    Assert.assertNotNull(relativePath, classData);
+    return classData.getLines();
+  }
+
+  @NotNull
+  private String path(@NotNull String relativePath) {
+    try {
+      return FileUtil.toSystemIndependentName(new File(myBasePath, relativePath).getCanonicalPath());
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.intellij.javascript.karma.coverage;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Map;
+
+public class KarmaLcovParserTest {
+
+  private static final File BASE_PATH = new File(FileUtil.getTempDirectory(), "karma-project");
+
+  @Test
+  public void testLineHits() throws IOException {
+    Map<String, KarmaLcovParser.FileLineHits> report = parse(
+      "TN:\n" +
+      "SF:src/app.js\n" +
+      "FN:1,(anonymous_0)\n" +
+      "DA:1,1\n" +
+      "DA:3,0\n" +
+      "DA:4,12,c2VjcmV0\n" +
+      "LF:3\n" +
+      "LH:2\n" +
+      "end_of_record\n"
+    );
+    Assert.assertEquals(1, report.size());
+    KarmaLcovParser.FileLineHits lineHits = report.get(path("src/app.js"));
+    Assert.assertNotNull(lineHits);
+    Assert.assertEquals(4, lineHits.getMaxLine());
+    Assert.assertEquals(1, lineHits.getHits(1));
+    Assert.assertFalse(lineHits.isExecutable(2));
+    Assert.assertEquals(0, lineHits.getHits(3));
+    Assert.assertEquals(12, lineHits.getHits(4));
+    Assert.assertFalse(lineHits.isExecutable(100));
+  }
+
+  @Test
+  public void testRecordsOfSameFileAreMerged() throws IOException {
+    Map<String, KarmaLcovParser.FileLineHits> report = parse(
+      "SF:src/a.js\nDA:1,1\nDA:2,0\nend_of_record\n" +
+      "SF:" + path("src/b.js") + "\nDA:1,5\nend_of_record\n" +
+      "SF:src/../src/a.js\nDA:2,3\nDA:5,0\nend_of_record\n"
+    );
+    Assert.assertEquals(new ArrayList<>(report.keySet()).toString(), 2, report.size());
+    KarmaLcovParser.FileLineHits a = report.get(path("src/a.js"));
+    Assert.assertEquals(1, a.getHits(1));
+    Assert.assertEquals(3, a.getHits(2));
+    Assert.assertEquals(0, a.getHits(5));
+    Assert.assertEquals(5, report.get(path("src/b.js")).getHits(1));
+  }
+
+  @Test
+  public void testEquality() throws IOException {
+    String text = "SF:src/a.js\nDA:1,1\nDA:200,2\nend_of_record\n";
+    KarmaLcovParser.FileLineHits first = parse(text).get(path("src/a.js"));
+    KarmaLcovParser.FileLineHits second = parse(text).get(path("src/a.js"));
+    KarmaLcovParser.FileLineHits changed = parse(text.replace("DA:200,2", "DA:200,3")).get(path("src/a.js"));
+    Assert.assertEquals(first, second);
+    Assert.assertEquals(first.hashCode(), second.hashCode());
+    Assert.assertNotEquals(first, changed);
+  }
+
+  @Test
+  public void testSymlinkedSourcesAreMerged() throws IOException {
+    File dir = FileUtil.createTempDirectory("karma-lcov", null);
+    try {
+      File src = new File(dir, "src");
+      FileUtil.writeToFile(new File(src, "a.js"), "");
+      File link = new File(dir, "link");
+      try {
+        Files.createSymbolicLink(link.toPath(), src.toPath());
+      }
+      catch (IOException | UnsupportedOperationException e) {
+        return; // symlinks are not available
+      }
+      Map<String, KarmaLcovParser.FileLineHits> report = KarmaLcovParser.parse(new BufferedReader(new StringReader(
+        "SF:src/a.js\nDA:1,1\nend_of_record\n" +
+        "SF:link/a.js\nDA:1,2\nend_of_record\n"
+      )), dir);
+      Assert.assertEquals(new ArrayList<>(report.keySet()).toString(), 1, report.size());
+      Assert.assertEquals(3, report.values().iterator().next().getHits(1));
+    }
+    finally {
+      FileUtil.delete(dir);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testMalformedLineHits() throws IOException {
+    parse("SF:src/a.js\nDA:1\nend_of_record\n");
+  }
+
+  @NotNull
+  private static Map<String, KarmaLcovParser.FileLineHits> parse(@NotNull String text) throws IOException {
+    return KarmaLcovParser.parse(new BufferedReader(new StringReader(text)), BASE_PATH);
+  }
+
+  @NotNull
+  private static String path(@NotNull String relativePath) {
+    try {
+      return FileUtil.toSystemIndependentName(new File(BASE_PATH, relativePath).getCanonicalPath());
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.intellij.javascript.karma.scope;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class KarmaImportGraphTest extends LightPlatformCodeInsightFixtureTestCase {
+
+  private VirtualFile myRoot;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myRoot = myFixture.getTempDirFixture().findOrCreateDir("graph");
+  }
+
+  public void testParseImports() {
+    List<String> imports = KarmaImportGraph.parseImports(
+      "import {A} from './a';\n" +
+      "import * as b from \"../lib/b\";\n" +
+      "import './side-effect.js';\n" +
+      "export {c} from './c/';\n" +
+      "const d = require('./d');\n" +
+      "const e = import('./e');\n" +
+      "import {Component} from '@angular/core';\n" +
+      "const f = require('lodash');\n",
+      "src/app"
+    );
+    assertEquals(Arrays.asList("src/app/a", "src/lib/b", "src/app/side-effect.js", "src/app/c", "src/app/d", "src/app/e"),
+                        imports);
+  }
+
+  public void testTestFileNames() {
+    assertTrue(KarmaImportGraph.isTestFile("src/app/app.component.spec.ts"));
+    assertTrue(KarmaImportGraph.isTestFile("test/parser_test.js"));
+    assertTrue(KarmaImportGraph.isTestFile("test/ParserSpec.js"));
+    assertFalse(KarmaImportGraph.isTestFile("src/app/app.component.ts"));
+    assertFalse(KarmaImportGraph.isTestFile("src/inspector.js"));
+  }
+
+  public void testAffectedTests() throws IOException {
+    write("src/util.ts", "export const x = 1;");
+    write("src/service.ts", "import {x} from './util';");
+    write("src/widget/index.ts", "export * from '../service';");
+    write("src/other.ts", "export const y = 2;");
+    write("src/service.spec.ts", "import './service';");
+    write("src/widget.spec.ts", "import {w} from './widget';");
+    write("src/other.spec.ts", "import {y} from './other';");
+    write("node_modules/lib/lib.spec.js", "");
+
+    KarmaImportGraph graph = new KarmaImportGraph(getRootIoFile());
+    assertEquals(7, graph.update(myRoot));
+    assertNull("No successful run yet", graph.getChangedFilesSinceGreenRun());
+    assertEquals(Arrays.asList("src/other.spec.ts", "src/service.spec.ts", "src/widget.spec.ts"), graph.getTestFiles());
+    graph.setGreenStamps(graph.getStamps());
+    assertEquals(Collections.emptySet(), graph.getChangedFilesSinceGreenRun());
+
+    write("src/util.ts", "export const x = 42;");
+    assertEquals(1, graph.update(myRoot));
+    assertEquals(Arrays.asList("src/service.spec.ts", "src/widget.spec.ts"),
+                 graph.findAffectedTestFiles(graph.getChangedFilesSinceGreenRun()));
+
+    graph.setGreenStamps(graph.getStamps());
+    delete("src/other.ts");
+    assertEquals(0, graph.update(myRoot));
+    assertEquals(Collections.singletonList("src/other.spec.ts"),
+                 graph.findAffectedTestFiles(graph.getChangedFilesSinceGreenRun()));
+
+    assertEquals(0, graph.update(null));
+    assertEquals(Collections.emptyList(), graph.getTestFiles());
+  }
+
+  public void testSaveAndLoad() throws IOException {
+    write("a.js", "require('./b');");
+    write("b.js", "");
+    write("a.spec.js", "require('./a');");
+    KarmaImportGraph graph = new KarmaImportGraph(getRootIoFile());
+    graph.update(myRoot);
+    graph.setGreenStamps(graph.getStamps());
+    graph.setFullRun(60000, 1);
+    File storageDir = FileUtil.createTempDirectory("karma-import-graph", null);
+    try {
+      File storage = new File(storageDir, "graph.dat");
+      graph.save(storage);
+
+      KarmaImportGraph loaded = KarmaImportGraph.load(storage, getRootIoFile());
+      assertEquals("Nothing should be re-read after loading", 0, loaded.update(myRoot));
+      assertEquals(60000, loaded.getFullRunDurationMillis());
+      write("b.js", "module.exports = 1;");
+      loaded.update(myRoot);
+      assertEquals(Collections.singletonList("a.spec.js"), loaded.findAffectedTestFiles(loaded.getChangedFilesSinceGreenRun()));
+
+      KarmaImportGraph otherRoot = KarmaImportGraph.load(storage, new File(getRootIoFile(), "other"));
+      assertNull(otherRoot.getChangedFilesSinceGreenRun());
+    }
+    finally {
+      FileUtil.delete(storageDir);
+    }
+  }
+
+  @NotNull
+  private File getRootIoFile() {
+    return new File(myRoot.getPath());
+  }
+
+  private void write(@NotNull String relativePath, @NotNull String text) throws IOException {
+    String parentPath = relativePath.contains("/") ? relativePath.substring(0, relativePath.lastIndexOf('/')) : "";
+    String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+    IOException[] error = new IOException[1];
+    ApplicationManager.getApplication().runWriteAction(() -> {
+      try {
+        VirtualFile parent = parentPath.isEmpty() ? myRoot : VfsUtil.createDirectoryIfMissing(myRoot, parentPath);
+        VirtualFile file = parent.findChild(name);
+        if (file == null) {
+          file = parent.createChildData(this, name);
+        }
+        VfsUtil.saveText(file, text);
+      }
+      catch (IOException e) {
+        error[0] = e;
+      }
+    });
+    if (error[0] != null) {
+      throw error[0];
+    }
+  }
+
+  private void delete(@NotNull String relativePath) throws IOException {
+    VirtualFile file = myRoot.findFileByRelativePath(relativePath);
+    assertNotNull(file);
+    IOException[] error = new IOException[1];
+    ApplicationManager.getApplication().runWriteAction(() -> {
+      try {
+        file.delete(this);
+      }
+      catch (IOException e) {
+        error[0] = e;
+      }
+    });
+    if (error[0] != null) {
+      throw error[0];
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.intellij.javascript.karma.server;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.javascript.karma.util.ArchivedOutputRingBuffer;
+import com.intellij.openapi.util.Pair;
+import com.intellij.testFramework.PlatformTestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class KarmaStreamEventDecoderTest {
+
+  private static final int EVENTS = 200000;
+
+  private final List<Pair<String, String>> myEvents = new ArrayList<>();
+  private final List<String> myLines = new ArrayList<>();
+  private final StringBuilder myText = new StringBuilder();
+  private final KarmaStreamEventDecoder myDecoder = new KarmaStreamEventDecoder(
+    (eventType, eventBody) -> myEvents.add(Pair.create(eventType, eventBody)),
+    myLines::add,
+    (text, type) -> myText.append(text)
+  );
+
+  @Test
+  public void testEventsAndLines() {
+    myDecoder.process("INFO [karma]: started\n##intellij-event[browserConnected:{\"id\":\"1\"}]\nlast", ProcessOutputTypes.STDOUT);
+    myDecoder.process(" line\n", ProcessOutputTypes.STDOUT);
+    Assert.assertEquals(1, myEvents.size());
+    Assert.assertEquals(Pair.create("browserConnected", "{\"id\":\"1\"}"), myEvents.get(0));
+    Assert.assertEquals(2, myLines.size());
+    Assert.assertEquals("INFO [karma]: started\n", myLines.get(0));
+    Assert.assertEquals("last line\n", myLines.get(1));
+    Assert.assertEquals("INFO [karma]: started\nlast line\n", myText.toString());
+  }
+
+  @Test
+  public void testEventSplitBetweenChunks() {
+    myDecoder.process("##intellij-ev", ProcessOutputTypes.STDOUT);
+    myDecoder.process("ent[coverageFinished:\"/tmp/lcov", ProcessOutputTypes.STDOUT);
+    myDecoder.process(".info\"]\n", ProcessOutputTypes.STDOUT);
+    Assert.assertEquals(1, myEvents.size());
+    Assert.assertEquals(Pair.create("coverageFinished", "\"/tmp/lcov.info\""), myEvents.get(0));
+    Assert.assertTrue(myLines.isEmpty());
+    Assert.assertEquals("", myText.toString());
+  }
+
+  @Test
+  public void testMalformedEventIsLine() {
+    myDecoder.process("##intellij-event[noColon]\n##intellij-event[a:b\n", ProcessOutputTypes.STDOUT);
+    Assert.assertTrue(myEvents.isEmpty());
+    Assert.assertEquals(2, myLines.size());
+  }
+
+  @Test
+  public void testTypedHandler() {
+    BrowserIdHandler handler = new BrowserIdHandler();
+    handler.handle("{\"name\":\"Chrome\",\"id\":42,\"nested\":{\"id\":\"x\"}}");
+    handler.handle("[1, 2]");
+    handler.handle("{\"id\":");
+    Assert.assertEquals(2, handler.myIds.size());
+    Assert.assertEquals("42", handler.myIds.get(0));
+    Assert.assertNull(handler.myIds.get(1));
+  }
+
+  @Test
+  public void testRingBuffer() {
+    ArchivedOutputRingBuffer buffer = new ArchivedOutputRingBuffer(10);
+    buffer.append("abc", ProcessOutputTypes.STDOUT);
+    buffer.append("def", ProcessOutputTypes.STDOUT);
+    buffer.append("gh", ProcessOutputTypes.STDERR);
+    Assert.assertFalse(buffer.isTruncated());
+    Assert.assertEquals("[abcdef:stdout, gh:stderr]", dump(buffer));
+
+    buffer.append("ijkl", ProcessOutputTypes.STDOUT);
+    Assert.assertTrue(buffer.isTruncated());
+    Assert.assertEquals(10, buffer.length());
+    Assert.assertEquals("[cdef:stdout, gh:stderr, ijkl:stdout]", dump(buffer));
+
+    buffer.append("0123456789AB", ProcessOutputTypes.SYSTEM);
+    Assert.assertEquals("[23456789AB:system]", dump(buffer));
+  }
+
+  @Test
+  public void testPerformance() {
+    List<String> chunks = recordStream();
+    PlatformTestUtil.startPerformanceTest("Karma stream events", 3000, () -> {
+      BrowserIdHandler handler = new BrowserIdHandler();
+      ArchivedOutputRingBuffer archive = new ArchivedOutputRingBuffer(16 * 1024);
+      KarmaStreamEventDecoder decoder = new KarmaStreamEventDecoder(
+        (eventType, eventBody) -> handler.handle(eventBody),
+        line -> {},
+        archive::append
+      );
+      for (String chunk : chunks) {
+        decoder.process(chunk, ProcessOutputTypes.STDOUT);
+      }
+      Assert.assertEquals(EVENTS, handler.myIds.size());
+      Assert.assertTrue(archive.isTruncated());
+    }).assertTiming();
+  }
+
+  /**
+   * Emulates what the karma server prints: browser events interleaved with log lines, in chunks of arbitrary size.
+   */
+  @NotNull
+  private static List<String> recordStream() {
+    StringBuilder stream = new StringBuilder();
+    for (int i = 0; i < EVENTS; i++) {
+      stream.append("##intellij-event[browserConnected:{\"id\":\"").append(i)
+        .append("\",\"name\":\"Chrome 52.0.2743 (Linux 0.0.0)\",\"isAutoCaptured\":true}]\n");
+      if (i % 10 == 0) {
+        stream.append("INFO [Chrome 52.0.2743 (Linux 0.0.0)]: Connected on socket ").append(i).append('\n');
+      }
+    }
+    List<String> result = new ArrayList<>();
+    int chunkSize = 8192 + 17;
+    for (int start = 0; start < stream.length(); start += chunkSize) {
+      result.add(stream.substring(start, Math.min(stream.length(), start + chunkSize)));
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String dump(@NotNull ArchivedOutputRingBuffer buffer) {
+    List<String> result = new ArrayList<>();
+    buffer.forEach((text, type) -> result.add(text + ":" + type));
+    return result.toString();
+  }
+
+  private static class BrowserIdHandler extends TypedStreamEventHandler<String> {
+    private final List<String> myIds = new ArrayList<>();
+
+    @NotNull
+    @Override
+    public String getEventType() {
+      return "browserConnected";
+    }
+
+    @Nullable
+    @Override
+    protected String decode(@NotNull JsonReader reader) throws IOException {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        return null;
+      }
+      String id = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if ("id".equals(reader.nextName())) {
+          id = nextStringOrNull(reader);
+        }
+        else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      return id;
+    }
+
+    @Override
+    protected void handleEvent(@Nullable String id) {
+      myIds.add(id);
+    }
+  }
+}
@@ -40,7 +40,13 @@ import org.jetbrains.osgi.jps.util.OrderedProperties;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -53,6 +59,11 @@ import java.util.stream.Collectors;
  * @author <a href="mailto:janthomae@janthomae.de">Jan Thomä</a>
  */
 public class BndWrapper {
+  private static final String CACHE_DIR = ".cache";
+  private static final int CACHE_VERSION = 1;
+  private static final long CACHE_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+  private static final long TEMP_FILE_MAX_AGE = TimeUnit.HOURS.toMillis(1);
+
   private final Reporter myReporter;
 
   public BndWrapper(Reporter reporter) {
@@ -61,37 +72,57 @@ public class BndWrapper {
 
   /**
    * Wraps .jar files using Bnd analyzer. Uses bundlification rules defined in Settings/OSGi/Library Bundling.
+   * Libraries are wrapped in parallel; wrapped jars are kept in a cache under the output directory, keyed by library content
+   * and effective bundlification properties, so they are reused by other modules and after timestamps change.
+   * Cached jars not used for a week are removed.
    */
   @NotNull
   public List<String> bundlifyLibraries(@NotNull Collection<File> dependencies,
                                         @NotNull File outputDir,
                                         @NotNull List<LibraryBundlificationRule> rules) {
-    List<String> result = ContainerUtil.newArrayListWithCapacity(dependencies.size());
+    List<File> files = ContainerUtil.newArrayList(dependencies);
+    String[] result = new String[files.size()];
 
-    for (File dependency : dependencies) {
-      String path = dependency.getPath();
+    // libraries of the same name are wrapped into the same file, so each name is processed by a single task
+    Map<String, List<Integer>> tasks = ContainerUtil.newLinkedHashMap();
+    for (int i = 0; i < files.size(); i++) {
+      String path = files.get(i).getPath();
       if (CachingBundleInfoProvider.canBeBundlified(path)) {
-        myReporter.progress(path);
+        tasks.computeIfAbsent(files.get(i).getName(), k -> ContainerUtil.newSmartList()).add(i);
+      }
+      else if (CachingBundleInfoProvider.isBundle(path)) {
+        result[i] = path;
+      }
+    }
+
+    BndWrapper wrapper = tasks.size() > 1 ? new BndWrapper(new SynchronizedReporter(myReporter)) : this;
+    File cacheDir = new File(outputDir, CACHE_DIR);
+    tasks.values().parallelStream().forEach(indices -> {
+      for (int i : indices) {
+        File dependency = files.get(i);
+        wrapper.myReporter.progress(dependency.getPath());
         try {
-          File bundledDependency = wrap(dependency, outputDir, rules);
+          File bundledDependency = wrapper.wrap(dependency, outputDir, cacheDir, rules);
           if (bundledDependency != null) {
-            result.add(bundledDependency.getPath());
+            result[i] = bundledDependency.getPath();
           }
         }
         catch (OsgiBuildException e) {
-          myReporter.warning(e.getMessage(), e.getCause(), e.getSourcePath(), -1);
+          wrapper.myReporter.warning(e.getMessage(), e.getCause(), e.getSourcePath(), -1);
         }
       }
-      else if (CachingBundleInfoProvider.isBundle(path)) {
-        result.add(path);
-      }
-    }
+    });
 
-    return result;
+    pruneCache(cacheDir, System.currentTimeMillis());
+
+    return Arrays.stream(result).filter(Objects::nonNull).collect(Collectors.toList());
   }
 
   @Nullable
-  private File wrap(@NotNull File sourceFile, @NotNull File outputDir, @NotNull List<LibraryBundlificationRule> rules) throws OsgiBuildException {
+  private File wrap(@NotNull File sourceFile,
+                    @NotNull File outputDir,
+                    @NotNull File cacheDir,
+                    @NotNull List<LibraryBundlificationRule> rules) throws OsgiBuildException {
     if (!sourceFile.isFile()) {
       throw new OsgiBuildException("The library '" + sourceFile + "' does not exist - please check module dependencies.");
     }
@@ -117,10 +148,86 @@ public class BndWrapper {
       return targetFile;
     }
 
-    doWrap(sourceFile, targetFile, additionalProperties);
+    File cachedFile = new File(cacheDir, getCacheKey(sourceFile, additionalProperties) + ".jar");
+    if (cachedFile.isFile()) {
+      // the timestamp of a cached file is the time of its last use
+      if (!cachedFile.setLastModified(System.currentTimeMillis())) {
+        myReporter.debug("Can't update timestamp of '" + cachedFile + "'");
+      }
+    }
+    else {
+      File tempFile;
+      try {
+        tempFile = FileUtil.createTempFile(cacheDir, cachedFile.getName(), ".tmp", true, false);
+      }
+      catch (IOException e) {
+        throw new OsgiBuildException("Can't write bundle '" + cachedFile + "'", e, null);
+      }
+      try {
+        doWrap(sourceFile, tempFile, additionalProperties);
+        if (!tempFile.renameTo(cachedFile) && !cachedFile.isFile()) {
+          throw new OsgiBuildException("Can't write bundle '" + cachedFile + "'");
+        }
+      }
+      finally {
+        FileUtil.delete(tempFile);
+      }
+    }
+
+    try {
+      FileUtil.copy(cachedFile, targetFile);
+    }
+    catch (IOException e) {
+      throw new OsgiBuildException("Can't write bundle '" + targetFile + "'", e, null);
+    }
+    // the copy gets the timestamp of the cached file, which may be older than the library and the rules
+    if (!targetFile.setLastModified(System.currentTimeMillis())) {
+      myReporter.debug("Can't update timestamp of '" + targetFile + "'");
+    }
     return targetFile;
   }
 
+  /**
+   * Deletes cached jars which were not used for {@link #CACHE_MAX_AGE} and temporary files left by interrupted builds.
+   */
+  static void pruneCache(@NotNull File cacheDir, long now) {
+    File[] files = cacheDir.listFiles();
+    if (files == null) return;
+
+    for (File file : files) {
+      long maxAge = file.getName().endsWith(".tmp") ? TEMP_FILE_MAX_AGE : CACHE_MAX_AGE;
+      if (file.isFile() && now - file.lastModified() > maxAge) {
+        FileUtil.delete(file);
+      }
+    }
+  }
+
+  @NotNull
+  private static String getCacheKey(@NotNull File sourceFile, @NotNull Map<String, String> properties) throws OsgiBuildException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      // the name is a part of the key, since a bundle symbolic name may be derived from it
+      StringBuilder header = new StringBuilder().append(CACHE_VERSION).append('\n').append(sourceFile.getName()).append('\n');
+      for (Map.Entry<String, String> property : new TreeMap<>(properties).entrySet()) {
+        header.append(property.getKey()).append('=').append(property.getValue()).append('\n');
+      }
+      digest.update(header.toString().getBytes(StandardCharsets.UTF_8));
+
+      try (InputStream stream = new FileInputStream(sourceFile)) {
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = stream.read(buffer)) > 0) {
+          digest.update(buffer, 0, read);
+        }
+      }
+
+      return StringUtil.toHexString(digest.digest());
+    }
+    catch (IOException | NoSuchAlgorithmException e) {
+      throw new OsgiBuildException("Can't read library '" + sourceFile + "'", e, null);
+    }
+  }
+
   // internal function which does the actual wrapping. 90% borrowed from the Bnd source code.
   private void doWrap(@NotNull File inputJar, @NotNull File outputJar, @NotNull Map<String, String> properties) throws OsgiBuildException {
     if (!FileUtil.delete(outputJar)) {
@@ -313,4 +420,42 @@ public class BndWrapper {
 
     return Collections.emptyList();
   }
-}
\ No newline at end of file
+
+  private static class SynchronizedReporter implements Reporter {
+    private final Reporter myDelegate;
+
+    private SynchronizedReporter(@NotNull Reporter delegate) {
+      myDelegate = delegate;
+    }
+
+    @Override
+    public synchronized void progress(@NotNull String message) {
+      myDelegate.progress(message);
+    }
+
+    @Override
+    public synchronized void warning(@NotNull String message, @Nullable Throwable t, @Nullable String sourcePath, int lineNum) {
+      myDelegate.warning(message, t, sourcePath, lineNum);
+    }
+
+    @Override
+    public synchronized void error(@NotNull String message, @Nullable Throwable t, @Nullable String sourcePath, int lineNum) {
+      myDelegate.error(message, t, sourcePath, lineNum);
+    }
+
+    @Override
+    public synchronized boolean isDebugEnabled() {
+      return myDelegate.isDebugEnabled();
+    }
+
+    @Override
+    public synchronized void debug(@NotNull String message) {
+      myDelegate.debug(message);
+    }
+
+    @Override
+    public synchronized String setReportSource(String source) {
+      return myDelegate.setReportSource(source);
+    }
+  }
+}
@@ -25,26 +25,58 @@
 package org.jetbrains.osgi.jps.build;
 
 import aQute.bnd.osgi.Constants;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.ShutDownTracker;
+import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 /**
  * This is a helper class which helps providing information about bundles (that do not necessarily belong to the project).
+ * Main manifest headers are cached by path, validated by size and modification time of the .jar (or manifest) file.
+ * The cache is stored on disk, in a file shared by the IDE and the build process (see {@link #CACHE_FILE_PROPERTY});
+ * entries saved by the other process are merged in when the file changes.
  *
  * @author <a href="mailto:janthomae@janthomae.de">Jan Thomä</a>
  */
 public class CachingBundleInfoProvider {
-  private static final Map<String, Pair<Long, Manifest>> ourCache = new WeakHashMap<String, Pair<Long, Manifest>>();
+  /**
+   * System property with a path of the cache file; when not set, the file is located in the IDE system directory.
+   */
+  public static final String CACHE_FILE_PROPERTY = "osgi.bundle.info.cache";
+
+  private static final Logger LOG = Logger.getInstance(CachingBundleInfoProvider.class);
+  private static final int CACHE_VERSION = 1;
+  private static final int CACHE_SIZE = 5000;
+  private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+  private static final long CACHE_FILE_CHECK_INTERVAL = 1000;
+
+  // path -> headers, least recently used first
+  private static final Map<String, BundleInfo> ourCache = new LinkedHashMap<String, BundleInfo>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, BundleInfo> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+  private static boolean ourCacheModified = false;
+  // length and modification time of the cache file when it was last loaded or saved
+  private static long ourCacheFileLength = -1;
+  private static long ourCacheFileLastModified = -1;
+  private static long ourCacheFileCheckTime = 0;
+
+  static {
+    ShutDownTracker.getInstance().registerShutdownTask(CachingBundleInfoProvider::saveCache);
+  }
 
   /**
    * True for .jar files or exploded directories with Bundle-SymbolicName in their manifests.
@@ -84,50 +116,211 @@ public class CachingBundleInfoProvider {
 
   @Nullable
   public synchronized static String getBundleAttribute(@NotNull String path, @NotNull String attribute) {
-    Pair<Long, Manifest> pair = ourCache.remove(path);
+    long now = System.currentTimeMillis();
+    if (now - ourCacheFileCheckTime >= CACHE_FILE_CHECK_INTERVAL) {
+      ourCacheFileCheckTime = now;
+      syncWithCacheFile(getCacheFile());
+    }
+
+    File bundleFile = new File(path);
+    File stampFile = bundleFile.isDirectory() ? new File(bundleFile, JarFile.MANIFEST_NAME) : bundleFile;
+    long length = stampFile.length(), lastModified = stampFile.lastModified();
 
+    BundleInfo info = ourCache.get(path);
+    if (info == null || info.length != length || info.lastModified != lastModified) {
+      Map<String, String> headers = readHeaders(bundleFile);
+      if (headers == null) {
+        if (ourCache.remove(path) != null) {
+          ourCacheModified = true;
+        }
+        return null;
+      }
+      info = new BundleInfo(length, lastModified, headers);
+      ourCache.put(path, info);
+      ourCacheModified = true;
+    }
+
+    return info.headers.get(attribute);
+  }
+
+  /**
+   * @return main manifest headers (empty for a .jar without manifest), or null when the file can't be read
+   */
+  @Nullable
+  private static Map<String, String> readHeaders(@NotNull File bundleFile) {
     try {
-      File bundleFile = new File(path);
+      Manifest manifest;
       if (bundleFile.isDirectory()) {
-        File manifestFile = new File(bundleFile, JarFile.MANIFEST_NAME);
-        if (pair == null || pair.first != manifestFile.lastModified()) {
-          pair = null;
-          FileInputStream stream = new FileInputStream(manifestFile);
-          try {
-            Manifest manifest = new Manifest(stream);
-            pair = Pair.create(manifestFile.lastModified(), manifest);
-          }
-          finally {
-            stream.close();
-          }
+        try (FileInputStream stream = new FileInputStream(new File(bundleFile, JarFile.MANIFEST_NAME))) {
+          manifest = new Manifest(stream);
         }
       }
       else if (bundleFile.isFile()) {
-        if (pair == null || pair.first != bundleFile.lastModified()) {
-          pair = null;
-          JarFile jar = new JarFile(bundleFile);
-          try {
-            Manifest manifest = jar.getManifest();
-            if (manifest != null) {
-              pair = Pair.create(bundleFile.lastModified(), manifest);
-            }
-          }
-          finally {
-            jar.close();
+        try (JarFile jar = new JarFile(bundleFile)) {
+          manifest = jar.getManifest();
+        }
+      }
+      else {
+        return null;
+      }
+
+      // manifest header names are case-insensitive
+      Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      if (manifest != null) {
+        for (Map.Entry<Object, Object> entry : manifest.getMainAttributes().entrySet()) {
+          headers.put(entry.getKey().toString(), entry.getValue().toString());
+        }
+      }
+      return headers;
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+      return null;
+    }
+  }
+
+  @NotNull
+  public static File getCacheFile() {
+    String path = System.getProperty(CACHE_FILE_PROPERTY);
+    return path != null ? new File(path) : new File(PathManager.getSystemPath(), "osgi/bundle-info.dat");
+  }
+
+  /**
+   * Writes the cache to disk if it has changed since it was loaded or last saved.
+   * Entries saved by the other process in the meantime are merged in first.
+   */
+  public synchronized static void saveCache() {
+    if (!ourCacheModified) return;
+    ourCacheModified = false;
+
+    File cacheFile = getCacheFile();
+    syncWithCacheFile(cacheFile);
+    File tempFile = null;
+    try {
+      if (!FileUtil.createParentDirs(cacheFile)) {
+        throw new IOException("Can't create directory for " + cacheFile);
+      }
+      tempFile = FileUtil.createTempFile(cacheFile.getParentFile(), cacheFile.getName(), ".tmp", true);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(CACHE_VERSION);
+        out.writeInt(ourCache.size());
+        for (Map.Entry<String, BundleInfo> entry : ourCache.entrySet()) {
+          BundleInfo info = entry.getValue();
+          writeString(out, entry.getKey());
+          out.writeLong(info.length);
+          out.writeLong(info.lastModified);
+          out.writeInt(info.headers.size());
+          for (Map.Entry<String, String> header : info.headers.entrySet()) {
+            writeString(out, header.getKey());
+            writeString(out, header.getValue());
           }
         }
       }
+      // the build process and the IDE may still save at the same time, then the last one wins
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      ourCacheFileLength = cacheFile.length();
+      ourCacheFileLastModified = cacheFile.lastModified();
+    }
+    catch (IOException e) {
+      LOG.info("Can't save bundle info cache to " + cacheFile, e);
+      if (tempFile != null) {
+        FileUtil.delete(tempFile);
+      }
+    }
+  }
+
+  /**
+   * Loads the cache file if it has changed since it was last loaded or saved by this process.
+   * Entries known to this process take precedence over the loaded ones.
+   */
+  private static void syncWithCacheFile(@NotNull File cacheFile) {
+    long length = cacheFile.length(), lastModified = cacheFile.lastModified();
+    if (length == ourCacheFileLength && lastModified == ourCacheFileLastModified) return;
+    ourCacheFileLength = length;
+    ourCacheFileLastModified = lastModified;
+
+    Map<String, BundleInfo> loaded = loadCache(cacheFile);
+    if (loaded.isEmpty()) return;
+
+    // loaded entries go first, so they are the first to be evicted
+    Map<String, BundleInfo> current = new LinkedHashMap<>(ourCache);
+    ourCache.clear();
+    ourCache.putAll(loaded);
+    ourCache.putAll(current);
+  }
+
+  @NotNull
+  private static Map<String, BundleInfo> loadCache(@NotNull File cacheFile) {
+    if (!cacheFile.isFile()) return Collections.emptyMap();
+
+    Map<String, BundleInfo> loaded = new LinkedHashMap<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != CACHE_VERSION) return Collections.emptyMap();
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String path = readString(in);
+        long length = in.readLong();
+        long lastModified = in.readLong();
+        int headerCount = in.readInt();
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int j = 0; j < headerCount; j++) {
+          headers.put(readString(in), readString(in));
+        }
+        loaded.put(path, new BundleInfo(length, lastModified, headers));
+      }
     }
     catch (IOException e) {
-      Logger.getInstance(CachingBundleInfoProvider.class).debug(e);
+      LOG.info("Can't load bundle info cache from " + cacheFile, e);
+      return Collections.emptyMap();
     }
+    return loaded;
+  }
+
+  /**
+   * Drops the in-memory cache without saving it, as if the process has just started.
+   */
+  @TestOnly
+  public synchronized static void clearCache() {
+    ourCache.clear();
+    ourCacheModified = false;
+    ourCacheFileLength = ourCacheFileLastModified = -1;
+    ourCacheFileCheckTime = 0;
+  }
 
-    if (pair != null) {
-      ourCache.put(path, pair);
-      return pair.second.getMainAttributes().getValue(attribute);
+  @TestOnly
+  @NotNull
+  public synchronized static Set<String> getCachedPaths() {
+    syncWithCacheFile(getCacheFile());
+    return new HashSet<>(ourCache.keySet());
+  }
+
+  // unlike DataOutput.writeUTF(), works for values longer than 64K (e.g. Export-Package of large bundles)
+  private static void writeString(@NotNull DataOutput out, @NotNull String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @NotNull
+  private static String readString(@NotNull DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_STRING_LENGTH) {
+      throw new IOException("Invalid string length: " + length);
     }
-    else {
-      return null;
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static class BundleInfo {
+    private final long length;
+    private final long lastModified;
+    private final Map<String, String> headers;
+
+    private BundleInfo(long length, long lastModified, @NotNull Map<String, String> headers) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.headers = headers;
     }
   }
 }
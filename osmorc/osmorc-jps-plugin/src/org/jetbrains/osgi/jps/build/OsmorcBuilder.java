@@ -54,4 +54,9 @@ public class OsmorcBuilder extends TargetBuilder<BuildRootDescriptor, OsmorcBuil
       new OsgiBuildSession().build(target, context);
     }
   }
+
+  @Override
+  public void buildFinished(CompileContext context) {
+    CachingBundleInfoProvider.saveCache();
+  }
 }
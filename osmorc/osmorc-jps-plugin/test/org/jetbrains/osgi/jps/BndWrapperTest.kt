@@ -0,0 +1,127 @@
+/*
+ * Copyright 2000-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.osgi.jps
+
+import com.intellij.openapi.util.io.FileUtil
+import junit.framework.TestCase
+import org.jetbrains.osgi.jps.build.BndWrapper
+import org.jetbrains.osgi.jps.build.Reporter
+import java.io.File
+import java.io.FileOutputStream
+import java.util.concurrent.TimeUnit
+import java.util.jar.Attributes
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+
+class BndWrapperTest : TestCase() {
+  private lateinit var myTempDir: File
+  private lateinit var myOutputDir: File
+  private lateinit var myCacheDir: File
+
+  override fun setUp() {
+    super.setUp()
+    myTempDir = FileUtil.createTempDirectory("osgi.", ".test")
+    myOutputDir = File(myTempDir, "bundles")
+    myCacheDir = File(myOutputDir, ".cache")
+  }
+
+  override fun tearDown() {
+    try {
+      FileUtil.delete(myTempDir)
+    }
+    finally {
+      super.tearDown()
+    }
+  }
+
+  fun testWrap() {
+    val library = library("lib/lib-1.0.jar", "data")
+    assertEquals(listOf(File(myOutputDir, "lib-1.0.jar").path), bundlify(library))
+    assertEquals(1, cachedFiles().size)
+  }
+
+  fun testReuseByContentHash() {
+    val library = library("lib/lib-1.0.jar", "data")
+    bundlify(library)
+    val cached = cachedFiles().single()
+    // a marker proves the cached jar is copied instead of wrapping the library again
+    FileUtil.writeToFile(cached, "cached")
+
+    val copy = library("other/lib-1.0.jar", "data")
+    FileUtil.delete(File(myOutputDir, "lib-1.0.jar"))
+    bundlify(copy)
+    assertEquals("cached", FileUtil.loadFile(File(myOutputDir, "lib-1.0.jar")))
+    assertEquals(listOf(cached), cachedFiles())
+  }
+
+  fun testChangedContentIsWrappedAgain() {
+    bundlify(library("lib/lib-1.0.jar", "data"))
+    FileUtil.delete(File(myOutputDir, "lib-1.0.jar"))
+    bundlify(library("lib/lib-1.0.jar", "changed data"))
+    assertEquals(2, cachedFiles().size)
+  }
+
+  fun testCachePruning() {
+    val library = library("lib/lib-1.0.jar", "data")
+    bundlify(library)
+    val used = cachedFiles().single()
+
+    val now = System.currentTimeMillis()
+    val outdated = File(myCacheDir, "outdated.jar")
+    FileUtil.writeToFile(outdated, "outdated")
+    outdated.setLastModified(now - TimeUnit.DAYS.toMillis(8))
+    val abandoned = File(myCacheDir, "abandoned.jar1.tmp")
+    FileUtil.writeToFile(abandoned, "abandoned")
+    abandoned.setLastModified(now - TimeUnit.HOURS.toMillis(2))
+    val inProgress = File(myCacheDir, "in-progress.jar2.tmp")
+    FileUtil.writeToFile(inProgress, "in progress")
+    used.setLastModified(now - TimeUnit.DAYS.toMillis(8))
+
+    FileUtil.delete(File(myOutputDir, "lib-1.0.jar"))
+    bundlify(library)
+    assertEquals(listOf(inProgress, used).sorted(), cachedFiles())
+
+    BndWrapper.pruneCache(myCacheDir, now + TimeUnit.DAYS.toMillis(8))
+    assertEquals(emptyList<File>(), cachedFiles())
+  }
+
+  private fun bundlify(library: File): List<String> = BndWrapper(TestReporter).bundlifyLibraries(listOf(library), myOutputDir, emptyList())
+
+  private fun cachedFiles(): List<File> = myCacheDir.listFiles()?.sorted() ?: emptyList()
+
+  private fun library(path: String, data: String): File {
+    val file = File(myTempDir, path)
+    FileUtil.createParentDirs(file)
+    val manifest = Manifest()
+    manifest.mainAttributes[Attributes.Name.MANIFEST_VERSION] = "1.0"
+    JarOutputStream(FileOutputStream(file), manifest).use {
+      it.putNextEntry(JarEntry("lib/data.txt"))
+      it.write(data.toByteArray())
+      it.closeEntry()
+    }
+    return file
+  }
+
+  private object TestReporter : Reporter {
+    override fun progress(message: String) { }
+    override fun warning(message: String, t: Throwable?, sourcePath: String?, lineNum: Int) { }
+    override fun error(message: String, t: Throwable?, sourcePath: String?, lineNum: Int) { }
+    override fun isDebugEnabled() = false
+    override fun debug(message: String) { }
+    override fun setReportSource(source: String?): String? = null
+  }
+}
@@ -20,11 +20,11 @@ import aQute.bnd.osgi.Constants;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiNameHelper;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -32,10 +32,16 @@ import java.util.Set;
 /**
  * Represents a bundle manifest.
  * Note that it may be approximate (e.g. for module - see {@link BundleManifestCache#getManifest(Module)} for details).
+ * Package headers are parsed once, and lookups go through enclosing packages of the requested one instead of
+ * scanning header clauses.
  */
 public class BundleManifest {
   private final Map<String, String> myMap;
   private final PsiFile mySource;
+  private final PackageList myExportedPackages;
+  private final PackageList myImportedPackages;
+  private final PackageList myPrivatePackages;
+  private final Set<String> myRequiredBundles;
 
   public BundleManifest(@NotNull Map<String, String> map) {
     this(map, null);
@@ -44,6 +50,10 @@ public class BundleManifest {
   public BundleManifest(@NotNull Map<String, String> map, @Nullable PsiFile source) {
     mySource = source;
     myMap = ContainerUtil.newHashMap(map);
+    myExportedPackages = new PackageList(getValues(Constants.EXPORT_PACKAGE));
+    myImportedPackages = new PackageList(getValues(Constants.IMPORT_PACKAGE));
+    myPrivatePackages = new PackageList(getValues(Constants.PRIVATE_PACKAGE));
+    myRequiredBundles = getValues(Constants.REQUIRE_BUNDLE);
   }
 
   @Nullable
@@ -68,48 +78,67 @@ public class BundleManifest {
 
   @Nullable
   public String getExportedPackage(@NotNull String packageName) {
-    for (String exported : getValues(Constants.EXPORT_PACKAGE)) {
-      exported = StringUtil.trimEnd(exported, ".*");
-      if (PsiNameHelper.isSubpackageOf(packageName, exported)) {
-        return exported;
-      }
-    }
-
-    return null;
+    return myExportedPackages.findEnclosing(packageName);
   }
 
   public boolean isPackageImported(@NotNull String packageName) {
-    for (String imported : getValues(Constants.IMPORT_PACKAGE)) {
-      if (PsiNameHelper.isSubpackageOf(packageName, imported)) {
-        return true;
-      }
-    }
-
-    return false;
+    return myImportedPackages.findEnclosing(packageName) != null;
   }
 
   public boolean isBundleRequired(@NotNull String bsn) {
-    for (String bundleName : getValues(Constants.REQUIRE_BUNDLE)) {
-      if (bsn.equals(bundleName)) {
-        return true;
-      }
-    }
-
-    return false;
+    return myRequiredBundles.contains(bsn);
   }
 
   public boolean isPrivatePackage(@NotNull String packageName) {
-    for (String privatePkg : getValues(Constants.PRIVATE_PACKAGE)) {
-      if (PsiNameHelper.isSubpackageOf(packageName, privatePkg)) {
-        return true;
-      }
-    }
-
-    return false;
+    return myPrivatePackages.findEnclosing(packageName) != null;
   }
 
   private Set<String> getValues(String header) {
     String value = get(header);
     return StringUtil.isEmptyOrSpaces(value) ? Collections.emptySet() : new Parameters(value).keySet();
   }
-}
\ No newline at end of file
+
+  /**
+   * Package names of a header (with ".*" wildcards dropped) mapped to their position in the header.
+   */
+  private static class PackageList {
+    private final Map<String, Integer> myPositions;
+
+    private PackageList(@NotNull Collection<String> packages) {
+      if (packages.isEmpty()) {
+        myPositions = Collections.emptyMap();
+      }
+      else {
+        myPositions = ContainerUtil.newHashMap();
+        for (String packageName : packages) {
+          myPositions.putIfAbsent(StringUtil.trimEnd(packageName, ".*"), myPositions.size());
+        }
+      }
+    }
+
+    /**
+     * @return the first listed package which is the given one or its parent
+     */
+    @Nullable
+    private String findEnclosing(@NotNull String packageName) {
+      if (myPositions.isEmpty()) {
+        return null;
+      }
+
+      String result = null;
+      int resultPosition = Integer.MAX_VALUE;
+      String candidate = packageName;
+      while (true) {
+        Integer position = myPositions.get(candidate);
+        if (position != null && position < resultPosition) {
+          result = candidate;
+          resultPosition = position;
+        }
+        int dot = candidate.lastIndexOf('.');
+        if (dot < 0) break;
+        candidate = candidate.substring(0, dot);
+      }
+      return result;
+    }
+  }
+}
@@ -83,7 +83,7 @@ public class BundleManifestCache {
     if (file != null) {
       List<OrderEntry> entries = myIndex.getOrderEntriesForFile(file);
       if (entries.size() == 1 && entries.get(0) instanceof JdkOrderEntry) {
-        return new JdkBundleManifest();
+        return JdkBundleManifest.INSTANCE;
       }
 
       Module module = myIndex.getModuleForFile(file);
@@ -235,6 +235,8 @@ public class BundleManifestCache {
   }
 
   private static class JdkBundleManifest extends BundleManifest {
+    private static final BundleManifest INSTANCE = new JdkBundleManifest();
+
     public JdkBundleManifest() {
       super(Collections.emptyMap());
     }
@@ -32,6 +32,7 @@ import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.packageDependencies.DependenciesBuilder;
 import com.intellij.packageDependencies.DependencyVisitorFactory;
 import com.intellij.psi.PsiClass;
@@ -51,6 +52,7 @@ import org.osmorc.util.OsgiPsiUtil;
 import javax.swing.*;
 import java.lang.annotation.RetentionPolicy;
 import java.util.List;
+import java.util.Map;
 
 import static org.osmorc.i18n.OsmorcBundle.message;
 
@@ -61,6 +63,9 @@ import static org.osmorc.i18n.OsmorcBundle.message;
  * @author <a href="mailto:robert@beeger.net">Robert F. Beeger</a>
  */
 public class PackageAccessibilityInspection extends BaseJavaBatchLocalInspectionTool {
+  // target package -> last verdict, kept in the requestor module
+  private static final Key<Map<String, Verdict>> VERDICTS = Key.create("osgi.package.accessibility.verdicts");
+
   public boolean checkTests = false;
 
   @Override
@@ -144,13 +149,31 @@ public class PackageAccessibilityInspection extends BaseJavaBatchLocalInspection
       return null;
     }
 
-    BundleManifest importer = BundleManifestCache.getInstance(targetClass.getProject()).getManifest(requestorModule);
+    BundleManifestCache cache = BundleManifestCache.getInstance(targetClass.getProject());
+    BundleManifest importer = cache.getManifest(requestorModule);
+    BundleManifest exporter = cache.getManifest(targetClass);
+    boolean manuallyEdited = facet.getConfiguration().isManifestManuallyEdited();
+
+    // the rest depends only on the package and both manifests, which are replaced when their source changes
+    Map<String, Verdict> verdicts = requestorModule.getUserData(VERDICTS);
+    if (verdicts == null) {
+      verdicts = ContainerUtil.newConcurrentMap();
+      requestorModule.putUserData(VERDICTS, verdicts);
+    }
+    Verdict verdict = verdicts.get(packageName);
+    if (verdict == null || !verdict.isValid(importer, exporter, manuallyEdited)) {
+      verdict = new Verdict(importer, exporter, manuallyEdited, checkPackage(packageName, importer, exporter, manuallyEdited));
+      verdicts.put(packageName, verdict);
+    }
+    return verdict.problem;
+  }
+
+  private static Problem checkPackage(String packageName, BundleManifest importer, BundleManifest exporter, boolean manuallyEdited) {
     if (importer != null && (importer.isPrivatePackage(packageName) || importer.getExportedPackage(packageName) != null)) {
       return null;
     }
 
     // rejects non-exported classes (manifest missing, or a package isn't listed as exported)
-    BundleManifest exporter = BundleManifestCache.getInstance(targetClass.getProject()).getManifest(targetClass);
     if (exporter == null || exporter.getBundleSymbolicName() == null) {
       return Problem.weak(message("PackageAccessibilityInspection.non.osgi", packageName));
     }
@@ -161,7 +184,7 @@ public class PackageAccessibilityInspection extends BaseJavaBatchLocalInspection
     }
 
     // ignores facets other than manually-edited manifests (most probably, they will have their import list correctly generated)
-    if (!facet.getConfiguration().isManifestManuallyEdited()) {
+    if (!manuallyEdited) {
       return null;
     }
 
@@ -181,6 +204,24 @@ public class PackageAccessibilityInspection extends BaseJavaBatchLocalInspection
     return Problem.error(message("PackageAccessibilityInspection.not.imported", packageName), new ImportPackageFix(exportedPackage));
   }
 
+  private static class Verdict {
+    private final BundleManifest importer;
+    private final BundleManifest exporter;
+    private final boolean manuallyEdited;
+    private final Problem problem;
+
+    private Verdict(BundleManifest importer, BundleManifest exporter, boolean manuallyEdited, Problem problem) {
+      this.importer = importer;
+      this.exporter = exporter;
+      this.manuallyEdited = manuallyEdited;
+      this.problem = problem;
+    }
+
+    private boolean isValid(BundleManifest importer, BundleManifest exporter, boolean manuallyEdited) {
+      return this.importer == importer && this.exporter == exporter && this.manuallyEdited == manuallyEdited;
+    }
+  }
+
   private static class ImportPackageFix extends AbstractOsgiQuickFix {
     private final String myPackageToImport;
 
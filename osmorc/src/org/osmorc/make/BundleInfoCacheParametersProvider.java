@@ -0,0 +1,36 @@
+/*
+ * Copyright 2000-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.osmorc.make;
+
+import com.intellij.compiler.server.BuildProcessParametersProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.osgi.jps.build.CachingBundleInfoProvider;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lets the build process share the bundle manifest cache file with the IDE.
+ * The file is not saved here; each process merges the other's entries when it loads or saves the file.
+ */
+public class BundleInfoCacheParametersProvider extends BuildProcessParametersProvider {
+  @NotNull
+  @Override
+  public List<String> getVMArguments() {
+    String cacheFile = CachingBundleInfoProvider.getCacheFile().getPath();
+    return Collections.singletonList("-D" + CachingBundleInfoProvider.CACHE_FILE_PROPERTY + "=" + cacheFile);
+  }
+}
@@ -67,4 +67,17 @@ class BundleManifestTest {
     assertTrue(manifest.isPrivatePackage("org.apache.felix.framework.impl"))
     assertFalse(manifest.isPrivatePackage("org.apache.felix"))
   }
-}
\ No newline at end of file
+
+  @Test fun exportedPackageFirstListed() {
+    val manifest = BundleManifest(mapOf("Export-Package" to "foo.bar.baz,foo.bar"))
+    assertEquals("foo.bar.baz", manifest.getExportedPackage("foo.bar.baz.impl"))
+    assertEquals("foo.bar", manifest.getExportedPackage("foo.bar.bam"))
+  }
+
+  @Test fun privatePackageWildcard() {
+    val manifest = BundleManifest(mapOf("Private-Package" to "org.apache.felix.framework.*"))
+    assertTrue(manifest.isPrivatePackage("org.apache.felix.framework"))
+    assertTrue(manifest.isPrivatePackage("org.apache.felix.framework.impl"))
+    assertFalse(manifest.isPrivatePackage("org.apache.felix"))
+  }
+}
@@ -32,6 +32,8 @@ import org.junit.Test;
 import org.osmorc.OsgiTestUtil;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -86,4 +88,59 @@ public class CachingBundleInfoProviderTest {
     assertThat(CachingBundleInfoProvider.isFragmentBundle(myJarBundle), equalTo(false));
     assertThat(CachingBundleInfoProvider.isFragmentBundle(myInvalidDirBundle), equalTo(false));
   }
+
+  @Test
+  public void testManifestChange() throws Exception {
+    assertThat(CachingBundleInfoProvider.getBundleVersion(myDirBundle), equalTo("1.0.0"));
+
+    File manifestFile = new File(myDirBundle, "META-INF/MANIFEST.MF");
+    long lastModified = manifestFile.lastModified();
+    FileUtil.writeToFile(manifestFile, "Manifest-Version: 1.0\nBundle-SymbolicName: dirbundle\nBundle-Version: 1.1.0\n");
+    assertThat(manifestFile.setLastModified(lastModified + 2000), equalTo(true));
+    assertThat(CachingBundleInfoProvider.getBundleVersion(myDirBundle), equalTo("1.1.0"));
+    assertThat(CachingBundleInfoProvider.isFragmentBundle(myDirBundle), equalTo(false));
+  }
+
+  @Test
+  public void testCacheFileMerge() throws Exception {
+    File cacheFile = new File(myTempDir, "cache/bundle-info.dat");
+    File otherCacheFile = new File(myTempDir, "other/bundle-info.dat");
+    try {
+      // the other process reads a bundle and saves its cache
+      System.setProperty(CachingBundleInfoProvider.CACHE_FILE_PROPERTY, otherCacheFile.getPath());
+      CachingBundleInfoProvider.clearCache();
+      assertThat(CachingBundleInfoProvider.isBundle(myDirBundle), equalTo(true));
+      CachingBundleInfoProvider.saveCache();
+
+      // this process reads another one and saves too
+      System.setProperty(CachingBundleInfoProvider.CACHE_FILE_PROPERTY, cacheFile.getPath());
+      CachingBundleInfoProvider.clearCache();
+      assertThat(CachingBundleInfoProvider.isBundle(myJarBundle), equalTo(true));
+      CachingBundleInfoProvider.saveCache();
+      long lastModified = cacheFile.lastModified();
+
+      // the other process overwrites the file, its entries are merged on the next save
+      FileUtil.copy(otherCacheFile, cacheFile);
+      assertThat(cacheFile.setLastModified(lastModified + 2000), equalTo(true));
+      assertThat(CachingBundleInfoProvider.isBundle(myInvalidDirBundle), equalTo(false));
+      CachingBundleInfoProvider.saveCache();
+      CachingBundleInfoProvider.clearCache();
+      assertThat(CachingBundleInfoProvider.getCachedPaths(),
+                 equalTo(new HashSet<>(Arrays.asList(myDirBundle, myJarBundle, myInvalidDirBundle))));
+
+      // and show up in a running process once the file changes
+      System.setProperty(CachingBundleInfoProvider.CACHE_FILE_PROPERTY, otherCacheFile.getPath());
+      CachingBundleInfoProvider.clearCache();
+      assertThat(CachingBundleInfoProvider.getCachedPaths(), equalTo(new HashSet<>(Arrays.asList(myDirBundle))));
+      lastModified = otherCacheFile.lastModified();
+      FileUtil.copy(cacheFile, otherCacheFile);
+      assertThat(otherCacheFile.setLastModified(lastModified + 2000), equalTo(true));
+      assertThat(CachingBundleInfoProvider.getCachedPaths(),
+                 equalTo(new HashSet<>(Arrays.asList(myDirBundle, myJarBundle, myInvalidDirBundle))));
+    }
+    finally {
+      System.clearProperty(CachingBundleInfoProvider.CACHE_FILE_PROPERTY);
+      CachingBundleInfoProvider.clearCache();
+    }
+  }
 }
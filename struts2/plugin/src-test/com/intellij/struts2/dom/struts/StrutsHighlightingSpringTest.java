@@ -15,14 +15,6 @@
 
 package com.intellij.struts2.dom.struts;
 
-import com.intellij.facet.FacetManager;
-import com.intellij.openapi.application.Result;
-import com.intellij.openapi.command.WriteCommandAction;
-import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.spring.facet.SpringFacet;
-import com.intellij.spring.facet.SpringFileSet;
-import com.intellij.struts2.Struts2ProjectDescriptorBuilder;
-import com.intellij.testFramework.LightProjectDescriptor;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -33,12 +25,7 @@ import java.util.List;
 /**
  * Tests highlighting with Spring plugin.
  */
-public class StrutsHighlightingSpringTest extends StrutsLightHighlightingTestCase {
-
-  private static final LightProjectDescriptor SPRING = new Struts2ProjectDescriptorBuilder()
-    .withStrutsLibrary().withStrutsFacet()
-    .withLibrary("spring", "spring.jar")
-    .withLibrary("struts2-spring-plugin", "struts2-spring-plugin-" + STRUTS2_VERSION + ".jar");
+public class StrutsHighlightingSpringTest extends StrutsLightHighlightingSpringTestCase {
 
   @NonNls
   private static final String SPRING_XML = "spring.xml";
@@ -49,20 +36,6 @@ public class StrutsHighlightingSpringTest extends StrutsLightHighlightingTestCas
     return "strutsXml/spring";
   }
 
-  @NotNull
-  @Override
-  protected LightProjectDescriptor getProjectDescriptor() {
-    return SPRING;
-  }
-
-  @Override
-  protected void performTearDown() {
-    final SpringFacet springFacet = SpringFacet.getInstance(myModule);
-    if (springFacet != null) {
-      springFacet.removeFileSets();
-    }
-  }
-
   public void testStrutsSpringHighlighting() {
     createSpringFileSet(SPRING_XML);
 
@@ -109,40 +82,12 @@ public class StrutsHighlightingSpringTest extends StrutsLightHighlightingTestCas
     assertTrue(variants.contains("springInterceptor"));
   }
 
-  // stuff below is Spring related ===============================================
-
+  @Override
   protected void createSpringFileSet(final String... springXmlPaths) {
-    final SpringFacet springFacet = createSpringFacet();
-
-    @NonNls final SpringFileSet fileSet = springFacet.addFileSet("id", "default");
-    for (final String springXmlPath : springXmlPaths) {
-      myFixture.copyFileToProject(springXmlPath);
-      final VirtualFile file = myFixture.getTempDirFixture().getFile(springXmlPath);
-      assert file != null;
-      fileSet.addFile(file);
-    }
-
-    springFacet.getConfiguration().setModified();
+    super.createSpringFileSet(springXmlPaths);
 
     myFixture.copyFileToProject("MyAbstractClass.java");
     myFixture.copyFileToProject("MyClass.java");
     myFixture.copyFileToProject("MyInterface.java");
   }
-
-  @NotNull
-  protected SpringFacet createSpringFacet() {
-    final SpringFacet springFacet = SpringFacet.getInstance(myModule);
-    if (springFacet != null) {
-      return springFacet;
-    }
-
-    return new WriteCommandAction<SpringFacet>(myFixture.getProject()) {
-      @Override
-      protected void run(@NotNull final Result<SpringFacet> result) {
-        final SpringFacet facet = FacetManager.getInstance(myModule)
-          .addFacet(SpringFacet.getSpringFacetType(), "spring", null);
-        result.setResult(facet);
-      }
-    }.execute().throwException().getResultObject();
-  }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.struts2.dom.struts;
+
+import com.intellij.facet.FacetManager;
+import com.intellij.openapi.application.Result;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.spring.facet.SpringFacet;
+import com.intellij.spring.facet.SpringFileSet;
+import com.intellij.struts2.Struts2ProjectDescriptorBuilder;
+import com.intellij.testFramework.LightProjectDescriptor;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base class for struts.xml tests with Spring plugin.
+ */
+public abstract class StrutsLightHighlightingSpringTestCase extends StrutsLightHighlightingTestCase {
+
+  private static final LightProjectDescriptor SPRING = new Struts2ProjectDescriptorBuilder()
+    .withStrutsLibrary().withStrutsFacet()
+    .withLibrary("spring", "spring.jar")
+    .withLibrary("struts2-spring-plugin", "struts2-spring-plugin-" + STRUTS2_VERSION + ".jar");
+
+  @NotNull
+  @Override
+  protected LightProjectDescriptor getProjectDescriptor() {
+    return SPRING;
+  }
+
+  @Override
+  protected void performTearDown() {
+    final SpringFacet springFacet = SpringFacet.getInstance(myModule);
+    if (springFacet != null) {
+      springFacet.removeFileSets();
+    }
+  }
+
+  /**
+   * Adds a Spring fileset containing the given files, copied from test data.
+   *
+   * @param springXmlPaths Filename(s) of Spring XML.
+   */
+  protected void createSpringFileSet(@NonNls final String... springXmlPaths) {
+    final SpringFacet springFacet = createSpringFacet();
+
+    @NonNls final SpringFileSet fileSet = springFacet.addFileSet("id", "default");
+    for (final String springXmlPath : springXmlPaths) {
+      myFixture.copyFileToProject(springXmlPath);
+      final VirtualFile file = myFixture.getTempDirFixture().getFile(springXmlPath);
+      assert file != null;
+      fileSet.addFile(file);
+    }
+
+    springFacet.getConfiguration().setModified();
+  }
+
+  @NotNull
+  protected SpringFacet createSpringFacet() {
+    final SpringFacet springFacet = SpringFacet.getInstance(myModule);
+    if (springFacet != null) {
+      return springFacet;
+    }
+
+    return new WriteCommandAction<SpringFacet>(myFixture.getProject()) {
+      @Override
+      protected void run(@NotNull final Result<SpringFacet> result) {
+        final SpringFacet facet = FacetManager.getInstance(myModule)
+          .addFacet(SpringFacet.getSpringFacetType(), "spring", null);
+        result.setResult(facet);
+      }
+    }.execute().throwException().getResultObject();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.struts2.dom.struts.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ActionPathIndex}.
+ */
+public class ActionPathIndexTest {
+
+  private static ActionPathIndex<String> createIndex(final String... actionPaths) {
+    final ActionPathIndex<String> index = new ActionPathIndex<>();
+    for (final String actionPath : actionPaths) {
+      index.add(actionPath, actionPath);
+    }
+    return index;
+  }
+
+  @Test
+  public void findExact() {
+    final ActionPathIndex<String> index = createIndex("myPath", "my-Path", "myPath");
+
+    assertEquals(Arrays.asList("myPath", "myPath"), index.find("myPath"));
+    assertEquals(Collections.singletonList("my-Path"), index.find("my-Path!myAction"));
+    assertEquals(Collections.emptyList(), index.find("XyPath"));
+  }
+
+  @Test
+  public void findWildcard() {
+    final ActionPathIndex<String> index = createIndex("some*", "someAction", "some*Action*Stuff", "*", "other*");
+
+    assertEquals(Arrays.asList("some*", "someAction", "*"), index.find("someAction"));
+    assertEquals(Arrays.asList("some*", "some*Action*Stuff", "*"), index.find("someXActionXStuff"));
+    assertEquals(Arrays.asList("some*", "*"), index.find("someThing!myAction"));
+    assertEquals(Collections.emptyList(), index.find("some/Action/Stuff"));
+  }
+
+  @Test
+  public void findWildcardWithRegexCharacters() {
+    final ActionPathIndex<String> index = createIndex("my.Path*", "x[*");
+
+    // '.' keeps its regex meaning, as in ActionUtil#matchesPath()
+    assertEquals(Collections.singletonList("my.Path*"), index.find("myXPathSomething"));
+    assertEquals(Collections.emptyList(), index.find("x["));
+  }
+
+  @Test
+  public void findWildcardWithOptionalPrefixCharacter() {
+    final ActionPathIndex<String> index = createIndex("ab?c*", "ab{0,1}d*", "ab+c*");
+
+    assertEquals(Collections.singletonList("ab?c*"), index.find("acX"));
+    assertEquals(Arrays.asList("ab?c*", "ab+c*"), index.find("abcX"));
+    assertEquals(Collections.singletonList("ab{0,1}d*"), index.find("adX"));
+    assertEquals(Collections.singletonList("ab+c*"), index.find("abbcX"));
+    assertEquals(Collections.emptyList(), index.find("aXc"));
+  }
+
+  @Test
+  public void findWildcardWithAlternation() {
+    final ActionPathIndex<String> index = createIndex("foo|bar*", "(x|y)z*");
+
+    assertEquals(Collections.singletonList("foo|bar*"), index.find("barX"));
+    assertEquals(Collections.singletonList("foo|bar*"), index.find("foo"));
+    assertEquals(Collections.singletonList("(x|y)z*"), index.find("yzX"));
+  }
+}
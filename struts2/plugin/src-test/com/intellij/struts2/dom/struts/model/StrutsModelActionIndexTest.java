@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.struts2.dom.struts.model;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.struts2.dom.struts.StrutsLightHighlightingSpringTestCase;
+import com.intellij.struts2.dom.struts.action.Action;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests action lookup of {@link StrutsModelImpl} by name and by class.
+ */
+public class StrutsModelActionIndexTest extends StrutsLightHighlightingSpringTestCase {
+
+  @NonNls
+  private static final String STRUTS_XML = "struts-action-index.xml";
+
+  private StrutsModel myModel;
+
+  @Override
+  @NotNull
+  protected String getTestDataLocation() {
+    return "strutsXml/spring/actionIndex";
+  }
+
+  @Override
+  protected void performSetUp() {
+    myFixture.copyFileToProject("DefaultAction.java", "com/foo/DefaultAction.java");
+    myFixture.copyFileToProject("EditAction.java", "com/foo/EditAction.java");
+    myFixture.copyFileToProject("UserActionImpl.java", "com/foo/impl/UserActionImpl.java");
+    createSpringFileSet("spring-action-index.xml");
+    createStrutsFileSet(STRUTS_XML);
+
+    final VirtualFile file = myFixture.getTempDirFixture().getFile(STRUTS_XML);
+    assertNotNull(file);
+    final PsiFile psiFile = getPsiManager().findFile(file);
+    assertInstanceOf(psiFile, XmlFile.class);
+    myModel = StrutsManager.getInstance(getProject()).getModelByFile((XmlFile)psiFile);
+    assertNotNull(myModel);
+  }
+
+  @Override
+  protected void performTearDown() {
+    myModel = null;
+    super.performTearDown();
+  }
+
+  public void testFindActionsByName() {
+    assertActions(myModel.findActionsByName("index", null), "/:index", "/admin:index");
+    assertActions(myModel.findActionsByName("index", "/"), "/:index");
+    assertActions(myModel.findActionsByName("index", "/admin"), "/admin:index");
+    assertActions(myModel.findActionsByName("editUser", "/admin"), "/admin:edit*");
+    assertActions(myModel.findActionsByName("editUser", "/"));
+    assertActions(myModel.findActionsByName("index", "/unknown"));
+  }
+
+  public void testFindActionsByClassWithInheritedDefaultClassRef() {
+    assertActions(myModel.findActionsByClass(findClass("com.foo.DefaultAction")), "/:index", "/admin:index");
+    assertActions(myModel.findActionsByClass(findClass("com.foo.EditAction")), "/admin:edit*");
+    assertTrue(myModel.isActionClass(findClass("com.foo.EditAction")));
+  }
+
+  public void testFindActionsBySpringBeanClass() {
+    final PsiClass beanClass = findClass("com.foo.impl.UserActionImpl");
+    assertActions(myModel.findActionsByClass(beanClass), "/:user");
+    assertTrue(myModel.isActionClass(beanClass));
+  }
+
+  public void testFindActionsByClassNamedLikeSpringBean() {
+    myFixture.addClass("package com.foo; public class UserAction {}");
+
+    assertActions(myModel.findActionsByClass(findClass("com.foo.UserAction")), "/:user");
+    assertActions(myModel.findActionsByClass(findClass("com.foo.impl.UserActionImpl")));
+  }
+
+  @NotNull
+  private PsiClass findClass(@NonNls @NotNull final String fqn) {
+    final PsiClass psiClass = myFixture.findClass(fqn);
+    assertNotNull(fqn, psiClass);
+    return psiClass;
+  }
+
+  private static void assertActions(@NotNull final List<Action> actions, @NonNls final String... expected) {
+    final List<String> names = ContainerUtil.map(actions, action -> action.getNamespace() + ":" + action.getName().getStringValue());
+    assertEquals(expected.length == 0 ? Collections.emptyList() : Arrays.asList(expected), names);
+  }
+}
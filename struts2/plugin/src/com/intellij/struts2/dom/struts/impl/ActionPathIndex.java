@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.struts2.dom.struts.impl;
+
+import com.intellij.util.SmartList;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Finds values (Actions) by path with the same semantics as {@link ActionUtil#matchesPath(String, String)}.
+ * <p/>
+ * Exact paths are looked up by hash, wildcard paths are compiled once and stored in a trie by their literal prefix,
+ * so only patterns whose prefix matches the path are evaluated.
+ *
+ * @param <T> Value type.
+ */
+public final class ActionPathIndex<T> {
+
+  @NonNls
+  private static final String REGEX_META_CHARS = "*.?+[](){}\\^$|";
+
+  /**
+   * Quantifiers allowing zero occurrences, '*' is not one since it is replaced by {@code [^/]*}.
+   */
+  @NonNls
+  private static final String QUANTIFIER_CHARS = "?{";
+
+  private final Map<String, List<Entry<T>>> exactPaths = new HashMap<>();
+  private final Node<T> wildcardPaths = new Node<>();
+  private int size;
+
+  /**
+   * Adds value for given path, values are returned in the order of addition.
+   *
+   * @param actionPath Path of Action.
+   * @param value      Value.
+   */
+  public void add(@NotNull @NonNls final String actionPath, @NotNull final T value) {
+    final int ordinal = size++;
+    if (!ActionUtil.isWildcardPath(actionPath)) {
+      exactPaths.computeIfAbsent(actionPath, path -> new SmartList<>()).add(new Entry<>(value, ordinal, null));
+      return;
+    }
+
+    final Pattern pattern = ActionUtil.compileWildcardPath(actionPath);
+    if (pattern == null) {
+      return;
+    }
+
+    Node<T> node = wildcardPaths;
+    final String prefix = getRequiredPrefix(actionPath);
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.getOrCreateChild(prefix.charAt(i));
+    }
+    node.entries.add(new Entry<>(value, ordinal, pattern));
+  }
+
+  /**
+   * Literal prefix every path matching the given one must start with.
+   */
+  @NotNull
+  private static String getRequiredPrefix(@NotNull final String actionPath) {
+    // alternation may make any part optional
+    if (actionPath.indexOf('|') != -1) {
+      return "";
+    }
+
+    int end = 0;
+    while (end < actionPath.length() && REGEX_META_CHARS.indexOf(actionPath.charAt(end)) == -1) {
+      end++;
+    }
+    // quantifier applies to the preceding char: "ab?c" matches "ac"
+    if (end > 0 && end < actionPath.length() && QUANTIFIER_CHARS.indexOf(actionPath.charAt(end)) != -1) {
+      end--;
+    }
+    return actionPath.substring(0, end);
+  }
+
+  /**
+   * Gets all values whose path matches the given one.
+   *
+   * @param checkPath Path to check.
+   * @return Matching values.
+   */
+  @NotNull
+  public List<T> find(@NotNull @NonNls final String checkPath) {
+    final String strippedCheckPath = ActionUtil.stripBang(checkPath);
+
+    final List<Entry<T>> result = new SmartList<>();
+    final List<Entry<T>> exact = exactPaths.get(strippedCheckPath);
+    if (exact != null) {
+      result.addAll(exact);
+    }
+
+    Node<T> node = wildcardPaths;
+    int i = 0;
+    while (node != null) {
+      for (final Entry<T> entry : node.entries) {
+        if (entry.pattern.matcher(strippedCheckPath).matches()) {
+          result.add(entry);
+        }
+      }
+      node = i < strippedCheckPath.length() ? node.getChild(strippedCheckPath.charAt(i++)) : null;
+    }
+
+    if (result.size() > 1) {
+      result.sort(Comparator.comparingInt(entry -> entry.ordinal));
+    }
+    return ContainerUtil.map(result, entry -> entry.value);
+  }
+
+  private static class Entry<T> {
+    private final T value;
+    private final int ordinal;
+    private final Pattern pattern;
+
+    private Entry(final T value, final int ordinal, final Pattern pattern) {
+      this.value = value;
+      this.ordinal = ordinal;
+      this.pattern = pattern;
+    }
+  }
+
+  private static class Node<T> {
+    private Map<Character, Node<T>> children = Collections.emptyMap();
+    private final List<Entry<T>> entries = new SmartList<>();
+
+    private Node<T> getChild(final char c) {
+      return children.get(c);
+    }
+
+    private Node<T> getOrCreateChild(final char c) {
+      if (children.isEmpty()) {
+        children = new HashMap<>();
+      }
+      return children.computeIfAbsent(c, key -> new Node<>());
+    }
+  }
+}
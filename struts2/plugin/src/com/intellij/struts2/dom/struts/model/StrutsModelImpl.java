@@ -15,31 +15,41 @@
 
 package com.intellij.struts2.dom.struts.model;
 
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.struts2.dom.struts.StrutsRoot;
 import com.intellij.struts2.dom.struts.action.Action;
+import com.intellij.struts2.dom.struts.impl.ActionPathIndex;
+import com.intellij.struts2.dom.struts.strutspackage.DefaultClassRef;
 import com.intellij.struts2.dom.struts.strutspackage.Interceptor;
 import com.intellij.struts2.dom.struts.strutspackage.InterceptorOrStackBase;
 import com.intellij.struts2.dom.struts.strutspackage.InterceptorStack;
 import com.intellij.struts2.dom.struts.strutspackage.StrutsPackage;
 import com.intellij.util.Function;
 import com.intellij.util.NotNullFunction;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.Processor;
 import com.intellij.util.SmartList;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.xml.DomFileElement;
+import com.intellij.util.xml.DomUtil;
 import com.intellij.util.xml.model.impl.DomModelImpl;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * @author Yann C&eacute;bron
@@ -52,9 +62,23 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   private static final Function<StrutsRoot, Collection<? extends StrutsPackage>> STRUTS_PACKAGE_COLLECTOR =
     strutsRoot -> strutsRoot.getPackages();
 
+  private final CachedValue<ActionIndex> actionIndex;
+  private final CachedValue<Set<String>> missingClassNames;
+
   StrutsModelImpl(@NotNull final DomFileElement<StrutsRoot> strutsRootDomFileElement,
                   @NotNull final Set<XmlFile> xmlFiles) {
     super(strutsRootDomFileElement, xmlFiles);
+
+    final Project project = strutsRootDomFileElement.getFile().getProject();
+    final CachedValuesManager cachedValuesManager = CachedValuesManager.getManager(project);
+    actionIndex = cachedValuesManager.createCachedValue(
+      () -> CachedValueProvider.Result.create(new ActionIndex(getStrutsPackages()), xmlFiles),
+      false);
+    missingClassNames = cachedValuesManager.createCachedValue(
+      () -> CachedValueProvider.Result.create(actionIndex.getValue().findMissingClassNames(project),
+                                              ArrayUtil.append(ArrayUtil.toObjectArray(xmlFiles),
+                                                               PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT)),
+      false);
   }
 
   @NotNull
@@ -82,7 +106,8 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   @NotNull
   public List<Action> findActionsByName(@NotNull @NonNls final String name,
                                         @Nullable @NonNls final String namespace) {
-    return ContainerUtil.findAll(getActionsForNamespace(namespace), action -> action.matchesPath(name));
+    final ActionPathIndex<Action> index = actionIndex.getValue().getPathIndex(namespace);
+    return index != null ? index.find(name) : new SmartList<>();
   }
 
   @NotNull
@@ -94,14 +119,12 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
                                                final boolean skipOnFirst) {
     final List<Action> actionResultList = new SmartList<>();
 
-    for (final StrutsPackage strutsPackage : getStrutsPackages()) {
-      for (final Action action : strutsPackage.getActions()) {
-        final PsiClass actionClassValue = action.searchActionClass();
-        if (Comparing.equal(clazz, actionClassValue)) {
-          actionResultList.add(action);
-          if (skipOnFirst) {
-            return actionResultList;
-          }
+    for (final Action action : actionIndex.getValue().getClassCandidates(clazz.getQualifiedName(), missingClassNames::getValue)) {
+      final PsiClass actionClassValue = action.searchActionClass();
+      if (Comparing.equal(clazz, actionClassValue)) {
+        actionResultList.add(action);
+        if (skipOnFirst) {
+          return actionResultList;
         }
       }
     }
@@ -115,15 +138,8 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   }
 
   public List<Action> getActionsForNamespace(@Nullable @NonNls final String namespace) {
-    final List<Action> actionResultList = new SmartList<>();
-
-    for (final StrutsPackage strutsPackage : getStrutsPackages()) {
-      if (namespace == null ||
-          Comparing.equal(namespace, strutsPackage.searchNamespace())) {
-        actionResultList.addAll(strutsPackage.getActions());
-      }
-    }
-    return actionResultList;
+    final List<Action> actions = actionIndex.getValue().getActions(namespace);
+    return actions != null ? new SmartList<>(actions) : new SmartList<>();
   }
 
   public boolean processActions(final Processor<Action> processor) {
@@ -133,4 +149,119 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
     }
     return true;
   }
+
+  /**
+   * Actions of all packages, by namespace (resolved using package hierarchy) and by class name, valid until the model's
+   * files change.
+   */
+  private static class ActionIndex {
+    private final List<Action> allActions = new ArrayList<>();
+    private final ActionPathIndex<Action> allPathIndex = new ActionPathIndex<>();
+    private final Map<String, List<Action>> namespaceActions = new HashMap<>();
+    private final Map<String, ActionPathIndex<Action>> namespacePathIndices = new HashMap<>();
+
+    // positions in allActions by class name given in XML (own or default class), and of actions with a class
+    // name which can't be a class name (e.g. Spring bean name)
+    private final Map<String, List<Integer>> classNameActions = new HashMap<>();
+    private final List<Integer> otherClassActions = new ArrayList<>();
+
+    private ActionIndex(final List<StrutsPackage> strutsPackages) {
+      for (final StrutsPackage strutsPackage : strutsPackages) {
+        final String namespace = strutsPackage.searchNamespace();
+        final List<Action> actions = namespaceActions.computeIfAbsent(namespace, key -> new ArrayList<>());
+        final ActionPathIndex<Action> pathIndex = namespacePathIndices.computeIfAbsent(namespace, key -> new ActionPathIndex<>());
+
+        final DefaultClassRef defaultClassRef = strutsPackage.searchDefaultClassRef();
+        final String defaultClassName = defaultClassRef != null ? defaultClassRef.getDefaultClass().getRawText() : null;
+
+        for (final Action action : strutsPackage.getActions()) {
+          final String className = DomUtil.hasXml(action.getActionClass()) ? action.getActionClass().getRawText() : defaultClassName;
+          addClassName(className, allActions.size());
+          allActions.add(action);
+          actions.add(action);
+
+          final String path = action.getName().getRawText();
+          if (path != null) {
+            allPathIndex.add(path, action);
+            pathIndex.add(path, action);
+          }
+        }
+      }
+    }
+
+    private void addClassName(@Nullable final String className, final int position) {
+      if (className == null) {
+        return;
+      }
+
+      final String fqn = StringUtil.replaceChar(className.trim(), '$', '.');
+      if (isClassName(fqn)) {
+        classNameActions.computeIfAbsent(fqn, key -> new SmartList<>()).add(position);
+      }
+      else {
+        otherClassActions.add(position);
+      }
+    }
+
+    private static boolean isClassName(@NotNull final String fqn) {
+      final List<String> names = StringUtil.split(fqn, ".", true, false);
+      return names.size() >= 2 && ContainerUtil.and(names, StringUtil::isJavaIdentifier);
+    }
+
+    /**
+     * Java classes are resolved before Spring beans, so a bean name looking like a FQN (e.g. "com.foo.UserAction")
+     * is indexed as class name; its actions are candidates for any class as long as no such class exists.
+     *
+     * @return Indexed class names without existing class.
+     */
+    @NotNull
+    private Set<String> findMissingClassNames(@NotNull final Project project) {
+      final JavaPsiFacade javaPsiFacade = JavaPsiFacade.getInstance(project);
+      final GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+      final Set<String> missing = new HashSet<>();
+      for (final String fqn : classNameActions.keySet()) {
+        if (javaPsiFacade.findClass(fqn, scope) == null) {
+          missing.add(fqn);
+        }
+      }
+      return missing;
+    }
+
+    /**
+     * @param missingClassNames Supplies indexed class names without existing class, not called if there are no class names.
+     * @return Actions which may use the class, in model order (to be verified by resolving their class).
+     */
+    @NotNull
+    private List<Action> getClassCandidates(@Nullable final String fqn,
+                                            @NotNull final Supplier<Set<String>> missingClassNames) {
+      if (allActions.isEmpty()) {
+        return Collections.emptyList();
+      }
+
+      final Set<Integer> merged = new TreeSet<>(otherClassActions);
+      final List<Integer> positions = fqn != null ? classNameActions.get(fqn) : null;
+      if (positions != null) {
+        merged.addAll(positions);
+      }
+      if (!classNameActions.isEmpty()) {
+        for (final String missing : missingClassNames.get()) {
+          final List<Integer> missingPositions = classNameActions.get(missing);
+          if (missingPositions != null) {
+            merged.addAll(missingPositions);
+          }
+        }
+      }
+      return ContainerUtil.map(merged, allActions::get);
+    }
+
+    @Nullable
+    private List<Action> getActions(@Nullable final String namespace) {
+      return namespace == null ? allActions : namespaceActions.get(namespace);
+    }
+
+    @Nullable
+    private ActionPathIndex<Action> getPathIndex(@Nullable final String namespace) {
+      return namespace == null ? allPathIndex : namespacePathIndices.get(namespace);
+    }
+  }
 }
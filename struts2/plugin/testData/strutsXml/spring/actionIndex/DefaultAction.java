@@ -0,0 +1,4 @@
+package com.foo;
+
+public class DefaultAction {
+}
@@ -0,0 +1,4 @@
+package com.foo.impl;
+
+public class UserActionImpl {
+}